@@ -1,5 +1,7 @@
+import autograd.NoGrad;
 import mathematics.Matrix;
 import mathematics.MultiDimObject;
+import mathematics.NDArray;
 import mathematics.Tensor;
 import nn.layers.*;
 import nn.losses.BCELoss;
@@ -48,17 +50,40 @@ public class Main {
             targets.add(target);
         }
 
+        /**
+         * The samples are grouped into batches: the images of a batch are stacked into a single [batch, 28, 28, 3]
+         * array and the targets into a [1 x batch] matrix, so every layer processes the whole batch in one call.
+         */
+        int batch_size = 8;
+        ArrayList<NDArray> batches = new ArrayList<>();
+        ArrayList<Matrix> batch_targets = new ArrayList<>();
+        for (int i = 0; i < data_samples; i += batch_size) {
+            var images = new MultiDimObject[batch_size];
+            var target_values = new double[1][batch_size];
+            for (int k = 0; k < batch_size; ++k) {
+                images[k] = data.get(i + k);
+                target_values[0][k] = ((Matrix) targets.get(i + k)).get(0, 0).value;
+            }
+            var target = new Matrix(target_values);
+            batches.add(NDArray.stack(images));
+            batch_targets.add(target);
+        }
+
         double learning_rate = 0.01;
         double momentum_rate = 0.9;
         Optimizer optimizer = new Momentum(model.get_parameters(), learning_rate, momentum_rate, mode);
         Loss loss = new BCELoss();  // binary cross entropy is an obvious choice for the binary classification problem
+        loss.set_execution_mode(mode);
+
+        // all batches have the same size, so the graph is traced once and replayed for every batch
+        var plan = model.trace(batches.get(0));
 
         int epochs = 100;
         for (int j = 0; j < epochs; ++j) {
-            for (int i = 0; i < data.size(); ++i) {
-                var output  = model.forward(data.get(i));
+            for (int i = 0; i < batches.size(); ++i) {
+                var output  = plan.forward(batches.get(i));
 
-                var current_loss  = loss.calculate_loss(output, targets.get(i));
+                var current_loss  = loss.calculate_loss(output, batch_targets.get(i)); // summed over the batch
                 loss.reset(); // we don't want to accumulate the loss values
                 loss.add(current_loss);
                 loss.backward(); // compute the gradients of the model with respect to the loss
@@ -69,10 +94,13 @@ public class Main {
 
             // every 10 epochs we check the predictions
             if (j % 10 == 0) {
-                for (int k = 0; k < data.size(); ++k) {
-                        var output  = model.forward(data.get(k));
-                        System.out.printf("Predict: %f. True: %f\n", ((Matrix) output).get(0, 0).value, ((Matrix) targets.get(k)).get(0, 0).value);
-                }
+                NoGrad.run(() -> { // no graph is needed to evaluate the model
+                    for (int i = 0; i < batches.size(); ++i) {
+                        var output  = plan.forward(batches.get(i));
+                        for (int k = 0; k < batch_size; ++k)
+                            System.out.printf("Predict: %f. True: %f\n", ((Matrix) output).get(0, k).value, batch_targets.get(i).get(0, k).value);
+                    }
+                });
                 System.out.println();
             }
         }
@@ -1,5 +1,10 @@
 package autograd;
 
+import autograd.utils.GraphSorter;
+import nn.models.ModelSettings;
+
+import java.util.ArrayList;
+
 /**
  * Represents an abstract base class for differentiable variables.
  * This class is designed to be extended by any class that represents a variable which
@@ -39,11 +44,161 @@ public abstract class Differentiable {
      */
     protected Runnable prop_func_;
 
+    /**
+     * The backward function of leaves, i.e. variables that were not computed from other variables. Leaves are never
+     * released, so they can take part in any number of graphs.
+     */
+    static final Runnable LEAF = () -> {};
+
+    /**
+     * The backward function of variables whose graph has been released by a previous backward pass.
+     */
+    private static final Runnable RELEASED = () -> {
+        throw new RuntimeException("Attempt to backward through a released graph, pass retain_graph = true to keep it");
+    };
+
+    /**
+     * Indicates whether the backward function and the parents of this variable survive backward passes.
+     */
+    private boolean persistent_ = false;
+
+    /**
+     * The tape this variable was recorded on, its entry on the tape and the generation of the tape at the time of
+     * recording. The tape is null for variables that are part of a graph built without a {@link Tape}.
+     */
+    Tape tape_;
+    int tape_index_;
+    int tape_generation_;
+
+    /**
+     * The objects the backward function of this variable accumulates gradients into. If it is null, the function is
+     * assumed to accumulate into the parents only.
+     */
+    Object[] gradient_targets_;
+
+    /**
+     * Counts the new variable in the active {@link Profiler}, if there is one.
+     */
+    protected Differentiable() {
+        var profiler = Profiler.active();
+        if (profiler != null) profiler.record_creation();
+    }
+
+    /**
+     * Returns the nodes this variable was computed from, i.e. the nodes its backward function propagates
+     * gradients to.
+     * @return An ArrayList of the parents of this variable in the computational graph.
+     */
+    public abstract ArrayList<Differentiable> get_parents();
+
+    /**
+     * Declares the objects the backward function of this variable accumulates gradients into, e.g. the buffers of
+     * the inputs of an operation. The parallel backward pass never runs two variables with a common target at the
+     * same time.
+     * @param targets The objects receiving gradients from this variable.
+     */
+    public void set_gradient_targets(Object... targets) {
+        gradient_targets_ = targets;
+    }
+
+    /**
+     * Marks this variable as persistent, i.e. its backward function and parents are never released by a backward
+     * pass. It is meant for nodes that are reused by many graphs, e.g. the output of an execution plan.
+     * @param persistent Whether the variable should survive backward passes.
+     */
+    public void set_persistent(boolean persistent) {
+        persistent_ = persistent;
+    }
+
     /**
      * Triggers the backward computation for this variable, typically propagating the
-     * gradient to variables it depends on.
+     * gradient to variables it depends on. The graph is released while the gradients are propagated.
+     */
+    public void backward() {
+        backward(ModelSettings.executionMode.SERIAL, false);
+    }
+
+    /**
+     * Triggers the backward computation for this variable.
+     * @param retain_graph Whether the graph should be kept for another backward pass.
+     */
+    public void backward(boolean retain_graph) {
+        backward(ModelSettings.executionMode.SERIAL, retain_graph);
+    }
+
+    /**
+     * Triggers the backward computation for this variable in the given execution mode. In the parallel mode the
+     * backward functions of independent variables run concurrently on the common ForkJoin pool.
+     * @param mode The execution mode of the backward pass.
+     */
+    public void backward(ModelSettings.executionMode mode) {
+        backward(mode, false);
+    }
+
+    /**
+     * Triggers the backward computation for this variable in the given execution mode.
      * Implementations of this method should define how the backward pass should be performed
      * for the specific type of variable, including how gradients are to be handled and propagated.
+     * @param mode The execution mode of the backward pass.
+     * @param retain_graph Whether the graph should be kept for another backward pass. If it is false, the backward
+     *                     function and the parents of every variable are dropped as soon as its gradient has been
+     *                     propagated, so the graph can be collected while the pass is still running. If it is true,
+     *                     the gradient of every variable computed from others is reset once it has been propagated,
+     *                     so another pass accumulates into the leaves the same gradients again.
+     */
+    public abstract void backward(ModelSettings.executionMode mode, boolean retain_graph);
+
+    /**
+     * Runs the backward functions of this variable and of all variables it depends on, in an order in which every
+     * variable is processed after all of its consumers. The gradient of this variable must already be set.
+     * @param mode The execution mode of the backward pass.
+     * @param retain_graph Whether the graph should be kept for another backward pass.
+     */
+    protected void propagate(ModelSettings.executionMode mode, boolean retain_graph) {
+        if (tape_ != null) {
+            tape_.backward(this, mode, retain_graph);
+            return;
+        }
+        if (mode == ModelSettings.executionMode.PARALLEL) {
+            new ParallelBackward(this, retain_graph).run();
+            return;
+        }
+
+        var profiler = Profiler.active();
+        long start = profiler != null ? System.nanoTime() : 0;
+        var sorter = new GraphSorter();
+        var topological_order = sorter.topSort(this);
+        if (profiler != null) profiler.record_graph(topological_order, System.nanoTime() - start);
+
+        for (int i = 0; i < topological_order.size(); ++i) {
+            var node = topological_order.get(i);
+            if (profiler != null) profiler.run(node);
+            else node.prop_func_.run();
+            node.propagated(retain_graph);
+            topological_order.set(i, null);
+        }
+    }
+
+    /**
+     * Finishes the backward step of this variable: the graph behind it is released, or if it is retained, the
+     * gradient of this variable is reset so that the next pass does not propagate it again. The gradients of leaves
+     * are kept.
+     * @param retain_graph Whether the graph is kept for another backward pass.
+     */
+    void propagated(boolean retain_graph) {
+        if (!retain_graph) release();
+        else if (prop_func_ != LEAF) gradient = 0;
+    }
+
+    /**
+     * Drops the backward function and the parents of this variable once its gradient has been propagated, so that
+     * the part of the graph it references can be collected. A later backward pass through this variable fails.
+     * Leaves own no backward function and are kept as they are.
      */
-    public abstract void backward();
+    void release() {
+        if (persistent_ || prop_func_ == LEAF) return;
+        prop_func_ = RELEASED;
+        gradient_targets_ = null;
+        get_parents().clear();
+    }
 }
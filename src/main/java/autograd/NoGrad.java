@@ -0,0 +1,74 @@
+package autograd;
+
+import java.util.function.Supplier;
+
+/**
+ * Scope in which no computational graph is built, e.g. for inference or validation. Inside the scope operations over
+ * {@link Value}s, matrices and tensors only compute their results: they record neither parents nor backward
+ * functions, and their results do not require gradients. Scopes can be nested; the graph is built again once the
+ * outermost scope is closed. A scope only applies to the thread that opened it, so evaluating a model on one thread
+ * does not disable the graph of a training step running on another.
+ * <pre>{@code
+ * var output = NoGrad.call(() -> model.forward(input));
+ * }</pre>
+ */
+public class NoGrad implements AutoCloseable {
+    private static final ThreadLocal<int[]> depth_ = ThreadLocal.withInitial(() -> new int[1]);
+    private final Thread owner_ = Thread.currentThread();
+    private boolean closed_ = false;
+
+    /**
+     * Opens a new no-grad scope on the current thread.
+     */
+    public NoGrad() {
+        ++depth_.get()[0];
+    }
+
+    /**
+     * Runs a function in a no-grad scope.
+     * @param body The function to run.
+     */
+    public static void run(Runnable body) {
+        var no_grad = new NoGrad();
+        try {
+            body.run();
+        } finally {
+            no_grad.close();
+        }
+    }
+
+    /**
+     * Computes a result in a no-grad scope.
+     * @param body The function computing the result.
+     * @param <T> The type of the result.
+     * @return The result of the function.
+     */
+    public static <T> T call(Supplier<T> body) {
+        var no_grad = new NoGrad();
+        try {
+            return body.get();
+        } finally {
+            no_grad.close();
+        }
+    }
+
+    /**
+     * Checks whether operations of the current thread build the computational graph.
+     * @return true if no no-grad scope is open on the current thread; false otherwise.
+     */
+    public static boolean is_grad_enabled() {
+        return depth_.get()[0] == 0;
+    }
+
+    /**
+     * Closes the scope. Closing it more than once has no effect.
+     * @throws RuntimeException If the scope is closed by another thread than the one that opened it.
+     */
+    @Override
+    public void close() {
+        if (closed_) return;
+        if (Thread.currentThread() != owner_) throw new RuntimeException("No-grad scope can only be closed by the thread that opened it");
+        closed_ = true;
+        --depth_.get()[0];
+    }
+}
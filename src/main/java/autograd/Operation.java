@@ -0,0 +1,66 @@
+package autograd;
+
+import nn.models.ModelSettings;
+import java.util.ArrayList;
+
+/**
+ * Represents a node in a computational graph that stands for a whole operation over multi-dimensional objects,
+ * e.g. a matrix multiplication or a convolution. Instead of one {@link Value} per element, the operation
+ * records a single node whose backward function reads the gradient of the whole output and propagates it to the
+ * whole inputs at once.
+ *
+ * The gradients themselves flow through the buffers of the objects the operation connects, so the scalar
+ * {@code value} and {@code gradient} fields of this node are not used. Operations live in the same graph as
+ * {@link Value}s and are ordered together with them by {@link Differentiable#backward()}.
+ */
+public class Operation extends Differentiable {
+    private final String name_;
+    private final ArrayList<Differentiable> parents_;
+
+    /**
+     * Constructs a new operation node.
+     * @param name The name of the operation, e.g. "matmul".
+     * @param backward_func The function propagating the gradient of the output to the inputs.
+     * @param parents The nodes that produced the inputs of the operation; null entries (inputs that are leaves) are ignored.
+     * @throws NullPointerException if the backward function is null.
+     */
+    public Operation(String name, Runnable backward_func, Differentiable... parents) {
+        if (backward_func == null) throw new NullPointerException("Operation requires a backward function");
+        name_ = name;
+        parents_ = new ArrayList<>();
+        for (var parent: parents) {
+            if (parent != null && !parents_.contains(parent)) parents_.add(parent);
+        }
+        prop_func_ = backward_func;
+        requires_grad = true;
+        var tape = Tape.recording();
+        if (tape != null) tape.record_external(this);
+    }
+
+    /**
+     * Returns the name of the operation.
+     * @return The name given to the operation when it was recorded.
+     */
+    public String get_name() {
+        return name_;
+    }
+
+    /**
+     * Returns the nodes that produced the inputs of this operation.
+     * @return An ArrayList of the parents of this operation.
+     */
+    @Override
+    public ArrayList<Differentiable> get_parents() {
+        return parents_;
+    }
+
+    /**
+     * Propagates the gradient already accumulated in the output of this operation through the computational graph.
+     * @param mode The execution mode of the backward pass.
+     * @param retain_graph Whether the graph should be kept for another backward pass.
+     */
+    @Override
+    public void backward(ModelSettings.executionMode mode, boolean retain_graph) {
+        propagate(mode, retain_graph);
+    }
+}
@@ -0,0 +1,167 @@
+package autograd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs the backward pass of a computational graph on the common {@link ForkJoinPool}. Every node keeps the number
+ * of its consumers that have not propagated their gradients yet; a node is scheduled as soon as this number drops
+ * to zero, so independent branches of the graph (e.g. the kernels of a convolution) are processed concurrently.
+ *
+ * Two nodes accumulating into the same gradient must not run at the same time. The objects a node accumulates into
+ * (see {@link Differentiable#set_gradient_targets(Object...)}) are hashed into a fixed number of stripes, and a node
+ * is started only after it has claimed all of its stripes; otherwise it waits until the node holding them finishes.
+ * Stripes are claimed and released atomically, so no lock is held while a backward function runs.
+ */
+class ParallelBackward {
+    private static final int STRIPES = 64;
+
+    private final Differentiable[] nodes_;
+    private final int[][] parents_;
+    private final int[][] stripes_;
+    private final boolean retain_graph_;
+    private final AtomicIntegerArray pending_;
+    private final AtomicInteger remaining_;
+    private final boolean[] claimed_ = new boolean[STRIPES];
+    private final ArrayList<Integer> blocked_ = new ArrayList<>();
+    private final CountDownLatch done_ = new CountDownLatch(1);
+    private final Profiler profiler_ = Profiler.active();
+    private volatile Throwable error_;
+
+    /**
+     * Collects the nodes reachable from the root and counts the consumers of every node.
+     * @param root The node the backward pass starts from.
+     * @param retain_graph Whether the nodes should keep their backward functions and parents after the pass.
+     */
+    ParallelBackward(Differentiable root, boolean retain_graph) {
+        retain_graph_ = retain_graph;
+        long start = profiler_ != null ? System.nanoTime() : 0;
+        var indices = new IdentityHashMap<Differentiable, Integer>();
+        var nodes = new ArrayList<Differentiable>();
+        var stack = new ArrayDeque<Differentiable>();
+        indices.put(root, 0);
+        nodes.add(root);
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            for (var parent: stack.pop().get_parents()) {
+                if (indices.putIfAbsent(parent, nodes.size()) != null) continue;
+                nodes.add(parent);
+                stack.push(parent);
+            }
+        }
+
+        nodes_ = nodes.toArray(new Differentiable[0]);
+        parents_ = new int[nodes_.length][];
+        stripes_ = new int[nodes_.length][];
+        pending_ = new AtomicIntegerArray(nodes_.length);
+        remaining_ = new AtomicInteger(nodes_.length);
+        for (int i = 0; i < nodes_.length; ++i) {
+            var parents = nodes_[i].get_parents();
+            parents_[i] = new int[parents.size()];
+            for (int j = 0; j < parents.size(); ++j) {
+                parents_[i][j] = indices.get(parents.get(j));
+                pending_.incrementAndGet(parents_[i][j]);
+            }
+
+            Object[] targets = nodes_[i].gradient_targets_ != null ? nodes_[i].gradient_targets_ : parents.toArray();
+            stripes_[i] = new int[targets.length];
+            for (int j = 0; j < targets.length; ++j)
+                stripes_[i][j] = (System.identityHashCode(targets[j]) & Integer.MAX_VALUE) % STRIPES;
+        }
+        if (profiler_ != null) profiler_.record_graph(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs the backward functions of all collected nodes and waits until they finish. The waiting thread may itself
+     * be a worker of the common pool, e.g. if the backward pass is started inside a parallel stream, so it waits as a
+     * managed blocker and the pool compensates for it instead of running out of workers for the scheduled nodes.
+     * @throws RuntimeException If one of the backward functions fails or the waiting thread is interrupted.
+     */
+    void run() {
+        schedule(0);
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    done_.await();
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return done_.getCount() == 0;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Backward pass was interrupted", e);
+        }
+        if (error_ != null) throw new RuntimeException("Backward pass failed", error_);
+    }
+
+    /**
+     * Starts a node whose consumers have all finished, or postpones it if its stripes are claimed by another node.
+     * @param node The index of the node.
+     */
+    private void schedule(int node) {
+        synchronized (this) {
+            if (!claim(node)) {
+                blocked_.add(node);
+                return;
+            }
+        }
+        ForkJoinPool.commonPool().execute(() -> execute(node));
+    }
+
+    /**
+     * Runs the backward function of a node, then releases its stripes and schedules the nodes that became ready.
+     * @param node The index of the node.
+     */
+    private void execute(int node) {
+        if (error_ != null) return;
+        try {
+            if (profiler_ != null) profiler_.run(nodes_[node]);
+            else nodes_[node].prop_func_.run();
+        } catch (Throwable e) {
+            error_ = e;
+            done_.countDown();
+            return;
+        }
+
+        nodes_[node].propagated(retain_graph_);
+        nodes_[node] = null;
+
+        var unblocked = new ArrayList<Integer>();
+        synchronized (this) {
+            for (int stripe: stripes_[node]) claimed_[stripe] = false;
+            for (int i = 0; i < blocked_.size(); ++i) {
+                if (!claim(blocked_.get(i))) continue;
+                unblocked.add(blocked_.remove(i--));
+            }
+        }
+        for (int blocked: unblocked) ForkJoinPool.commonPool().execute(() -> execute(blocked));
+
+        for (int parent: parents_[node]) {
+            if (pending_.decrementAndGet(parent) == 0) schedule(parent);
+        }
+        if (remaining_.decrementAndGet() == 0) done_.countDown();
+    }
+
+    /**
+     * Claims all stripes of a node if none of them is claimed. Must be called while holding the monitor of this object.
+     * @param node The index of the node.
+     * @return true if the stripes were claimed; false otherwise.
+     */
+    private boolean claim(int node) {
+        for (int stripe: stripes_[node]) {
+            if (claimed_[stripe]) return false;
+        }
+        for (int stripe: stripes_[node]) claimed_[stripe] = true;
+        return true;
+    }
+}
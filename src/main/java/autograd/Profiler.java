@@ -0,0 +1,226 @@
+package autograd;
+
+import mathematics.Storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects statistics about the computational graph while it is active: the number of nodes (and hence backward
+ * closures) created, and for every backward pass the number of nodes of each kind, a rough estimate of the memory
+ * the graph retains, the time spent ordering the graph and the time spent in the backward functions of each kind.
+ * A node of an {@link Operation} is of the kind given by its name, e.g. "matmul"; all scalar nodes are of the kind
+ * "value". When no profiler is active, the engine only pays for reading a single static field.
+ * <pre>{@code
+ * try (var profiler = new Profiler().start()) {
+ *     loss.backward();
+ *     System.out.print(profiler.report());
+ * }
+ * }</pre>
+ */
+public class Profiler implements AutoCloseable {
+    private static final long VALUE_BYTES = 128;
+    private static final long OPERATION_BYTES = 96;
+    private static final long REFERENCE_BYTES = 8;
+
+    private static volatile Profiler active_;
+
+    private final LongAdder created_nodes_ = new LongAdder();
+    private final LongAdder sort_nanos_ = new LongAdder();
+    private final LongAdder retained_bytes_ = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> node_counts_ = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> backward_nanos_ = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the profiler that is currently active.
+     * @return The active profiler, or null if the engine is not profiled.
+     */
+    public static Profiler active() {
+        return active_;
+    }
+
+    /**
+     * Makes this profiler collect the statistics of all subsequent graph constructions and backward passes.
+     * @return This profiler, so that it can be stopped by a try-with-resources statement.
+     * @throws RuntimeException If another profiler is already active.
+     */
+    public Profiler start() {
+        synchronized (Profiler.class) {
+            if (active_ != null && active_ != this) throw new RuntimeException("Another profiler is already active");
+            active_ = this;
+        }
+        return this;
+    }
+
+    /**
+     * Stops collecting statistics. The collected statistics are kept.
+     */
+    public void stop() {
+        synchronized (Profiler.class) {
+            if (active_ == this) active_ = null;
+        }
+    }
+
+    /**
+     * Stops collecting statistics.
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Forgets all collected statistics.
+     */
+    public void reset() {
+        created_nodes_.reset();
+        sort_nanos_.reset();
+        retained_bytes_.reset();
+        node_counts_.clear();
+        backward_nanos_.clear();
+    }
+
+    /**
+     * Returns the number of nodes created while the profiler was active. Every node carries its own backward
+     * closure, so this is also the number of closures created.
+     * @return The number of created nodes.
+     */
+    public long get_created_nodes() {
+        return created_nodes_.sum();
+    }
+
+    /**
+     * Returns the time spent collecting and ordering the nodes of the graphs before running their backward functions.
+     * @return The time in nanoseconds.
+     */
+    public long get_sort_nanos() {
+        return sort_nanos_.sum();
+    }
+
+    /**
+     * Returns a rough estimate of the memory retained by the differentiated graphs: a fixed size per node and per
+     * reference to a parent, plus the values and gradients of every buffer the operations accumulate into.
+     * @return The estimated number of bytes.
+     */
+    public long get_retained_bytes() {
+        return retained_bytes_.sum();
+    }
+
+    /**
+     * Returns the number of differentiated nodes of each kind.
+     * @return The map from the kinds of the nodes to their counts.
+     */
+    public Map<String, Long> get_node_counts() {
+        return snapshot(node_counts_);
+    }
+
+    /**
+     * Returns the cumulative time spent in the backward functions of each kind.
+     * @return The map from the kinds of the nodes to the time in nanoseconds.
+     */
+    public Map<String, Long> get_backward_nanos() {
+        return snapshot(backward_nanos_);
+    }
+
+    /**
+     * Formats the collected statistics as a table with one row per kind of node, sorted by the backward time.
+     * @return The report.
+     */
+    public String report() {
+        var counts = get_node_counts();
+        var nanos = get_backward_nanos();
+        var kinds = new ArrayList<>(counts.keySet());
+        kinds.sort((first, second) -> Long.compare(nanos.getOrDefault(second, 0L), nanos.getOrDefault(first, 0L)));
+
+        var report = new StringBuilder();
+        report.append(String.format("created nodes: %d, retained: %.1f KiB, sort: %.3f ms%n",
+                get_created_nodes(), get_retained_bytes() / 1024.0, get_sort_nanos() / 1e6));
+        report.append(String.format("%-16s %10s %14s%n", "kind", "nodes", "backward ms"));
+        for (var kind: kinds)
+            report.append(String.format("%-16s %10d %14.3f%n", kind, counts.get(kind), nanos.getOrDefault(kind, 0L) / 1e6));
+        return report.toString();
+    }
+
+    /**
+     * Counts a newly created node.
+     */
+    void record_creation() {
+        created_nodes_.increment();
+    }
+
+    /**
+     * Records the nodes of a graph about to be differentiated.
+     * @param nodes The nodes of the graph.
+     * @param nanos The time spent collecting and ordering the nodes.
+     */
+    void record_graph(List<Differentiable> nodes, long nanos) {
+        sort_nanos_.add(nanos);
+        var storages = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for (var node: nodes) {
+            node_counts_.computeIfAbsent(kind(node), kind -> new LongAdder()).increment();
+            bytes += (node instanceof Operation ? OPERATION_BYTES : VALUE_BYTES) + REFERENCE_BYTES * node.get_parents().size();
+            if (node.gradient_targets_ == null) continue;
+            for (var target: node.gradient_targets_) {
+                if (target instanceof Storage storage && storages.add(storage))
+                    bytes += 2L * Double.BYTES * storage.size();
+            }
+        }
+        retained_bytes_.add(bytes);
+    }
+
+    /**
+     * Runs the backward function of a node and adds its duration to the kind of the node.
+     * @param node The node to run.
+     */
+    void run(Differentiable node) {
+        long start = System.nanoTime();
+        node.prop_func_.run();
+        add_backward_nanos(kind(node), System.nanoTime() - start);
+    }
+
+    /**
+     * Records a sweep over a {@link Tape}, whose entries are counted and timed as the kind "tape".
+     * @param entries The number of swept entries.
+     * @param nanos The duration of the sweep in nanoseconds.
+     */
+    void record_tape(int entries, long nanos) {
+        node_counts_.computeIfAbsent("tape", kind -> new LongAdder()).add(entries);
+        add_backward_nanos("tape", nanos);
+    }
+
+    /**
+     * Adds the duration of a backward step to the given kind.
+     * @param kind The kind of the node.
+     * @param nanos The duration in nanoseconds.
+     */
+    private void add_backward_nanos(String kind, long nanos) {
+        backward_nanos_.computeIfAbsent(kind, key -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * Returns the kind of a node.
+     * @param node The node.
+     * @return The name of an operation, or "value" for scalar nodes.
+     */
+    static String kind(Differentiable node) {
+        return node instanceof Operation operation ? operation.get_name() : "value";
+    }
+
+    /**
+     * Copies the counters of a map into a sorted map of their current sums.
+     * @param map The map of counters.
+     * @return The sorted map of sums.
+     */
+    private static Map<String, Long> snapshot(ConcurrentHashMap<String, LongAdder> map) {
+        var result = new TreeMap<String, Long>();
+        map.forEach((kind, adder) -> result.put(kind, adder.sum()));
+        return result;
+    }
+}
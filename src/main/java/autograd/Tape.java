@@ -0,0 +1,393 @@
+package autograd;
+
+import nn.models.ModelSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Records the operations over {@link Value}s in the order they are executed (a Wengert list). While a tape is
+ * recording, an operation over values does not build a list of parents and a backward closure; instead it appends
+ * one entry to a set of primitive arrays holding the opcode, the indices of the operands, their values and the
+ * result. Since every operand is recorded before the operations using it, the order of the entries is already a
+ * topological order of the graph, and the backward pass is a single sweep over the entries in reverse order,
+ * without sorting, hashing, recursion or allocation. The sweep marks the entries reached from the differentiated
+ * node through their parents and skips all others, so several graphs recorded on one tape are differentiated
+ * independently of each other.
+ *
+ * Values without parents that were not produced on the tape (e.g. created by a constructor) become its leaves, and
+ * their gradients are written back to their {@code gradient} fields during the backward pass. Nodes with a backward
+ * step defined outside of {@link Value} (values with a gradient sink and {@link Operation}s) are recorded as they
+ * are, and their backward functions are run when the sweep reaches them. Nodes of a graph built before the tape
+ * started (e.g. a value computed from others, or an operation whose output is read on the tape) mark its boundary:
+ * the sweep accumulates their gradients, and once it is finished, the graph behind all boundary nodes it reached is
+ * differentiated in one ordinary backward pass. Values computed from tape values after the tape has stopped
+ * recording treat them as constants. A tape records the operations of the thread that started it only.
+ *
+ * The arrays are kept between iterations: {@link #reset()} forgets the recorded entries, so the same tape can be
+ * reused without reallocating.
+ * <pre>{@code
+ * var tape = new Tape();
+ * try (var recording = tape.start()) {
+ *     Value y = x1.multiply(x2).log();
+ *     y.backward();
+ * }
+ * tape.reset();
+ * }</pre>
+ */
+public class Tape implements AutoCloseable {
+    private static final int LEAF = 0;
+    private static final int EXTERNAL = 1;
+    private static final int OPERATION = 2;
+    static final int ADD = 3;
+    static final int MULTIPLY = 4;
+    static final int POW = 5;
+    static final int RELU = 6;
+    static final int LEAKY_RELU = 7;
+    static final int LOG = 8;
+    static final int SIGMOID = 9;
+    static final int EXP = 10;
+    private static final int SUM = 11;
+    private static final int BOUNDARY = 12;
+
+    private static final ThreadLocal<Tape> recording_ = new ThreadLocal<>();
+
+    private int size_;
+    private int generation_;
+    private int[] opcode_;
+    private int[] first_parent_;
+    private int[] second_parent_;
+    private double[] first_operand_;
+    private double[] second_operand_;
+    private double[] value_;
+    private double[] gradient_;
+    private boolean[] reached_;
+    private Differentiable[] nodes_;
+    private int[] sum_parents_;
+    private int sum_parents_size_;
+    private final IdentityHashMap<Differentiable, Integer> boundary_entries_ = new IdentityHashMap<>();
+
+    /**
+     * Constructs an empty tape with the default initial capacity.
+     */
+    public Tape() {
+        this(1024);
+    }
+
+    /**
+     * Constructs an empty tape.
+     * @param capacity The number of entries the tape can hold before its arrays have to grow.
+     * @throws RuntimeException If the capacity is not positive.
+     */
+    public Tape(int capacity) {
+        if (capacity < 1) throw new RuntimeException("Tape has non-positive capacity");
+        opcode_ = new int[capacity];
+        first_parent_ = new int[capacity];
+        second_parent_ = new int[capacity];
+        first_operand_ = new double[capacity];
+        second_operand_ = new double[capacity];
+        value_ = new double[capacity];
+        gradient_ = new double[capacity];
+        reached_ = new boolean[capacity];
+        nodes_ = new Differentiable[capacity];
+        sum_parents_ = new int[capacity];
+    }
+
+    /**
+     * Returns the tape that is currently recording on the current thread.
+     * @return The recording tape, or null if operations build the graph of {@link Value}s as usual.
+     */
+    public static Tape recording() {
+        return recording_.get();
+    }
+
+    /**
+     * Makes this tape record all subsequent operations of the current thread.
+     * @return This tape, so that the recording can be stopped by a try-with-resources statement.
+     * @throws RuntimeException If another tape is already recording on the current thread.
+     */
+    public Tape start() {
+        var recording = recording_.get();
+        if (recording != null && recording != this) throw new RuntimeException("Another tape is already recording");
+        recording_.set(this);
+        return this;
+    }
+
+    /**
+     * Stops recording operations of the current thread on this tape. The recorded entries are kept, so the backward
+     * pass can still be run.
+     */
+    public void stop() {
+        if (recording_.get() == this) recording_.remove();
+    }
+
+    /**
+     * Stops recording operations on this tape.
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Forgets all recorded entries while keeping the allocated arrays. Values recorded before the reset can no
+     * longer be differentiated through this tape.
+     */
+    public synchronized void reset() {
+        Arrays.fill(nodes_, 0, size_, null);
+        Arrays.fill(gradient_, 0, size_, 0);
+        size_ = 0;
+        sum_parents_size_ = 0;
+        boundary_entries_.clear();
+        ++generation_;
+    }
+
+    /**
+     * Returns the number of recorded entries.
+     * @return The number of entries on the tape.
+     */
+    public int size() {
+        return size_;
+    }
+
+    /**
+     * Records an operation over one or two values.
+     * @param opcode The operation.
+     * @param value The result of the operation.
+     * @param first The first operand.
+     * @param second The second operand, or null if the operation is unary.
+     * @param argument The constant argument of a unary operation, e.g. the exponent of {@link Value#pow(double)}.
+     * @return The value representing the result; it is not recorded if none of the operands requires gradients.
+     */
+    synchronized Value record(int opcode, double value, Value first, Value second, double argument) {
+        int first_index = index_of(first);
+        int second_index = second == null ? -1 : index_of(second);
+        if (first_index < 0 && second_index < 0) return new Value(value, false);
+
+        int index = append(opcode, value, null);
+        first_parent_[index] = first_index;
+        second_parent_[index] = second_index;
+        first_operand_[index] = first.value;
+        second_operand_[index] = second == null ? argument : second.value;
+        return new Value(value, this, index, generation_);
+    }
+
+    /**
+     * Records the sum of a list of values.
+     * @param value The sum of the values.
+     * @param values The summed values.
+     * @return The value representing the sum; it is not recorded if none of the values requires gradients.
+     */
+    synchronized Value record_sum(double value, ArrayList<Value> values) {
+        int start = sum_parents_size_;
+        for (var current_value: values) {
+            int parent_index = index_of(current_value);
+            if (parent_index < 0) continue;
+            if (sum_parents_size_ == sum_parents_.length) sum_parents_ = Arrays.copyOf(sum_parents_, 2 * sum_parents_size_);
+            sum_parents_[sum_parents_size_++] = parent_index;
+        }
+        if (sum_parents_size_ == start) return new Value(value, false);
+
+        int index = append(SUM, value, null);
+        first_parent_[index] = start;
+        second_parent_[index] = sum_parents_size_ - start;
+        return new Value(value, this, index, generation_);
+    }
+
+    /**
+     * Records a node whose backward step is defined by its own backward function.
+     * @param node The node to record.
+     */
+    synchronized void record_external(Differentiable node) {
+        int index = append(node instanceof Operation ? OPERATION : EXTERNAL, node.value, node);
+        node.tape_ = this;
+        node.tape_index_ = index;
+        node.tape_generation_ = generation_;
+    }
+
+    /**
+     * Checks whether the node was recorded on this tape since the last reset.
+     * @param node The node to check.
+     * @return true if the node is an entry of this tape; false otherwise.
+     */
+    boolean contains(Differentiable node) {
+        return node.tape_ == this && node.tape_generation_ == generation_;
+    }
+
+    /**
+     * Adds a gradient to the entry of a node recorded on this tape. The gradients of leaves are written to their
+     * fields directly, so that they are not lost when they arrive from the graph behind the boundary of the tape.
+     * @param node The node recorded on this tape.
+     * @param gradient The gradient to add.
+     */
+    void add_gradient(Differentiable node, double gradient) {
+        if (opcode_[node.tape_index_] == LEAF) node.gradient += gradient;
+        else gradient_[node.tape_index_] += gradient;
+    }
+
+    /**
+     * Runs the backward pass from the given node by sweeping the entries recorded before it in reverse order. A
+     * {@link Value} is seeded with the gradient of one, while an {@link Operation} propagates the gradient already
+     * accumulated in the buffer of its output. Only the entries the node depends on are run (and released); the
+     * entries of other graphs recorded on the tape are left untouched. The graph behind the boundary nodes reached by
+     * the sweep is differentiated afterwards.
+     * @param root The node to differentiate.
+     * @param mode The execution mode of the backward pass behind the boundary of the tape.
+     * @param retain_graph Whether the nodes with their own backward functions should keep them after the sweep.
+     * @throws RuntimeException If the node was not recorded on this tape or the tape has been reset since.
+     */
+    synchronized void backward(Differentiable root, ModelSettings.executionMode mode, boolean retain_graph) {
+        if (!contains(root)) throw new RuntimeException("The node was not recorded on this tape or the tape has been reset");
+        int root_index = root.tape_index_;
+        var profiler = Profiler.active();
+        long start = profiler != null ? System.nanoTime() : 0;
+        if (root instanceof Value) {
+            root.gradient = opcode_[root_index] == EXTERNAL ? 0 : 1;
+            gradient_[root_index] = 1;
+        }
+        reached_[root_index] = true;
+        Set<Differentiable> boundary = null;
+
+        for (int i = root_index; i >= 0; --i) {
+            double gradient = gradient_[i];
+            gradient_[i] = 0;
+            if (!reached_[i]) continue;
+            reached_[i] = false;
+            int opcode = opcode_[i];
+            int first = first_parent_[i];
+            int second = second_parent_[i];
+            if (opcode == BOUNDARY) {
+                nodes_[i].gradient += gradient;
+                if (boundary == null) boundary = Collections.newSetFromMap(new IdentityHashMap<>());
+                boundary.add(nodes_[i]);
+                continue;
+            }
+            if (opcode == OPERATION || opcode == EXTERNAL) {
+                // the parents are marked before the backward function runs, since releasing the node drops them
+                for (var parent: nodes_[i].get_parents()) {
+                    if (contains(parent)) reached_[parent.tape_index_] = true;
+                    else if (parent.requires_grad && parent.prop_func_ != Differentiable.LEAF) {
+                        if (boundary == null) boundary = Collections.newSetFromMap(new IdentityHashMap<>());
+                        boundary.add(parent);
+                    }
+                }
+                if (opcode == EXTERNAL) nodes_[i].gradient += gradient;
+                if (opcode == OPERATION || gradient != 0) nodes_[i].prop_func_.run();
+                nodes_[i].propagated(retain_graph);
+                continue;
+            }
+            if (opcode == SUM) {
+                for (int k = first; k < first + second; ++k) reached_[sum_parents_[k]] = true;
+            } else if (opcode != LEAF) {
+                if (first >= 0) reached_[first] = true;
+                if (second >= 0) reached_[second] = true;
+            }
+            if (gradient == 0) continue;
+
+            switch (opcode) {
+                case LEAF -> nodes_[i].gradient += gradient;
+                case ADD -> {
+                    if (first >= 0) gradient_[first] += gradient;
+                    if (second >= 0) gradient_[second] += gradient;
+                }
+                case MULTIPLY -> {
+                    if (first >= 0) gradient_[first] += gradient * second_operand_[i];
+                    if (second >= 0) gradient_[second] += gradient * first_operand_[i];
+                }
+                case POW -> gradient_[first] += gradient * second_operand_[i] * Math.pow(first_operand_[i], second_operand_[i] - 1);
+                case RELU -> gradient_[first] += gradient * (value_[i] > 0 ? 1 : 0);
+                case LEAKY_RELU -> gradient_[first] += gradient * (value_[i] > 0 ? 1 : 0.01);
+                case LOG -> gradient_[first] += first_operand_[i] == 0 ? gradient / 1e-15 : gradient / first_operand_[i];
+                case SIGMOID -> gradient_[first] += gradient * value_[i] * (1 - value_[i]);
+                case EXP -> gradient_[first] += gradient * value_[i];
+                case SUM -> {
+                    for (int k = first; k < first + second; ++k) gradient_[sum_parents_[k]] += gradient;
+                }
+                default -> throw new RuntimeException("Unknown opcode on the tape");
+            }
+        }
+        if (profiler != null) profiler.record_tape(root_index + 1, System.nanoTime() - start);
+        if (boundary != null) new Boundary(boundary).propagate(mode, retain_graph);
+    }
+
+    /**
+     * Returns the index of the entry of an operand, recording the operand if it is not on the tape yet: as a leaf if
+     * it has neither parents nor a backward function, and as a boundary node of the tape otherwise. Boundary nodes
+     * stay part of their graph, so their entries are looked up by identity.
+     * @param value The operand.
+     * @return The index of the entry, or -1 if the operand does not require gradients.
+     */
+    private int index_of(Value value) {
+        if (!value.requires_grad) return -1;
+        if (contains(value)) return value.tape_index_;
+        if (value.prop_func_ != Differentiable.LEAF || !value.get_parents().isEmpty()) {
+            Integer entry = boundary_entries_.get(value);
+            if (entry != null) return entry;
+            int index = append(BOUNDARY, value.value, value);
+            boundary_entries_.put(value, index);
+            return index;
+        }
+
+        int index = append(LEAF, value.value, value);
+        value.tape_ = this;
+        value.tape_index_ = index;
+        value.tape_generation_ = generation_;
+        return index;
+    }
+
+    /**
+     * Appends an entry to the tape, growing the arrays if necessary.
+     * @param opcode The opcode of the entry.
+     * @param value The value of the entry.
+     * @param node The node kept for leaves and external nodes; null for operations over values.
+     * @return The index of the new entry.
+     */
+    private int append(int opcode, double value, Differentiable node) {
+        if (size_ == opcode_.length) {
+            int capacity = 2 * size_;
+            opcode_ = Arrays.copyOf(opcode_, capacity);
+            first_parent_ = Arrays.copyOf(first_parent_, capacity);
+            second_parent_ = Arrays.copyOf(second_parent_, capacity);
+            first_operand_ = Arrays.copyOf(first_operand_, capacity);
+            second_operand_ = Arrays.copyOf(second_operand_, capacity);
+            value_ = Arrays.copyOf(value_, capacity);
+            gradient_ = Arrays.copyOf(gradient_, capacity);
+            reached_ = Arrays.copyOf(reached_, capacity);
+            nodes_ = Arrays.copyOf(nodes_, capacity);
+        }
+        opcode_[size_] = opcode;
+        value_[size_] = value;
+        nodes_[size_] = node;
+        return size_++;
+    }
+
+    /**
+     * Gathers the boundary nodes reached by a sweep, so that the graph behind them is differentiated in a single
+     * pass, in which every node runs after all of its consumers.
+     */
+    private static class Boundary extends Differentiable {
+        private final ArrayList<Differentiable> parents_;
+
+        /**
+         * Constructs the root of the graph behind the boundary of a tape.
+         * @param parents The boundary nodes reached by the sweep; their gradients are already accumulated.
+         */
+        Boundary(Set<Differentiable> parents) {
+            parents_ = new ArrayList<>(parents);
+            prop_func_ = () -> {};
+        }
+
+        @Override
+        public ArrayList<Differentiable> get_parents() {
+            return parents_;
+        }
+
+        @Override
+        public void backward(ModelSettings.executionMode mode, boolean retain_graph) {
+            propagate(mode, retain_graph);
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package autograd;
 
-import autograd.utils.GraphSorter;
+import nn.models.ModelSettings;
 import java.util.ArrayList;
+import java.util.function.DoubleConsumer;
 
 /**
  * Represents a node in a computational graph that can perform automatic differentiation.
@@ -9,7 +10,7 @@ import java.util.ArrayList;
  * necessary for the backpropagation algorithm in neural networks.
  */
 public class Value extends Differentiable {
-    private ArrayList<Value> parents_;
+    private ArrayList<Differentiable> parents_;
 
     /**
      * Constructs a new Value with an initial scalar and marks it to require gradient computation.
@@ -19,7 +20,7 @@ public class Value extends Differentiable {
         value = value_;
         gradient = 0;
         parents_ = new ArrayList<>();
-        prop_func_ = () -> {};
+        prop_func_ = LEAF;
         requires_grad = true;
     }
 
@@ -32,16 +33,69 @@ public class Value extends Differentiable {
         value = value_;
         gradient = 0;
         parents_ = new ArrayList<>();
-        prop_func_ = () -> {};
+        prop_func_ = LEAF;
         requires_grad = requires_grad_;
     }
 
+    /**
+     * Constructs a new Value whose backward step is defined outside of this class, e.g. a value mirroring an element
+     * kept in a flat buffer or the result of an operation over whole matrices. Once all consumers of this node have
+     * propagated their gradients, the accumulated gradient is handed over to the given sink, which is responsible
+     * for passing it on to the parents.
+     * @param value_ The initial scalar value of this node.
+     * @param requires_grad_ Flag indicating whether the node should compute gradients.
+     * @param gradient_sink The consumer receiving the gradient accumulated on this node during the backward pass.
+     * @param parents The nodes the sink propagates the gradient to; null entries are ignored.
+     */
+    public Value(double value_, boolean requires_grad_, DoubleConsumer gradient_sink, Differentiable... parents) {
+        value = value_;
+        gradient = 0;
+        parents_ = new ArrayList<>();
+        prop_func_ = () -> gradient_sink.accept(gradient);
+        requires_grad = requires_grad_ && NoGrad.is_grad_enabled();
+        if (requires_grad) {
+            for (var parent: parents) {
+                if (parent != null) parents_.add(parent);
+            }
+            var tape = Tape.recording();
+            if (tape != null) tape.record_external(this);
+        }
+    }
+
+    /**
+     * Constructs a new Value recorded on a {@link Tape}. Its parents and backward step are kept by the tape.
+     * @param value_ The initial scalar value of this node.
+     * @param tape The tape the node is recorded on.
+     * @param tape_index The entry of the node on the tape.
+     * @param tape_generation The generation of the tape at the time of recording.
+     */
+    Value(double value_, Tape tape, int tape_index, int tape_generation) {
+        value = value_;
+        gradient = 0;
+        requires_grad = true;
+        prop_func_ = LEAF;
+        tape_ = tape;
+        tape_index_ = tape_index;
+        tape_generation_ = tape_generation;
+    }
+
     /**
      * Returns the parents of this value in the computational graph.
-     * @return An ArrayList of Value instances that are parents of this value.
+     * @return An ArrayList of nodes that are parents of this value.
      */
-    public ArrayList<Value> get_parents() {
-        return parents_;
+    @Override
+    public ArrayList<Differentiable> get_parents() {
+        return parents_ != null ? parents_ : new ArrayList<>();
+    }
+
+    /**
+     * Accumulates a gradient coming from a backward function defined outside of this class. If this value is
+     * recorded on a tape, the gradient is added to its entry, so that the tape propagates it further.
+     * @param gradient_ The gradient to add.
+     */
+    public void add_gradient(double gradient_) {
+        if (tape_ != null && tape_.contains(this)) tape_.add_gradient(this, gradient_);
+        else gradient += gradient_;
     }
 
     /**
@@ -52,6 +106,13 @@ public class Value extends Differentiable {
      */
     public static Value add(ArrayList<Value> values) {
         if (values == null) throw new NullPointerException("Attempt to sum null array");
+        boolean grad_enabled = NoGrad.is_grad_enabled();
+        var tape = Tape.recording();
+        if (!grad_enabled || tape != null) {
+            double sum = 0;
+            for (Value current_value: values) sum += current_value.value;
+            return grad_enabled ? tape.record_sum(sum, values) : new Value(sum, false);
+        }
         Value new_value = new Value(0);
         for (Value current_value: values) {
             new_value.value += current_value.value;
@@ -66,6 +127,64 @@ public class Value extends Differentiable {
         return new_value;
     }
 
+    /**
+     * Static method computing the dot product of two arrays of Value instances as a single node of the graph.
+     * Instead of one node per product and one per partial sum, the result keeps the operands in primitive arrays
+     * and propagates the gradient to all of them in one backward step.
+     * @param first The first array of values.
+     * @param second The second array of values.
+     * @return A new Value instance representing the sum of the element-wise products.
+     * @throws NullPointerException if one of the arrays is null.
+     * @throws RuntimeException if the arrays have different lengths.
+     */
+    public static Value dot(Value[] first, Value[] second) {
+        return weighted_sum(first, second, null);
+    }
+
+    /**
+     * Static method computing a weighted sum of Value instances with a bias as a single node of the graph, e.g. the
+     * pre-activation of a neuron. The gradient is propagated to the weights, the inputs and the bias in one backward
+     * step over primitive copies of their values.
+     * @param weights The weights of the sum.
+     * @param inputs The summed values.
+     * @param bias The value added to the sum, or null if there is no bias.
+     * @return A new Value instance representing the weighted sum.
+     * @throws NullPointerException if the weights or the inputs are null.
+     * @throws RuntimeException if the weights and the inputs have different lengths.
+     */
+    public static Value weighted_sum(Value[] weights, Value[] inputs, Value bias) {
+        if (weights == null || inputs == null) throw new NullPointerException("Attempt to sum null array");
+        if (weights.length != inputs.length) throw new RuntimeException("Weights and inputs have different lengths");
+        int length = weights.length;
+        double[] weight_values = new double[length];
+        double[] input_values = new double[length];
+        double result = bias == null ? 0 : bias.value;
+        for (int i = 0; i < length; ++i) {
+            weight_values[i] = weights[i].value;
+            input_values[i] = inputs[i].value;
+            result += weight_values[i] * input_values[i];
+        }
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+
+        var parents = new ArrayList<Differentiable>();
+        for (int i = 0; i < length; ++i) {
+            if (weights[i].requires_grad) parents.add(weights[i]);
+            if (inputs[i].requires_grad) parents.add(inputs[i]);
+        }
+        if (bias != null && bias.requires_grad) parents.add(bias);
+        if (parents.isEmpty()) return new Value(result, false);
+
+        var weight_nodes = weights.clone();
+        var input_nodes = inputs.clone();
+        return new Value(result, true, gradient -> {
+            for (int i = 0; i < length; ++i) {
+                if (weight_nodes[i].requires_grad) weight_nodes[i].add_gradient(gradient * input_values[i]);
+                if (input_nodes[i].requires_grad) input_nodes[i].add_gradient(gradient * weight_values[i]);
+            }
+            if (bias != null && bias.requires_grad) bias.add_gradient(gradient);
+        }, parents.toArray(new Differentiable[0]));
+    }
+
     /**
      * Adds another Value instance to this value, supporting automatic differentiation.
      * @param other The Value instance to be added to this value.
@@ -74,7 +193,11 @@ public class Value extends Differentiable {
      */
     public Value add(Value other) {
         if (other == null) throw new NullPointerException("Attempt to add null value");
-        var new_value = new Value(value + other.value);
+        double result = value + other.value;
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.ADD, result, this, other, 0);
+        var new_value = new Value(result);
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient;
             other.gradient += new_value.gradient;
@@ -122,7 +245,11 @@ public class Value extends Differentiable {
      */
     public Value multiply(Value other) {
         if (other == null) throw new NullPointerException("Attempt to multiply by null value");
-        var new_value = new Value(value * other.value);
+        double result = value * other.value;
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.MULTIPLY, result, this, other, 0);
+        var new_value = new Value(result);
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient * other.value;
             other.gradient += new_value.gradient * value;
@@ -157,7 +284,11 @@ public class Value extends Differentiable {
      * @throws IllegalArgumentException if the exponent causes the result to exceed numerical limits
      */
     public Value pow(double exponent) {
-        var new_value = new Value(Math.pow(value, exponent));
+        double result = Math.pow(value, exponent);
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.POW, result, this, null, exponent);
+        var new_value = new Value(result);
 
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient * exponent * Math.pow(value, exponent - 1);
@@ -205,7 +336,11 @@ public class Value extends Differentiable {
      * @return A new Value instance representing the result of the ReLU function.
      */
     public Value relu() {
-        var new_value = new Value(value < 0 ? 0 : value);
+        double result = value < 0 ? 0 : value;
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.RELU, result, this, null, 0);
+        var new_value = new Value(result);
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient * (new_value.value > 0 ? 1 : 0);
         };
@@ -220,7 +355,11 @@ public class Value extends Differentiable {
      * @return A new Value instance representing the result of the Leaky ReLU function.
      */
     public Value leakyRelu() {
-        var new_value = new Value(value < 0 ? 0.01 * value : value);
+        double result = value < 0 ? 0.01 * value : value;
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.LEAKY_RELU, result, this, null, 0);
+        var new_value = new Value(result);
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient * (new_value.value > 0 ? 1 : 0.01);
         };
@@ -235,7 +374,11 @@ public class Value extends Differentiable {
      * @return A new Value instance representing the natural logarithm of this value.
      */
     public Value log() {
-        var new_value = value == 0 ? new Value(Math.log(1e-15)) : new Value(Math.log(value)); // Math.log(1e-15) = -34.538776
+        double result = value == 0 ? Math.log(1e-15) : Math.log(value); // Math.log(1e-15) = -34.538776
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.LOG, result, this, null, 0);
+        var new_value = new Value(result);
 
         new_value.prop_func_ = () -> {
             gradient += value == 0 ? new_value.gradient / 1e-15 : new_value.gradient / value;
@@ -251,7 +394,11 @@ public class Value extends Differentiable {
      * @return A new Value instance representing the result of the sigmoid function.
      */
     public Value sigmoid() {
-        var new_value = new Value(1 / (1 + Math.exp(-value)));
+        double result = 1 / (1 + Math.exp(-value));
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.SIGMOID, result, this, null, 0);
+        var new_value = new Value(result);
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient * new_value.value * (1 - new_value.value);
         };
@@ -276,7 +423,11 @@ public class Value extends Differentiable {
      *         based on the {@code requires_grad} status of the current object.
      */
     public Value exp() {
-        var new_value = new Value(Math.exp(value));
+        double result = Math.exp(value);
+        if (!NoGrad.is_grad_enabled()) return new Value(result, false);
+        var tape = Tape.recording();
+        if (tape != null) return tape.record(Tape.EXP, result, this, null, 0);
+        var new_value = new Value(result);
         new_value.prop_func_ = () -> {
             gradient += new_value.gradient * Math.exp(value);
         };
@@ -286,15 +437,14 @@ public class Value extends Differentiable {
     }
 
     /**
-     * Triggers the backward pass from this Value through the computational graph to compute gradients.
+     * Triggers the backward pass from this Value through the computational graph to compute gradients. If this
+     * value was recorded on a {@link Tape}, the pass is a reverse sweep over the tape.
+     * @param mode The execution mode of the backward pass.
+     * @param retain_graph Whether the graph should be kept for another backward pass.
      */
-    public void backward() {
-        var sorter = new GraphSorter();
-        var topological_order = sorter.topSort(this);
-
-        gradient = 1;
-        for (var value: topological_order) {
-            value.prop_func_.run();
-        }
+    @Override
+    public void backward(ModelSettings.executionMode mode, boolean retain_graph) {
+        if (tape_ == null) gradient = 1;
+        propagate(mode, retain_graph);
     }
 }
\ No newline at end of file
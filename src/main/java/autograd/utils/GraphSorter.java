@@ -1,17 +1,17 @@
 package autograd.utils;
 
-import autograd.Value;
+import autograd.Differentiable;
 import java.util.*;
 
 /**
  * This class provides functionality to perform a topological sort on a computational graph.
- * The graph is represented by nodes of type {@link Value}, where each node can depend on other nodes.
+ * The graph is represented by nodes of type {@link Differentiable}, where each node can depend on other nodes.
  * The topological sort order is determined based on these dependencies.
  */
 public class GraphSorter {
 
-    private Set<Value> varsSeen;
-    private List<Value> topSort;
+    private Set<Differentiable> varsSeen;
+    private List<Differentiable> topSort;
 
     /**
      * Constructs a new GraphSorter instance.
@@ -27,24 +27,24 @@ public class GraphSorter {
      * It uses a depth-first search approach to traverse the graph.
      *
      * @param var The starting node for the topological sort.
-     * @return A list of {@link Value} objects representing nodes in topologically sorted order.
+     * @return A list of {@link Differentiable} objects representing nodes in topologically sorted order.
      */
-    public List<Value> topSort(Value var) {
+    public List<Differentiable> topSort(Differentiable var) {
         topSortHelper(var);
         Collections.reverse(topSort);
         return topSort;
     }
 
     /**
-     * Helper method for {@link #topSort(Value)}. It recursively visits nodes,
+     * Helper method for {@link #topSort(Differentiable)}. It recursively visits nodes,
      * marking them as seen and adding them to the topSort list.
      *
      * @param vr The node to process in this recursion step.
      */
-    private void topSortHelper(Value vr) {
+    private void topSortHelper(Differentiable vr) {
         if (!varsSeen.contains(vr)) {
             varsSeen.add(vr);
-            for (Value pVar : vr.get_parents()) {
+            for (Differentiable pVar : vr.get_parents()) {
                 topSortHelper(pVar);
             }
             topSort.add(vr);
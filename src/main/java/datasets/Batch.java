@@ -1,5 +1,9 @@
 package datasets;
 
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+
 import java.util.ArrayList;
 import java.util.Iterator;
 
@@ -34,6 +38,33 @@ public class Batch implements Iterable<IDatasetSample> {
         return size_;
     }
 
+    /**
+     * Stacks the data of all samples into a single array, so that a model processes the whole batch in one call.
+     * For images of the size [height, width, channels] the array has the size [batch, height, width, channels].
+     *
+     * @return An {@link NDArray} whose first dimension indexes the samples of this batch.
+     * @throws RuntimeException if the batch is empty or the samples have different sizes.
+     */
+    public NDArray get_inputs() {
+        var inputs = new MultiDimObject[size_];
+        for (int i = 0; i < size_; ++i) inputs[i] = data_.get(i).get_data().get_data();
+        return NDArray.stack(inputs);
+    }
+
+    /**
+     * Flattens the label of every sample into a column of a matrix, which is the layout of the output of a model
+     * ending with a linear layer applied to a batch.
+     *
+     * @return A [label size x batch] {@link Matrix} whose i-th column holds the label of the i-th sample.
+     * @throws RuntimeException if the batch is empty or the labels have different sizes.
+     */
+    public Matrix get_labels() {
+        var labels = new MultiDimObject[size_];
+        for (int i = 0; i < size_; ++i) labels[i] = data_.get(i).get_label().get_data();
+        var stacked_labels = NDArray.stack(labels);
+        return stacked_labels.reshape(size_, stacked_labels.get_elements_num() / size_).to_matrix().transpose();
+    }
+
     /**
      * Provides an iterator over the dataset samples in this batch.
      * The iterator supports basic iteration and does not support remove operations.
@@ -0,0 +1,250 @@
+package mathematics;
+
+import autograd.NoGrad;
+import mathematics.kernels.Kernels;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Element-wise binary operations with NumPy-style broadcasting. The shapes of the operands are aligned on their last
+ * dimensions, and a dimension of size 1 (or a missing one) is stretched to the size of the other operand. A stretched
+ * dimension gets the stride 0, so the broadcasted operands are never materialized: every row of the output is
+ * computed directly from the positions of the corresponding rows of the operands in their own storages.
+ *
+ * In the backward pass the gradient of an operand is accumulated through the same strides, which sums it over the
+ * broadcasted dimensions. Rows of an operand that is not broadcasted are processed in parallel in the parallel mode;
+ * a broadcasted operand is reduced serially, since several rows of the output accumulate into the same elements.
+ */
+final class Broadcast {
+    /**
+     * The supported element-wise operations.
+     */
+    enum Op { ADD, SUB, MUL, DIV }
+
+    private Broadcast() {}
+
+    /**
+     * Computes the shape two operands are broadcasted to.
+     * @param first The size of the first operand.
+     * @param second The size of the second operand.
+     * @return The size of the result.
+     * @throws RuntimeException If the sizes cannot be broadcasted together.
+     */
+    static int[] shape(int[] first, int[] second) {
+        int dims = Math.max(first.length, second.length);
+        int[] shape = new int[dims];
+        for (int i = 0; i < dims; ++i) {
+            int first_dim = i < dims - first.length ? 1 : first[i - dims + first.length];
+            int second_dim = i < dims - second.length ? 1 : second[i - dims + second.length];
+            if (first_dim != second_dim && first_dim != 1 && second_dim != 1)
+                throw new RuntimeException("Sizes " + Arrays.toString(first) + " and "
+                        + Arrays.toString(second) + " cannot be broadcasted together");
+            shape[i] = Math.max(first_dim, second_dim);
+        }
+        return shape;
+    }
+
+    /**
+     * Computes the strides that address an object as if it was broadcasted to the given shape.
+     * @param object The object to broadcast.
+     * @param shape The shape to broadcast to; the size of the object must be broadcastable to it.
+     * @return The strides of the object, with 0 for every stretched dimension.
+     * @throws RuntimeException If the object cannot be broadcasted to the shape.
+     */
+    static int[] strides(MultiDimObject object, int[] shape) {
+        int[] size = object.size_;
+        if (size.length > shape.length) throw new RuntimeException("Object has more dimensions than the broadcasted shape");
+        int[] strides = new int[shape.length];
+        for (int i = 0; i < size.length; ++i) {
+            int dim = shape.length - size.length + i;
+            if (size[i] == shape[dim]) strides[dim] = object.strides_[i];
+            else if (size[i] != 1) throw new RuntimeException("Object cannot be broadcasted to the given shape");
+        }
+        return strides;
+    }
+
+    /**
+     * Computes an element-wise operation of two operands into the output and records it in the computational graph.
+     * @param op The operation.
+     * @param first The first operand.
+     * @param first_strides The strides of the first operand broadcasted to the size of the output.
+     * @param second The second operand.
+     * @param second_strides The strides of the second operand broadcasted to the size of the output.
+     * @param output The contiguous object receiving the result.
+     */
+    static void binary(Op op, MultiDimObject first, int[] first_strides, MultiDimObject second, int[] second_strides,
+                       MultiDimObject output) {
+        int[] shape = output.size_;
+        int inner = shape[shape.length - 1];
+        int rows = output.get_elements_num() / inner;
+        int first_step = first_strides[shape.length - 1];
+        int second_step = second_strides[shape.length - 1];
+        double[] first_data = first.storage_.get_data();
+        double[] second_data = second.storage_.get_data();
+        double[] output_data = output.storage_.get_data();
+        var kernels = Kernels.get();
+
+        output.compute(op.name().toLowerCase(), () -> output.for_each_index(rows, row -> {
+            int a = row_start(row, shape, first_strides, first.offset_);
+            int b = row_start(row, shape, second_strides, second.offset_);
+            int o = row * inner;
+            if (op == Op.ADD && first_step == 1 && second_step == 1) {
+                kernels.add(first_data, a, second_data, b, output_data, o, inner);
+                return;
+            }
+            for (int j = 0; j < inner; ++j, a += first_step, b += second_step) {
+                output_data[o + j] = switch (op) {
+                    case ADD -> first_data[a] + second_data[b];
+                    case SUB -> first_data[a] - second_data[b];
+                    case MUL -> first_data[a] * second_data[b];
+                    case DIV -> first_data[a] / second_data[b];
+                };
+            }
+        }), () -> {
+            double[] output_gradient = output.storage_.get_gradient();
+            if (first.requires_grad_) {
+                double[] gradient = first.storage_.get_gradient();
+                for_each_row(output, rows, is_broadcasted(shape, first_strides), row -> {
+                    int a = row_start(row, shape, first_strides, first.offset_);
+                    int b = row_start(row, shape, second_strides, second.offset_);
+                    int o = row * inner;
+                    if ((op == Op.ADD || op == Op.SUB) && first_step == 1) {
+                        kernels.axpy(1, output_gradient, o, gradient, a, inner);
+                        return;
+                    }
+                    for (int j = 0; j < inner; ++j, a += first_step, b += second_step) {
+                        gradient[a] += switch (op) {
+                            case ADD, SUB -> output_gradient[o + j];
+                            case MUL -> output_gradient[o + j] * second_data[b];
+                            case DIV -> output_gradient[o + j] / second_data[b];
+                        };
+                    }
+                });
+            }
+            if (second.requires_grad_) {
+                double[] gradient = second.storage_.get_gradient();
+                for_each_row(output, rows, is_broadcasted(shape, second_strides), row -> {
+                    int a = row_start(row, shape, first_strides, first.offset_);
+                    int b = row_start(row, shape, second_strides, second.offset_);
+                    int o = row * inner;
+                    if ((op == Op.ADD || op == Op.SUB) && second_step == 1) {
+                        kernels.axpy(op == Op.ADD ? 1 : -1, output_gradient, o, gradient, b, inner);
+                        return;
+                    }
+                    for (int j = 0; j < inner; ++j, a += first_step, b += second_step) {
+                        gradient[b] += switch (op) {
+                            case ADD -> output_gradient[o + j];
+                            case SUB -> -output_gradient[o + j];
+                            case MUL -> output_gradient[o + j] * first_data[a];
+                            case DIV -> -output_gradient[o + j] * first_data[a] / (second_data[b] * second_data[b]);
+                        };
+                    }
+                });
+            }
+        }, first, second);
+    }
+
+    /**
+     * Adds an operand to a contiguous target or multiplies the target by it in place, see
+     * {@link MultiDimObject#compute_in_place}. For the multiplication the original values of the target are kept
+     * only if the operand requires gradients, since only its gradient depends on them.
+     * @param op The operation, either {@link Op#ADD} or {@link Op#MUL}.
+     * @param target The contiguous object to modify.
+     * @param other The operand.
+     * @param other_strides The strides of the operand broadcasted to the size of the target.
+     * @throws RuntimeException If the operation is neither an addition nor a multiplication.
+     */
+    static void binary_in_place(Op op, MultiDimObject target, MultiDimObject other, int[] other_strides) {
+        if (op != Op.ADD && op != Op.MUL) throw new RuntimeException("Only addition and multiplication can be done in place");
+        int[] shape = target.size_;
+        int inner = shape[shape.length - 1];
+        int rows = target.get_elements_num() / inner;
+        int other_step = other_strides[shape.length - 1];
+        double[] data = target.storage_.get_data();
+        double[] other_data = other.storage_.get_data();
+        double[] original_data = op == Op.MUL && other.requires_grad_ && NoGrad.is_grad_enabled() ? new double[data.length] : null;
+        var kernels = Kernels.get();
+
+        target.compute_in_place(op.name().toLowerCase() + "_", () -> {
+            if (original_data != null) System.arraycopy(data, 0, original_data, 0, data.length);
+            target.for_each_index(rows, row -> {
+                int b = row_start(row, shape, other_strides, other.offset_);
+                int t = row * inner;
+                if (op == Op.ADD && other_step == 1) {
+                    kernels.axpy(1, other_data, b, data, t, inner);
+                    return;
+                }
+                for (int j = 0; j < inner; ++j, b += other_step) {
+                    if (op == Op.ADD) data[t + j] += other_data[b];
+                    else data[t + j] *= other_data[b];
+                }
+            });
+        }, () -> {
+            double[] gradient = target.storage_.get_gradient();
+            // the gradient of the operand is computed first, since it needs the gradient of the modified values
+            if (other.requires_grad_) {
+                double[] other_gradient = other.storage_.get_gradient();
+                for_each_row(target, rows, is_broadcasted(shape, other_strides), row -> {
+                    int b = row_start(row, shape, other_strides, other.offset_);
+                    int t = row * inner;
+                    if (op == Op.ADD && other_step == 1) {
+                        kernels.axpy(1, gradient, t, other_gradient, b, inner);
+                        return;
+                    }
+                    for (int j = 0; j < inner; ++j, b += other_step)
+                        other_gradient[b] += op == Op.ADD ? gradient[t + j] : gradient[t + j] * original_data[t + j];
+                });
+            }
+            if (op == Op.MUL) {
+                target.for_each_index(rows, row -> {
+                    int b = row_start(row, shape, other_strides, other.offset_);
+                    int t = row * inner;
+                    for (int j = 0; j < inner; ++j, b += other_step) gradient[t + j] *= other_data[b];
+                });
+            }
+        }, false, other);
+    }
+
+    /**
+     * Computes the position in the storage of the first element of a row of a broadcasted operand.
+     * @param row The index of the row, i.e. of the element of the output divided by the size of the last dimension.
+     * @param shape The size of the output.
+     * @param strides The broadcasted strides of the operand.
+     * @param offset The offset of the operand.
+     * @return The position of the first element of the row.
+     */
+    private static int row_start(int row, int[] shape, int[] strides, int offset) {
+        int position = offset;
+        for (int i = shape.length - 2; i >= 0; --i) {
+            position += (row % shape[i]) * strides[i];
+            row /= shape[i];
+        }
+        return position;
+    }
+
+    /**
+     * Checks whether several elements of the output map to the same element of an operand.
+     * @param shape The size of the output.
+     * @param strides The broadcasted strides of the operand.
+     * @return true if the operand is stretched along some dimension; false otherwise.
+     */
+    private static boolean is_broadcasted(int[] shape, int[] strides) {
+        for (int i = 0; i < shape.length; ++i) {
+            if (shape[i] != 1 && strides[i] == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs the body for every row of the output, in parallel only if the rows write into distinct elements.
+     * @param output The output object, whose execution mode is used.
+     * @param rows The number of rows.
+     * @param serial Whether the rows must be processed one after another.
+     * @param body The function executed for each row.
+     */
+    private static void for_each_row(MultiDimObject output, int rows, boolean serial, IntConsumer body) {
+        if (serial) for (int row = 0; row < rows; ++row) body.accept(row);
+        else output.for_each_index(rows, body);
+    }
+}
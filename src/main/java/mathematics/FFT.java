@@ -0,0 +1,262 @@
+package mathematics;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fast Fourier transform of power-of-two sizes by the iterative radix-2 algorithm. A plan holds the bit-reversal
+ * permutation and the twiddle factors of one size; plans are created once per size and shared by all threads.
+ *
+ * Real two-dimensional signals are transformed into their non-redundant half spectrum: a rows x columns signal has
+ * rows x (columns / 2 + 1) complex coefficients, the others being their complex conjugates. A real row of length
+ * 2n is transformed by a complex transform of length n of its even and odd samples packed into the real and the
+ * imaginary parts, which halves the work compared to a complex transform of the row.
+ *
+ * A complex buffer is a flat {@code double[]} holding the real parts followed by the imaginary parts.
+ */
+public final class FFT {
+    private static final ConcurrentHashMap<Integer, FFT> plans_ = new ConcurrentHashMap<>();
+    private static final ThreadLocal<double[]> buffers_ = ThreadLocal.withInitial(() -> new double[0]);
+
+    private final int size_;
+    private final int[] reversed_;
+    private final double[] cos_;
+    private final double[] sin_;
+    // the twiddle factors e^(-2 pi i k / (2 * size)) of a real transform of length 2 * size, for k in [0, size]
+    private final double[] real_cos_;
+    private final double[] real_sin_;
+
+    /**
+     * Creates the plan of a size.
+     * @param size The power-of-two number of complex elements.
+     */
+    private FFT(int size) {
+        size_ = size;
+        reversed_ = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; ++i) reversed_[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        cos_ = new double[Math.max(1, size / 2)];
+        sin_ = new double[cos_.length];
+        for (int j = 0; j < size / 2; ++j) {
+            cos_[j] = Math.cos(2 * Math.PI * j / size);
+            sin_[j] = Math.sin(2 * Math.PI * j / size);
+        }
+        real_cos_ = new double[size + 1];
+        real_sin_ = new double[size + 1];
+        for (int k = 0; k <= size; ++k) {
+            real_cos_[k] = Math.cos(Math.PI * k / size);
+            real_sin_[k] = Math.sin(Math.PI * k / size);
+        }
+    }
+
+    /**
+     * Returns the plan of a size, creating it on the first request.
+     * @param size The number of complex elements.
+     * @return The plan.
+     * @throws RuntimeException If the size is not a positive power of two.
+     */
+    public static FFT plan(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) throw new RuntimeException("FFT size must be a power of two");
+        return plans_.computeIfAbsent(size, FFT::new);
+    }
+
+    /**
+     * Returns the smallest power of two not less than the value.
+     * @param value The value.
+     * @return The power of two.
+     */
+    public static int size_for(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Transforms complex elements in place. Neither direction is scaled, so the inverse transform of a transform
+     * multiplies the elements by the size.
+     * @param data The buffer of the elements.
+     * @param re The index of the real part of the first element.
+     * @param im The index of the imaginary part of the first element.
+     * @param inverse Whether to compute the inverse transform.
+     */
+    public void transform(double[] data, int re, int im, boolean inverse) {
+        int n = size_;
+        for (int i = 0; i < n; ++i) {
+            int j = reversed_[i];
+            if (i >= j) continue;
+            double t = data[re + i]; data[re + i] = data[re + j]; data[re + j] = t;
+            t = data[im + i]; data[im + i] = data[im + j]; data[im + j] = t;
+        }
+        double sign = inverse ? 1 : -1;
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length / 2;
+            int step = n / length;
+            for (int i = 0; i < n; i += length) {
+                for (int j = 0; j < half; ++j) {
+                    double wr = cos_[j * step];
+                    double wi = sign * sin_[j * step];
+                    int a = i + j;
+                    int b = a + half;
+                    double br = data[re + b] * wr - data[im + b] * wi;
+                    double bi = data[re + b] * wi + data[im + b] * wr;
+                    data[re + b] = data[re + a] - br;
+                    data[im + b] = data[im + a] - bi;
+                    data[re + a] += br;
+                    data[im + a] += bi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms a real row of length 2 * size into its coefficients 0, ..., size.
+     * @param input The buffer of the row.
+     * @param offset The index of the first element of the row.
+     * @param output The buffer of the coefficients.
+     * @param re The index of the real part of the first coefficient.
+     * @param im The index of the imaginary part of the first coefficient.
+     * @param buffer A buffer of at least 2 * size elements.
+     */
+    private void real_forward(double[] input, int offset, double[] output, int re, int im, double[] buffer) {
+        int n = size_;
+        for (int m = 0; m < n; ++m) {
+            buffer[m] = input[offset + 2 * m];
+            buffer[n + m] = input[offset + 2 * m + 1];
+        }
+        transform(buffer, 0, n, false);
+        for (int k = 0; k <= n; ++k) {
+            int a = k % n;
+            int b = (n - k) % n;
+            // the transforms of the even samples E and of the odd samples O, X[k] = E[k] + e^(-pi i k / n) O[k]
+            double er = 0.5 * (buffer[a] + buffer[b]);
+            double ei = 0.5 * (buffer[n + a] - buffer[n + b]);
+            double or = 0.5 * (buffer[n + a] + buffer[n + b]);
+            double oi = -0.5 * (buffer[a] - buffer[b]);
+            double wr = real_cos_[k];
+            double wi = -real_sin_[k];
+            output[re + k] = er + wr * or - wi * oi;
+            output[im + k] = ei + wr * oi + wi * or;
+        }
+    }
+
+    /**
+     * Transforms the coefficients 0, ..., size of a real row of length 2 * size back into the row, multiplied by
+     * size.
+     * @param input The buffer of the coefficients.
+     * @param re The index of the real part of the first coefficient.
+     * @param im The index of the imaginary part of the first coefficient.
+     * @param output The buffer of the row.
+     * @param offset The index of the first element of the row.
+     * @param buffer A buffer of at least 2 * size elements.
+     */
+    private void real_inverse(double[] input, int re, int im, double[] output, int offset, double[] buffer) {
+        int n = size_;
+        for (int k = 0; k < n; ++k) {
+            double xr = input[re + k], xi = input[im + k];
+            double yr = input[re + n - k], yi = -input[im + n - k];
+            double er = 0.5 * (xr + yr);
+            double ei = 0.5 * (xi + yi);
+            double dr = 0.5 * (xr - yr);
+            double di = 0.5 * (xi - yi);
+            double wr = real_cos_[k];
+            double wi = real_sin_[k];
+            double or = dr * wr - di * wi;
+            double oi = dr * wi + di * wr;
+            // Z[k] = E[k] + i O[k]
+            buffer[k] = er - oi;
+            buffer[n + k] = ei + or;
+        }
+        transform(buffer, 0, n, true);
+        for (int m = 0; m < n; ++m) {
+            output[offset + 2 * m] = buffer[m];
+            output[offset + 2 * m + 1] = buffer[n + m];
+        }
+    }
+
+    /**
+     * Computes the half spectrum of a real two-dimensional signal.
+     * @param input The buffer of the signal, a row-major rows x columns matrix.
+     * @param offset The index of the first element of the signal.
+     * @param rows The power-of-two number of rows.
+     * @param columns The power-of-two number of columns, at least 2.
+     * @param signal_rows The number of leading rows that may be nonzero; the others are not read.
+     * @param output The buffer of the spectrum, rows x (columns / 2 + 1) real parts followed by as many imaginary
+     *               parts.
+     * @param output_offset The index of the first element of the spectrum.
+     */
+    public static void real_forward_2d(double[] input, int offset, int rows, int columns, int signal_rows,
+                                       double[] output, int output_offset) {
+        int half = columns / 2 + 1;
+        int im = output_offset + rows * half;
+        var row_plan = plan(columns / 2);
+        double[] buffer = buffer(2 * Math.max(rows, columns));
+        for (int r = 0; r < signal_rows; ++r)
+            row_plan.real_forward(input, offset + r * columns, output, output_offset + r * half, im + r * half, buffer);
+        Arrays.fill(output, output_offset + signal_rows * half, output_offset + rows * half, 0);
+        Arrays.fill(output, im + signal_rows * half, im + rows * half, 0);
+        transform_columns(output, output_offset, im, rows, half, false, buffer);
+    }
+
+    /**
+     * Computes a real two-dimensional signal from its half spectrum, i.e. the inverse of
+     * {@link #real_forward_2d}, including the scaling by 1 / (rows * columns).
+     * @param input The buffer of the spectrum, which is overwritten.
+     * @param input_offset The index of the first element of the spectrum.
+     * @param rows The power-of-two number of rows.
+     * @param columns The power-of-two number of columns, at least 2.
+     * @param result_rows The number of leading rows of the signal to compute; the others are not written.
+     * @param output The buffer of the signal, a row-major rows x columns matrix.
+     * @param offset The index of the first element of the signal.
+     */
+    public static void real_inverse_2d(double[] input, int input_offset, int rows, int columns, int result_rows,
+                                       double[] output, int offset) {
+        int half = columns / 2 + 1;
+        int im = input_offset + rows * half;
+        var row_plan = plan(columns / 2);
+        double[] buffer = buffer(2 * Math.max(rows, columns));
+        transform_columns(input, input_offset, im, rows, half, true, buffer);
+        for (int r = 0; r < result_rows; ++r)
+            row_plan.real_inverse(input, input_offset + r * half, im + r * half, output, offset + r * columns, buffer);
+        double scale = 1.0 / (rows * (columns / 2));
+        for (int i = offset; i < offset + result_rows * columns; ++i) output[i] *= scale;
+    }
+
+    /**
+     * Transforms every column of a complex matrix.
+     * @param data The buffer of the matrix.
+     * @param re The index of the real part of the first element.
+     * @param im The index of the imaginary part of the first element.
+     * @param rows The power-of-two number of rows.
+     * @param columns The number of columns.
+     * @param inverse Whether to compute the inverse transform.
+     * @param buffer A buffer of at least 2 * rows elements.
+     */
+    private static void transform_columns(double[] data, int re, int im, int rows, int columns, boolean inverse,
+                                          double[] buffer) {
+        if (rows == 1) return;
+        var column_plan = plan(rows);
+        for (int c = 0; c < columns; ++c) {
+            for (int r = 0; r < rows; ++r) {
+                buffer[r] = data[re + r * columns + c];
+                buffer[rows + r] = data[im + r * columns + c];
+            }
+            column_plan.transform(buffer, 0, rows, inverse);
+            for (int r = 0; r < rows; ++r) {
+                data[re + r * columns + c] = buffer[r];
+                data[im + r * columns + c] = buffer[rows + r];
+            }
+        }
+    }
+
+    /**
+     * Returns the buffer of the current thread of at least the given size.
+     * @param size The number of elements.
+     * @return The buffer.
+     */
+    private static double[] buffer(int size) {
+        double[] buffer = buffers_.get();
+        if (buffer.length < size) {
+            buffer = new double[size];
+            buffers_.set(buffer);
+        }
+        return buffer;
+    }
+}
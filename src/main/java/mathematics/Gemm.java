@@ -0,0 +1,339 @@
+package mathematics;
+
+import mathematics.kernels.Kernels;
+import nn.models.ModelSettings;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * General matrix multiplication C = op(A) * op(B) over flat row-major {@code double[]} buffers, where op is either
+ * the identity or the transposition. The output is split into tiles of rows and columns; for every slice of the inner
+ * dimension a tile copies the corresponding blocks of A and B into small contiguous buffers (so that transposed
+ * operands are read sequentially as well) and updates four rows of C at a time, keeping four elements of A in
+ * registers while streaming over a row of B (see {@link mathematics.kernels.IKernels#axpy4}). In the parallel mode
+ * the tiles are computed concurrently; since every tile owns its part of C, no synchronization is needed.
+ *
+ * In the FLOAT32 precision the blocks are copied into {@code float[]} buffers instead, so a vector register holds
+ * twice as many elements. The products of one slice of the inner dimension are accumulated in single precision and
+ * then added to C, which stays in double precision, so the rounding error grows with the size of a slice and not
+ * with the whole inner dimension. A or B may also be given as a {@code float[]} buffer, which is then multiplied in
+ * single precision.
+ */
+public final class Gemm {
+    private static final int ROW_BLOCK = 64;
+    private static final int COLUMN_BLOCK = 256;
+    private static final int DEPTH_BLOCK = 256;
+    private static final long PARALLEL_THRESHOLD = 1 << 15;
+    // the packed blocks are reused by all multiplications of a thread instead of being allocated for every tile
+    private static final ThreadLocal<double[][]> buffers_ = ThreadLocal.withInitial(() -> new double[2][0]);
+    private static final ThreadLocal<float[][]> single_buffers_ = ThreadLocal.withInitial(() -> new float[3][0]);
+
+    private Gemm() {}
+
+    /**
+     * Computes C = op(A) * op(B), or C += op(A) * op(B) if the result is accumulated.
+     * @param rows The number of rows of op(A) and C.
+     * @param columns The number of columns of op(B) and C.
+     * @param depth The number of columns of op(A) and rows of op(B).
+     * @param a The buffer of A, which is stored as a rows x depth matrix, or depth x rows if it is transposed.
+     * @param a_offset The index of the first element of A in its buffer.
+     * @param transpose_a Whether op(A) is the transposition of A.
+     * @param b The buffer of B, which is stored as a depth x columns matrix, or columns x depth if it is transposed.
+     * @param b_offset The index of the first element of B in its buffer.
+     * @param transpose_b Whether op(B) is the transposition of B.
+     * @param c The buffer of C, which is stored as a rows x columns matrix.
+     * @param c_offset The index of the first element of C in its buffer.
+     * @param accumulate Whether the product is added to C instead of overwriting it.
+     * @param mode The execution mode; in the parallel mode large products are computed on the common ForkJoin pool.
+     */
+    public static void multiply(int rows, int columns, int depth,
+                                double[] a, int a_offset, boolean transpose_a,
+                                double[] b, int b_offset, boolean transpose_b,
+                                double[] c, int c_offset, boolean accumulate, ModelSettings.executionMode mode) {
+        multiply(rows, columns, depth, a, a_offset, transpose_a, b, b_offset, transpose_b, c, c_offset, accumulate,
+                mode, ModelSettings.numericPrecision.FLOAT64);
+    }
+
+    /**
+     * Computes C = op(A) * op(B), or C += op(A) * op(B) if the result is accumulated, in the given precision.
+     * @param rows The number of rows of op(A) and C.
+     * @param columns The number of columns of op(B) and C.
+     * @param depth The number of columns of op(A) and rows of op(B).
+     * @param a The buffer of A, which is stored as a rows x depth matrix, or depth x rows if it is transposed.
+     * @param a_offset The index of the first element of A in its buffer.
+     * @param transpose_a Whether op(A) is the transposition of A.
+     * @param b The buffer of B, which is stored as a depth x columns matrix, or columns x depth if it is transposed.
+     * @param b_offset The index of the first element of B in its buffer.
+     * @param transpose_b Whether op(B) is the transposition of B.
+     * @param c The buffer of C, which is stored as a rows x columns matrix.
+     * @param c_offset The index of the first element of C in its buffer.
+     * @param accumulate Whether the product is added to C instead of overwriting it.
+     * @param mode The execution mode; in the parallel mode large products are computed on the common ForkJoin pool.
+     * @param precision The precision of the products; null means FLOAT64.
+     */
+    public static void multiply(int rows, int columns, int depth,
+                                double[] a, int a_offset, boolean transpose_a,
+                                double[] b, int b_offset, boolean transpose_b,
+                                double[] c, int c_offset, boolean accumulate, ModelSettings.executionMode mode,
+                                ModelSettings.numericPrecision precision) {
+        boolean single = precision == ModelSettings.numericPrecision.FLOAT32;
+        run(new Tile(rows, columns, depth, a, null, a_offset, transpose_a, b, null, b_offset, transpose_b,
+                c, c_offset, single), accumulate, mode);
+    }
+
+    /**
+     * Computes C = op(A) * op(B), or C += op(A) * op(B) if the result is accumulated, in single precision, with A
+     * given in single precision.
+     * @param rows The number of rows of op(A) and C.
+     * @param columns The number of columns of op(B) and C.
+     * @param depth The number of columns of op(A) and rows of op(B).
+     * @param a The buffer of A, which is stored as a rows x depth matrix, or depth x rows if it is transposed.
+     * @param a_offset The index of the first element of A in its buffer.
+     * @param transpose_a Whether op(A) is the transposition of A.
+     * @param b The buffer of B, which is stored as a depth x columns matrix, or columns x depth if it is transposed.
+     * @param b_offset The index of the first element of B in its buffer.
+     * @param transpose_b Whether op(B) is the transposition of B.
+     * @param c The buffer of C, which is stored as a rows x columns matrix.
+     * @param c_offset The index of the first element of C in its buffer.
+     * @param accumulate Whether the product is added to C instead of overwriting it.
+     * @param mode The execution mode; in the parallel mode large products are computed on the common ForkJoin pool.
+     */
+    public static void multiply(int rows, int columns, int depth,
+                                float[] a, int a_offset, boolean transpose_a,
+                                double[] b, int b_offset, boolean transpose_b,
+                                double[] c, int c_offset, boolean accumulate, ModelSettings.executionMode mode) {
+        run(new Tile(rows, columns, depth, null, a, a_offset, transpose_a, b, null, b_offset, transpose_b,
+                c, c_offset, true), accumulate, mode);
+    }
+
+    /**
+     * Computes C = op(A) * op(B), or C += op(A) * op(B) if the result is accumulated, in single precision, with B
+     * given in single precision.
+     * @param rows The number of rows of op(A) and C.
+     * @param columns The number of columns of op(B) and C.
+     * @param depth The number of columns of op(A) and rows of op(B).
+     * @param a The buffer of A, which is stored as a rows x depth matrix, or depth x rows if it is transposed.
+     * @param a_offset The index of the first element of A in its buffer.
+     * @param transpose_a Whether op(A) is the transposition of A.
+     * @param b The buffer of B, which is stored as a depth x columns matrix, or columns x depth if it is transposed.
+     * @param b_offset The index of the first element of B in its buffer.
+     * @param transpose_b Whether op(B) is the transposition of B.
+     * @param c The buffer of C, which is stored as a rows x columns matrix.
+     * @param c_offset The index of the first element of C in its buffer.
+     * @param accumulate Whether the product is added to C instead of overwriting it.
+     * @param mode The execution mode; in the parallel mode large products are computed on the common ForkJoin pool.
+     */
+    public static void multiply(int rows, int columns, int depth,
+                                double[] a, int a_offset, boolean transpose_a,
+                                float[] b, int b_offset, boolean transpose_b,
+                                double[] c, int c_offset, boolean accumulate, ModelSettings.executionMode mode) {
+        run(new Tile(rows, columns, depth, a, null, a_offset, transpose_a, null, b, b_offset, transpose_b,
+                c, c_offset, true), accumulate, mode);
+    }
+
+    /**
+     * Computes all tiles of a multiplication.
+     * @param tile The operands of the multiplication.
+     * @param accumulate Whether the product is added to C instead of overwriting it.
+     * @param mode The execution mode.
+     */
+    private static void run(Tile tile, boolean accumulate, ModelSettings.executionMode mode) {
+        int rows = tile.rows();
+        int columns = tile.columns();
+        int depth = tile.depth();
+        if (!accumulate) Arrays.fill(tile.c(), tile.c_offset(), tile.c_offset() + rows * columns, 0);
+        if (rows == 0 || columns == 0 || depth == 0) return;
+
+        int row_blocks = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+        int column_blocks = (columns + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+        int tiles = row_blocks * column_blocks;
+
+        if (mode == ModelSettings.executionMode.PARALLEL && tiles > 1 && (long) rows * columns * depth >= PARALLEL_THRESHOLD) {
+            IntStream.range(0, tiles).parallel().forEach(i -> tile.compute(i / column_blocks, i % column_blocks));
+        } else {
+            for (int i = 0; i < tiles; ++i) tile.compute(i / column_blocks, i % column_blocks);
+        }
+    }
+
+    /**
+     * The operands of a multiplication together with the kernel computing one tile of the output. Each of A and B
+     * is given by exactly one of its double- and single-precision buffers.
+     */
+    private record Tile(int rows, int columns, int depth,
+                        double[] a, float[] a_single, int a_offset, boolean transpose_a,
+                        double[] b, float[] b_single, int b_offset, boolean transpose_b,
+                        double[] c, int c_offset, boolean single) {
+
+        /**
+         * Computes one tile of C over the whole inner dimension.
+         * @param row_block The index of the block of rows.
+         * @param column_block The index of the block of columns.
+         */
+        void compute(int row_block, int column_block) {
+            if (single) {
+                compute_single(row_block, column_block);
+                return;
+            }
+            int row_start = row_block * ROW_BLOCK;
+            int tile_rows = Math.min(ROW_BLOCK, rows - row_start);
+            int column_start = column_block * COLUMN_BLOCK;
+            int tile_columns = Math.min(COLUMN_BLOCK, columns - column_start);
+            int max_depth = Math.min(DEPTH_BLOCK, depth);
+            double[][] buffers = buffers_.get();
+            if (buffers[0].length < tile_rows * max_depth) buffers[0] = new double[ROW_BLOCK * DEPTH_BLOCK];
+            if (buffers[1].length < max_depth * tile_columns) buffers[1] = new double[DEPTH_BLOCK * COLUMN_BLOCK];
+            double[] packed_a = buffers[0];
+            double[] packed_b = buffers[1];
+
+            for (int depth_start = 0; depth_start < depth; depth_start += DEPTH_BLOCK) {
+                int slice = Math.min(DEPTH_BLOCK, depth - depth_start);
+                pack_a(packed_a, row_start, tile_rows, depth_start, slice);
+                pack_b(packed_b, depth_start, slice, column_start, tile_columns);
+
+                var kernels = Kernels.get();
+                int i = 0;
+                for (; i + 4 <= tile_rows; i += 4) {
+                    int c0 = c_offset + (row_start + i) * columns + column_start;
+                    for (int p = 0; p < slice; ++p) {
+                        kernels.axpy4(packed_a[i * slice + p], packed_a[(i + 1) * slice + p],
+                                packed_a[(i + 2) * slice + p], packed_a[(i + 3) * slice + p], packed_b, p * tile_columns,
+                                c, c0, c0 + columns, c0 + 2 * columns, c0 + 3 * columns, tile_columns);
+                    }
+                }
+                for (; i < tile_rows; ++i) {
+                    int c0 = c_offset + (row_start + i) * columns + column_start;
+                    for (int p = 0; p < slice; ++p)
+                        kernels.axpy(packed_a[i * slice + p], packed_b, p * tile_columns, c, c0, tile_columns);
+                }
+            }
+        }
+
+        /**
+         * Computes one tile of C over the whole inner dimension in single precision. The products of a slice of the
+         * inner dimension are accumulated in a single-precision block, which is then added to C.
+         * @param row_block The index of the block of rows.
+         * @param column_block The index of the block of columns.
+         */
+        private void compute_single(int row_block, int column_block) {
+            int row_start = row_block * ROW_BLOCK;
+            int tile_rows = Math.min(ROW_BLOCK, rows - row_start);
+            int column_start = column_block * COLUMN_BLOCK;
+            int tile_columns = Math.min(COLUMN_BLOCK, columns - column_start);
+            int max_depth = Math.min(DEPTH_BLOCK, depth);
+            float[][] buffers = single_buffers_.get();
+            if (buffers[0].length < tile_rows * max_depth) buffers[0] = new float[ROW_BLOCK * DEPTH_BLOCK];
+            if (buffers[1].length < max_depth * tile_columns) buffers[1] = new float[DEPTH_BLOCK * COLUMN_BLOCK];
+            if (buffers[2].length < tile_rows * tile_columns) buffers[2] = new float[ROW_BLOCK * COLUMN_BLOCK];
+            float[] packed_a = buffers[0];
+            float[] packed_b = buffers[1];
+            float[] block = buffers[2];
+
+            for (int depth_start = 0; depth_start < depth; depth_start += DEPTH_BLOCK) {
+                int slice = Math.min(DEPTH_BLOCK, depth - depth_start);
+                pack_a(packed_a, row_start, tile_rows, depth_start, slice);
+                pack_b(packed_b, depth_start, slice, column_start, tile_columns);
+                Arrays.fill(block, 0, tile_rows * tile_columns, 0);
+
+                var kernels = Kernels.get();
+                int i = 0;
+                for (; i + 4 <= tile_rows; i += 4) {
+                    int c0 = i * tile_columns;
+                    for (int p = 0; p < slice; ++p) {
+                        kernels.axpy4(packed_a[i * slice + p], packed_a[(i + 1) * slice + p],
+                                packed_a[(i + 2) * slice + p], packed_a[(i + 3) * slice + p], packed_b, p * tile_columns,
+                                block, c0, c0 + tile_columns, c0 + 2 * tile_columns, c0 + 3 * tile_columns, tile_columns);
+                    }
+                }
+                for (; i < tile_rows; ++i) {
+                    for (int p = 0; p < slice; ++p)
+                        kernels.axpy(packed_a[i * slice + p], packed_b, p * tile_columns, block, i * tile_columns, tile_columns);
+                }
+
+                for (i = 0; i < tile_rows; ++i) {
+                    int c0 = c_offset + (row_start + i) * columns + column_start;
+                    for (int j = 0; j < tile_columns; ++j) c[c0 + j] += block[i * tile_columns + j];
+                }
+            }
+        }
+
+        /**
+         * Copies a block of op(A) into a row-major buffer.
+         * @param packed The buffer to copy into.
+         * @param row_start The first row of the block.
+         * @param tile_rows The number of rows of the block.
+         * @param depth_start The first column of the block.
+         * @param slice The number of columns of the block.
+         */
+        private void pack_a(double[] packed, int row_start, int tile_rows, int depth_start, int slice) {
+            for (int i = 0; i < tile_rows; ++i) {
+                for (int p = 0; p < slice; ++p) {
+                    int row = row_start + i;
+                    int inner = depth_start + p;
+                    packed[i * slice + p] = transpose_a ? a[a_offset + inner * rows + row] : a[a_offset + row * depth + inner];
+                }
+            }
+        }
+
+        /**
+         * Copies a block of op(A) into a single-precision row-major buffer.
+         * @param packed The buffer to copy into.
+         * @param row_start The first row of the block.
+         * @param tile_rows The number of rows of the block.
+         * @param depth_start The first column of the block.
+         * @param slice The number of columns of the block.
+         */
+        private void pack_a(float[] packed, int row_start, int tile_rows, int depth_start, int slice) {
+            for (int i = 0; i < tile_rows; ++i) {
+                for (int p = 0; p < slice; ++p) {
+                    int row = row_start + i;
+                    int inner = depth_start + p;
+                    int index = a_offset + (transpose_a ? inner * rows + row : row * depth + inner);
+                    packed[i * slice + p] = a_single != null ? a_single[index] : (float) a[index];
+                }
+            }
+        }
+
+        /**
+         * Copies a block of op(B) into a row-major buffer.
+         * @param packed The buffer to copy into.
+         * @param depth_start The first row of the block.
+         * @param slice The number of rows of the block.
+         * @param column_start The first column of the block.
+         * @param tile_columns The number of columns of the block.
+         */
+        private void pack_b(double[] packed, int depth_start, int slice, int column_start, int tile_columns) {
+            for (int p = 0; p < slice; ++p) {
+                int inner = depth_start + p;
+                if (!transpose_b) {
+                    System.arraycopy(b, b_offset + inner * columns + column_start, packed, p * tile_columns, tile_columns);
+                    continue;
+                }
+                for (int j = 0; j < tile_columns; ++j)
+                    packed[p * tile_columns + j] = b[b_offset + (column_start + j) * depth + inner];
+            }
+        }
+
+        /**
+         * Copies a block of op(B) into a single-precision row-major buffer.
+         * @param packed The buffer to copy into.
+         * @param depth_start The first row of the block.
+         * @param slice The number of rows of the block.
+         * @param column_start The first column of the block.
+         * @param tile_columns The number of columns of the block.
+         */
+        private void pack_b(float[] packed, int depth_start, int slice, int column_start, int tile_columns) {
+            for (int p = 0; p < slice; ++p) {
+                int inner = depth_start + p;
+                if (!transpose_b && b_single != null) {
+                    System.arraycopy(b_single, b_offset + inner * columns + column_start, packed, p * tile_columns, tile_columns);
+                    continue;
+                }
+                for (int j = 0; j < tile_columns; ++j) {
+                    int index = b_offset + (transpose_b ? (column_start + j) * depth + inner : inner * columns + column_start + j);
+                    packed[p * tile_columns + j] = b_single != null ? b_single[index] : (float) b[index];
+                }
+            }
+        }
+    }
+}
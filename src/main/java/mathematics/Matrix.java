@@ -5,21 +5,25 @@ import mathematics.initializers.ConstantInitializer;
 import mathematics.initializers.HeGaussianInitializer;
 import mathematics.initializers.IInitializer;
 import mathematics.initializers.RandomInitializer;
+import mathematics.kernels.Kernels;
 import nn.layers.Layer;
 import nn.models.ModelSettings;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.stream.IntStream;
 
 /**
  * Represents a matrix of {@link Value} objects. This class provides functionality for
  * various matrix operations such as addition, multiplication, and applying activation functions,
  * supporting both sequential and parallel execution modes.
+ * The elements are kept in a row-major {@link Storage}; {@link Value}s are created for them on access.
+ * Every operation on whole matrices records a single {@link autograd.Operation} in the computational graph.
  */
 public class Matrix extends MultiDimObject {
-    private final Value[][] values_;
+
+    /**
+     * Creates a matrix without a storage; it is used for views, which share the storage of another object.
+     */
+    Matrix() {}
 
     /**
      * Initializes a matrix with given dimensions and initialization settings.
@@ -30,8 +34,10 @@ public class Matrix extends MultiDimObject {
      */
     public Matrix(int height, int width, InitValues init_values) {
         if (height < 1 || width < 1) throw new RuntimeException("Matrix has non-positive dimensions");
-        size_ = new int[] { height, width };
-        values_ = new Value[height][width];
+        init_storage(new int[] { height, width });
+        double[] data = storage_.get_data();
+
+        if (init_values == InitValues.ZEROS) return;
 
         IInitializer sampler = switch (init_values) {
             case ZEROS -> new ConstantInitializer(0);
@@ -41,19 +47,7 @@ public class Matrix extends MultiDimObject {
             default -> throw new RuntimeException("Unknown sampler");
         };
 
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            IntStream.range(0, height).parallel().forEach(i -> {
-                IntStream.range(0, width).forEach(j -> {
-                    values_[i][j] = new Value(sampler.next());
-                });
-            });
-        } else {
-            for (int i = 0; i < height; ++i) {
-                for (int j = 0; j < width; ++j) {
-                    values_[i][j] = new Value(sampler.next());
-                }
-            }
-        }
+        sampler.fill(data);
     }
 
     /**
@@ -65,12 +59,10 @@ public class Matrix extends MultiDimObject {
     public Matrix(double[][] matrix) {
         if (matrix.length == 0 || matrix[0].length == 0)
             throw new ArrayIndexOutOfBoundsException("Attempt to create matrix from the empty arrays");
-        size_ = new int[] { matrix.length, matrix[0].length };
-        values_ = new Value[matrix.length][matrix[0].length];
-        for (int i = 0; i < matrix.length; ++i) {
-            for (int j = 0; j < matrix[0].length; ++j)
-                values_[i][j] = new Value(matrix[i][j]);
-        }
+        init_storage(new int[] { matrix.length, matrix[0].length });
+        double[] data = storage_.get_data();
+        for (int i = 0; i < matrix.length; ++i)
+            System.arraycopy(matrix[i], 0, data, i * size_[1], size_[1]);
     }
 
     /**
@@ -82,8 +74,10 @@ public class Matrix extends MultiDimObject {
         if (matrix == null) throw new RuntimeException("Array to create a matrix is null");
         if (matrix.length == 0 || matrix[0].length == 0)
             throw new ArrayIndexOutOfBoundsException("Attempt to create a matrix from the empty arrays");
-        values_ = matrix;
-        size_ = new int[] { matrix.length, matrix[0].length };
+        var nodes = new Value[matrix.length * matrix[0].length];
+        for (int i = 0; i < matrix.length; ++i)
+            System.arraycopy(matrix[i], 0, nodes, i * matrix[0].length, matrix[0].length);
+        init_nodes(new int[] { matrix.length, matrix[0].length }, nodes);
     }
 
     /**
@@ -96,7 +90,7 @@ public class Matrix extends MultiDimObject {
         if (indices.length != 2) throw new RuntimeException("Insufficient number of indices to access the matrix");
         if (!index_is_valid(indices[0], size_[0]) && index_is_valid(indices[1], size_[1])) throw new ArrayIndexOutOfBoundsException("Invalid index to set");
         if (value == null) throw new NullPointerException("Attempt to set null value");
-        values_[indices[0]][indices[1]] = value;
+        set_element(value, storage_index(indices));
     }
 
     /**
@@ -108,7 +102,7 @@ public class Matrix extends MultiDimObject {
     public Value get(int... indices) {
         if (indices.length != 2) throw new RuntimeException("Insufficient number of indices to access the matrix");
         if (!index_is_valid(indices[0], size_[0]) && index_is_valid(indices[1], size_[1])) throw new ArrayIndexOutOfBoundsException("Attempt to get matrix value that is out of bounds");
-        return values_[indices[0]][indices[1]];
+        return element(storage_index(indices));
     }
 
     /**
@@ -138,23 +132,47 @@ public class Matrix extends MultiDimObject {
     }
 
     /**
-     * Adds another matrix to this matrix.
+     * Adds another matrix to this matrix. The other matrix may also be broadcastable to the size of this one, e.g.
+     * a column vector added to every column of a batch.
      *
      * @param other The matrix to add to this one.
      * @return A new matrix representing the sum of this matrix and the other matrix.
+     * @throws RuntimeException If the other matrix cannot be broadcasted to the size of this one.
      */
     public Matrix add(MultiDimObject other) {
         if (other == null) throw new NullPointerException("Attempt to add the null matrix");
-        if (!has_same_size(other)) throw new RuntimeException("Matrix has invalid size for the addition");
+        if (!has_same_size(other)) {
+            var output_matrix = new Matrix(size_[0], size_[1], InitValues.ZEROS);
+            output_matrix.mode = mode;
+            Broadcast.binary(Broadcast.Op.ADD, this, strides_, other, Broadcast.strides(other, size_), output_matrix);
+            return output_matrix;
+        }
 
-        Matrix other_matrix = (Matrix)other;
-        var matrix_array = new Value[size_[0]][size_[1]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                matrix_array[i][j] = values_[i][j].add(other_matrix.values_[i][j]);
+        if (!is_contiguous()) return contiguous().add(other);
+        Matrix other_matrix = ((Matrix)other).contiguous();
+        var output_matrix = new Matrix(size_[0], size_[1], InitValues.ZEROS);
+        double[] data = storage_.get_data();
+        double[] other_data = other_matrix.storage_.get_data();
+        double[] output_data = output_matrix.storage_.get_data();
+
+        var kernels = Kernels.get();
+        output_matrix.compute("add", () -> {
+            for_each_range(output_data.length, (from, to) ->
+                    kernels.add(data, from, other_data, from, output_data, from, to - from));
+        }, () -> {
+            double[] output_gradient = output_matrix.storage_.get_gradient();
+            if (requires_grad_) {
+                double[] gradient = storage_.get_gradient();
+                for_each_range(output_gradient.length, (from, to) ->
+                        kernels.axpy(1, output_gradient, from, gradient, from, to - from));
             }
-        }
-        return new Matrix(matrix_array);
+            if (other_matrix.requires_grad_) {
+                double[] other_gradient = other_matrix.storage_.get_gradient();
+                for_each_range(output_gradient.length, (from, to) ->
+                        kernels.axpy(1, output_gradient, from, other_gradient, from, to - from));
+            }
+        }, this, other_matrix);
+        return output_matrix;
     }
 
     /**
@@ -171,23 +189,94 @@ public class Matrix extends MultiDimObject {
      * @return a new {@code Matrix} object representing a vector of maximum values along the specified dimension.
      *         The resulting matrix will be a 1xN matrix if {@code dim} is 1, or an Nx1 matrix if {@code dim} is 0,
      *         where N is the size of the dimension not specified.
-     * @throws IllegalArgumentException if {@code dim} is not 0 or 1, since only these two dimensions are supported.
+     * @throws RuntimeException if {@code dim} is not 0 or 1, since only these two dimensions are supported.
      */
     public Matrix max_dim(int dim) {
-        int first_axis = dim == 0 ? size_[1] : size_[0];
-        int second_axis = dim == 0 ? size_[0] : size_[1];
-
-        Value[][] max_vector = new Value[first_axis][1];
-        for (int j = 0, i = 0; i < first_axis; ++i, j = 0) {
-            Value max_value = values_[dim == 0 ? j : i][dim == 0 ? i : j];
-            for (; j < second_axis; ++j) {
-                Value current_value = values_[dim == 0 ? j : i][dim == 0 ? i : j];
-                if (current_value.value > max_value.value)
-                    max_value = current_value;
-            }
-            max_vector[i][0] = max_value;
-        }
-        return new Matrix(max_vector);
+        // max(0) is a row, and its transposition is a contiguous column
+        return dim == 0 ? max(0).transpose() : max(dim);
+    }
+
+    /**
+     * Sums the elements of this matrix over the given axes by pairwise summation.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A matrix of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Matrix sum(int... axes) {
+        return reduce(Reduction.Op.SUM, axes);
+    }
+
+    /**
+     * Computes the mean of the elements of this matrix over the given axes.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A matrix of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Matrix mean(int... axes) {
+        return reduce(Reduction.Op.MEAN, axes);
+    }
+
+    /**
+     * Computes the maximum of the elements of this matrix over the given axes. The gradient flows to the first
+     * maximal element.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A matrix of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Matrix max(int... axes) {
+        return reduce(Reduction.Op.MAX, axes);
+    }
+
+    /**
+     * Computes log(sum(exp(x))) of the elements of this matrix over the given axes, shifted by their maximum so that
+     * the exponentials cannot overflow.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A matrix of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Matrix logsumexp(int... axes) {
+        return reduce(Reduction.Op.LOGSUMEXP, axes);
+    }
+
+    /**
+     * Finds the index of the first maximal element along an axis. The indices do not require gradients.
+     *
+     * @param axis The axis to search along.
+     * @return A matrix of the size of this one with 1 along the axis, holding the indices.
+     * @throws RuntimeException If the axis is out of range.
+     */
+    public Matrix argmax(int axis) {
+        var output = reduced_matrix(Reduction.shape(size_, Reduction.axes(size_, axis)));
+        Reduction.argmax(this, axis, output);
+        return output;
+    }
+
+    /**
+     * Reduces this matrix over the given axes.
+     *
+     * @param op The reduction.
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return The reduced matrix.
+     */
+    private Matrix reduce(Reduction.Op op, int... axes) {
+        boolean[] reduced = Reduction.axes(size_, axes);
+        var output = reduced_matrix(Reduction.shape(size_, reduced));
+        Reduction.reduce(op, this, reduced, output);
+        return output;
+    }
+
+    /**
+     * Creates a zero-filled matrix of the given size.
+     *
+     * @param size The number of rows and columns.
+     * @return The matrix.
+     */
+    private static Matrix reduced_matrix(int[] size) {
+        return new Matrix(size[0], size[1], InitValues.ZEROS);
     }
 
     /**
@@ -208,17 +297,95 @@ public class Matrix extends MultiDimObject {
      *         as per the softmax function. The size of the resulting matrix matches the original matrix.
      */
     public Matrix softmax() {
-        Matrix max_values_dim = max_dim(0);
-        var matrix_array = new Value[size_[0]][size_[1]];
-        for (int i = 0; i < size_[1]; ++i) {
-            var arrayExp = new ArrayList<Value>();
-            double max_value_dim = max_values_dim.get(i, 0).value;
-            for (int j = 0; j < size_[0]; ++j) arrayExp.add(values_[j][i].sub(max_value_dim).exp());
-            var sumExp = Value.add(arrayExp);
-            for (int j = 0; j < size_[0]; ++j) matrix_array[j][i] = arrayExp.get(j).div(sumExp);
-        }
-        var res = new Matrix(matrix_array);
-        return res;
+        if (!is_contiguous()) return contiguous().softmax();
+        double[] data = storage_.get_data();
+        var output_matrix = new Matrix(size_[0], size_[1], InitValues.ZEROS);
+        double[] output_data = output_matrix.storage_.get_data();
+
+        // the columns are independent, so they are processed in parallel in the parallel mode
+        output_matrix.compute("softmax", () -> for_each_index(size_[1], i -> {
+            double max_value = data[i];
+            for (int j = 1; j < size_[0]; ++j) max_value = Math.max(max_value, data[j * size_[1] + i]);
+            double sum_exp = 0;
+            for (int j = 0; j < size_[0]; ++j) {
+                output_data[j * size_[1] + i] = Math.exp(data[j * size_[1] + i] - max_value);
+                sum_exp += output_data[j * size_[1] + i];
+            }
+            for (int j = 0; j < size_[0]; ++j) output_data[j * size_[1] + i] /= sum_exp;
+        }), () -> {
+            double[] gradient = storage_.get_gradient();
+            double[] output_gradient = output_matrix.storage_.get_gradient();
+            for_each_index(size_[1], i -> {
+                double weighted_sum = 0;
+                for (int j = 0; j < size_[0]; ++j)
+                    weighted_sum += output_gradient[j * size_[1] + i] * output_data[j * size_[1] + i];
+                for (int j = 0; j < size_[0]; ++j)
+                    gradient[j * size_[1] + i] += output_data[j * size_[1] + i] * (output_gradient[j * size_[1] + i] - weighted_sum);
+            });
+        }, true, this);
+        return output_matrix;
+    }
+
+    /**
+     * Adds another object to this matrix in place. The other object must have the same size or be broadcastable to
+     * the size of this matrix.
+     *
+     * @param other The object to add.
+     * @return This matrix, holding the sum.
+     * @throws RuntimeException If the other object cannot be broadcasted, or this matrix cannot be modified in place
+     *                          (see {@link MultiDimObject#compute_in_place}).
+     */
+    public Matrix add_(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to add the null object");
+        Broadcast.binary_in_place(Broadcast.Op.ADD, this, other, Broadcast.strides(other, size_));
+        return this;
+    }
+
+    /**
+     * Multiplies this matrix element-wise by another object in place. The other object must have the same size or be
+     * broadcastable to the size of this matrix.
+     *
+     * @param other The object to multiply by.
+     * @return This matrix, holding the product.
+     * @throws RuntimeException If the other object cannot be broadcasted, or this matrix cannot be modified in place.
+     */
+    public Matrix mul_(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to multiply by the null object");
+        Broadcast.binary_in_place(Broadcast.Op.MUL, this, other, Broadcast.strides(other, size_));
+        return this;
+    }
+
+    /**
+     * Applies the ReLU activation function to each element of this matrix in place.
+     *
+     * @return This matrix, holding the activations.
+     * @throws RuntimeException If this matrix cannot be modified in place.
+     */
+    public Matrix relu_() {
+        activation_in_place(Layer.Activation.ReLU);
+        return this;
+    }
+
+    /**
+     * Applies the LeakyReLU activation function to each element of this matrix in place.
+     *
+     * @return This matrix, holding the activations.
+     * @throws RuntimeException If this matrix cannot be modified in place.
+     */
+    public Matrix leakyRelu_() {
+        activation_in_place(Layer.Activation.LeakyReLU);
+        return this;
+    }
+
+    /**
+     * Applies the Sigmoid activation function to each element of this matrix in place.
+     *
+     * @return This matrix, holding the activations.
+     * @throws RuntimeException If this matrix cannot be modified in place.
+     */
+    public Matrix sigmoid_() {
+        activation_in_place(Layer.Activation.Sigmoid);
+        return this;
     }
 
     /**
@@ -261,31 +428,44 @@ public class Matrix extends MultiDimObject {
      * @return A new matrix with the activation function applied to each element.
      */
     protected Matrix activation(Layer.Activation activation) {
-        java.util.function.Function<Value, Value> activation_function = switch (activation) {
-            case ReLU -> Value::relu;
-            case LeakyReLU -> Value::leakyRelu;
-            case Sigmoid -> Value::sigmoid;
-            default -> throw new RuntimeException("Unknown activation function");
-        };
+        if (!is_contiguous()) return contiguous().activation(activation);
+        var output_matrix = new Matrix(size_[0], size_[1], InitValues.ZEROS);
+        activation(output_matrix, activation);
+        return output_matrix;
+    }
 
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            Value[][] result = Arrays.stream(values_)
-                    .parallel()
-                    .map(row -> Arrays.stream(row)
-                            .map(activation_function)
-                            .toArray(Value[]::new))
-                    .toArray(Value[][]::new);
-            return new Matrix(result);
-        }
+    /**
+     * Creates a copy of this matrix with its own storage. The copy is a leaf of the computational graph.
+     *
+     * @return A new matrix holding the same elements.
+     */
+    public Matrix copy() {
+        var copy_matrix = new Matrix(size_[0], size_[1], InitValues.ZEROS);
+        copy_elements(copy_matrix.storage_.get_data());
+        copy_matrix.requires_grad_ = requires_grad_;
+        copy_matrix.mode = mode;
+        return copy_matrix;
+    }
 
-        var matrix_array = new Value[size_[0]][size_[1]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                matrix_array[i][j] = activation_function.apply(values_[i][j]);
-            }
-        }
+    /**
+     * Returns this matrix if it is contiguous, or a contiguous copy of it otherwise.
+     *
+     * @return A contiguous matrix with the same elements.
+     */
+    public Matrix contiguous() {
+        if (is_contiguous()) return this;
+        var contiguous_matrix = new Matrix(size_[0], size_[1], InitValues.ZEROS);
+        contiguous_matrix.gather(this);
+        return contiguous_matrix;
+    }
 
-        return new Matrix(matrix_array);
+    /**
+     * Checks whether this matrix is the transposition of a contiguous matrix, i.e. its columns are contiguous.
+     *
+     * @return true if the elements of every column are adjacent in the storage; false otherwise.
+     */
+    private boolean is_transposed() {
+        return strides_[0] == 1 && strides_[1] == size_[0];
     }
 
     /**
@@ -298,18 +478,16 @@ public class Matrix extends MultiDimObject {
     }
 
     /**
-     * Transposes this matrix, switching its rows and columns.
+     * Transposes this matrix, switching its rows and columns. The result is a view sharing the storage of this
+     * matrix, so no element is copied.
      *
-     * @return A new matrix that is the transpose of this matrix.
+     * @return A view of this matrix with the rows and columns swapped.
      */
     public Matrix transpose() {
-        var matrix_array = new Value[size_[1]][size_[0]];
-        for (int i = 0; i < size_[1]; ++i) {
-            for (int j = 0; j < size_[0]; ++j) {
-                matrix_array[i][j] = values_[j][i];
-            }
-        }
-        return new Matrix(matrix_array);
+        var view_matrix = new Matrix();
+        view_matrix.init_view(this, "transpose", new int[] { size_[1], size_[0] },
+                new int[] { strides_[1], strides_[0] }, offset_);
+        return view_matrix;
     }
 
     /**
@@ -328,7 +506,7 @@ public class Matrix extends MultiDimObject {
 
             @Override
             public Value next() {
-                var value = values_[current_index / size_[1]][current_index % size_[1]];
+                var value = element(storage_index(current_index / size_[1], current_index % size_[1]));
                 current_index++;
                 return value;
             }
@@ -336,7 +514,8 @@ public class Matrix extends MultiDimObject {
     }
 
     /**
-     * Multiplies this matrix by another matrix.
+     * Multiplies this matrix by another matrix. The product is computed in single precision if the precision of
+     * one of the matrices is FLOAT32.
      *
      * @param other The matrix to multiply with this one.
      * @return A new matrix representing the multiplication of this matrix and the other matrix.
@@ -345,41 +524,59 @@ public class Matrix extends MultiDimObject {
         if (other == null) throw new NullPointerException("Attempt to multiply by the null matrix");
         Matrix other_matrix = (Matrix)other;
         if (size_[1] != other_matrix.size_[0]) throw new NullPointerException("Matrices have incompatible sizes to multiply");
-
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            var matrix_array = new Value[size_[0]][other_matrix.size_[1]];
-            for (int i = 0; i < size_[0]; ++i) {
-                for (int j = 0; j < other_matrix.size_[1]; ++j) {
-                    var values_array = new ArrayList<Value>();
-                    for (int k = 0; k < size_[1]; ++k) {
-                        values_array.add(values_[i][k].multiply(other_matrix.values_[k][j]));
-                    }
-                    matrix_array[i][j] = Value.add(values_array);
-                }
+        // transposed views are handed over to the kernel as they are, other views are copied
+        if (!is_contiguous() && !is_transposed()) return contiguous().multiply(other_matrix);
+        if (!other_matrix.is_contiguous() && !other_matrix.is_transposed()) return multiply(other_matrix.contiguous());
+
+        int height = size_[0];
+        int inner = size_[1];
+        int width = other_matrix.size_[1];
+        boolean transposed = !is_contiguous();
+        boolean other_transposed = !other_matrix.is_contiguous();
+        int other_offset = other_matrix.offset_;
+        var precision = other_matrix.precision == ModelSettings.numericPrecision.FLOAT32 ? other_matrix.precision : this.precision;
+        double[] data = storage_.get_data();
+        double[] other_data = other_matrix.storage_.get_data();
+        var output_matrix = new Matrix(height, width, InitValues.ZEROS);
+        double[] output_data = output_matrix.storage_.get_data();
+
+        output_matrix.compute("matmul", () -> {
+            Gemm.multiply(height, width, inner, data, offset_, transposed, other_data, other_offset, other_transposed,
+                    output_data, 0, false, mode, precision);
+        }, () -> {
+            double[] output_gradient = output_matrix.storage_.get_gradient();
+            if (requires_grad_ && !transposed) {
+                // dA += dC * B^T
+                Gemm.multiply(height, inner, width, output_gradient, 0, false, other_data, other_offset, !other_transposed,
+                        storage_.get_gradient(), offset_, true, mode, precision);
+            } else if (requires_grad_) {
+                // A is kept transposed: dA^T += B * dC^T
+                Gemm.multiply(inner, height, width, other_data, other_offset, other_transposed, output_gradient, 0, true,
+                        storage_.get_gradient(), offset_, true, mode, precision);
             }
-            return new Matrix(matrix_array);
-        }
-
-        var matrix_array = new Value[size_[0]][other_matrix.size_[1]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < other_matrix.size_[1]; ++j) {
-                matrix_array[i][j] = new Value(0);
-                for (int k = 0; k < size_[1]; ++k)
-                    matrix_array[i][j] = matrix_array[i][j].add(values_[i][k].multiply(other_matrix.values_[k][j]));
+            if (other_matrix.requires_grad_ && !other_transposed) {
+                // dB += A^T * dC
+                Gemm.multiply(inner, width, height, data, offset_, !transposed, output_gradient, 0, false,
+                        other_matrix.storage_.get_gradient(), other_offset, true, mode, precision);
+            } else if (other_matrix.requires_grad_) {
+                // B is kept transposed: dB^T += dC^T * A
+                Gemm.multiply(width, inner, height, output_gradient, 0, true, data, offset_, transposed,
+                        other_matrix.storage_.get_gradient(), other_offset, true, mode, precision);
             }
-        }
-        return new Matrix(matrix_array);
+        }, this, other_matrix);
+        return output_matrix;
     }
 
     /**
      * Prints the matrix to the standard output.
      */
     public void print() {
+        double[] data = storage_.get_data();
         System.out.printf("size_ = [%d, %d]", size_[0], size_[1]);
         for (int i = 0; i < size_[0]; ++i) {
             System.out.println();
             for (int j = 0; j < size_[1]; ++j) {
-                System.out.printf("%f ", values_[i][j].value);
+                System.out.printf("%f ", data[storage_index(i, j)]);
             }
         }
         System.out.println();
@@ -2,9 +2,18 @@ package mathematics;
 
 import jdk.jshell.spi.ExecutionControl;
 import autograd.Differentiable;
+import autograd.NoGrad;
+import autograd.Operation;
 import autograd.Value;
+import mathematics.kernels.Kernels;
+import nn.layers.Layer;
+import nn.models.ExecutionPlan;
 import nn.models.ModelSettings;
 
+import java.util.ArrayList;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
 /**
  * Abstract class defining a multi-dimensional mathematical object that supports
  * operations such as addition and multiplication. This class is designed to be
@@ -12,6 +21,7 @@ import nn.models.ModelSettings;
  * modes and execution settings.
  */
 public abstract class MultiDimObject implements Iterable<Value> {
+    private static final int CHUNK_SIZE = 4096;
 
     /**
      * Enumerates possible initialization values for instances of multi-dimensional objects.
@@ -23,17 +33,527 @@ public abstract class MultiDimObject implements Iterable<Value> {
      */
     public ModelSettings.executionMode mode;
 
+    /**
+     * The precision of the matrix multiplications this object takes part in; null means FLOAT64. A multiplication
+     * is computed in FLOAT32 if one of its operands asks for it. The elements themselves are always stored in double
+     * precision.
+     */
+    public ModelSettings.numericPrecision precision;
+
     /**
      * Array storing the size of each dimension of the multi-dimensional object.
      */
     protected int[] size_;
 
+    /**
+     * Array storing the distance (in elements of the storage) between two neighbouring indices of each dimension.
+     */
+    protected int[] strides_;
+
+    /**
+     * Position of the element with all indices equal to zero in the storage.
+     */
+    protected int offset_;
+
+    /**
+     * Contiguous buffer holding the values and gradients of the elements.
+     */
+    protected Storage storage_;
+
+    /**
+     * The operation that produced this object. It is null for objects whose elements are leaves of the
+     * computational graph (e.g. parameters and inputs); their gradients stay in the storage.
+     */
+    protected Operation grad_fn_;
+
+    /**
+     * Indicates whether gradients should be accumulated for the elements stored in the storage.
+     */
+    protected boolean requires_grad_ = true;
+
+    /**
+     * Indicates whether this object is a view sharing the storage of another object.
+     */
+    protected boolean is_view_ = false;
+
     /**
      * Retrieves the size of each dimension of this multi-dimensional object.
      * @return An array of integers where each integer represents the size of a dimension.
      */
     public int[] get_size() { return size_; };
 
+    /**
+     * Retrieves the strides of this multi-dimensional object.
+     * @return An array of integers where each integer represents the stride of a dimension.
+     */
+    public int[] get_strides() { return strides_; }
+
+    /**
+     * Retrieves the storage holding the elements of this multi-dimensional object.
+     * @return The {@link Storage} of this object.
+     */
+    public Storage get_storage() { return storage_; }
+
+    /**
+     * Retrieves the operation that produced this object.
+     * @return The {@link Operation} node of this object, or null if the object is a leaf of the computational graph.
+     */
+    public Operation get_grad_fn() { return grad_fn_; }
+
+    /**
+     * Checks whether gradients are accumulated for the elements of this object.
+     * @return true if the object takes part in the backward pass; false otherwise.
+     */
+    public boolean requires_grad() { return requires_grad_; }
+
+    /**
+     * Retrieves the total number of elements of this multi-dimensional object.
+     * @return The product of the sizes of all dimensions.
+     */
+    public int get_elements_num() {
+        int elements_num = 1;
+        for (var dim: size_) elements_num *= dim;
+        return elements_num;
+    }
+
+    /**
+     * Sets the 'requires_grad' property for all elements, determining whether automatic differentiation
+     * mechanisms should track operations for each element. Turning it off for an object produced by an
+     * operation detaches the object from the computational graph.
+     * @param requires_grad Boolean flag indicating whether gradients should be calculated.
+     */
+    public void set_requires_grad(boolean requires_grad) {
+        requires_grad_ = requires_grad;
+        if (!requires_grad) grad_fn_ = null;
+    }
+
+    /**
+     * Records the operation that produced this object from the given inputs. This object requires gradients if any
+     * of the inputs does and no {@link NoGrad} scope is open; otherwise nothing is recorded. The backward function
+     * reads the gradient from the storage of this object and accumulates it into the storages of the inputs that
+     * require gradients.
+     * @param name The name of the operation.
+     * @param backward_func The function propagating the gradient of this object to the inputs.
+     * @param inputs The objects this object was computed from.
+     */
+    public void set_grad_fn(String name, Runnable backward_func, MultiDimObject... inputs) {
+        // this object may be one of the inputs (in-place operations), so its state is read before it is replaced
+        boolean requires_grad = false;
+        var parents = new Differentiable[inputs.length];
+        var targets = new ArrayList<Storage>();
+        for (int i = 0; i < inputs.length && NoGrad.is_grad_enabled(); ++i) {
+            if (!inputs[i].requires_grad_) continue;
+            requires_grad = true;
+            parents[i] = inputs[i].grad_fn_;
+            targets.add(inputs[i].storage_);
+        }
+        requires_grad_ = requires_grad;
+        grad_fn_ = null;
+        if (!requires_grad) return;
+        grad_fn_ = new Operation(name, backward_func, parents);
+        grad_fn_.set_gradient_targets(targets.toArray());
+    }
+
+    /**
+     * Computes this object from the given inputs and records the operation that produced it. The forward function
+     * writes the result into the storage of this object using the storages of the inputs; it is run immediately and
+     * is also kept by an {@link ExecutionPlan} being traced, which runs it again for every new input. Therefore the
+     * forward function must overwrite all the elements it produces instead of relying on a zero-filled storage.
+     * @param name The name of the operation.
+     * @param forward_func The function computing the elements of this object.
+     * @param backward_func The function propagating the gradient of this object to the inputs.
+     * @param inputs The objects this object is computed from.
+     */
+    public void compute(String name, Runnable forward_func, Runnable backward_func, MultiDimObject... inputs) {
+        compute(name, forward_func, backward_func, false, inputs);
+    }
+
+    /**
+     * Computes this object from the given inputs and records the operation that produced it (see
+     * {@link #compute(String, Runnable, Runnable, MultiDimObject...)}).
+     *
+     * Since the gradient of an object lives in its storage, an operation whose input is later modified in place
+     * would accumulate its gradient into the gradient of the modified values. Therefore the versions of the storages
+     * of the inputs (other than the storage of this object) are remembered, and the backward function throws if any
+     * of them has changed. The storage of this object is checked as well if the backward function reads the values
+     * it produced, e.g. the outputs of activation functions.
+     * @param name The name of the operation.
+     * @param forward_func The function computing the elements of this object.
+     * @param backward_func The function propagating the gradient of this object to the inputs.
+     * @param saves_output Whether the backward function reads the values of this object.
+     * @param inputs The objects this object is computed from.
+     */
+    protected void compute(String name, Runnable forward_func, Runnable backward_func, boolean saves_output,
+                           MultiDimObject... inputs) {
+        forward_func.run();
+        set_grad_fn(name, any_requires_grad(inputs) ? check_versions(name, backward_func, saves_output, inputs)
+                : backward_func, inputs);
+        var plan = ExecutionPlan.tracing();
+        if (plan != null) plan.record(storage_, forward_func, grad_fn_ != null ? backward_func : null);
+    }
+
+    /**
+     * Checks whether any of the objects requires gradients.
+     * @param objects The objects to check.
+     * @return true if an operation on the objects would be recorded; false otherwise.
+     */
+    private static boolean any_requires_grad(MultiDimObject[] objects) {
+        if (!NoGrad.is_grad_enabled()) return false;
+        for (var object: objects) {
+            if (object.requires_grad_) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Wraps a backward function so that it throws if one of the storages it depends on has been modified in place
+     * since the operation was computed.
+     * @param name The name of the operation.
+     * @param backward_func The backward function.
+     * @param saves_output Whether the backward function reads the values of this object.
+     * @param inputs The inputs of the operation.
+     * @return The checked backward function, or the backward function itself if it depends on no storage.
+     */
+    private Runnable check_versions(String name, Runnable backward_func, boolean saves_output, MultiDimObject[] inputs) {
+        var storages = new ArrayList<Storage>();
+        for (var input: inputs) {
+            if (input.storage_ != storage_ && !storages.contains(input.storage_)) storages.add(input.storage_);
+        }
+        if (saves_output) storages.add(storage_);
+        if (storages.isEmpty()) return backward_func;
+
+        var checked_storages = storages.toArray(new Storage[0]);
+        int[] versions = new int[checked_storages.length];
+        for (int i = 0; i < versions.length; ++i) versions[i] = checked_storages[i].get_version();
+        return () -> {
+            for (int i = 0; i < versions.length; ++i) {
+                if (checked_storages[i].get_version() != versions[i])
+                    throw new RuntimeException("An object needed to compute the gradient of \"" + name
+                            + "\" has been modified by an in-place operation");
+            }
+            backward_func.run();
+        };
+    }
+
+    /**
+     * Modifies this object in place and records the operation on top of the one that produced it, so the result
+     * keeps the storage of this object. The backward function receives the gradient of the modified values in the
+     * storage and must replace it with the gradient of the original values.
+     * @param name The name of the operation.
+     * @param forward_func The function modifying the elements of this object.
+     * @param backward_func The function propagating the gradient of the modified values.
+     * @param saves_output Whether the backward function reads the modified values.
+     * @param inputs The other objects the modification depends on.
+     * @throws RuntimeException If this object is not contiguous, or if it is a leaf or a view that requires gradients,
+     *                          since the modification would be lost for the computational graph.
+     */
+    protected void compute_in_place(String name, Runnable forward_func, Runnable backward_func, boolean saves_output,
+                                    MultiDimObject... inputs) {
+        if (!is_contiguous()) throw new RuntimeException("In-place operations need a contiguous object");
+        if (requires_grad_ && NoGrad.is_grad_enabled()) {
+            if (grad_fn_ == null) throw new RuntimeException("A leaf object that requires gradients cannot be modified in place");
+            if (is_view_) throw new RuntimeException("A view that requires gradients cannot be modified in place");
+        }
+        for (var input: inputs) {
+            if (input.storage_ == storage_) throw new RuntimeException("In-place operand shares the storage of the modified object");
+        }
+
+        var all_inputs = new MultiDimObject[inputs.length + 1];
+        all_inputs[0] = this;
+        System.arraycopy(inputs, 0, all_inputs, 1, inputs.length);
+        storage_.increment_version();
+        compute(name, forward_func, backward_func, saves_output, all_inputs);
+    }
+
+    /**
+     * Allocates a zero-filled contiguous storage for an object of the given size and sets up row-major strides.
+     * @param size The size of each dimension.
+     */
+    protected void init_storage(int[] size) {
+        size_ = size;
+        strides_ = new int[size.length];
+        int stride = 1;
+        for (int i = size.length - 1; i >= 0; --i) {
+            strides_[i] = stride;
+            stride *= size[i];
+        }
+        offset_ = 0;
+        storage_ = new Storage(stride);
+    }
+
+    /**
+     * Makes this object a view of another object: it shares the storage of the base object, so creating it costs
+     * O(1) and copies nothing, and its elements are addressed through its own size, strides and offset. Since the
+     * gradient is shared as well, the recorded operation has nothing to propagate; it only links the view to the
+     * operation that produced the base object.
+     * @param base The object whose storage is shared.
+     * @param name The name of the operation, e.g. "transpose".
+     * @param size The size of each dimension of the view.
+     * @param strides The distance in the storage between neighbouring elements of each dimension.
+     * @param offset The position of the first element of the view in the storage.
+     */
+    protected void init_view(MultiDimObject base, String name, int[] size, int[] strides, int offset) {
+        size_ = size;
+        strides_ = strides;
+        offset_ = offset;
+        storage_ = base.storage_;
+        is_view_ = true;
+        mode = base.mode;
+        precision = base.precision;
+        requires_grad_ = base.requires_grad_;
+        set_grad_fn(name, () -> {}, base);
+    }
+
+    /**
+     * Checks whether the elements of this object fill its whole storage in row-major order, which is what the
+     * operations working on the flat buffers expect. Views usually are not contiguous.
+     * @return true if the object is contiguous; false otherwise.
+     */
+    public boolean is_contiguous() {
+        if (offset_ != 0 || storage_.size() != get_elements_num()) return false;
+        int stride = 1;
+        for (int i = size_.length - 1; i >= 0; --i) {
+            if (size_[i] != 1 && strides_[i] != stride) return false;
+            stride *= size_[i];
+        }
+        return true;
+    }
+
+    /**
+     * Copies the elements of this object in row-major order into a buffer, following the strides of a view.
+     * @param target The buffer receiving the elements; it must hold at least as many elements as this object.
+     */
+    protected void copy_elements(double[] target) {
+        double[] data = storage_.get_data();
+        if (is_contiguous()) {
+            System.arraycopy(data, 0, target, 0, data.length);
+            return;
+        }
+        int[] positions = storage_indices();
+        for (int i = 0; i < positions.length; ++i) target[i] = data[positions[i]];
+    }
+
+    /**
+     * Returns the positions in the storage of all elements of this object in row-major order.
+     * @return The array of storage positions.
+     */
+    protected int[] storage_indices() {
+        int[] positions = new int[get_elements_num()];
+        int[] indices = new int[size_.length];
+        for (int i = 0; i < positions.length; ++i) {
+            positions[i] = storage_index(indices);
+            for (int k = size_.length - 1; k >= 0; --k) {
+                if (++indices[k] < size_[k]) break;
+                indices[k] = 0;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Fills the contiguous storage of this object with the elements of an object of the same size in row-major
+     * order, recording a single operation that scatters the gradient back.
+     * @param source The object to copy the elements from, typically a view.
+     */
+    protected void gather(MultiDimObject source) {
+        int[] positions = source.storage_indices();
+        double[] data = storage_.get_data();
+        double[] source_data = source.storage_.get_data();
+        mode = source.mode;
+        precision = source.precision;
+
+        compute("contiguous", () -> {
+            for (int i = 0; i < positions.length; ++i) data[i] = source_data[positions[i]];
+        }, () -> {
+            double[] gradient = storage_.get_gradient();
+            double[] source_gradient = source.storage_.get_gradient();
+            for (int i = 0; i < positions.length; ++i) source_gradient[positions[i]] += gradient[i];
+        }, source);
+    }
+
+    /**
+     * Initializes the storage from an array of {@link Value}s laid out in row-major order. If any of the values
+     * takes part in the computational graph, a single operation gathering them is recorded, so that the gradients
+     * accumulated in the storage flow back to the values.
+     * @param size The size of each dimension.
+     * @param nodes The row-major array of values.
+     * @throws NullPointerException If one of the values is null.
+     * @throws RuntimeException If an {@link ExecutionPlan} is being traced, since the values cannot be replayed.
+     */
+    protected void init_nodes(int[] size, Value[] nodes) {
+        if (ExecutionPlan.tracing() != null) throw new RuntimeException("Objects built from values cannot be traced");
+        init_storage(size);
+        double[] data = storage_.get_data();
+        var parents = new ArrayList<Differentiable>();
+        for (int i = 0; i < nodes.length; ++i) {
+            if (nodes[i] == null) throw new NullPointerException("Attempt to create an object from the null value");
+            data[i] = nodes[i].value;
+            if (nodes[i].requires_grad) parents.add(nodes[i]);
+        }
+
+        requires_grad_ = !parents.isEmpty() && NoGrad.is_grad_enabled();
+        if (!requires_grad_) return;
+        grad_fn_ = new Operation("gather", () -> {
+            double[] gradient = storage_.get_gradient();
+            for (int i = 0; i < nodes.length; ++i) {
+                if (nodes[i].requires_grad) nodes[i].add_gradient(gradient[i]);
+            }
+        }, parents.toArray(new Differentiable[0]));
+    }
+
+    /**
+     * Converts the indices of an element into its position in the storage.
+     * @param indices The indices of the element, one per dimension.
+     * @return The position of the element in the storage.
+     */
+    protected int storage_index(int... indices) {
+        int index = offset_;
+        for (int i = 0; i < indices.length; ++i) index += indices[i] * strides_[i];
+        return index;
+    }
+
+    /**
+     * Returns a {@link Value} representing the element at the given storage position. The value is a node of the
+     * computational graph whose gradient is written back into the storage during the backward pass and then
+     * propagated by the operation that produced this object.
+     * @param index The position of the element in the storage.
+     * @return The {@link Value} representing the element.
+     */
+    protected Value element(int index) {
+        double[] data = storage_.get_data();
+        if (!requires_grad_) return new Value(data[index], false);
+        var element = new Value(data[index], true, gradient -> storage_.get_gradient()[index] += gradient, grad_fn_);
+        element.set_gradient_targets(storage_);
+        return element;
+    }
+
+    /**
+     * Stores a {@link Value} as the element at the given storage position. If the value takes part in the
+     * computational graph, an operation routing the gradient of the element to the value is recorded on top of
+     * the operation that produced this object.
+     * @param value The value to store.
+     * @param index The position of the element in the storage.
+     * @throws RuntimeException If an {@link ExecutionPlan} is being traced, since the value cannot be replayed.
+     */
+    protected void set_element(Value value, int index) {
+        if (ExecutionPlan.tracing() != null) throw new RuntimeException("Setting elements cannot be traced");
+        storage_.get_data()[index] = value.value;
+        storage_.increment_version();
+        if (!value.requires_grad && grad_fn_ == null || !NoGrad.is_grad_enabled()) return;
+
+        var previous_grad_fn = grad_fn_;
+        grad_fn_ = new Operation("set", () -> {
+            double[] gradient = storage_.get_gradient();
+            if (value.requires_grad) value.add_gradient(gradient[index]);
+            gradient[index] = 0;
+        }, previous_grad_fn, value.requires_grad ? value : null);
+        requires_grad_ = true;
+    }
+
+    /**
+     * Runs the body for every index in [0, count), in parallel if this object is in the parallel execution mode.
+     * @param count The number of indices.
+     * @param body The function executed for each index.
+     */
+    protected void for_each_index(int count, IntConsumer body) {
+        if (mode == ModelSettings.executionMode.PARALLEL) IntStream.range(0, count).parallel().forEach(body);
+        else for (int i = 0; i < count; ++i) body.accept(i);
+    }
+
+    /**
+     * A function processing a contiguous range of elements, typically by calling a kernel.
+     */
+    @FunctionalInterface
+    protected interface RangeConsumer {
+        /**
+         * Processes the elements in [from, to).
+         * @param from The first element of the range.
+         * @param to The element after the last element of the range.
+         */
+        void accept(int from, int to);
+    }
+
+    /**
+     * Splits [0, count) into contiguous chunks and runs the body for every chunk, in parallel if this object is in
+     * the parallel execution mode. Unlike {@link #for_each_index}, the body sees whole ranges, so it can use the
+     * vectorized kernels of {@link Kernels}.
+     * @param count The number of elements.
+     * @param body The function executed for each chunk.
+     */
+    protected void for_each_range(int count, RangeConsumer body) {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (mode == ModelSettings.executionMode.PARALLEL && chunks > 1)
+            IntStream.range(0, chunks).parallel().forEach(i -> body.accept(i * CHUNK_SIZE, Math.min(count, (i + 1) * CHUNK_SIZE)));
+        else body.accept(0, count);
+    }
+
+    /**
+     * Applies an activation function to every element of this object and writes the results into an object of the
+     * same size, recording a single operation for the whole object.
+     * @param output The object receiving the results; it must have the same size as this object.
+     * @param activation The activation function to apply.
+     * @throws RuntimeException If the activation function is not element-wise.
+     */
+    protected void activation(MultiDimObject output, Layer.Activation activation) {
+        double[] data = storage_.get_data();
+        double[] output_data = output.storage_.get_data();
+
+        if (activation != Layer.Activation.ReLU && activation != Layer.Activation.LeakyReLU &&
+                activation != Layer.Activation.Sigmoid) throw new RuntimeException("Unknown activation function");
+
+        var kernels = Kernels.get();
+        output.compute(activation.name(), () -> {
+            switch (activation) {
+                case ReLU -> for_each_range(data.length, (from, to) -> kernels.relu(data, output_data, from, to - from));
+                case LeakyReLU -> for_each_range(data.length, (from, to) -> kernels.leaky_relu(data, output_data, from, to - from));
+                default -> for_each_range(data.length, (from, to) -> kernels.sigmoid(data, output_data, from, to - from));
+            }
+        }, () -> {
+            double[] gradient = storage_.get_gradient();
+            double[] output_gradient = output.storage_.get_gradient();
+            switch (activation) {
+                case ReLU -> for_each_range(data.length, (from, to) ->
+                        kernels.relu_backward(output_data, output_gradient, gradient, from, to - from));
+                case LeakyReLU -> for_each_range(data.length, (from, to) ->
+                        kernels.leaky_relu_backward(output_data, output_gradient, gradient, from, to - from));
+                default -> for_each_range(data.length, (from, to) ->
+                        kernels.sigmoid_backward(output_data, output_gradient, gradient, from, to - from));
+            }
+        }, true, this);
+    }
+
+    /**
+     * Applies an activation function to every element of this object in place (see {@link #compute_in_place}).
+     * @param activation The activation function to apply.
+     * @throws RuntimeException If the activation function is not element-wise or the object cannot be modified.
+     */
+    protected void activation_in_place(Layer.Activation activation) {
+        double[] data = storage_.get_data();
+
+        if (activation != Layer.Activation.ReLU && activation != Layer.Activation.LeakyReLU &&
+                activation != Layer.Activation.Sigmoid) throw new RuntimeException("Unknown activation function");
+
+        var kernels = Kernels.get();
+        compute_in_place(activation.name() + "_", () -> {
+            switch (activation) {
+                case ReLU -> for_each_range(data.length, (from, to) -> kernels.relu(data, data, from, to - from));
+                case LeakyReLU -> for_each_range(data.length, (from, to) -> kernels.leaky_relu(data, data, from, to - from));
+                default -> for_each_range(data.length, (from, to) -> kernels.sigmoid(data, data, from, to - from));
+            }
+        }, () -> {
+            // the gradient of the output is replaced element by element by the gradient of the input
+            double[] gradient = storage_.get_gradient();
+            switch (activation) {
+                case ReLU -> for_each_range(data.length, (from, to) ->
+                        kernels.relu_backward_in_place(data, gradient, from, to - from));
+                case LeakyReLU -> for_each_range(data.length, (from, to) ->
+                        kernels.leaky_relu_backward_in_place(data, gradient, from, to - from));
+                default -> for_each_range(data.length, (from, to) ->
+                        kernels.sigmoid_backward_in_place(data, gradient, from, to - from));
+            }
+        }, true);
+    }
+
     /**
      * Retrieves a {@link Differentiable} element located at the specified indices within the multi-dimensional object.
      * @param indices A varargs parameter indicating the indices of the element to retrieve.
@@ -56,6 +576,19 @@ public abstract class MultiDimObject implements Iterable<Value> {
      */
     public abstract MultiDimObject multiply(MultiDimObject other) throws ExecutionControl.NotImplementedException;
 
+    /**
+     * Creates a copy of this object with its own storage. The copy is a leaf of the computational graph.
+     * @return A new {@link MultiDimObject} of the same size holding the same elements.
+     */
+    public abstract MultiDimObject copy();
+
+    /**
+     * Returns this object if it is contiguous, or otherwise a contiguous copy of it that takes part in the
+     * computational graph. Operations working on the flat buffers call it on views.
+     * @return A contiguous object with the same elements.
+     */
+    public abstract MultiDimObject contiguous();
+
     /**
      * Checks if another multi-dimensional object has the same size as this object.
      * @param other The {@link MultiDimObject} to compare with this object.
@@ -0,0 +1,661 @@
+package mathematics;
+
+import autograd.Value;
+import mathematics.initializers.ConstantInitializer;
+import mathematics.initializers.HeGaussianInitializer;
+import mathematics.initializers.IInitializer;
+import mathematics.initializers.RandomInitializer;
+import mathematics.kernels.Kernels;
+import nn.layers.Layer;
+import nn.models.ModelSettings;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Represents an array with any number of dimensions. Like {@link Matrix} and {@link Tensor}, it keeps its elements
+ * in a {@link Storage} addressed through its size, strides and offset, so reshaping, permuting and broadcasting
+ * return views without copying the elements.
+ * The element-wise operations broadcast their operands NumPy-style (see {@link Broadcast}): the sizes are aligned on
+ * the last dimensions and dimensions of size 1 are stretched, without ever materializing the stretched operand.
+ * In the backward pass the gradients are summed over the broadcasted dimensions.
+ */
+public class NDArray extends MultiDimObject {
+
+    /**
+     * Creates an array without a storage; it is used for views, which share the storage of another object.
+     */
+    NDArray() {}
+
+    /**
+     * Constructs an array of the given size and initialization.
+     *
+     * @param size The size of each dimension.
+     * @param init_values The method for initializing the values, using predefined schemes like ZEROS, ONES, etc.
+     * @throws RuntimeException If the array has no dimensions or a non-positive dimension.
+     */
+    public NDArray(int[] size, InitValues init_values) {
+        if (size == null || size.length == 0) throw new RuntimeException("Array must have at least one dimension");
+        for (int dim: size) {
+            if (dim < 1) throw new RuntimeException("Array has non-positive dimensions");
+        }
+        init_storage(size.clone());
+        double[] data = storage_.get_data();
+        if (init_values == InitValues.ZEROS) return;
+
+        IInitializer sampler = switch (init_values) {
+            case ZEROS -> new ConstantInitializer(0);
+            case ONES -> new ConstantInitializer(1);
+            case HE -> new HeGaussianInitializer(data.length);
+            case RANDOM -> new RandomInitializer(-0.25, 0.25);
+            default -> throw new RuntimeException("Unknown sampler");
+        };
+
+        sampler.fill(data);
+    }
+
+    /**
+     * Constructs an array of the given size from row-major values. The values are copied.
+     *
+     * @param data The values in row-major order.
+     * @param size The size of each dimension.
+     * @throws RuntimeException If the number of values does not match the size.
+     */
+    public NDArray(double[] data, int... size) {
+        this(size, InitValues.ZEROS);
+        if (data == null) throw new NullPointerException("Array to create an n-dimensional array is null");
+        if (data.length != storage_.size()) throw new RuntimeException("Number of values does not match the size");
+        System.arraycopy(data, 0, storage_.get_data(), 0, data.length);
+    }
+
+    /**
+     * Returns a view of a matrix, a tensor or another array as an n-dimensional array of the same size. The view
+     * shares the storage of the object, so nothing is copied.
+     *
+     * @param object The object to view.
+     * @return An array view of the object.
+     */
+    public static NDArray of(MultiDimObject object) {
+        if (object == null) throw new NullPointerException("Attempt to view the null object");
+        var view_array = new NDArray();
+        view_array.init_view(object, "view", object.size_.clone(), object.strides_.clone(), object.offset_);
+        return view_array;
+    }
+
+    /**
+     * Stacks objects of the same size along a new leading dimension, e.g. the samples of a batch into a single array.
+     * The elements are copied, and the gradient of the stacked array is routed back to every object.
+     *
+     * @param objects The objects to stack.
+     * @return An array whose i-th entry along the first dimension holds the elements of the i-th object.
+     * @throws RuntimeException If no objects are given or they have different sizes.
+     */
+    public static NDArray stack(MultiDimObject... objects) {
+        if (objects == null || objects.length == 0) throw new RuntimeException("Attempt to stack zero objects");
+        var inputs = new MultiDimObject[objects.length];
+        for (int i = 0; i < objects.length; ++i) {
+            if (objects[i] == null) throw new NullPointerException("Attempt to stack the null object");
+            if (!Arrays.equals(objects[i].size_, objects[0].size_)) throw new RuntimeException("Stacked objects have different sizes");
+            inputs[i] = objects[i].contiguous();
+        }
+
+        int[] size = new int[objects[0].size_.length + 1];
+        size[0] = objects.length;
+        System.arraycopy(objects[0].size_, 0, size, 1, objects[0].size_.length);
+        var output_array = new NDArray(size, InitValues.ZEROS);
+        output_array.mode = objects[0].mode;
+        int length = output_array.get_elements_num() / objects.length;
+        double[] output_data = output_array.storage_.get_data();
+
+        var kernels = Kernels.get();
+        output_array.compute("stack", () -> output_array.for_each_index(inputs.length, i ->
+                System.arraycopy(inputs[i].storage_.get_data(), 0, output_data, i * length, length)), () -> {
+            double[] output_gradient = output_array.storage_.get_gradient();
+            for (int i = 0; i < inputs.length; ++i) {
+                if (inputs[i].requires_grad_)
+                    kernels.axpy(1, output_gradient, i * length, inputs[i].storage_.get_gradient(), 0, length);
+            }
+        }, inputs);
+        return output_array;
+    }
+
+    /**
+     * Concatenates objects along their last dimension, e.g. the channels of feature maps merged by a skip
+     * connection. The other dimensions of the objects must be equal. The elements are copied, and the gradient of the
+     * concatenated array is routed back to every object.
+     *
+     * @param objects The objects to concatenate.
+     * @return An array whose last dimension holds the last dimensions of the objects one after another.
+     * @throws RuntimeException If no objects are given or their sizes differ in a dimension other than the last.
+     */
+    public static NDArray concatenate(MultiDimObject... objects) {
+        if (objects == null || objects.length == 0) throw new RuntimeException("Attempt to concatenate zero objects");
+        int last = objects[0].size_.length - 1;
+        var inputs = new MultiDimObject[objects.length];
+        int[] offsets = new int[objects.length + 1];
+        for (int i = 0; i < objects.length; ++i) {
+            if (objects[i] == null) throw new NullPointerException("Attempt to concatenate the null object");
+            if (objects[i].size_.length != last + 1
+                    || !Arrays.equals(objects[i].size_, 0, last, objects[0].size_, 0, last))
+                throw new RuntimeException("Concatenated objects have different sizes");
+            inputs[i] = objects[i].contiguous();
+            offsets[i + 1] = offsets[i] + objects[i].size_[last];
+        }
+
+        int[] size = objects[0].size_.clone();
+        size[last] = offsets[objects.length];
+        var output_array = new NDArray(size, InitValues.ZEROS);
+        output_array.mode = objects[0].mode;
+        int row = size[last];
+        int rows = output_array.get_elements_num() / row;
+        double[] output_data = output_array.storage_.get_data();
+
+        var kernels = Kernels.get();
+        output_array.compute("concatenate", () -> output_array.for_each_index(rows, r -> {
+            for (int i = 0; i < inputs.length; ++i) {
+                int length = offsets[i + 1] - offsets[i];
+                System.arraycopy(inputs[i].storage_.get_data(), r * length, output_data, r * row + offsets[i], length);
+            }
+        }), () -> {
+            double[] output_gradient = output_array.storage_.get_gradient();
+            output_array.for_each_index(rows, r -> {
+                for (int i = 0; i < inputs.length; ++i) {
+                    int length = offsets[i + 1] - offsets[i];
+                    if (inputs[i].requires_grad_)
+                        kernels.axpy(1, output_gradient, r * row + offsets[i], inputs[i].storage_.get_gradient(), r * length, length);
+                }
+            });
+        }, inputs);
+        return output_array;
+    }
+
+    /**
+     * Returns a view of a two-dimensional array as a {@link Matrix}, sharing its storage.
+     *
+     * @return The matrix view.
+     * @throws RuntimeException If the array does not have two dimensions.
+     */
+    public Matrix to_matrix() {
+        if (size_.length != 2) throw new RuntimeException("Only a two-dimensional array can be viewed as a matrix");
+        var view_matrix = new Matrix();
+        view_matrix.init_view(this, "view", size_.clone(), strides_.clone(), offset_);
+        return view_matrix;
+    }
+
+    /**
+     * Returns a view of a three-dimensional array as a {@link Tensor}, sharing its storage.
+     *
+     * @return The tensor view.
+     * @throws RuntimeException If the array does not have three dimensions.
+     */
+    public Tensor to_tensor() {
+        if (size_.length != 3) throw new RuntimeException("Only a three-dimensional array can be viewed as a tensor");
+        var view_tensor = new Tensor();
+        view_tensor.init_view(this, "view", size_.clone(), strides_.clone(), offset_);
+        return view_tensor;
+    }
+
+    /**
+     * Returns a view of this array with a different size and the same elements in row-major order. A view that is
+     * not contiguous is made contiguous first.
+     *
+     * @param size The new size of each dimension.
+     * @return An array of the new size.
+     * @throws RuntimeException If the new size has a different number of elements.
+     */
+    public NDArray reshape(int... size) {
+        int elements_num = 1;
+        for (int dim: size) elements_num *= dim;
+        if (size.length == 0 || elements_num != get_elements_num())
+            throw new RuntimeException("Array cannot be reshaped to " + Arrays.toString(size));
+        if (!is_contiguous()) return contiguous().reshape(size);
+
+        int[] strides = new int[size.length];
+        for (int i = size.length - 1, stride = 1; i >= 0; stride *= size[i--]) strides[i] = stride;
+        var view_array = new NDArray();
+        view_array.init_view(this, "reshape", size.clone(), strides, offset_);
+        return view_array;
+    }
+
+    /**
+     * Returns a view of this array with its dimensions reordered.
+     *
+     * @param axes The dimension of this array that becomes each dimension of the view.
+     * @return The permuted view.
+     * @throws RuntimeException If the axes are not a permutation of the dimensions.
+     */
+    public NDArray permute(int... axes) {
+        if (axes.length != size_.length) throw new RuntimeException("Permutation has an invalid number of axes");
+        int[] size = new int[axes.length];
+        int[] strides = new int[axes.length];
+        boolean[] used = new boolean[axes.length];
+        for (int i = 0; i < axes.length; ++i) {
+            if (axes[i] < 0 || axes[i] >= axes.length || used[axes[i]])
+                throw new RuntimeException("Axes are not a permutation of the dimensions");
+            used[axes[i]] = true;
+            size[i] = size_[axes[i]];
+            strides[i] = strides_[axes[i]];
+        }
+        var view_array = new NDArray();
+        view_array.init_view(this, "permute", size, strides, offset_);
+        return view_array;
+    }
+
+    /**
+     * Returns a view of this array stretched to a larger size. Stretched dimensions have the stride 0, so the view
+     * does not copy any element; an operation consuming it sums the gradient over the stretched dimensions.
+     *
+     * @param size The size to broadcast to.
+     * @return The broadcasted view.
+     * @throws RuntimeException If this array cannot be broadcasted to the size.
+     */
+    public NDArray broadcast_to(int... size) {
+        var view_array = new NDArray();
+        view_array.init_view(this, "broadcast_to", size.clone(), Broadcast.strides(this, size), offset_);
+        return view_array;
+    }
+
+    /**
+     * Computes an element-wise operation with broadcasting.
+     *
+     * @param op The operation.
+     * @param other The second operand.
+     * @return A new array of the broadcasted size.
+     */
+    private NDArray broadcast(Broadcast.Op op, MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to compute an element-wise operation with null");
+        int[] size = Broadcast.shape(size_, other.size_);
+        var output_array = new NDArray(size, InitValues.ZEROS);
+        output_array.mode = mode;
+        Broadcast.binary(op, this, Broadcast.strides(this, size), other, Broadcast.strides(other, size), output_array);
+        return output_array;
+    }
+
+    /**
+     * Adds another object to this array element-wise, broadcasting the operands.
+     *
+     * @param other The object to add.
+     * @return A new array holding the sum.
+     * @throws RuntimeException If the sizes cannot be broadcasted together.
+     */
+    public NDArray add(MultiDimObject other) {
+        return broadcast(Broadcast.Op.ADD, other);
+    }
+
+    /**
+     * Subtracts another object from this array element-wise, broadcasting the operands.
+     *
+     * @param other The object to subtract.
+     * @return A new array holding the difference.
+     * @throws RuntimeException If the sizes cannot be broadcasted together.
+     */
+    public NDArray sub(MultiDimObject other) {
+        return broadcast(Broadcast.Op.SUB, other);
+    }
+
+    /**
+     * Multiplies this array by another object element-wise, broadcasting the operands.
+     *
+     * @param other The object to multiply by.
+     * @return A new array holding the product.
+     * @throws RuntimeException If the sizes cannot be broadcasted together.
+     */
+    public NDArray multiply(MultiDimObject other) {
+        return broadcast(Broadcast.Op.MUL, other);
+    }
+
+    /**
+     * Divides this array by another object element-wise, broadcasting the operands.
+     *
+     * @param other The object to divide by.
+     * @return A new array holding the quotient.
+     * @throws RuntimeException If the sizes cannot be broadcasted together.
+     */
+    public NDArray divide(MultiDimObject other) {
+        return broadcast(Broadcast.Op.DIV, other);
+    }
+
+    /**
+     * Multiplies each element of this array with a constant.
+     *
+     * @param constant The constant to multiply with.
+     * @return A new array holding the product.
+     */
+    public NDArray multiply(double constant) {
+        if (!is_contiguous()) return contiguous().multiply(constant);
+        var output_array = new NDArray(size_, InitValues.ZEROS);
+        output_array.mode = mode;
+        double[] data = storage_.get_data();
+        double[] output_data = output_array.storage_.get_data();
+
+        var kernels = Kernels.get();
+        output_array.compute("multiply", () -> {
+            for_each_range(data.length, (from, to) -> kernels.scale(data, from, constant, output_data, from, to - from));
+        }, () -> {
+            double[] gradient = storage_.get_gradient();
+            double[] output_gradient = output_array.storage_.get_gradient();
+            for_each_range(data.length, (from, to) -> kernels.axpy(constant, output_gradient, from, gradient, from, to - from));
+        }, this);
+        return output_array;
+    }
+
+    /**
+     * Calculates the sum of all elements in the array.
+     *
+     * @return A Value object representing the sum of all elements.
+     */
+    public Value sum() {
+        if (!is_contiguous()) return contiguous().sum();
+        double[] data = storage_.get_data();
+        double sum = Reduction.pairwise_sum(data, 0, data.length);
+
+        var sum_value = new Value(sum, requires_grad_, gradient -> {
+            double[] array_gradient = storage_.get_gradient();
+            for (int i = 0; i < array_gradient.length; ++i) array_gradient[i] += gradient;
+        }, grad_fn_);
+        sum_value.set_gradient_targets(storage_);
+        return sum_value;
+    }
+
+    /**
+     * Sums the elements of this array over the given axes by pairwise summation.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A array of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public NDArray sum(int... axes) {
+        return reduce(Reduction.Op.SUM, axes);
+    }
+
+    /**
+     * Computes the mean of the elements of this array over the given axes.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A array of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public NDArray mean(int... axes) {
+        return reduce(Reduction.Op.MEAN, axes);
+    }
+
+    /**
+     * Computes the maximum of the elements of this array over the given axes. The gradient flows to the first
+     * maximal element.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A array of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public NDArray max(int... axes) {
+        return reduce(Reduction.Op.MAX, axes);
+    }
+
+    /**
+     * Computes log(sum(exp(x))) of the elements of this array over the given axes, shifted by their maximum so that
+     * the exponentials cannot overflow.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A array of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public NDArray logsumexp(int... axes) {
+        return reduce(Reduction.Op.LOGSUMEXP, axes);
+    }
+
+    /**
+     * Finds the index of the first maximal element along an axis. The indices do not require gradients.
+     *
+     * @param axis The axis to search along.
+     * @return A array of the size of this one with 1 along the axis, holding the indices.
+     * @throws RuntimeException If the axis is out of range.
+     */
+    public NDArray argmax(int axis) {
+        var output = new NDArray(Reduction.shape(size_, Reduction.axes(size_, axis)), InitValues.ZEROS);
+        Reduction.argmax(this, axis, output);
+        return output;
+    }
+
+    /**
+     * Reduces this array over the given axes.
+     *
+     * @param op The reduction.
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return The reduced array.
+     */
+    private NDArray reduce(Reduction.Op op, int... axes) {
+        boolean[] reduced = Reduction.axes(size_, axes);
+        var output = new NDArray(Reduction.shape(size_, reduced), InitValues.ZEROS);
+        Reduction.reduce(op, this, reduced, output);
+        return output;
+    }
+
+    /**
+     * Adds another object to this array in place. The other object must have the same size or be broadcastable to
+     * the size of this array.
+     *
+     * @param other The object to add.
+     * @return This array, holding the sum.
+     * @throws RuntimeException If the other object cannot be broadcasted, or this array cannot be modified in place
+     *                          (see {@link MultiDimObject#compute_in_place}).
+     */
+    public NDArray add_(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to add the null object");
+        Broadcast.binary_in_place(Broadcast.Op.ADD, this, other, Broadcast.strides(other, size_));
+        return this;
+    }
+
+    /**
+     * Multiplies this array element-wise by another object in place. The other object must have the same size or be
+     * broadcastable to the size of this array.
+     *
+     * @param other The object to multiply by.
+     * @return This array, holding the product.
+     * @throws RuntimeException If the other object cannot be broadcasted, or this array cannot be modified in place.
+     */
+    public NDArray mul_(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to multiply by the null object");
+        Broadcast.binary_in_place(Broadcast.Op.MUL, this, other, Broadcast.strides(other, size_));
+        return this;
+    }
+
+    /**
+     * Applies the ReLU activation function to each element of this array in place.
+     *
+     * @return This array, holding the activations.
+     * @throws RuntimeException If this array cannot be modified in place.
+     */
+    public NDArray relu_() {
+        activation_in_place(Layer.Activation.ReLU);
+        return this;
+    }
+
+    /**
+     * Applies the LeakyReLU activation function to each element of this array in place.
+     *
+     * @return This array, holding the activations.
+     * @throws RuntimeException If this array cannot be modified in place.
+     */
+    public NDArray leakyRelu_() {
+        activation_in_place(Layer.Activation.LeakyReLU);
+        return this;
+    }
+
+    /**
+     * Applies the Sigmoid activation function to each element of this array in place.
+     *
+     * @return This array, holding the activations.
+     * @throws RuntimeException If this array cannot be modified in place.
+     */
+    public NDArray sigmoid_() {
+        activation_in_place(Layer.Activation.Sigmoid);
+        return this;
+    }
+
+    /**
+     * Applies the ReLU activation function to each element of the array.
+     *
+     * @return A new array with the activation applied.
+     */
+    public NDArray relu() {
+        return activation(Layer.Activation.ReLU);
+    }
+
+    /**
+     * Applies the LeakyReLU activation function to each element of the array.
+     *
+     * @return A new array with the activation applied.
+     */
+    public NDArray leakyRelu() {
+        return activation(Layer.Activation.LeakyReLU);
+    }
+
+    /**
+     * Applies the Sigmoid activation function to each element of the array.
+     *
+     * @return A new array with the activation applied.
+     */
+    public NDArray sigmoid() {
+        return activation(Layer.Activation.Sigmoid);
+    }
+
+    /**
+     * Applies an element-wise activation function and returns the result as a new array.
+     *
+     * @param activation The activation function to apply.
+     * @return A new array with the activation applied.
+     */
+    protected NDArray activation(Layer.Activation activation) {
+        if (!is_contiguous()) return contiguous().activation(activation);
+        var output_array = new NDArray(size_, InitValues.ZEROS);
+        output_array.mode = mode;
+        activation(output_array, activation);
+        return output_array;
+    }
+
+    /**
+     * Checks if the indices address an element of the array.
+     *
+     * @param indices The indices, one per dimension.
+     * @return true if the indices are within the bounds of the array; false otherwise.
+     */
+    private boolean is_array_index(int[] indices) {
+        if (indices.length != size_.length) return false;
+        for (int i = 0; i < indices.length; ++i) {
+            if (indices[i] < 0 || indices[i] >= size_[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets a value at the given indices.
+     *
+     * @param value The value to set.
+     * @param indices The indices of the element, one per dimension.
+     * @throws ArrayIndexOutOfBoundsException If the indices are out of the bounds of the array.
+     * @throws NullPointerException If the value is null.
+     */
+    public void set(Value value, int... indices) {
+        if (!is_array_index(indices)) throw new ArrayIndexOutOfBoundsException("Invalid index to set");
+        if (value == null) throw new NullPointerException("Attempt to set null value");
+        set_element(value, storage_index(indices));
+    }
+
+    /**
+     * Retrieves the value at the given indices.
+     *
+     * @param indices The indices of the element, one per dimension.
+     * @return The value at the indices.
+     * @throws ArrayIndexOutOfBoundsException If the indices are out of the bounds of the array.
+     */
+    public Value get(int... indices) {
+        if (!is_array_index(indices))
+            throw new ArrayIndexOutOfBoundsException("Attempt to get array value that is out of bounds");
+        return element(storage_index(indices));
+    }
+
+    /**
+     * Determines if another object has the same size as this array.
+     *
+     * @param other The object to compare against.
+     * @return true if the other object has the same number and sizes of dimensions; false otherwise.
+     * @throws NullPointerException if the other object is null.
+     */
+    public boolean has_same_size(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Comparison with a null array");
+        return Arrays.equals(size_, other.get_size());
+    }
+
+    /**
+     * Creates a copy of this array with its own storage. The copy is a leaf of the computational graph.
+     *
+     * @return A new array holding the same elements.
+     */
+    public NDArray copy() {
+        var copy_array = new NDArray(size_, InitValues.ZEROS);
+        copy_array.mode = mode;
+        copy_elements(copy_array.storage_.get_data());
+        return copy_array;
+    }
+
+    /**
+     * Returns this array if it is contiguous, or a contiguous copy of it otherwise.
+     *
+     * @return A contiguous array with the same elements.
+     */
+    public NDArray contiguous() {
+        if (is_contiguous()) return this;
+        var contiguous_array = new NDArray(size_, InitValues.ZEROS);
+        contiguous_array.gather(this);
+        return contiguous_array;
+    }
+
+    /**
+     * Checks if the array is a vector, i.e. all its dimensions except the first one have the size 1.
+     *
+     * @return true if the array is a vector; false otherwise.
+     */
+    public boolean is_vector() {
+        for (int i = 1; i < size_.length; ++i) {
+            if (size_[i] != 1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Provides an iterator over the elements of the array in row-major order.
+     *
+     * @return An iterator over all elements of the array.
+     */
+    public Iterator<Value> iterator() {
+        return new Iterator<Value>() {
+            final int[] positions = storage_indices();
+            int current_index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return current_index != positions.length;
+            }
+
+            @Override
+            public Value next() {
+                return element(positions[current_index++]);
+            }
+        };
+    }
+
+    /**
+     * Prints the array to the standard output, one row of the last dimension per line.
+     */
+    public void print() {
+        double[] data = storage_.get_data();
+        int[] positions = storage_indices();
+        int inner = size_[size_.length - 1];
+        System.out.println("size_ = " + Arrays.toString(size_));
+        for (int i = 0; i < positions.length; ++i) {
+            System.out.printf("%f ", data[positions[i]]);
+            if ((i + 1) % inner == 0) System.out.println();
+        }
+        System.out.println();
+    }
+}
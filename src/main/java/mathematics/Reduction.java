@@ -0,0 +1,255 @@
+package mathematics;
+
+import mathematics.kernels.Kernels;
+import nn.models.ExecutionPlan;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Reductions of an object over any subset of its axes. The result keeps the reduced axes with the size 1, so it can
+ * be broadcasted against the reduced object again (e.g. to subtract the maximum of every row).
+ *
+ * The positions of the reduced elements relative to the first of them are the same for every element of the result,
+ * so they are computed once, and the elements of the result are then reduced independently of each other, in
+ * parallel in the parallel mode. Sums are computed by pairwise summation: blocks of {@value #PAIRWISE_BLOCK}
+ * elements are summed by the vectorized kernel and the partial sums are added up as a balanced tree, so the rounding
+ * error grows with the logarithm of the number of elements instead of linearly. Reduced elements that are not
+ * adjacent in the storage are gathered into a buffer of the thread first.
+ *
+ * Distinct elements of the result never share a reduced element, so the backward pass is parallel as well, unless the
+ * reduced object is a broadcasted view whose elements overlap in the storage.
+ */
+final class Reduction {
+    /**
+     * The supported reductions.
+     */
+    enum Op { SUM, MEAN, MAX, LOGSUMEXP }
+
+    private static final int PAIRWISE_BLOCK = 128;
+    private static final ThreadLocal<double[]> buffers_ = ThreadLocal.withInitial(() -> new double[0]);
+
+    private Reduction() {}
+
+    /**
+     * Marks the axes to reduce.
+     * @param size The size of the reduced object.
+     * @param axes The axes to reduce; no axes mean all of them.
+     * @return For every axis of the object, whether it is reduced.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    static boolean[] axes(int[] size, int... axes) {
+        boolean[] reduced = new boolean[size.length];
+        if (axes.length == 0) Arrays.fill(reduced, true);
+        for (int axis: axes) {
+            if (axis < 0 || axis >= size.length) throw new RuntimeException("Axis " + axis + " is out of range");
+            if (reduced[axis]) throw new RuntimeException("Axis " + axis + " is reduced twice");
+            reduced[axis] = true;
+        }
+        return reduced;
+    }
+
+    /**
+     * Computes the size of the result of a reduction.
+     * @param size The size of the reduced object.
+     * @param reduced For every axis, whether it is reduced.
+     * @return The size with 1 for every reduced axis.
+     */
+    static int[] shape(int[] size, boolean[] reduced) {
+        int[] shape = size.clone();
+        for (int i = 0; i < shape.length; ++i) {
+            if (reduced[i]) shape[i] = 1;
+        }
+        return shape;
+    }
+
+    /**
+     * Reduces an object into the output and records the operation in the computational graph.
+     * @param op The reduction.
+     * @param input The object to reduce.
+     * @param reduced For every axis, whether it is reduced.
+     * @param output The contiguous object receiving the result, of the size given by {@link #shape}.
+     */
+    static void reduce(Op op, MultiDimObject input, boolean[] reduced, MultiDimObject output) {
+        int[] kept_positions = positions(input, reduced, false);
+        int[] reduced_positions = positions(input, reduced, true);
+        int count = reduced_positions.length;
+        boolean adjacent = is_adjacent(reduced_positions);
+        double[] data = input.storage_.get_data();
+        double[] output_data = output.storage_.get_data();
+        int[] max_positions = op == Op.MAX ? new int[kept_positions.length] : null;
+        output.mode = input.mode;
+
+        output.compute(op.name().toLowerCase(), () -> output.for_each_index(kept_positions.length, o -> {
+            int base = kept_positions[o];
+            switch (op) {
+                case SUM, MEAN -> {
+                    double sum = adjacent ? pairwise_sum(data, base, count)
+                            : pairwise_sum(gather(data, base, reduced_positions, 0), 0, count);
+                    output_data[o] = op == Op.SUM ? sum : sum / count;
+                }
+                case MAX -> {
+                    max_positions[o] = max_position(data, base, reduced_positions, adjacent);
+                    output_data[o] = data[max_positions[o]];
+                }
+                case LOGSUMEXP -> {
+                    double max = data[max_position(data, base, reduced_positions, adjacent)];
+                    if (Double.isInfinite(max)) {
+                        output_data[o] = max;
+                        return;
+                    }
+                    double[] buffer = gather(data, base, reduced_positions, max);
+                    for (int j = 0; j < count; ++j) buffer[j] = Math.exp(buffer[j]);
+                    output_data[o] = max + Math.log(pairwise_sum(buffer, 0, count));
+                }
+            }
+        }), () -> {
+            double[] gradient = input.storage_.get_gradient();
+            double[] output_gradient = output.storage_.get_gradient();
+            IntConsumer body = o -> {
+                int base = kept_positions[o];
+                double output_value = output_data[o];
+                switch (op) {
+                    case SUM -> { for (int position: reduced_positions) gradient[base + position] += output_gradient[o]; }
+                    case MEAN -> { for (int position: reduced_positions) gradient[base + position] += output_gradient[o] / count; }
+                    case MAX -> gradient[max_positions[o]] += output_gradient[o];
+                    case LOGSUMEXP -> {
+                        for (int position: reduced_positions)
+                            gradient[base + position] += output_gradient[o] * Math.exp(data[base + position] - output_value);
+                    }
+                }
+            };
+            if (overlaps(input)) for (int o = 0; o < kept_positions.length; ++o) body.accept(o);
+            else output.for_each_index(kept_positions.length, body);
+        }, op == Op.LOGSUMEXP, input);
+    }
+
+    /**
+     * Finds the index of the first maximal element along an axis and writes it into the output. The indices are not
+     * differentiable, so the output is created outside of the computational graph: it neither requires gradients nor
+     * records an operation, whatever the input. A traced {@link ExecutionPlan} only recomputes it.
+     * @param input The object to reduce.
+     * @param axis The axis to search along.
+     * @param output The contiguous object receiving the indices, of the size of the input with 1 along the axis.
+     */
+    static void argmax(MultiDimObject input, int axis, MultiDimObject output) {
+        boolean[] reduced = axes(input.size_, axis);
+        int[] kept_positions = positions(input, reduced, false);
+        int[] reduced_positions = positions(input, reduced, true);
+        boolean adjacent = is_adjacent(reduced_positions);
+        int stride = input.strides_[axis];
+        double[] data = input.storage_.get_data();
+        double[] output_data = output.storage_.get_data();
+        output.mode = input.mode;
+
+        Runnable forward_func = () -> output.for_each_index(kept_positions.length, o -> {
+            int position = max_position(data, kept_positions[o], reduced_positions, adjacent) - kept_positions[o];
+            output_data[o] = stride == 0 ? 0 : position / stride;
+        });
+        forward_func.run();
+        output.set_requires_grad(false);
+        var plan = ExecutionPlan.tracing();
+        if (plan != null) plan.record(output.storage_, forward_func, null);
+    }
+
+    /**
+     * Sums a range of elements by pairwise summation.
+     * @param data The buffer holding the elements.
+     * @param offset The index of the first element.
+     * @param length The number of elements.
+     * @return The sum.
+     */
+    static double pairwise_sum(double[] data, int offset, int length) {
+        if (length <= PAIRWISE_BLOCK) return Kernels.get().sum(data, offset, length);
+        int half = (length / 2 + PAIRWISE_BLOCK - 1) / PAIRWISE_BLOCK * PAIRWISE_BLOCK;
+        return pairwise_sum(data, offset, half) + pairwise_sum(data, offset + half, length - half);
+    }
+
+    /**
+     * Lists the positions in the storage of the elements spanned by either the kept or the reduced axes, relative to
+     * the position of the first element (plus the offset of the object for the kept axes), in row-major order.
+     * @param input The reduced object.
+     * @param reduced For every axis, whether it is reduced.
+     * @param of_reduced Whether to list the positions over the reduced axes instead of the kept ones.
+     * @return The positions.
+     */
+    private static int[] positions(MultiDimObject input, boolean[] reduced, boolean of_reduced) {
+        int count = 1;
+        for (int i = 0; i < reduced.length; ++i) {
+            if (reduced[i] == of_reduced) count *= input.size_[i];
+        }
+        int[] positions = new int[count];
+        int[] index = new int[reduced.length];
+        int position = of_reduced ? 0 : input.offset_;
+        for (int k = 0; k < count; ++k) {
+            positions[k] = position;
+            for (int i = reduced.length - 1; i >= 0; --i) {
+                if (reduced[i] != of_reduced) continue;
+                position += input.strides_[i];
+                if (++index[i] < input.size_[i]) break;
+                position -= index[i] * input.strides_[i];
+                index[i] = 0;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Checks whether the reduced elements follow each other in the storage.
+     * @param positions The relative positions of the reduced elements.
+     * @return true if the positions are 0, 1, 2, ...; false otherwise.
+     */
+    private static boolean is_adjacent(int[] positions) {
+        for (int j = 0; j < positions.length; ++j) {
+            if (positions[j] != j) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether several elements of an object share a position in the storage.
+     * @param object The object to check.
+     * @return true if a dimension longer than 1 has the stride 0; false otherwise.
+     */
+    private static boolean overlaps(MultiDimObject object) {
+        for (int i = 0; i < object.size_.length; ++i) {
+            if (object.size_[i] != 1 && object.strides_[i] == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the reduced elements of one element of the result into the buffer of the current thread.
+     * @param data The buffer holding the elements.
+     * @param base The position of the first reduced element.
+     * @param positions The relative positions of the reduced elements.
+     * @param shift The value subtracted from every element.
+     * @return The buffer, holding the elements at its beginning.
+     */
+    private static double[] gather(double[] data, int base, int[] positions, double shift) {
+        double[] buffer = buffers_.get();
+        if (buffer.length < positions.length) {
+            buffer = new double[positions.length];
+            buffers_.set(buffer);
+        }
+        for (int j = 0; j < positions.length; ++j) buffer[j] = data[base + positions[j]] - shift;
+        return buffer;
+    }
+
+    /**
+     * Finds the first maximal element among the reduced elements of one element of the result.
+     * @param data The buffer holding the elements.
+     * @param base The position of the first reduced element.
+     * @param positions The relative positions of the reduced elements.
+     * @param adjacent Whether the reduced elements follow each other in the storage.
+     * @return The position of the maximal element in the storage.
+     */
+    private static int max_position(double[] data, int base, int[] positions, boolean adjacent) {
+        if (adjacent) return Kernels.get().argmax(data, base, positions.length);
+        int max_position = base;
+        for (int position: positions) {
+            if (data[base + position] > data[max_position]) max_position = base + position;
+        }
+        return max_position;
+    }
+}
@@ -0,0 +1,139 @@
+package mathematics;
+
+import java.util.Arrays;
+
+/**
+ * Contiguous buffer holding the elements of a {@link MultiDimObject}. Values and gradients are kept in two
+ * primitive arrays instead of one {@link autograd.Value} object per element, so a large tensor costs two
+ * allocations and its elements can be traversed with plain indexed loops.
+ *
+ * The buffer does not know anything about the shape of the object it stores; the owning object maps its
+ * indices into the buffer using its size, strides and offset.
+ *
+ * Every in-place modification of the values increments the version of the storage, so that an operation which
+ * needs the values (or the gradient) of an earlier version in its backward pass can detect the modification.
+ *
+ * A storage created inside a {@link StorageArena} takes its arrays from the arena and is released when the arena is
+ * closed; it cannot be used afterwards.
+ */
+public class Storage {
+    private final double[] data_;
+    private volatile double[] gradient_;
+    private int version_;
+    private final StorageArena arena_;
+    private volatile boolean released_ = false;
+
+    /**
+     * Constructs a zero-filled storage.
+     *
+     * @param size The number of elements in the storage.
+     * @throws RuntimeException If the size is not positive.
+     */
+    public Storage(int size) {
+        if (size < 1) throw new RuntimeException("Storage has non-positive size");
+        arena_ = StorageArena.current();
+        data_ = arena_ != null ? arena_.allocate(size) : new double[size];
+        if (arena_ != null) arena_.add(this);
+    }
+
+    /**
+     * Constructs a storage that wraps the given array without copying it.
+     *
+     * @param data The array of values to wrap.
+     * @throws NullPointerException If the array is null.
+     */
+    public Storage(double[] data) {
+        if (data == null) throw new NullPointerException("Attempt to create storage from the null array");
+        data_ = data;
+        arena_ = null;
+    }
+
+    /**
+     * Returns the number of elements in the storage.
+     *
+     * @return The size of the storage.
+     */
+    public int size() {
+        return data_.length;
+    }
+
+    /**
+     * Returns the underlying array of values.
+     *
+     * @return The array of values backing this storage.
+     * @throws RuntimeException If the storage has been released by its arena.
+     */
+    public double[] get_data() {
+        if (released_) throw new RuntimeException("Storage was used after its arena had been closed");
+        return data_;
+    }
+
+    /**
+     * Returns the underlying array of gradients. The array is allocated on the first call, so objects that never
+     * take part in the backward pass do not pay for it.
+     *
+     * @return The array of gradients backing this storage.
+     * @throws RuntimeException If the storage has been released by its arena.
+     */
+    public double[] get_gradient() {
+        if (released_) throw new RuntimeException("Storage was used after its arena had been closed");
+        if (gradient_ == null) {
+            synchronized (this) {
+                if (gradient_ == null) gradient_ = arena_ != null ? arena_.allocate(data_.length) : new double[data_.length];
+            }
+        }
+        return gradient_;
+    }
+
+    /**
+     * Checks whether the gradient array has already been allocated.
+     *
+     * @return true if the gradient array exists; false otherwise.
+     */
+    public boolean has_gradient() {
+        return gradient_ != null;
+    }
+
+    /**
+     * Returns the number of in-place modifications of the values made so far.
+     *
+     * @return The version of the storage.
+     */
+    public int get_version() {
+        return version_;
+    }
+
+    /**
+     * Records an in-place modification of the values.
+     */
+    public void increment_version() {
+        ++version_;
+    }
+
+    /**
+     * Sets all accumulated gradients to zero.
+     */
+    public void zero_gradient() {
+        if (gradient_ != null) Arrays.fill(gradient_, 0);
+    }
+
+    /**
+     * Returns the arena the storage was taken from.
+     *
+     * @return The arena, or null if the storage owns its arrays.
+     */
+    StorageArena get_arena() {
+        return arena_;
+    }
+
+    /**
+     * Marks the storage as released by its arena.
+     *
+     * @return The arrays of the storage, which the arena may hand out again; none if it has already been released.
+     */
+    synchronized double[][] release() {
+        if (released_) return new double[0][];
+        released_ = true;
+        return gradient_ != null ? new double[][] { data_, gradient_ } : new double[][] { data_ };
+    }
+}
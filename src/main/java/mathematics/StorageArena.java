@@ -0,0 +1,200 @@
+package mathematics;
+
+import nn.models.ExecutionPlan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Scope that owns the storages created in it, e.g. the activations and gradients of one training step, together with
+ * the scratch arrays of the operations (see {@link #allocate_array(int)}). When the scope is closed all of them are
+ * released at once: their arrays go back to a pool of the thread that opened the scope and
+ * are handed out again (zero-filled) to the storages of the next scope, so a training loop stops allocating new
+ * arrays after its first step. This is pooling of ordinary heap arrays: the arrays stay on the Java heap and are
+ * still traced by the garbage collector, but no new ones have to be allocated and collected for every step. Storages
+ * and scratch arrays that are not needed until the end of the scope can be handed back earlier with
+ * {@link #release(Storage)} and {@link #release_array(double[])}; {@link #get_peak_bytes()} reports how much of the
+ * pool a scope used at the same time.
+ * <pre>{@code
+ * for (var batch: batches) {
+ *     try (var arena = new StorageArena()) {
+ *         var loss = loss_function.calculate_loss(model.forward(batch.get_inputs()), batch.get_labels());
+ *         loss.backward();
+ *         optimizer.step();
+ *     }
+ * }
+ * }</pre>
+ * Objects created before the scope, like the parameters of a model, keep their own arrays. A released storage must
+ * not be used anymore; reading its values or gradients throws. The scope is confined to the thread that opened it:
+ * only storages created by this thread belong to it, and only this thread may close it. Gradients of its storages
+ * may still be allocated by the threads of a parallel backward pass. Scopes can be nested and must be closed in the
+ * reverse order. No storage is taken from a scope while a model is traced, since an {@link ExecutionPlan} keeps its
+ * buffers for all later runs.
+ */
+public class StorageArena implements AutoCloseable {
+    private static final ThreadLocal<StorageArena> current_ = new ThreadLocal<>();
+    private static final ThreadLocal<HashMap<Integer, ArrayDeque<double[]>>> pools_ = ThreadLocal.withInitial(HashMap::new);
+
+    private final Thread owner_ = Thread.currentThread();
+    private final StorageArena previous_ = current_.get();
+    private final HashMap<Integer, ArrayDeque<double[]>> pool_ = pools_.get();
+    private final ArrayList<Storage> storages_ = new ArrayList<>();
+    private final ArrayList<double[]> arrays_ = new ArrayList<>();
+    private long live_bytes_ = 0;
+    private long peak_bytes_ = 0;
+    private boolean closed_ = false;
+
+    /**
+     * Opens a new scope on the current thread.
+     */
+    public StorageArena() {
+        current_.set(this);
+    }
+
+    /**
+     * Returns the innermost open scope of the current thread new storages are taken from.
+     * @return The scope, or null if no scope is open or a model is being traced.
+     */
+    static StorageArena current() {
+        if (ExecutionPlan.tracing() != null) return null;
+        return current_.get();
+    }
+
+    /**
+     * Drops the arrays pooled by the current thread, e.g. after the training, so that they can be garbage collected.
+     */
+    public static void trim() {
+        pools_.get().clear();
+    }
+
+    /**
+     * Allocates a zero-filled scratch array, e.g. the unrolled windows of a convolution, that lives as long as the
+     * innermost scope of the current thread, unless it is returned earlier by {@link #release_array(double[])}.
+     * Outside of a scope (or while a model is traced) it is a new array.
+     * @param size The number of elements.
+     * @return The array, which must not be used after the scope is closed.
+     */
+    public static double[] allocate_array(int size) {
+        var arena = current();
+        if (arena == null) return new double[size];
+        double[] array = arena.allocate(size);
+        arena.arrays_.add(array);
+        return array;
+    }
+
+    /**
+     * Returns a scratch array of the innermost scope of the current thread to the pool before the scope is closed,
+     * e.g. the unrolled windows of a convolution whose result is not differentiated. Arrays that were not taken from
+     * this scope, or that have already been returned, are left untouched.
+     * @param array The array, which must not be used anymore.
+     */
+    public static void release_array(double[] array) {
+        var arena = current();
+        if (arena == null) return;
+        // scratch arrays are usually returned in the reverse order of their allocation
+        for (int i = arena.arrays_.size() - 1; i >= 0; --i) {
+            if (arena.arrays_.get(i) == array) {
+                arena.arrays_.remove(i);
+                synchronized (arena.pool_) {
+                    arena.recycle(array);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases a storage of the innermost scope of the current thread before the scope is closed, e.g. an
+     * activation whose last consumer has run, so that its arrays are handed out again to the storages created next.
+     * Storages of other scopes, or created outside of a scope, are left untouched.
+     * @param storage The storage, which must not be used anymore by any object.
+     */
+    public static void release(Storage storage) {
+        var arena = current();
+        if (arena == null || storage.get_arena() != arena) return;
+        synchronized (arena.pool_) {
+            for (double[] array: storage.release()) arena.recycle(array);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the arrays of this scope that are currently in use.
+     * @return The bytes of the arrays handed out by this scope and not yet returned to the pool.
+     */
+    public long get_live_bytes() {
+        synchronized (pool_) {
+            return live_bytes_;
+        }
+    }
+
+    /**
+     * Returns the largest number of bytes the arrays of this scope have occupied at the same time, i.e. the part of
+     * the pool the scope needs.
+     * @return The peak of {@link #get_live_bytes()}.
+     */
+    public long get_peak_bytes() {
+        synchronized (pool_) {
+            return peak_bytes_;
+        }
+    }
+
+    /**
+     * Registers a storage created in this scope.
+     * @param storage The storage to release when the scope is closed.
+     */
+    void add(Storage storage) {
+        storages_.add(storage);
+    }
+
+    /**
+     * Takes a zero-filled array from the pool, or allocates it if the pool has none of this size.
+     * @param size The number of elements.
+     * @return The array.
+     */
+    double[] allocate(int size) {
+        double[] array;
+        synchronized (pool_) {
+            var arrays = pool_.get(size);
+            array = arrays != null ? arrays.poll() : null;
+            live_bytes_ += (long) size * Double.BYTES;
+            peak_bytes_ = Math.max(peak_bytes_, live_bytes_);
+        }
+        if (array == null) return new double[size];
+        Arrays.fill(array, 0);
+        return array;
+    }
+
+    /**
+     * Returns an array of this scope to the pool. The caller holds the lock of the pool.
+     * @param array The array.
+     */
+    private void recycle(double[] array) {
+        pool_.computeIfAbsent(array.length, size -> new ArrayDeque<>()).push(array);
+        live_bytes_ -= (long) array.length * Double.BYTES;
+    }
+
+    /**
+     * Releases all storages of this scope and returns their arrays to the pool. Closing it more than once has no
+     * effect.
+     * @throws RuntimeException If the scope is closed by another thread or before a scope nested in it.
+     */
+    @Override
+    public void close() {
+        if (closed_) return;
+        if (Thread.currentThread() != owner_) throw new RuntimeException("Storage arena can only be closed by the thread that opened it");
+        if (current_.get() != this) throw new RuntimeException("Nested storage arenas must be closed first");
+        closed_ = true;
+        current_.set(previous_);
+
+        synchronized (pool_) {
+            for (var storage: storages_) {
+                for (double[] array: storage.release()) recycle(array);
+            }
+            for (double[] array: arrays_) recycle(array);
+        }
+        storages_.clear();
+        arrays_.clear();
+    }
+}
@@ -5,21 +5,25 @@ import mathematics.initializers.ConstantInitializer;
 import mathematics.initializers.HeGaussianInitializer;
 import mathematics.initializers.IInitializer;
 import mathematics.initializers.RandomInitializer;
+import mathematics.kernels.Kernels;
 import nn.layers.Layer;
 import nn.models.ModelSettings;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.stream.IntStream;
 
 /**
  * Represents a three-dimensional tensor of {@link Value} objects. This class
  * facilitates the manipulation and operation of data in a multi-dimensional array format,
  * which is essential in neural network computations and other mathematical applications.
+ * The elements are kept in a {@link Storage} laid out as [height, width, depth].
+ * Every operation on whole tensors records a single {@link autograd.Operation} in the computational graph.
  */
 public class Tensor extends MultiDimObject {
-    private Value[][][] values_; // [height, width, depth]
+
+    /**
+     * Creates a tensor without a storage; it is used for views, which share the storage of another object.
+     */
+    Tensor() {}
 
     /**
      * Constructs a tensor with specified dimensions and initialization.
@@ -32,8 +36,9 @@ public class Tensor extends MultiDimObject {
     public Tensor(int height, int width, int depth, MultiDimObject.InitValues init_values) {
         if (height < 1 || width < 1 || depth < 1)
             throw new RuntimeException("Tensor has non-positive dimensions");
-        size_ = new int[] { height, width, depth };
-        values_ = new Value[height][width][depth];
+        init_storage(new int[] { height, width, depth });
+        double[] data = storage_.get_data();
+        if (init_values == InitValues.ZEROS) return;
 
         IInitializer sampler = switch (init_values) {
             case ZEROS -> new ConstantInitializer(0);
@@ -43,23 +48,7 @@ public class Tensor extends MultiDimObject {
             default -> throw new RuntimeException("Unknown sampler");
         };
 
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            IntStream.range(0, height).parallel().forEach(i -> {
-                IntStream.range(0, width).forEach(j -> {
-                    IntStream.range(0, depth).forEach(k -> {
-                        values_[i][j][k] = new Value(sampler.next());
-                    });
-                });
-            });
-        } else {
-            for (int i = 0; i < height; ++i) {
-                for (int j = 0; j < width; ++j) {
-                    for (int k = 0; k < depth; ++k) {
-                        values_[i][j][k] = new Value(sampler.next());
-                    }
-                }
-            }
-        }
+        sampler.fill(data);
     }
 
     /**
@@ -71,8 +60,13 @@ public class Tensor extends MultiDimObject {
         if (tensor == null) throw new RuntimeException("Array to create a tensor is null");
         if (tensor.length == 0 || tensor[0].length == 0 || tensor[0][0].length == 0)
             throw new ArrayIndexOutOfBoundsException("Attempt to create a tensor from the empty arrays");
-        values_ = tensor;
-        size_ = new int[] { tensor.length, tensor[0].length, tensor[0][0].length};
+        int[] tensor_size = new int[] { tensor.length, tensor[0].length, tensor[0][0].length };
+        var nodes = new Value[tensor_size[0] * tensor_size[1] * tensor_size[2]];
+        for (int i = 0; i < tensor_size[0]; ++i) {
+            for (int j = 0; j < tensor_size[1]; ++j)
+                System.arraycopy(tensor[i][j], 0, nodes, (i * tensor_size[1] + j) * tensor_size[2], tensor_size[2]);
+        }
+        init_nodes(tensor_size, nodes);
     }
 
     /**
@@ -84,14 +78,27 @@ public class Tensor extends MultiDimObject {
         if (matrices.length == 0) throw new RuntimeException("Attempt to create tensor from zero matrices");
 
         int[] matrix_size = matrices[0].get_size();
-        size_ = new int[] { matrix_size[0], matrix_size[1], matrices.length };
-        values_= new Value[matrix_size[0]][matrix_size[1]][matrices.length];
-        for (int k = 0; k < matrices.length; ++k) {
-            for (int i = 0; i < matrix_size[0]; ++i) {
-                for (int j = 0; j < matrix_size[1]; ++j)
-                    values_[i][j][k] = matrices[k].get(i, j);
+        int depth = matrices.length;
+        var inputs = new Matrix[depth];
+        for (int k = 0; k < depth; ++k) inputs[k] = matrices[k].contiguous();
+        init_storage(new int[] { matrix_size[0], matrix_size[1], depth });
+        double[] data = storage_.get_data();
+
+        compute("stack", () -> {
+            for (int k = 0; k < depth; ++k) {
+                double[] matrix_data = inputs[k].storage_.get_data();
+                for (int i = 0; i < matrix_data.length; ++i)
+                    data[i * depth + k] = matrix_data[i];
             }
-        }
+        }, () -> {
+            double[] gradient = storage_.get_gradient();
+            for (int k = 0; k < depth; ++k) {
+                if (!inputs[k].requires_grad_) continue;
+                double[] matrix_gradient = inputs[k].storage_.get_gradient();
+                for (int i = 0; i < matrix_gradient.length; ++i)
+                    matrix_gradient[i] += gradient[i * depth + k];
+            }
+        }, inputs);
     }
 
     /**
@@ -102,13 +109,11 @@ public class Tensor extends MultiDimObject {
     public Tensor(double[][][] tensor) {
         if (tensor.length == 0 || tensor[0].length == 0 || tensor[0][0].length == 0)
             throw new ArrayIndexOutOfBoundsException("Attempt to create tensor from the empty arrays");
-        size_ = new int[] { tensor.length, tensor[0].length, tensor[0][0].length };
-        values_ = new Value[tensor.length][tensor[0].length][tensor[0][0].length];
+        init_storage(new int[] { tensor.length, tensor[0].length, tensor[0][0].length });
+        double[] data = storage_.get_data();
         for (int i = 0; i < tensor.length; ++i) {
             for (int j = 0; j < tensor[0].length; ++j)
-                for (int k = 0; k < tensor[0][0].length; ++k) {
-                    values_[i][j][k] = new Value(tensor[i][j][k]);
-                }
+                System.arraycopy(tensor[i][j], 0, data, storage_index(i, j, 0), size_[2]);
         }
     }
 
@@ -128,31 +133,23 @@ public class Tensor extends MultiDimObject {
 
     /**
      * Extracts a sub-tensor from this tensor, specified by range indices in two dimensions.
-     * This method creates a view or sub-tensor based on the specified slice indices for rows and columns.
+     * The sub-tensor is a view sharing the storage of this tensor, so slicing costs O(1) and copies nothing.
      *
      * @param x An array of two integers specifying the start and end indices for the row dimension.
      *          The end index is exclusive.
      * @param y An array of two integers specifying the start and end indices for the column dimension.
      *          The end index is exclusive.
-     * @return A new {@link Tensor} representing the sliced portion of this tensor.
+     * @return A {@link Tensor} view of the sliced portion of this tensor.
      * @throws ArrayIndexOutOfBoundsException If the length of either 'x' or 'y' is not exactly two,
      *                                        or if the indices are out of the valid range of this tensor's dimensions.
      */
     public Tensor slice(int[] x, int[] y) {
         if (x.length != 2 || y.length != 2) throw new ArrayIndexOutOfBoundsException("Slicing size is invalid");
-
-        var view_tensor = create_subtensor(x, y);
-        for (int i = x[0]; i < x[1]; ++i) {
-            for (int j = y[0]; j < y[1]; ++j) {
-                if (size_[2] >= 0)
-                    System.arraycopy(values_[i][j], 0, view_tensor.values_[i - x[0]][j - y[0]], 0, size_[2]);
-            }
-        }
-        return view_tensor;
+        return create_subtensor(x, y);
     }
 
     /**
-     * Creates a sub-tensor based on the specified slice indices for dimensions.
+     * Creates a sub-tensor view based on the specified slice indices for dimensions.
      * This method validates the slicing indices to ensure they are within bounds and correctly ordered. (used by slice() method)
      *
      * @param x An array of two integers specifying the start and end indices for the row dimension.
@@ -169,7 +166,10 @@ public class Tensor extends MultiDimObject {
 
         int new_height = x[1] - x[0];
         int new_width = y[1] - y[0];
-        return new Tensor(new_height, new_width, size_[2], InitValues.ZEROS);
+        var view_tensor = new Tensor();
+        view_tensor.init_view(this, "slice", new int[] { new_height, new_width, size_[2] }, strides_.clone(),
+                storage_index(x[0], y[0], 0));
+        return view_tensor;
     }
 
     /**
@@ -197,26 +197,7 @@ public class Tensor extends MultiDimObject {
     public Tensor pw_multiply(Tensor other) {
         if (!has_same_size(other))
             throw new RuntimeException("Tensor has invalid size for the pairwise mul");
-        var output_tensor = new Tensor(size_[0], size_[1], size_[2], InitValues.RANDOM);
-
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            IntStream.range(0, size_[0]).parallel().forEach(i -> {
-                for (int j = 0; j < size_[1]; ++j) {
-                    for (int k = 0; k < size_[2]; ++k)
-                        output_tensor.values_[i][j][k] = other.values_[i][j][k].multiply(values_[i][j][k]);
-                }
-            });
-
-            return output_tensor;
-        }
-
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k)
-                    output_tensor.values_[i][j][k] = other.values_[i][j][k].multiply(values_[i][j][k]);
-            }
-        }
-        return output_tensor;
+        return broadcast(Broadcast.Op.MUL, other, other.strides_);
     }
 
     /**
@@ -228,30 +209,17 @@ public class Tensor extends MultiDimObject {
     public Tensor add(MultiDimObject other) {
         if (other == null) throw new NullPointerException("Attempt to add the null matrix");
         if (!has_same_size(other)) throw new RuntimeException("Matrix has invalid size for the addition");
-        Tensor other_tensor = (Tensor)other;
-
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            IntStream.range(0, size_[0]).parallel().forEach(i -> {
-                for (int j = 0; j < size_[1]; ++j) {
-                    for (int k = 0; k < size_[2]; ++k)
-                        other_tensor.values_[i][j][k] = other_tensor.values_[i][j][k].add(values_[i][j][k]);
-                }
-            });
-
-            return other_tensor;
-        }
-
-        var tensor_array = new Value[size_[0]][size_[1]][size_[2]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k) {
-                    tensor_array[i][j][k] = values_[i][j][k].add(other_tensor.values_[i][j][k]);
-                }
-            }
-        }
-        return new Tensor(tensor_array);
+        return broadcast(Broadcast.Op.ADD, other, other.strides_);
     }
 
+    /**
+     * Adds a column vector to every pixel of this tensor, i.e. its i-th element to the i-th channel. The vector is
+     * broadcasted over the rows and columns without being copied.
+     *
+     * @param vector The vector with one element per channel.
+     * @return A new tensor representing the sum.
+     * @throws RuntimeException If the input is not a vector of the depth of this tensor.
+     */
     public Tensor add_vector(Matrix vector) {
         if (vector == null) throw new RuntimeException("Attempt to add null to the tensor");
         if (!vector.is_vector()) throw new RuntimeException("Input is not a vector");
@@ -261,20 +229,36 @@ public class Tensor extends MultiDimObject {
             System.out.printf("ERROR: %d != %d\n", vector_size[0], size_[2]);
             throw new RuntimeException("Vector has invalid size to be added");
         }
-
-        var tensor_array = new Value[size_[0]][size_[1]][size_[2]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k) {
-                    tensor_array[i][j][k] = values_[i][j][k].add(vector.get(k, 0));
-                }
-            }
-        }
-        return new Tensor(tensor_array);
+        return broadcast(Broadcast.Op.ADD, vector, new int[] { 0, 0, vector.strides_[0] });
     }
 
+    /**
+     * Multiplies this tensor element-wise by an object broadcastable to its size, e.g. a tensor of the same size,
+     * a matrix of the size of the rows and channels, or a single row of channels.
+     *
+     * @param other The object to multiply by.
+     * @return A new tensor holding the element-wise product.
+     * @throws RuntimeException If the object cannot be broadcasted to the size of this tensor.
+     */
     public Tensor multiply(MultiDimObject other)  {
-        throw new RuntimeException("Multiply for tensors is not implemented");
+        if (other == null) throw new NullPointerException("Attempt to multiply by the null object");
+        return broadcast(Broadcast.Op.MUL, other, Broadcast.strides(other, size_));
+    }
+
+    /**
+     * Computes an element-wise operation of this tensor and another object addressed as if it had the size of this
+     * tensor (see {@link Broadcast}).
+     *
+     * @param op The operation.
+     * @param other The second operand.
+     * @param other_strides The strides of the second operand broadcasted to the size of this tensor.
+     * @return A new tensor holding the result.
+     */
+    private Tensor broadcast(Broadcast.Op op, MultiDimObject other, int[] other_strides) {
+        var output_tensor = new Tensor(size_[0], size_[1], size_[2], InitValues.ZEROS);
+        output_tensor.mode = mode;
+        Broadcast.binary(op, this, strides_, other, other_strides, output_tensor);
+        return output_tensor;
     }
 
     /**
@@ -284,16 +268,20 @@ public class Tensor extends MultiDimObject {
      * @return A new tensor where each element is the product of the original element and the constant.
      */
     public Tensor multiply(double constant) {
-        var tensor_array = new Value[size_[0]][size_[1]][size_[2]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k) {
-                    tensor_array[i][j][k] = values_[i][j][k].multiply(constant);
-                }
-            }
-        }
-
-        return new Tensor(tensor_array);
+        if (!is_contiguous()) return contiguous().multiply(constant);
+        var output_tensor = new Tensor(size_[0], size_[1], size_[2], InitValues.ZEROS);
+        double[] data = storage_.get_data();
+        double[] output_data = output_tensor.storage_.get_data();
+
+        var kernels = Kernels.get();
+        output_tensor.compute("multiply", () -> {
+            for_each_range(data.length, (from, to) -> kernels.scale(data, from, constant, output_data, from, to - from));
+        }, () -> {
+            double[] gradient = storage_.get_gradient();
+            double[] output_gradient = output_tensor.storage_.get_gradient();
+            for_each_range(data.length, (from, to) -> kernels.axpy(constant, output_gradient, from, gradient, from, to - from));
+        }, this);
+        return output_tensor;
     }
 
     /**
@@ -310,18 +298,28 @@ public class Tensor extends MultiDimObject {
     }
 
     /**
-     * Sets the 'requires_grad' property for all elements within the tensor, determining
-     * whether automatic differentiation mechanisms should track operations for each element.
+     * Creates a copy of this tensor with its own storage. The copy is a leaf of the computational graph.
      *
-     * @param requires_grad Boolean flag indicating whether gradients should be calculated.
+     * @return A new tensor holding the same elements.
      */
-    public void set_requires_grad(boolean requires_grad) {
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k)
-                    values_[i][j][k].requires_grad = requires_grad;
-            }
-        }
+    public Tensor copy() {
+        var copy_tensor = new Tensor(size_[0], size_[1], size_[2], InitValues.ZEROS);
+        copy_elements(copy_tensor.storage_.get_data());
+        copy_tensor.requires_grad_ = requires_grad_;
+        copy_tensor.mode = mode;
+        return copy_tensor;
+    }
+
+    /**
+     * Returns this tensor if it is contiguous, or a contiguous copy of it otherwise.
+     *
+     * @return A contiguous tensor with the same elements.
+     */
+    public Tensor contiguous() {
+        if (is_contiguous()) return this;
+        var contiguous_tensor = new Tensor(size_[0], size_[1], size_[2], InitValues.ZEROS);
+        contiguous_tensor.gather(this);
+        return contiguous_tensor;
     }
 
     /**
@@ -340,16 +338,99 @@ public class Tensor extends MultiDimObject {
      * @return A Value object representing the sum of all elements.
      */
     public Value sum() {
-        var values_array = new ArrayList<Value>();
+        if (!is_contiguous()) return contiguous().sum();
+        double[] data = storage_.get_data();
+        double sum = Reduction.pairwise_sum(data, 0, data.length);
+
+        var sum_value = new Value(sum, requires_grad_, gradient -> {
+            double[] tensor_gradient = storage_.get_gradient();
+            for (int i = 0; i < tensor_gradient.length; ++i) tensor_gradient[i] += gradient;
+        }, grad_fn_);
+        sum_value.set_gradient_targets(storage_);
+        return sum_value;
+    }
 
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k) {
-                    values_array.add(values_[i][j][k]);
-                }
-            }
-        }
-        return Value.add(values_array);
+    /**
+     * Sums the elements of this tensor over the given axes by pairwise summation.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A tensor of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Tensor sum(int... axes) {
+        return reduce(Reduction.Op.SUM, axes);
+    }
+
+    /**
+     * Computes the mean of the elements of this tensor over the given axes.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A tensor of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Tensor mean(int... axes) {
+        return reduce(Reduction.Op.MEAN, axes);
+    }
+
+    /**
+     * Computes the maximum of the elements of this tensor over the given axes. The gradient flows to the first
+     * maximal element.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A tensor of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Tensor max(int... axes) {
+        return reduce(Reduction.Op.MAX, axes);
+    }
+
+    /**
+     * Computes log(sum(exp(x))) of the elements of this tensor over the given axes, shifted by their maximum so that
+     * the exponentials cannot overflow.
+     *
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return A tensor of the size of this one with 1 along the reduced axes.
+     * @throws RuntimeException If an axis is out of range or given twice.
+     */
+    public Tensor logsumexp(int... axes) {
+        return reduce(Reduction.Op.LOGSUMEXP, axes);
+    }
+
+    /**
+     * Finds the index of the first maximal element along an axis. The indices do not require gradients.
+     *
+     * @param axis The axis to search along.
+     * @return A tensor of the size of this one with 1 along the axis, holding the indices.
+     * @throws RuntimeException If the axis is out of range.
+     */
+    public Tensor argmax(int axis) {
+        var output = reduced_tensor(Reduction.shape(size_, Reduction.axes(size_, axis)));
+        Reduction.argmax(this, axis, output);
+        return output;
+    }
+
+    /**
+     * Reduces this tensor over the given axes.
+     *
+     * @param op The reduction.
+     * @param axes The axes to reduce; no axes reduce all of them.
+     * @return The reduced tensor.
+     */
+    private Tensor reduce(Reduction.Op op, int... axes) {
+        boolean[] reduced = Reduction.axes(size_, axes);
+        var output = reduced_tensor(Reduction.shape(size_, reduced));
+        Reduction.reduce(op, this, reduced, output);
+        return output;
+    }
+
+    /**
+     * Creates a zero-filled tensor of the given size.
+     *
+     * @param size The size of the three dimensions.
+     * @return The tensor.
+     */
+    private static Tensor reduced_tensor(int[] size) {
+        return new Tensor(size[0], size[1], size[2], InitValues.ZEROS);
     }
 
     /**
@@ -375,7 +456,7 @@ public class Tensor extends MultiDimObject {
         if (indices.length != 3) throw new RuntimeException("Insufficient number of indices to access the matrix");
         if (!is_tensor_index(indices)) throw new ArrayIndexOutOfBoundsException("Invalid index to set");
         if (value == null) throw new NullPointerException("Attempt to set null value");
-        values_[indices[0]][indices[1]][indices[2]] = value;
+        set_element(value, storage_index(indices));
     }
 
     /**
@@ -390,29 +471,106 @@ public class Tensor extends MultiDimObject {
         if (indices.length != 3) throw new RuntimeException("Insufficient number of indices to access the tensorx");
         if (!is_tensor_index(indices))
             throw new ArrayIndexOutOfBoundsException("Attempt to get matrix value that is out of bounds");
-        return values_[indices[0]][indices[1]][indices[2]];
+        return element(storage_index(indices));
         }
 
     /**
      * Extracts a specific dimension from the tensor as a Matrix. This is often used in operations that
      * need to process or manipulate one layer or slice of a tensor at a time.
      *
+     * The matrix is a view sharing the storage of this tensor, so no element is copied.
+     *
      * @param dim The dimension index to extract, corresponding to the third dimension of the tensor.
-     * @return A Matrix containing the specified dimension's data.
+     * @return A Matrix view of the specified dimension's data.
      * @throws RuntimeException If the specified dimension index is out of bounds.
      */
     public Matrix get_dim(int dim) {
         if (dim < 0 || dim >= size_[2]) throw new RuntimeException("Attempt to get out of bounds dimension");
 
-        var matrix_array = new Value[size_[0]][size_[1]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j)
-                matrix_array[i][j] = values_[i][j][dim];
-        }
+        var view_matrix = new Matrix();
+        view_matrix.init_view(this, "get_dim", new int[] { size_[0], size_[1] },
+                new int[] { strides_[0], strides_[1] }, storage_index(0, 0, dim));
+        return view_matrix;
+    }
+
+
+    /**
+     * Adds another object to this tensor in place. The other object must have the same size or be broadcastable to
+     * the size of this tensor.
+     *
+     * @param other The object to add.
+     * @return This tensor, holding the sum.
+     * @throws RuntimeException If the other object cannot be broadcasted, or this tensor cannot be modified in place
+     *                          (see {@link MultiDimObject#compute_in_place}).
+     */
+    public Tensor add_(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to add the null object");
+        Broadcast.binary_in_place(Broadcast.Op.ADD, this, other, Broadcast.strides(other, size_));
+        return this;
+    }
+
+    /**
+     * Multiplies this tensor element-wise by another object in place. The other object must have the same size or be
+     * broadcastable to the size of this tensor.
+     *
+     * @param other The object to multiply by.
+     * @return This tensor, holding the product.
+     * @throws RuntimeException If the other object cannot be broadcasted, or this tensor cannot be modified in place.
+     */
+    public Tensor mul_(MultiDimObject other) {
+        if (other == null) throw new NullPointerException("Attempt to multiply by the null object");
+        Broadcast.binary_in_place(Broadcast.Op.MUL, this, other, Broadcast.strides(other, size_));
+        return this;
+    }
+
+    /**
+     * Adds a column vector to every pixel of this tensor in place, i.e. its i-th element to the i-th channel.
+     *
+     * @param vector The vector with one element per channel.
+     * @return This tensor, holding the sum.
+     * @throws RuntimeException If the input is not a vector of the depth of this tensor, or this tensor cannot be
+     *                          modified in place.
+     */
+    public Tensor add_vector_(Matrix vector) {
+        if (vector == null) throw new RuntimeException("Attempt to add null to the tensor");
+        if (!vector.is_vector() || vector.get_size()[0] != size_[2])
+            throw new RuntimeException("Vector has invalid size to be added");
+        Broadcast.binary_in_place(Broadcast.Op.ADD, this, vector, new int[] { 0, 0, vector.strides_[0] });
+        return this;
+    }
+
+    /**
+     * Applies the ReLU activation function to each element of this tensor in place.
+     *
+     * @return This tensor, holding the activations.
+     * @throws RuntimeException If this tensor cannot be modified in place.
+     */
+    public Tensor relu_() {
+        activation_in_place(Layer.Activation.ReLU);
+        return this;
+    }
 
-        return new Matrix(matrix_array);
+    /**
+     * Applies the LeakyReLU activation function to each element of this tensor in place.
+     *
+     * @return This tensor, holding the activations.
+     * @throws RuntimeException If this tensor cannot be modified in place.
+     */
+    public Tensor leakyRelu_() {
+        activation_in_place(Layer.Activation.LeakyReLU);
+        return this;
     }
 
+    /**
+     * Applies the Sigmoid activation function to each element of this tensor in place.
+     *
+     * @return This tensor, holding the activations.
+     * @throws RuntimeException If this tensor cannot be modified in place.
+     */
+    public Tensor sigmoid_() {
+        activation_in_place(Layer.Activation.Sigmoid);
+        return this;
+    }
 
     /**
      * Applies the Rectified Linear Unit (ReLU) activation function to each element of the tensor.
@@ -454,35 +612,10 @@ public class Tensor extends MultiDimObject {
      * @return A new tensor with the activation function applied to each element.
      */
     protected Tensor activation(Layer.Activation activation) {
-        java.util.function.Function<Value, Value> activation_function = switch (activation) {
-            case ReLU -> Value::relu;
-            case LeakyReLU -> Value::leakyRelu;
-            case Sigmoid -> Value::sigmoid;
-            default -> throw new RuntimeException("Unknown activation function");
-        };
-
-        if (mode == ModelSettings.executionMode.PARALLEL) {
-            Value[][][] result = Arrays.stream(values_)
-                    .parallel()
-                    .map(twoDMatrix -> Arrays.stream(twoDMatrix)
-                            .parallel()
-                            .map(row -> Arrays.stream(row)
-                                    .map(activation_function)
-                                    .toArray(Value[]::new))
-                            .toArray(Value[][]::new))
-                    .toArray(Value[][][]::new);
-            return new Tensor(result);
-        }
-
-        var tensor_array = new Value[size_[0]][size_[1]][size_[2]];
-        for (int i = 0; i < size_[0]; ++i) {
-            for (int j = 0; j < size_[1]; ++j) {
-                for (int k = 0; k < size_[2]; ++k) {
-                    tensor_array[i][j][k] = activation_function.apply(values_[i][j][k]);
-                }
-            }
-        }
-        return new Tensor(tensor_array);
+        if (!is_contiguous()) return contiguous().activation(activation);
+        var output_tensor = new Tensor(size_[0], size_[1], size_[2], InitValues.ZEROS);
+        activation(output_tensor, activation);
+        return output_tensor;
     }
 
     /**
@@ -502,7 +635,7 @@ public class Tensor extends MultiDimObject {
 
             @Override
             public Value next() {
-                var value = values_[(current_index % matrix_size) / size_[1]][(current_index % matrix_size) % size_[1]][current_index / matrix_size];
+                var value = element(storage_index((current_index % matrix_size) / size_[1], (current_index % matrix_size) % size_[1], current_index / matrix_size));
                 current_index++;
                 return value;
             }
@@ -513,11 +646,12 @@ public class Tensor extends MultiDimObject {
      * Prints the tensor to the standard output in a formatted manner.
      */
     public void print() {
+        double[] data = storage_.get_data();
         System.out.printf("size_ = [%d, %d, %d]", size_[0], size_[1], size_[2]);
         for (int i = 0; i < size_[0]; ++i) {
             for (int j = 0; j < size_[1]; ++j) {
                 for (int k = 0; k < size_[2]; ++k)
-                    System.out.printf("%f ", values_[i][j][k].value);
+                    System.out.printf("%f ", data[storage_index(i, j, k)]);
             }
             System.out.println();
         }
@@ -1,5 +1,7 @@
 package mathematics.initializers;
 
+import java.util.Arrays;
+
 /**
  * An initializer that provides a constant value for every initialization call.
  * This is particularly useful for setting all parameters of a layer or model to a uniform value,
@@ -27,4 +29,14 @@ public class ConstantInitializer implements IInitializer {
     public double next() {
         return constant_;
     }
+
+    /**
+     * Fills the whole buffer with the constant value.
+     *
+     * @param buffer The buffer to fill.
+     */
+    @Override
+    public void fill(double[] buffer) {
+        Arrays.fill(buffer, constant_);
+    }
 }
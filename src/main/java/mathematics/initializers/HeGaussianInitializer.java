@@ -1,6 +1,6 @@
 package mathematics.initializers;
 
-import java.util.Random;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
 /**
  * Implements the He initialization strategy with a Gaussian distribution.
@@ -8,10 +8,12 @@ import java.util.Random;
  * functions to address the issue of vanishing gradients in deep networks. The method
  * adjusts the variance of the weights based on the number of incoming nodes to the layer
  * (fan-in), promoting more effective learning in deep architectures.
+ * The values are drawn from a generator split off {@link RandomStreams}, so they are reproducible after
+ * {@link RandomStreams#set_seed(long)}.
  */
 public class HeGaussianInitializer implements IInitializer {
     private double std_;
-    private Random sampler_;
+    private SplittableGenerator sampler_;
 
     /**
      * Constructs a HeGaussianInitializer with the number of input nodes (fan-in) to the layer.
@@ -23,7 +25,7 @@ public class HeGaussianInitializer implements IInitializer {
     public HeGaussianInitializer(double nl) {
         if (nl == 0) throw new RuntimeException("nl to initialize value with He cannot be 0");
         std_ = Math.sqrt(2.0 / nl);
-        sampler_ = new Random();
+        sampler_ = RandomStreams.split();
     }
 
     /**
@@ -35,4 +37,14 @@ public class HeGaussianInitializer implements IInitializer {
      */
     @Override
     public double next() { return std_ * sampler_.nextGaussian(0, 1); }
+
+    /**
+     * Fills the whole buffer with weight initialization values, in parallel chunks for large buffers.
+     *
+     * @param buffer The buffer to fill.
+     */
+    @Override
+    public void fill(double[] buffer) {
+        RandomStreams.fill(buffer, sampler_, generator -> std_ * generator.nextGaussian(0, 1));
+    }
 }
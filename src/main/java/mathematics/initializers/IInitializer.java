@@ -15,4 +15,15 @@ public interface IInitializer {
      * @return A double representing the next value.
      */
     double next();
+
+    /**
+     * Fills a whole buffer with initialization values. The default implementation calls {@link #next()} for every
+     * element in order; the random initializers fill large buffers in parallel instead, with values that do not
+     * depend on the number of threads.
+     *
+     * @param buffer The buffer to fill.
+     */
+    default void fill(double[] buffer) {
+        for (int i = 0; i < buffer.length; ++i) buffer[i] = next();
+    }
 }
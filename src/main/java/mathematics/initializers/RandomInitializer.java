@@ -1,14 +1,14 @@
 package mathematics.initializers;
 
-import java.util.Random;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
 /**
  * Implements {@link IInitializer} to provide random initialization values within a specified range.
- * This class uses Java's {@link Random} class to generate a random double value between a minimum
- * and maximum boundary.
+ * This class uses a generator split off {@link RandomStreams} to generate a random double value between a minimum
+ * and maximum boundary, so the values are reproducible after {@link RandomStreams#set_seed(long)}.
  */
 public class RandomInitializer implements IInitializer {
-    private Random sampler_;
+    private SplittableGenerator sampler_;
     private double min_;
     private double max_;
 
@@ -21,7 +21,7 @@ public class RandomInitializer implements IInitializer {
     public RandomInitializer(double min, double max) {
         min_ = min;
         max_ = max;
-        sampler_ = new Random();
+        sampler_ = RandomStreams.split();
     }
 
     /**
@@ -31,4 +31,14 @@ public class RandomInitializer implements IInitializer {
      */
     @Override
     public double next() { return sampler_.nextDouble(min_, max_); }
+
+    /**
+     * Fills the whole buffer with random values within the range, in parallel chunks for large buffers.
+     *
+     * @param buffer The buffer to fill.
+     */
+    @Override
+    public void fill(double[] buffer) {
+        RandomStreams.fill(buffer, sampler_, generator -> generator.nextDouble(min_, max_));
+    }
 }
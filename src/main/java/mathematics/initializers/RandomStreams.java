@@ -0,0 +1,57 @@
+package mathematics.initializers;
+
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+import java.util.stream.IntStream;
+
+/**
+ * Source of the random generators of the initializers. Every initializer splits its own generator off a root
+ * generator, so the initializers never share a generator, and after {@link #set_seed(long)} the values of the
+ * initializers created afterwards depend only on the seed and on the order in which the initializers are created.
+ *
+ * A buffer is filled in chunks of {@value #CHUNK_SIZE} elements, each with a generator split off the generator of the
+ * initializer in the order of the chunks. The values thus do not depend on which thread fills which chunk, and large
+ * buffers are filled in parallel.
+ */
+public final class RandomStreams {
+    private static final String ALGORITHM = "L64X128MixRandom";
+    private static final int CHUNK_SIZE = 4096;
+    private static SplittableGenerator root_ = RandomGeneratorFactory.<SplittableGenerator>of(ALGORITHM).create();
+
+    private RandomStreams() {}
+
+    /**
+     * Seeds the root generator, making the values of all initializers created afterwards reproducible.
+     * @param seed The seed.
+     */
+    public static synchronized void set_seed(long seed) {
+        root_ = RandomGeneratorFactory.<SplittableGenerator>of(ALGORITHM).create(seed);
+    }
+
+    /**
+     * Splits a new independent generator off the root generator.
+     * @return The generator.
+     */
+    static synchronized SplittableGenerator split() {
+        return root_.split();
+    }
+
+    /**
+     * Fills a buffer chunk by chunk, each chunk with its own generator split off the given one.
+     * @param buffer The buffer to fill.
+     * @param generator The generator of the initializer.
+     * @param sample Draws one value from a generator.
+     */
+    static void fill(double[] buffer, SplittableGenerator generator, ToDoubleFunction<RandomGenerator> sample) {
+        int chunks = (buffer.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableGenerator[] generators = generator.splits(chunks).toArray(SplittableGenerator[]::new);
+        IntStream stream = IntStream.range(0, chunks);
+        if (chunks > 1) stream = stream.parallel();
+        stream.forEach(c -> {
+            int end = Math.min(buffer.length, (c + 1) * CHUNK_SIZE);
+            for (int i = c * CHUNK_SIZE; i < end; ++i) buffer[i] = sample.applyAsDouble(generators[c]);
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package mathematics.kernels;
+
+/**
+ * Interface defining the kernels the operations on matrices and tensors are built from. Every kernel processes a
+ * contiguous range of flat {@code double[]} buffers, given by the offsets of its first elements and its length.
+ * The kernels of the single-precision matrix multiplication also exist for {@code float[]} buffers.
+ * Implementations may use different instruction sets, but must compute the same results up to rounding.
+ */
+public interface IKernels {
+
+    /**
+     * Computes output[i] = first[i] + second[i].
+     *
+     * @param first The first summand.
+     * @param first_offset The index of the first element of the first summand.
+     * @param second The second summand.
+     * @param second_offset The index of the first element of the second summand.
+     * @param output The buffer receiving the sums.
+     * @param output_offset The index of the first element of the output.
+     * @param length The number of elements.
+     */
+    void add(double[] first, int first_offset, double[] second, int second_offset,
+             double[] output, int output_offset, int length);
+
+    /**
+     * Computes output[i] = input[i] * constant.
+     *
+     * @param input The input.
+     * @param input_offset The index of the first element of the input.
+     * @param constant The factor.
+     * @param output The buffer receiving the products.
+     * @param output_offset The index of the first element of the output.
+     * @param length The number of elements.
+     */
+    void scale(double[] input, int input_offset, double constant, double[] output, int output_offset, int length);
+
+    /**
+     * Computes output[i] += constant * input[i].
+     *
+     * @param constant The factor.
+     * @param input The input.
+     * @param input_offset The index of the first element of the input.
+     * @param output The buffer the products are added to.
+     * @param output_offset The index of the first element of the output.
+     * @param length The number of elements.
+     */
+    void axpy(double constant, double[] input, int input_offset, double[] output, int output_offset, int length);
+
+    /**
+     * Adds the products of four constants with the same input to four rows of the output, i.e. computes
+     * output[offset_k + i] += constant_k * input[i] for k = 0..3. This is the inner loop of the matrix multiplication.
+     *
+     * @param constant0 The factor of the first row.
+     * @param constant1 The factor of the second row.
+     * @param constant2 The factor of the third row.
+     * @param constant3 The factor of the fourth row.
+     * @param input The input.
+     * @param input_offset The index of the first element of the input.
+     * @param output The buffer the products are added to.
+     * @param offset0 The index of the first element of the first row.
+     * @param offset1 The index of the first element of the second row.
+     * @param offset2 The index of the first element of the third row.
+     * @param offset3 The index of the first element of the fourth row.
+     * @param length The number of elements of a row.
+     */
+    void axpy4(double constant0, double constant1, double constant2, double constant3, double[] input, int input_offset,
+               double[] output, int offset0, int offset1, int offset2, int offset3, int length);
+
+    /**
+     * Computes output[i] += constant * input[i] in single precision.
+     *
+     * @param constant The factor.
+     * @param input The input.
+     * @param input_offset The index of the first element of the input.
+     * @param output The buffer the products are added to.
+     * @param output_offset The index of the first element of the output.
+     * @param length The number of elements.
+     */
+    void axpy(float constant, float[] input, int input_offset, float[] output, int output_offset, int length);
+
+    /**
+     * Single-precision version of {@link #axpy4(double, double, double, double, double[], int, double[], int, int, int, int, int)}.
+     *
+     * @param constant0 The factor of the first row.
+     * @param constant1 The factor of the second row.
+     * @param constant2 The factor of the third row.
+     * @param constant3 The factor of the fourth row.
+     * @param input The input.
+     * @param input_offset The index of the first element of the input.
+     * @param output The buffer the products are added to.
+     * @param offset0 The index of the first element of the first row.
+     * @param offset1 The index of the first element of the second row.
+     * @param offset2 The index of the first element of the third row.
+     * @param offset3 The index of the first element of the fourth row.
+     * @param length The number of elements of a row.
+     */
+    void axpy4(float constant0, float constant1, float constant2, float constant3, float[] input, int input_offset,
+               float[] output, int offset0, int offset1, int offset2, int offset3, int length);
+
+    /**
+     * Computes output[i] = max(input[i], 0).
+     *
+     * @param input The input.
+     * @param output The buffer receiving the results.
+     * @param offset The index of the first element of both buffers.
+     * @param length The number of elements.
+     */
+    void relu(double[] input, double[] output, int offset, int length);
+
+    /**
+     * Computes output[i] = input[i] if it is positive, 0.01 * input[i] otherwise.
+     *
+     * @param input The input.
+     * @param output The buffer receiving the results.
+     * @param offset The index of the first element of both buffers.
+     * @param length The number of elements.
+     */
+    void leaky_relu(double[] input, double[] output, int offset, int length);
+
+    /**
+     * Computes output[i] = 1 / (1 + exp(-input[i])).
+     *
+     * @param input The input.
+     * @param output The buffer receiving the results.
+     * @param offset The index of the first element of both buffers.
+     * @param length The number of elements.
+     */
+    void sigmoid(double[] input, double[] output, int offset, int length);
+
+    /**
+     * Propagates the gradient through {@link #relu}: gradient[i] += output_gradient[i] if output[i] is positive.
+     *
+     * @param output The output of the activation.
+     * @param output_gradient The gradient of the output.
+     * @param gradient The gradient of the input, which is accumulated into.
+     * @param offset The index of the first element of all buffers.
+     * @param length The number of elements.
+     */
+    void relu_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length);
+
+    /**
+     * Propagates the gradient through {@link #leaky_relu}.
+     *
+     * @param output The output of the activation.
+     * @param output_gradient The gradient of the output.
+     * @param gradient The gradient of the input, which is accumulated into.
+     * @param offset The index of the first element of all buffers.
+     * @param length The number of elements.
+     */
+    void leaky_relu_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length);
+
+    /**
+     * Propagates the gradient through {@link #sigmoid}: gradient[i] += output_gradient[i] * output[i] * (1 - output[i]).
+     *
+     * @param output The output of the activation.
+     * @param output_gradient The gradient of the output.
+     * @param gradient The gradient of the input, which is accumulated into.
+     * @param offset The index of the first element of all buffers.
+     * @param length The number of elements.
+     */
+    void sigmoid_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length);
+
+    /**
+     * Propagates the gradient through {@link #relu} applied in place: gradient[i] = 0 unless output[i] is positive.
+     *
+     * @param output The output of the activation.
+     * @param gradient The gradient of the output, which is replaced by the gradient of the input.
+     * @param offset The index of the first element of both buffers.
+     * @param length The number of elements.
+     */
+    void relu_backward_in_place(double[] output, double[] gradient, int offset, int length);
+
+    /**
+     * Propagates the gradient through {@link #leaky_relu} applied in place.
+     *
+     * @param output The output of the activation.
+     * @param gradient The gradient of the output, which is replaced by the gradient of the input.
+     * @param offset The index of the first element of both buffers.
+     * @param length The number of elements.
+     */
+    void leaky_relu_backward_in_place(double[] output, double[] gradient, int offset, int length);
+
+    /**
+     * Propagates the gradient through {@link #sigmoid} applied in place: gradient[i] *= output[i] * (1 - output[i]).
+     *
+     * @param output The output of the activation.
+     * @param gradient The gradient of the output, which is replaced by the gradient of the input.
+     * @param offset The index of the first element of both buffers.
+     * @param length The number of elements.
+     */
+    void sigmoid_backward_in_place(double[] output, double[] gradient, int offset, int length);
+
+    /**
+     * Computes the sum of a range of elements.
+     *
+     * @param input The input.
+     * @param offset The index of the first element.
+     * @param length The number of elements.
+     * @return The sum.
+     */
+    double sum(double[] input, int offset, int length);
+
+    /**
+     * Finds the first maximal element of a range.
+     *
+     * @param input The input.
+     * @param offset The index of the first element.
+     * @param length The number of elements; it must be positive.
+     * @return The index of the maximal element in the input buffer.
+     */
+    int argmax(double[] input, int offset, int length);
+}
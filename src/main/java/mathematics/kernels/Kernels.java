@@ -0,0 +1,47 @@
+package mathematics.kernels;
+
+/**
+ * Selects the kernels used by the operations on matrices and tensors. The Vector API kernels are used if the
+ * {@code jdk.incubator.vector} module is enabled (run the JVM with {@code --add-modules jdk.incubator.vector}),
+ * otherwise the scalar kernels are used. The scalar kernels can be forced by setting the system property
+ * {@code unet.kernels} to {@code scalar}.
+ */
+public final class Kernels {
+    private static final IKernels kernels_ = select();
+
+    private Kernels() {}
+
+    /**
+     * Returns the selected kernels.
+     *
+     * @return The kernels of the current platform.
+     */
+    public static IKernels get() {
+        return kernels_;
+    }
+
+    /**
+     * Checks whether the Vector API kernels are used.
+     *
+     * @return true if the kernels use the Vector API; false if they are scalar.
+     */
+    public static boolean is_vectorized() {
+        return kernels_.getClass() != ScalarKernels.class;
+    }
+
+    /**
+     * Chooses the kernels. The Vector API kernels are loaded reflectively, so that their class is never resolved
+     * when the module is missing.
+     *
+     * @return The kernels to use.
+     */
+    private static IKernels select() {
+        if ("scalar".equals(System.getProperty("unet.kernels"))) return new ScalarKernels();
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return new ScalarKernels();
+        try {
+            return (IKernels) Class.forName("mathematics.kernels.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarKernels();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package mathematics.kernels;
+
+/**
+ * Kernels written as plain loops, which the JIT compiler may auto-vectorize. They are used when the Vector API is
+ * not available.
+ */
+public class ScalarKernels implements IKernels {
+
+    @Override
+    public void add(double[] first, int first_offset, double[] second, int second_offset,
+                    double[] output, int output_offset, int length) {
+        for (int i = 0; i < length; ++i)
+            output[output_offset + i] = first[first_offset + i] + second[second_offset + i];
+    }
+
+    @Override
+    public void scale(double[] input, int input_offset, double constant, double[] output, int output_offset, int length) {
+        for (int i = 0; i < length; ++i) output[output_offset + i] = input[input_offset + i] * constant;
+    }
+
+    @Override
+    public void axpy(double constant, double[] input, int input_offset, double[] output, int output_offset, int length) {
+        for (int i = 0; i < length; ++i) output[output_offset + i] += constant * input[input_offset + i];
+    }
+
+    @Override
+    public void axpy4(double constant0, double constant1, double constant2, double constant3, double[] input, int input_offset,
+                      double[] output, int offset0, int offset1, int offset2, int offset3, int length) {
+        for (int i = 0; i < length; ++i) {
+            double value = input[input_offset + i];
+            output[offset0 + i] += constant0 * value;
+            output[offset1 + i] += constant1 * value;
+            output[offset2 + i] += constant2 * value;
+            output[offset3 + i] += constant3 * value;
+        }
+    }
+
+    @Override
+    public void axpy(float constant, float[] input, int input_offset, float[] output, int output_offset, int length) {
+        for (int i = 0; i < length; ++i) output[output_offset + i] += constant * input[input_offset + i];
+    }
+
+    @Override
+    public void axpy4(float constant0, float constant1, float constant2, float constant3, float[] input, int input_offset,
+                      float[] output, int offset0, int offset1, int offset2, int offset3, int length) {
+        for (int i = 0; i < length; ++i) {
+            float value = input[input_offset + i];
+            output[offset0 + i] += constant0 * value;
+            output[offset1 + i] += constant1 * value;
+            output[offset2 + i] += constant2 * value;
+            output[offset3 + i] += constant3 * value;
+        }
+    }
+
+    @Override
+    public void relu(double[] input, double[] output, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) output[i] = input[i] < 0 ? 0 : input[i];
+    }
+
+    @Override
+    public void leaky_relu(double[] input, double[] output, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) output[i] = input[i] < 0 ? 0.01 * input[i] : input[i];
+    }
+
+    @Override
+    public void sigmoid(double[] input, double[] output, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) output[i] = 1 / (1 + Math.exp(-input[i]));
+    }
+
+    @Override
+    public void relu_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) gradient[i] += output_gradient[i] * (output[i] > 0 ? 1 : 0);
+    }
+
+    @Override
+    public void leaky_relu_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) gradient[i] += output_gradient[i] * (output[i] > 0 ? 1 : 0.01);
+    }
+
+    @Override
+    public void sigmoid_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) gradient[i] += output_gradient[i] * output[i] * (1 - output[i]);
+    }
+
+    @Override
+    public void relu_backward_in_place(double[] output, double[] gradient, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) gradient[i] *= output[i] > 0 ? 1 : 0;
+    }
+
+    @Override
+    public void leaky_relu_backward_in_place(double[] output, double[] gradient, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) gradient[i] *= output[i] > 0 ? 1 : 0.01;
+    }
+
+    @Override
+    public void sigmoid_backward_in_place(double[] output, double[] gradient, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) gradient[i] *= output[i] * (1 - output[i]);
+    }
+
+    @Override
+    public double sum(double[] input, int offset, int length) {
+        double sum = 0;
+        for (int i = offset; i < offset + length; ++i) sum += input[i];
+        return sum;
+    }
+
+    @Override
+    public int argmax(double[] input, int offset, int length) {
+        int max_index = offset;
+        for (int i = offset + 1; i < offset + length; ++i) {
+            if (input[i] > input[max_index]) max_index = i;
+        }
+        return max_index;
+    }
+}
@@ -0,0 +1,222 @@
+package mathematics.kernels;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels written with the Vector API ({@code jdk.incubator.vector}), processing as many elements per instruction
+ * as the preferred vector shape of the platform holds. The elements that do not fill a whole vector are processed by
+ * the scalar kernels. This class must only be loaded if the module is enabled, see {@link Kernels}.
+ */
+public class VectorKernels extends ScalarKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(double[] first, int first_offset, double[] second, int second_offset,
+                    double[] output, int output_offset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var first_vector = DoubleVector.fromArray(SPECIES, first, first_offset + i);
+            var second_vector = DoubleVector.fromArray(SPECIES, second, second_offset + i);
+            first_vector.add(second_vector).intoArray(output, output_offset + i);
+        }
+        super.add(first, first_offset + i, second, second_offset + i, output, output_offset + i, length - i);
+    }
+
+    @Override
+    public void scale(double[] input, int input_offset, double constant, double[] output, int output_offset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, input, input_offset + i).mul(constant).intoArray(output, output_offset + i);
+        super.scale(input, input_offset + i, constant, output, output_offset + i, length - i);
+    }
+
+    @Override
+    public void axpy(double constant, double[] input, int input_offset, double[] output, int output_offset, int length) {
+        var constant_vector = DoubleVector.broadcast(SPECIES, constant);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var input_vector = DoubleVector.fromArray(SPECIES, input, input_offset + i);
+            var output_vector = DoubleVector.fromArray(SPECIES, output, output_offset + i);
+            input_vector.fma(constant_vector, output_vector).intoArray(output, output_offset + i);
+        }
+        super.axpy(constant, input, input_offset + i, output, output_offset + i, length - i);
+    }
+
+    @Override
+    public void axpy4(double constant0, double constant1, double constant2, double constant3, double[] input, int input_offset,
+                      double[] output, int offset0, int offset1, int offset2, int offset3, int length) {
+        var vector0 = DoubleVector.broadcast(SPECIES, constant0);
+        var vector1 = DoubleVector.broadcast(SPECIES, constant1);
+        var vector2 = DoubleVector.broadcast(SPECIES, constant2);
+        var vector3 = DoubleVector.broadcast(SPECIES, constant3);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var input_vector = DoubleVector.fromArray(SPECIES, input, input_offset + i);
+            input_vector.fma(vector0, DoubleVector.fromArray(SPECIES, output, offset0 + i)).intoArray(output, offset0 + i);
+            input_vector.fma(vector1, DoubleVector.fromArray(SPECIES, output, offset1 + i)).intoArray(output, offset1 + i);
+            input_vector.fma(vector2, DoubleVector.fromArray(SPECIES, output, offset2 + i)).intoArray(output, offset2 + i);
+            input_vector.fma(vector3, DoubleVector.fromArray(SPECIES, output, offset3 + i)).intoArray(output, offset3 + i);
+        }
+        super.axpy4(constant0, constant1, constant2, constant3, input, input_offset + i,
+                output, offset0 + i, offset1 + i, offset2 + i, offset3 + i, length - i);
+    }
+
+    @Override
+    public void axpy(float constant, float[] input, int input_offset, float[] output, int output_offset, int length) {
+        var constant_vector = FloatVector.broadcast(FLOAT_SPECIES, constant);
+        int i = 0;
+        for (int bound = FLOAT_SPECIES.loopBound(length); i < bound; i += FLOAT_SPECIES.length()) {
+            var input_vector = FloatVector.fromArray(FLOAT_SPECIES, input, input_offset + i);
+            var output_vector = FloatVector.fromArray(FLOAT_SPECIES, output, output_offset + i);
+            input_vector.fma(constant_vector, output_vector).intoArray(output, output_offset + i);
+        }
+        super.axpy(constant, input, input_offset + i, output, output_offset + i, length - i);
+    }
+
+    @Override
+    public void axpy4(float constant0, float constant1, float constant2, float constant3, float[] input, int input_offset,
+                      float[] output, int offset0, int offset1, int offset2, int offset3, int length) {
+        var vector0 = FloatVector.broadcast(FLOAT_SPECIES, constant0);
+        var vector1 = FloatVector.broadcast(FLOAT_SPECIES, constant1);
+        var vector2 = FloatVector.broadcast(FLOAT_SPECIES, constant2);
+        var vector3 = FloatVector.broadcast(FLOAT_SPECIES, constant3);
+        int i = 0;
+        for (int bound = FLOAT_SPECIES.loopBound(length); i < bound; i += FLOAT_SPECIES.length()) {
+            var input_vector = FloatVector.fromArray(FLOAT_SPECIES, input, input_offset + i);
+            input_vector.fma(vector0, FloatVector.fromArray(FLOAT_SPECIES, output, offset0 + i)).intoArray(output, offset0 + i);
+            input_vector.fma(vector1, FloatVector.fromArray(FLOAT_SPECIES, output, offset1 + i)).intoArray(output, offset1 + i);
+            input_vector.fma(vector2, FloatVector.fromArray(FLOAT_SPECIES, output, offset2 + i)).intoArray(output, offset2 + i);
+            input_vector.fma(vector3, FloatVector.fromArray(FLOAT_SPECIES, output, offset3 + i)).intoArray(output, offset3 + i);
+        }
+        super.axpy4(constant0, constant1, constant2, constant3, input, input_offset + i,
+                output, offset0 + i, offset1 + i, offset2 + i, offset3 + i, length - i);
+    }
+
+    @Override
+    public void relu(double[] input, double[] output, int offset, int length) {
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, input, i).max(0).intoArray(output, i);
+        super.relu(input, output, i, offset + length - i);
+    }
+
+    @Override
+    public void leaky_relu(double[] input, double[] output, int offset, int length) {
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var vector = DoubleVector.fromArray(SPECIES, input, i);
+            vector.max(vector.mul(0.01)).intoArray(output, i);
+        }
+        super.leaky_relu(input, output, i, offset + length - i);
+    }
+
+    @Override
+    public void sigmoid(double[] input, double[] output, int offset, int length) {
+        var one = DoubleVector.broadcast(SPECIES, 1);
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var exp = DoubleVector.fromArray(SPECIES, input, i).neg().lanewise(VectorOperators.EXP);
+            one.div(exp.add(1)).intoArray(output, i);
+        }
+        super.sigmoid(input, output, i, offset + length - i);
+    }
+
+    @Override
+    public void relu_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length) {
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, output, i).compare(VectorOperators.GT, 0);
+            var output_gradient_vector = DoubleVector.fromArray(SPECIES, output_gradient, i);
+            DoubleVector.fromArray(SPECIES, gradient, i).add(output_gradient_vector, positive).intoArray(gradient, i);
+        }
+        super.relu_backward(output, output_gradient, gradient, i, offset + length - i);
+    }
+
+    @Override
+    public void leaky_relu_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length) {
+        var slope = DoubleVector.broadcast(SPECIES, 0.01);
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, output, i).compare(VectorOperators.GT, 0);
+            var factor = slope.blend(1, positive);
+            var output_gradient_vector = DoubleVector.fromArray(SPECIES, output_gradient, i);
+            output_gradient_vector.fma(factor, DoubleVector.fromArray(SPECIES, gradient, i)).intoArray(gradient, i);
+        }
+        super.leaky_relu_backward(output, output_gradient, gradient, i, offset + length - i);
+    }
+
+    @Override
+    public void sigmoid_backward(double[] output, double[] output_gradient, double[] gradient, int offset, int length) {
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var output_vector = DoubleVector.fromArray(SPECIES, output, i);
+            var derivative = output_vector.mul(output_vector.neg().add(1));
+            var output_gradient_vector = DoubleVector.fromArray(SPECIES, output_gradient, i);
+            output_gradient_vector.fma(derivative, DoubleVector.fromArray(SPECIES, gradient, i)).intoArray(gradient, i);
+        }
+        super.sigmoid_backward(output, output_gradient, gradient, i, offset + length - i);
+    }
+
+    @Override
+    public void relu_backward_in_place(double[] output, double[] gradient, int offset, int length) {
+        var zero = DoubleVector.zero(SPECIES);
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, output, i).compare(VectorOperators.GT, 0);
+            zero.blend(DoubleVector.fromArray(SPECIES, gradient, i), positive).intoArray(gradient, i);
+        }
+        super.relu_backward_in_place(output, gradient, i, offset + length - i);
+    }
+
+    @Override
+    public void leaky_relu_backward_in_place(double[] output, double[] gradient, int offset, int length) {
+        var slope = DoubleVector.broadcast(SPECIES, 0.01);
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, output, i).compare(VectorOperators.GT, 0);
+            DoubleVector.fromArray(SPECIES, gradient, i).mul(slope.blend(1, positive)).intoArray(gradient, i);
+        }
+        super.leaky_relu_backward_in_place(output, gradient, i, offset + length - i);
+    }
+
+    @Override
+    public void sigmoid_backward_in_place(double[] output, double[] gradient, int offset, int length) {
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            var output_vector = DoubleVector.fromArray(SPECIES, output, i);
+            var derivative = output_vector.mul(output_vector.neg().add(1));
+            DoubleVector.fromArray(SPECIES, gradient, i).mul(derivative).intoArray(gradient, i);
+        }
+        super.sigmoid_backward_in_place(output, gradient, i, offset + length - i);
+    }
+
+    @Override
+    public double sum(double[] input, int offset, int length) {
+        var sum_vector = DoubleVector.zero(SPECIES);
+        int i = offset;
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            sum_vector = sum_vector.add(DoubleVector.fromArray(SPECIES, input, i));
+        return sum_vector.reduceLanes(VectorOperators.ADD) + super.sum(input, i, offset + length - i);
+    }
+
+    @Override
+    public int argmax(double[] input, int offset, int length) {
+        if (length < 2 * SPECIES.length()) return super.argmax(input, offset, length);
+        var max_vector = DoubleVector.fromArray(SPECIES, input, offset);
+        int i = offset + SPECIES.length();
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+            max_vector = max_vector.max(DoubleVector.fromArray(SPECIES, input, i));
+        double max = max_vector.reduceLanes(VectorOperators.MAX);
+        for (; i < offset + length; ++i) max = Math.max(max, input[i]);
+
+        for (i = offset; i < offset + length; ++i) {
+            if (input[i] == max) return i;
+        }
+        return super.argmax(input, offset, length);
+    }
+}
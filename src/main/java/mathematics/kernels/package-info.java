@@ -0,0 +1,4 @@
+/**
+ * Provides element-wise, reduction and matrix multiplication kernels over flat buffers.
+ */
+package mathematics.kernels;
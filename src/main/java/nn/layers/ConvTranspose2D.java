@@ -0,0 +1,82 @@
+package nn.layers;
+
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.Tensor;
+import mathematics.Matrix;
+import nn.models.ModelSettings;
+
+/**
+ * A 2D transposed convolutional layer, the transposition of {@link Convolution2D}, which upsamples the input by its
+ * stride. It is typically used in the decoder of a U-Net to restore the resolution reduced by the encoder.
+ * Every input pixel scatters its window of the output through the kernels (see
+ * {@link LayerFunctions#convolve_transpose2D(NDArray, Tensor[], int, int, ModelSettings.executionMode)}),
+ * so no zeros are inserted between the input pixels.
+ */
+public class ConvTranspose2D extends Convolution {
+
+    /**
+     * Constructs a ConvTranspose2D layer with specified parameters.
+     *
+     * @param in_channels The number of channels in the input tensor.
+     * @param out_channels The number of channels in the output tensor.
+     * @param kernel_size The size of each convolution filter.
+     * @param stride The stride of the convolution operation, i.e. the upsampling factor.
+     * @param padding The amount of padding cropped from every border of the output.
+     * @param bias Whether to include a bias term in the convolution.
+     * @param activation The activation function to apply after the convolution.
+     * @param mode The execution mode to use (sequential or parallel) which can affect performance.
+     * @throws RuntimeException If the stride is less than 1.
+     */
+    public ConvTranspose2D(int in_channels, int out_channels, int kernel_size, int stride,
+                           int padding, boolean bias, Activation activation, ModelSettings.executionMode mode) {
+
+        if (stride < 1) throw new RuntimeException("Stride must be at least 1");
+        mode_ = mode;
+        stride_= stride;
+        padding_ = padding;
+        bias_ = bias ? new Matrix(out_channels, 1, MultiDimObject.InitValues.ZEROS) : null;
+        activation_ = activation;
+        kernels_ = new Tensor[in_channels];
+        for (int i = 0; i < in_channels; ++i)
+            kernels_[i] = new Tensor(kernel_size, kernel_size, out_channels, Tensor.InitValues.HE);
+    }
+
+    /**
+     * Applies the transposed convolution to the input tensor, adds bias if configured, and passes the result through
+     * the specified activation function. A batch of tensors, i.e. an {@link NDArray} of the size
+     * [batch, height, width, channels], is convolved as a whole; a single tensor is convolved as a batch of one image.
+     *
+     * @param tensor The input tensor (or batch of tensors) to be convolved.
+     * @return A {@link Tensor}, or an {@link NDArray} for a batch, of the height
+     *         (height - 1) * stride - 2 * padding + kernel size, and likewise the width.
+     * @throws ClassCastException If the input is neither a {@link Tensor} nor an {@link NDArray}.
+     */
+    @Override
+    public MultiDimObject forward(MultiDimObject tensor) {
+        if (tensor instanceof NDArray batch) return forward_batch(batch);
+        int[] size = ((Tensor)tensor).get_size();
+        var result = forward_batch(NDArray.of(tensor).reshape(1, size[0], size[1], size[2]));
+        int[] output_size = result.get_size();
+        return result.reshape(output_size[1], output_size[2], output_size[3]).to_tensor();
+    }
+
+    /**
+     * Convolves a whole batch, adds the bias broadcasted over the images and applies the activation function.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @return An array of the size [batch, output height, output width, output channels].
+     */
+    private NDArray forward_batch(NDArray batch) {
+        var result = LayerFunctions.convolve_transpose2D(batch, kernels_, stride_, padding_, mode_);
+        if (bias_ != null) result.add_(NDArray.of(bias_).reshape(kernels_[0].get_size()[2]));
+
+        return switch (activation_) {
+            case ReLU -> result.relu_();
+            case LeakyReLU -> result.leakyRelu_();
+            case Sigmoid -> result.sigmoid_();
+            case Identity -> result;
+            default -> throw new RuntimeException("Unknown activation function for tensor");
+        };
+    }
+}
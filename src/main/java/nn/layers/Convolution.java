@@ -24,11 +24,11 @@ public abstract class Convolution extends Layer {
      * Processes the input through the convolution layer using configured kernels and strides.
      * This method must be implemented by subclasses to define specific convolution behaviors.
      *
-     * @param tensor The input {@link MultiDimObject}, typically a {@link Tensor}, to be convolved.
-     * @return A {@link Tensor} representing the output of the convolution operation.
+     * @param tensor The input {@link MultiDimObject}, typically a {@link Tensor} or a batch of them, to be convolved.
+     * @return A {@link MultiDimObject} representing the output of the convolution operation.
      */
     @Override
-    public abstract Tensor forward(MultiDimObject tensor);
+    public abstract MultiDimObject forward(MultiDimObject tensor);
 
     /**
      * Sets the execution mode for the layer, adjusting how tensors within this layer, such as kernels and biases,
@@ -42,6 +42,17 @@ public abstract class Convolution extends Layer {
         for (var kernel: kernels_) kernel.mode = mode;
     }
 
+    /**
+     * Sets the precision of the convolution; in FLOAT32 the unrolled windows of a batch are kept in single precision
+     * and multiplied with the kernels in single precision. The kernels, outputs and gradients stay in FP64.
+     *
+     * @param precision The precision as defined in {@link ModelSettings.numericPrecision}.
+     */
+    @Override
+    public void set_precision(ModelSettings.numericPrecision precision) {
+        for (var kernel: kernels_) kernel.precision = precision;
+    }
+
     /**
      * Retrieves all trainable parameters of this convolution layer, including kernels and potentially biases.
      *
@@ -1,12 +1,11 @@
 package nn.layers;
 
 import mathematics.MultiDimObject;
+import mathematics.NDArray;
 import mathematics.Tensor;
 import mathematics.Matrix;
 import nn.models.ModelSettings;
 
-import java.util.stream.IntStream;
-
 /**
  * A 2D convolutional layer that applies a set of learned filters to the input data.
  * This layer is typically used in convolutional neural networks for feature extraction
@@ -14,6 +13,15 @@ import java.util.stream.IntStream;
  */
 public class Convolution2D extends Convolution {
 
+    /**
+     * Enumerates the algorithms computing the convolution.
+     * Possible algorithms: [AUTO, IM2COL, WINOGRAD, FFT].
+     */
+    public static enum Algorithm { AUTO, IM2COL, WINOGRAD, FFT }
+
+    private Algorithm algorithm_ = Algorithm.IM2COL;
+    private final TransformedKernels transformed_kernels_ = new TransformedKernels();
+
     /**
      * Constructs a Convolution2D layer with specified parameters.
      *
@@ -41,33 +49,73 @@ public class Convolution2D extends Convolution {
             kernels_[i] = new Tensor(kernel_size, kernel_size, in_channels, Tensor.InitValues.HE);
     }
 
+    /**
+     * Selects the algorithm computing the convolution. IM2COL unrolls the windows of the input and multiplies them
+     * with the kernels; WINOGRAD uses Winograd's minimal filtering F(2x2, 3x3), which needs 2.25 times fewer
+     * multiplications and keeps the transformed kernels until they are modified, but only applies to 3x3 kernels
+     * with the stride 1; FFT convolves in the frequency domain, whose cost hardly depends on the size of the kernels.
+     * IM2COL is the default. AUTO has to be selected explicitly; it chooses FFT for every input for which it is
+     * estimated to be cheaper than IM2COL, and IM2COL otherwise. Since FFT is always computed in double precision,
+     * AUTO keeps IM2COL for a layer set to {@link ModelSettings.numericPrecision#FLOAT32}. The results of all
+     * algorithms differ only by rounding errors.
+     *
+     * @param algorithm The algorithm to use.
+     * @throws RuntimeException If WINOGRAD is selected for kernels other than 3x3 or a stride other than 1.
+     */
+    public void set_algorithm(Algorithm algorithm) {
+        int[] kernel_size = kernels_[0].get_size();
+        if (algorithm == Algorithm.WINOGRAD && (kernel_size[0] != 3 || kernel_size[1] != 3 || stride_ != 1))
+            throw new RuntimeException("Winograd convolution requires 3x3 kernels and the stride 1");
+        algorithm_ = algorithm;
+    }
+
     /**
      * Applies the convolution operation to the input tensor, adds bias if configured, and passes the result through
-     * the specified activation function.
+     * the specified activation function. A batch of tensors, i.e. an {@link NDArray} of the size
+     * [batch, height, width, channels], is convolved as a whole (see {@link #forward_batch(NDArray)}); a single
+     * tensor is convolved as a batch of one image, so all kernels are applied by one matrix multiplication as well.
      *
-     * @param tensor The input tensor to be convolved.
-     * @return A {@link Tensor} that is the result of applying the convolution, bias, and activation function.
-     * @throws ClassCastException If the input is not an instance of {@link Tensor}.
+     * @param tensor The input tensor (or batch of tensors) to be convolved.
+     * @return A {@link Tensor}, or an {@link NDArray} for a batch, that is the result of applying the convolution,
+     *         bias, and activation function.
+     * @throws ClassCastException If the input is neither a {@link Tensor} nor an {@link NDArray}.
      */
     @Override
-    public Tensor forward(MultiDimObject tensor) {
-        Matrix[] matrices = new Matrix[kernels_.length];
-        Tensor casted_tensor = (Tensor)tensor;
+    public MultiDimObject forward(MultiDimObject tensor) {
+        if (tensor instanceof NDArray batch) return forward_batch(batch);
+        int[] size = ((Tensor)tensor).get_size();
+        var result = forward_batch(NDArray.of(tensor).reshape(1, size[0], size[1], size[2]));
+        int[] output_size = result.get_size();
+        return result.reshape(output_size[1], output_size[2], output_size[3]).to_tensor();
+    }
 
-        if (mode_ == ModelSettings.executionMode.PARALLEL) {
-            IntStream.range(0, kernels_.length).parallel().forEach(i ->
-                    matrices[i] = LayerFunctions.convolve2D(casted_tensor, kernels_[i], stride_, padding_));
-        } else {
-            for (int i = 0; i < kernels_.length; ++i)
-                matrices[i] = LayerFunctions.convolve2D(casted_tensor, kernels_[i], stride_, padding_);
+    /**
+     * Convolves a whole batch with the selected algorithm (see {@link #set_algorithm(Algorithm)}), adds the bias
+     * broadcasted over the images and applies the activation function.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @return An array of the size [batch, output height, output width, output channels].
+     */
+    private NDArray forward_batch(NDArray batch) {
+        var algorithm = algorithm_;
+        if (algorithm == Algorithm.AUTO) {
+            int[] size = batch.get_size();
+            int[] kernel_size = kernels_[0].get_size();
+            boolean single = kernels_[0].precision == ModelSettings.numericPrecision.FLOAT32;
+            algorithm = !single && size.length == 4 && FFTConvolution.is_cheaper(size[1], size[2], size[3], kernel_size[0],
+                    kernel_size[1], kernels_.length, stride_, padding_) ? Algorithm.FFT : Algorithm.IM2COL;
         }
-
-        var result = bias_ == null ? new Tensor(matrices) : (new Tensor(matrices)).add_vector(bias_);
+        var result = switch (algorithm) {
+            case WINOGRAD -> Winograd.convolve2D(batch, kernels_, padding_, mode_, transformed_kernels_);
+            case FFT -> FFTConvolution.convolve2D(batch, kernels_, stride_, padding_, mode_, transformed_kernels_);
+            default -> LayerFunctions.convolve2D(batch, kernels_, stride_, padding_, mode_);
+        };
+        if (bias_ != null) result.add_(NDArray.of(bias_).reshape(kernels_.length));
 
         return switch (activation_) {
-            case ReLU -> result.relu();
-            case LeakyReLU -> result.leakyRelu();
-            case Sigmoid -> result.sigmoid();
+            case ReLU -> result.relu_();
+            case LeakyReLU -> result.leakyRelu_();
+            case Sigmoid -> result.sigmoid_();
             case Identity -> result;
             default -> throw new RuntimeException("Unknown activation function for tensor");
         };
@@ -0,0 +1,267 @@
+package nn.layers;
+
+import mathematics.FFT;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.StorageArena;
+import mathematics.Tensor;
+import nn.models.ModelSettings;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Convolution in the frequency domain. Every channel of a padded image and of a kernel is placed into a frame whose
+ * sides are powers of two at least as large as the padded image, and transformed by a real two-dimensional FFT (see
+ * {@link FFT}). The correlation of an image with a kernel is then the element-wise product of the spectrum of the
+ * image with the conjugated spectrum of the kernel, summed over the channels and transformed back; the frame is
+ * large enough that the circular correlation does not wrap around at the positions of the output. A stride larger
+ * than 1 picks every stride-th position of the result.
+ *
+ * The cost hardly depends on the size of the kernels, so the algorithm pays off for large kernels (see
+ * {@link #is_cheaper}). The spectra of the kernels depend only on their values and the size of the frame, and are
+ * cached by {@link TransformedKernels} until the kernels are modified. The backward pass works in the frequency
+ * domain as well: the gradient of an image is the convolution of the gradient of the output with the kernels, and
+ * the gradient of a kernel the correlation of the images with the gradient of the output.
+ */
+final class FFTConvolution {
+    // the measured cost of a multiplication in a transform or in the spectra relative to one of a matrix multiplication
+    private static final double OVERHEAD = 2;
+    private static final ThreadLocal<double[][]> buffers_ = ThreadLocal.withInitial(() -> new double[2][0]);
+
+    private FFTConvolution() {}
+
+    /**
+     * Estimates whether the convolution of an image is cheaper in the frequency domain than by matrix
+     * multiplications, counting the multiplications of the forward and the backward pass.
+     * @param height The height of the images.
+     * @param width The width of the images.
+     * @param channels The number of channels of the images.
+     * @param kernel_height The height of the kernels.
+     * @param kernel_width The width of the kernels.
+     * @param count The number of kernels.
+     * @param stride The stride of the convolution.
+     * @param padding The padding size applied to every image.
+     * @return true if the frequency domain is expected to be faster; false otherwise.
+     */
+    static boolean is_cheaper(int height, int width, int channels, int kernel_height, int kernel_width, int count,
+                              int stride, int padding) {
+        int output_height = (height + 2 * padding - kernel_height) / stride + 1;
+        int output_width = (width + 2 * padding - kernel_width) / stride + 1;
+        // the output, the gradient of the kernels and the gradient of the image are one product each
+        double direct = 3.0 * output_height * output_width * kernel_height * kernel_width * channels * count;
+
+        int rows = FFT.size_for(height + 2 * padding);
+        int columns = Math.max(2, FFT.size_for(width + 2 * padding));
+        double frame = (double) rows * columns;
+        double transform = frame * Math.log(frame) / Math.log(2);
+        double spectrum = rows * (columns / 2 + 1);
+        // two transforms per channel and per kernel, and one per pair of them for the gradient of the kernels
+        double transforms = (2.0 * channels + 2.0 * count + (double) channels * count) * transform;
+        double products = 3 * 4 * spectrum * channels * count;
+        return OVERHEAD * (transforms + products) < direct;
+    }
+
+    /**
+     * Convolves a batch of images in the frequency domain.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @param kernels The kernels, one per output channel, each of the size [kernel height, kernel width, channels].
+     * @param stride The stride of the convolution.
+     * @param padding The padding size applied to every image.
+     * @param mode The execution mode; images, kernels and channels are transformed in parallel in the parallel mode.
+     * @param cache The cache of the spectra of the kernels.
+     * @return An array of the size [batch, output height, output width, kernels].
+     * @throws ArrayIndexOutOfBoundsException if the images' dimensions do not match the kernels' requirements.
+     */
+    static NDArray convolve2D(NDArray batch, Tensor[] kernels, int stride, int padding,
+                              ModelSettings.executionMode mode, TransformedKernels cache) {
+        int[] batch_size = batch.get_size();
+        if (batch_size.length != 4) throw new ArrayIndexOutOfBoundsException("Batch must have the size [batch, height, width, channels]");
+        int[] kernel_size = kernels[0].get_size();
+        if (batch_size[3] != kernel_size[2] || batch_size[1] + 2 * padding < kernel_size[0] || batch_size[2] + 2 * padding < kernel_size[1])
+            throw new ArrayIndexOutOfBoundsException("Input batch has incorrect size");
+        if (!batch.is_contiguous()) return convolve2D(batch.contiguous(), kernels, stride, padding, mode, cache);
+
+        int samples = batch_size[0];
+        int height = batch_size[1];
+        int width = batch_size[2];
+        int channels = batch_size[3];
+        int count = kernels.length;
+        int output_height = (height + 2 * padding - kernel_size[0]) / stride + 1;
+        int output_width = (width + 2 * padding - kernel_size[1]) / stride + 1;
+        int rows = FFT.size_for(height + 2 * padding);
+        int columns = Math.max(2, FFT.size_for(width + 2 * padding));
+        int frame = rows * columns;
+        // a spectrum holds rows * (columns / 2 + 1) real parts followed by as many imaginary parts
+        int spectrum = 2 * rows * (columns / 2 + 1);
+        var output_array = new NDArray(new int[] { samples, output_height, output_width, count },
+                MultiDimObject.InitValues.ZEROS);
+        output_array.mode = mode;
+
+        double[] data = batch.get_storage().get_data();
+        double[] output_data = output_array.get_storage().get_data();
+        // the spectra of the channels of the images, kept for the backward pass
+        double[] image_spectra = StorageArena.allocate_array(samples * channels * spectrum);
+        double[][] kernel_spectra = new double[1][];
+        var inputs = new MultiDimObject[count + 1];
+        inputs[0] = batch;
+        for (int k = 0; k < count; ++k) inputs[k + 1] = kernels[k].contiguous();
+        var kernel_inputs = Arrays.copyOfRange(inputs, 1, inputs.length);
+
+        output_array.compute("fft_conv2d", () -> {
+            kernel_spectra[0] = cache.get(kernel_inputs, List.of(rows, columns),
+                    objects -> transform_kernels(objects, rows, columns));
+            LayerFunctions.for_each_index(samples * channels, mode, i -> {
+                int n = i / channels;
+                int c = i % channels;
+                double[] signal = buffers(frame, spectrum)[0];
+                Arrays.fill(signal, 0, (height + padding) * columns, 0);
+                for (int h = 0; h < height; ++h) {
+                    for (int w = 0; w < width; ++w)
+                        signal[(h + padding) * columns + w + padding] = data[((n * height + h) * width + w) * channels + c];
+                }
+                FFT.real_forward_2d(signal, 0, rows, columns, height + padding, image_spectra, i * spectrum);
+            });
+            LayerFunctions.for_each_index(samples * count, mode, i -> {
+                int n = i / count;
+                int k = i % count;
+                double[][] buffers = buffers(frame, spectrum);
+                double[] product = buffers[1];
+                Arrays.fill(product, 0, spectrum, 0);
+                for (int c = 0; c < channels; ++c)
+                    multiply_add(image_spectra, (n * channels + c) * spectrum, kernel_spectra[0],
+                            (k * channels + c) * spectrum, true, product, spectrum);
+                double[] signal = buffers[0];
+                FFT.real_inverse_2d(product, 0, rows, columns, (output_height - 1) * stride + 1, signal, 0);
+                for (int h = 0; h < output_height; ++h) {
+                    for (int w = 0; w < output_width; ++w)
+                        output_data[((n * output_height + h) * output_width + w) * count + k] = signal[h * stride * columns + w * stride];
+                }
+            });
+        }, () -> {
+            double[] output_gradient = output_array.get_storage().get_gradient();
+            double[] gradient_spectra = StorageArena.allocate_array(samples * count * spectrum);
+            LayerFunctions.for_each_index(samples * count, mode, i -> {
+                int n = i / count;
+                int k = i % count;
+                double[] signal = buffers(frame, spectrum)[0];
+                int signal_rows = (output_height - 1) * stride + 1;
+                Arrays.fill(signal, 0, signal_rows * columns, 0);
+                for (int h = 0; h < output_height; ++h) {
+                    for (int w = 0; w < output_width; ++w)
+                        signal[h * stride * columns + w * stride] = output_gradient[((n * output_height + h) * output_width + w) * count + k];
+                }
+                FFT.real_forward_2d(signal, 0, rows, columns, signal_rows, gradient_spectra, i * spectrum);
+            });
+
+            // dK = correlation of the images with the gradient of the output, summed over the images
+            LayerFunctions.for_each_index(count * channels, mode, i -> {
+                int k = i / channels;
+                int c = i % channels;
+                if (!inputs[k + 1].requires_grad()) return;
+                double[][] buffers = buffers(frame, spectrum);
+                double[] product = buffers[1];
+                Arrays.fill(product, 0, spectrum, 0);
+                for (int n = 0; n < samples; ++n)
+                    multiply_add(image_spectra, (n * channels + c) * spectrum, gradient_spectra,
+                            (n * count + k) * spectrum, true, product, spectrum);
+                double[] signal = buffers[0];
+                FFT.real_inverse_2d(product, 0, rows, columns, kernel_size[0], signal, 0);
+                double[] kernel_gradient = inputs[k + 1].get_storage().get_gradient();
+                for (int a = 0; a < kernel_size[0]; ++a) {
+                    for (int b = 0; b < kernel_size[1]; ++b)
+                        kernel_gradient[(a * kernel_size[1] + b) * channels + c] += signal[a * columns + b];
+                }
+            });
+            if (!batch.requires_grad()) {
+                StorageArena.release_array(gradient_spectra);
+                return;
+            }
+
+            // dX = convolution of the gradient of the output with the kernels, summed over the kernels
+            double[] gradient = batch.get_storage().get_gradient();
+            LayerFunctions.for_each_index(samples * channels, mode, i -> {
+                int n = i / channels;
+                int c = i % channels;
+                double[][] buffers = buffers(frame, spectrum);
+                double[] product = buffers[1];
+                Arrays.fill(product, 0, spectrum, 0);
+                for (int k = 0; k < count; ++k)
+                    multiply_add(gradient_spectra, (n * count + k) * spectrum, kernel_spectra[0],
+                            (k * channels + c) * spectrum, false, product, spectrum);
+                double[] signal = buffers[0];
+                FFT.real_inverse_2d(product, 0, rows, columns, height + padding, signal, 0);
+                for (int h = 0; h < height; ++h) {
+                    for (int w = 0; w < width; ++w)
+                        gradient[((n * height + h) * width + w) * channels + c] += signal[(h + padding) * columns + w + padding];
+                }
+            });
+            StorageArena.release_array(gradient_spectra);
+        }, inputs);
+        // without a graph the spectra of the images are not needed by a backward pass
+        if (output_array.get_grad_fn() == null) StorageArena.release_array(image_spectra);
+        return output_array;
+    }
+
+    /**
+     * Computes the spectra of all channels of the kernels, placed at the top left corner of a frame.
+     * @param kernels The contiguous kernels, each of the size [kernel height, kernel width, channels].
+     * @param rows The number of rows of the frame.
+     * @param columns The number of columns of the frame.
+     * @return The spectra, of the layout [kernels][channels][spectrum].
+     */
+    private static double[] transform_kernels(MultiDimObject[] kernels, int rows, int columns) {
+        int[] kernel_size = kernels[0].get_size();
+        int channels = kernel_size[2];
+        int spectrum = 2 * rows * (columns / 2 + 1);
+        double[] spectra = new double[kernels.length * channels * spectrum];
+        double[] signal = new double[rows * columns];
+        for (int k = 0; k < kernels.length; ++k) {
+            double[] kernel_data = kernels[k].get_storage().get_data();
+            for (int c = 0; c < channels; ++c) {
+                for (int a = 0; a < kernel_size[0]; ++a) {
+                    for (int b = 0; b < kernel_size[1]; ++b)
+                        signal[a * columns + b] = kernel_data[(a * kernel_size[1] + b) * channels + c];
+                }
+                FFT.real_forward_2d(signal, 0, rows, columns, kernel_size[0], spectra, (k * channels + c) * spectrum);
+            }
+        }
+        return spectra;
+    }
+
+    /**
+     * Returns the buffers of the current thread for a signal and for a spectrum, of at least the given sizes.
+     * @param frame The number of elements of a signal.
+     * @param spectrum The number of elements of a spectrum.
+     * @return The buffers.
+     */
+    private static double[][] buffers(int frame, int spectrum) {
+        double[][] buffers = buffers_.get();
+        if (buffers[0].length < frame) buffers[0] = new double[frame];
+        if (buffers[1].length < spectrum) buffers[1] = new double[spectrum];
+        return buffers;
+    }
+
+    /**
+     * Adds the element-wise product of two spectra, optionally with the second one conjugated, to a spectrum.
+     * @param a The buffer of the first spectrum.
+     * @param a_offset The index of the first element of the first spectrum.
+     * @param b The buffer of the second spectrum.
+     * @param b_offset The index of the first element of the second spectrum.
+     * @param conjugate Whether to conjugate the second spectrum.
+     * @param result The spectrum the product is added to, starting at index 0.
+     * @param spectrum The number of elements of a spectrum (real and imaginary parts).
+     */
+    private static void multiply_add(double[] a, int a_offset, double[] b, int b_offset, boolean conjugate,
+                                     double[] result, int spectrum) {
+        int half = spectrum / 2;
+        double sign = conjugate ? -1 : 1;
+        for (int f = 0; f < half; ++f) {
+            double ar = a[a_offset + f], ai = a[a_offset + half + f];
+            double br = b[b_offset + f], bi = sign * b[b_offset + half + f];
+            result[f] += ar * br - ai * bi;
+            result[half + f] += ar * bi + ai * br;
+        }
+    }
+}
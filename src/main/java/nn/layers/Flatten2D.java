@@ -2,6 +2,7 @@ package nn.layers;
 
 import mathematics.Matrix;
 import mathematics.MultiDimObject;
+import mathematics.NDArray;
 import mathematics.Tensor;
 import nn.models.ModelSettings;
 
@@ -17,11 +18,15 @@ public class Flatten2D extends Layer {
      * Takes a multidimensional input, typically a {@link Tensor}, and flattens it into a {@link Matrix}.
      * This operation is essential when transitioning from convolutional layers to dense layers within a neural network.
      *
-     * @param input The {@link MultiDimObject}, expected to be a {@link Tensor}, to be flattened.
-     * @return A {@link Matrix} representing the flattened version of the input tensor.
-     * @throws ClassCastException if the input is not an instance of {@link Tensor}.
+     * A batch, i.e. an {@link NDArray} whose first dimension indexes the samples, is flattened into a matrix with one
+     * column per sample.
+     *
+     * @param input The {@link MultiDimObject}, expected to be a {@link Tensor} or a batch of them, to be flattened.
+     * @return A {@link Matrix} representing the flattened version of the input.
+     * @throws ClassCastException if the input is neither a {@link Tensor} nor an {@link NDArray}.
      */
     public Matrix forward(MultiDimObject input) {
+        if (input instanceof NDArray batch) return LayerFunctions.flatten(batch);
         return LayerFunctions.flatten((Tensor)input);
     }
     public ArrayList<MultiDimObject> get_parameters() {
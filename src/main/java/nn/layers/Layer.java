@@ -52,4 +52,12 @@ public abstract class Layer {
      *             which can be either parallel or serial.
      */
     public abstract void set_execution_mode(ModelSettings.executionMode mode);
+
+    /**
+     * Sets the precision of the matrix multiplications of this layer. Layers without weights ignore it. The
+     * parameters and activations of the layer stay in FP64, see {@link ModelSettings.numericPrecision}.
+     *
+     * @param precision The precision as defined by {@link ModelSettings.numericPrecision}.
+     */
+    public void set_precision(ModelSettings.numericPrecision precision) { }
 }
@@ -1,18 +1,33 @@
 package nn.layers;
 
 import autograd.Value;
+import mathematics.Gemm;
 import mathematics.Matrix;
 import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.StorageArena;
 import mathematics.Tensor;
+import mathematics.kernels.Kernels;
+import nn.models.ModelSettings;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 
 /**
  * Provides utility functions for common neural network layer operations such as convolution,
  * pooling, and flattening. These functions are typically used within custom neural network layers.
+ * Each function works on the storages of its arguments and records a single operation in the computational graph.
  */
 public class LayerFunctions {
+    /**
+     * The shape of the input and the parameters of a convolution, which determine its window positions.
+     */
+    private record WindowGeometry(int height, int width, int channels, int kernel_height, int kernel_width,
+                                  int stride, int padding) {}
+
+    private static final ConcurrentHashMap<WindowGeometry, int[]> window_tables_ = new ConcurrentHashMap<>();
 
     /**
      * Applies a 2D convolution operation to a given tensor using a specified kernel.
@@ -28,29 +43,392 @@ public class LayerFunctions {
     public static Matrix convolve2D(Tensor tensor, Tensor kernel, int stride, int padding) {
         if (tensor == null) throw new NullPointerException("Attempt to convolve null tensor");
         if (!is_valid_kernel(tensor, kernel)) throw new ArrayIndexOutOfBoundsException("Input tensor has incorrect size");
+        if (!tensor.is_contiguous() || !kernel.is_contiguous())
+            return convolve2D(tensor.contiguous(), kernel.contiguous(), stride, padding);
 
         int[] tensor_size = tensor.get_size();
         int[] kernel_size = kernel.get_size();
 
         int output_height = (tensor_size[0] + 2 * padding - kernel_size[0]) / stride + 1;
         int output_width = (tensor_size[1] + 2 * padding - kernel_size[1]) / stride + 1;
-        Value[][] output_matrix_array = new Value[output_height][output_width];
+        int channels = tensor_size[2];
+        var output_matrix = new Matrix(output_height, output_width, MultiDimObject.InitValues.ZEROS);
+
+        double[] data = tensor.get_storage().get_data();
+        double[] kernel_data = kernel.get_storage().get_data();
+        double[] output_data = output_matrix.get_storage().get_data();
+
+        output_matrix.compute("conv2d", () -> {
+            // the padded border is never materialized: window positions falling outside the tensor are skipped
+            IntStream.range(0, output_height).parallel().forEach(i -> {
+                for (int j = 0; j < output_width; ++j) {
+                    double sum = 0;
+                    for (int a = 0; a < kernel_size[0]; ++a) {
+                        int row = i * stride + a - padding;
+                        if (row < 0 || row >= tensor_size[0]) continue;
+                        for (int b = 0; b < kernel_size[1]; ++b) {
+                            int column = j * stride + b - padding;
+                            if (column < 0 || column >= tensor_size[1]) continue;
+                            int index = (row * tensor_size[1] + column) * channels;
+                            int kernel_index = (a * kernel_size[1] + b) * channels;
+                            for (int c = 0; c < channels; ++c) sum += kernel_data[kernel_index + c] * data[index + c];
+                        }
+                    }
+                    output_data[i * output_width + j] = sum;
+                }
+            });
+        }, () -> {
+            double[] output_gradient = output_matrix.get_storage().get_gradient();
+            double[] gradient = tensor.requires_grad() ? tensor.get_storage().get_gradient() : null;
+            double[] kernel_gradient = kernel.requires_grad() ? kernel.get_storage().get_gradient() : null;
+
+            // every channel touches its own elements of both gradients, so channels are processed independently
+            IntStream.range(0, channels).parallel().forEach(c -> {
+                for (int i = 0; i < output_height; ++i) {
+                    for (int j = 0; j < output_width; ++j) {
+                        double current_gradient = output_gradient[i * output_width + j];
+                        for (int a = 0; a < kernel_size[0]; ++a) {
+                            int row = i * stride + a - padding;
+                            if (row < 0 || row >= tensor_size[0]) continue;
+                            for (int b = 0; b < kernel_size[1]; ++b) {
+                                int column = j * stride + b - padding;
+                                if (column < 0 || column >= tensor_size[1]) continue;
+                                int index = (row * tensor_size[1] + column) * channels + c;
+                                int kernel_index = (a * kernel_size[1] + b) * channels + c;
+                                if (gradient != null) gradient[index] += current_gradient * kernel_data[kernel_index];
+                                if (kernel_gradient != null) kernel_gradient[kernel_index] += current_gradient * data[index];
+                            }
+                        }
+                    }
+                }
+            });
+        }, tensor, kernel);
+        return output_matrix;
+    }
 
-        Tensor padded_tensor = padding2D(tensor, padding);
+    /**
+     * Applies a 2D convolution with a set of kernels to a batch of images at once. The windows of all images are
+     * unrolled into the rows of a single matrix (im2col), so the whole batch is convolved by one matrix
+     * multiplication with the matrix of kernels, whose result already has the layout of the output. If the precision
+     * of the kernels is FLOAT32, the unrolled windows, which are kept for the backward pass and are by far the largest
+     * buffer of the convolution, are stored in single precision and all products are computed in single precision.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @param kernels The kernels, one per output channel, each of the size [kernel height, kernel width, channels].
+     * @param stride The stride of the convolution.
+     * @param padding The padding size applied to every image.
+     * @param mode The execution mode of the matrix multiplications and the unrolling.
+     * @return An array of the size [batch, output height, output width, kernels].
+     * @throws NullPointerException if the batch is null.
+     * @throws ArrayIndexOutOfBoundsException if the images' dimensions do not match the kernels' requirements.
+     */
+    public static NDArray convolve2D(NDArray batch, Tensor[] kernels, int stride, int padding,
+                                     ModelSettings.executionMode mode) {
+        if (batch == null) throw new NullPointerException("Attempt to convolve null batch");
+        int[] batch_size = batch.get_size();
+        if (batch_size.length != 4) throw new ArrayIndexOutOfBoundsException("Batch must have the size [batch, height, width, channels]");
+        int[] kernel_size = kernels[0].get_size();
+        if (batch_size[3] != kernel_size[2] || batch_size[1] + 2 * padding < kernel_size[0] || batch_size[2] + 2 * padding < kernel_size[1])
+            throw new ArrayIndexOutOfBoundsException("Input batch has incorrect size");
+        if (!batch.is_contiguous()) return convolve2D(batch.contiguous(), kernels, stride, padding, mode);
+
+        int samples = batch_size[0];
+        int height = batch_size[1];
+        int width = batch_size[2];
+        int channels = batch_size[3];
+        int output_height = (height + 2 * padding - kernel_size[0]) / stride + 1;
+        int output_width = (width + 2 * padding - kernel_size[1]) / stride + 1;
+        int window = kernel_size[0] * kernel_size[1] * channels;
+        int pixels = output_height * output_width;
+        int positions = kernel_size[0] * kernel_size[1];
+        int windows = samples * pixels;
+        int[] table = window_table(height, width, channels, kernel_size[0], kernel_size[1], stride, padding);
+        var output_array = new NDArray(new int[] { samples, output_height, output_width, kernels.length },
+                MultiDimObject.InitValues.ZEROS);
+        output_array.mode = mode;
+
+        double[] data = batch.get_storage().get_data();
+        double[] output_data = output_array.get_storage().get_data();
+        var precision = kernels[0].precision;
+        boolean single = precision == ModelSettings.numericPrecision.FLOAT32;
+        double[] columns = single ? null : StorageArena.allocate_array(windows * window);
+        float[] single_columns = single ? new float[windows * window] : null;
+        double[] kernel_matrix = StorageArena.allocate_array(kernels.length * window);
+        var inputs = new MultiDimObject[kernels.length + 1];
+        inputs[0] = batch;
+        for (int k = 0; k < kernels.length; ++k) inputs[k + 1] = kernels[k].contiguous();
+
+        var vector_kernels = Kernels.get();
+        output_array.compute("conv2d", () -> {
+            im2col(data, columns, single_columns, samples, height * width * channels, output_height, output_width,
+                    positions, channels, table, mode);
+            for (int k = 0; k < kernels.length; ++k)
+                System.arraycopy(inputs[k + 1].get_storage().get_data(), 0, kernel_matrix, k * window, window);
+            // [windows x window] * [window x kernels], the kernels being kept as the rows of the kernel matrix
+            if (single) {
+                Gemm.multiply(windows, kernels.length, window, single_columns, 0, false, kernel_matrix, 0, true,
+                        output_data, 0, false, mode);
+            } else {
+                Gemm.multiply(windows, kernels.length, window, columns, 0, false, kernel_matrix, 0, true,
+                        output_data, 0, false, mode);
+            }
+        }, () -> {
+            double[] output_gradient = output_array.get_storage().get_gradient();
+            boolean kernels_require_grad = false;
+            for (int k = 1; k < inputs.length; ++k) kernels_require_grad |= inputs[k].requires_grad();
+            if (kernels_require_grad) {
+                // dK = dO^T * columns
+                double[] kernel_gradient = StorageArena.allocate_array(kernel_matrix.length);
+                if (single) {
+                    Gemm.multiply(kernels.length, window, windows, output_gradient, 0, true, single_columns, 0, false,
+                            kernel_gradient, 0, false, mode);
+                } else {
+                    Gemm.multiply(kernels.length, window, windows, output_gradient, 0, true, columns, 0, false,
+                            kernel_gradient, 0, false, mode);
+                }
+                for (int k = 0; k < kernels.length; ++k) {
+                    if (inputs[k + 1].requires_grad())
+                        vector_kernels.axpy(1, kernel_gradient, k * window, inputs[k + 1].get_storage().get_gradient(), 0, window);
+                }
+                StorageArena.release_array(kernel_gradient);
+            }
+            if (!batch.requires_grad()) return;
+
+            // dColumns = dO * K, scattered back to the windows they were unrolled from (col2im)
+            double[] column_gradient = StorageArena.allocate_array(windows * window);
+            Gemm.multiply(windows, window, kernels.length, output_gradient, 0, false, kernel_matrix, 0, false,
+                    column_gradient, 0, false, mode, precision);
+            double[] gradient = batch.get_storage().get_gradient();
+            col2im(column_gradient, gradient, samples, height * width * channels, pixels, positions, channels, table, mode);
+            StorageArena.release_array(column_gradient);
+        }, inputs);
+        // without a graph no backward pass reads the unrolled windows, so they go back to the pool at once
+        if (output_array.get_grad_fn() == null) {
+            StorageArena.release_array(columns);
+            StorageArena.release_array(kernel_matrix);
+        }
+        return output_array;
+    }
 
-        IntStream.range(0, output_height).parallel().forEach(i -> {
-            IntStream.range(0, output_width).forEach(j -> {
+    /**
+     * Applies a 2D transposed convolution to a batch of images, i.e. the transposition of {@link #convolve2D(NDArray,
+     * Tensor[], int, int, ModelSettings.executionMode)}, which upsamples the images by the stride. Every input pixel
+     * is multiplied with the kernels by one matrix multiplication of the whole batch, which yields a window of the
+     * output per input pixel, and the windows are added to the output pixels they cover (col2im). Unlike a
+     * convolution of the input with zeros inserted between its pixels, no product with an inserted zero is computed.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @param kernels The kernels, one per input channel, each of the size [kernel height, kernel width, output
+     *                channels].
+     * @param stride The stride of the convolution, i.e. the upsampling factor.
+     * @param padding The number of pixels cropped from every border of the output.
+     * @param mode The execution mode of the matrix multiplications and the scattering.
+     * @return An array of the size [batch, (height - 1) * stride - 2 * padding + kernel height,
+     *         (width - 1) * stride - 2 * padding + kernel width, output channels].
+     * @throws NullPointerException if the batch is null.
+     * @throws ArrayIndexOutOfBoundsException if the images' dimensions do not match the kernels' requirements.
+     */
+    public static NDArray convolve_transpose2D(NDArray batch, Tensor[] kernels, int stride, int padding,
+                                               ModelSettings.executionMode mode) {
+        if (batch == null) throw new NullPointerException("Attempt to convolve null batch");
+        int[] batch_size = batch.get_size();
+        if (batch_size.length != 4) throw new ArrayIndexOutOfBoundsException("Batch must have the size [batch, height, width, channels]");
+        int[] kernel_size = kernels[0].get_size();
+        int output_height = (batch_size[1] - 1) * stride - 2 * padding + kernel_size[0];
+        int output_width = (batch_size[2] - 1) * stride - 2 * padding + kernel_size[1];
+        if (batch_size[3] != kernels.length || output_height < 1 || output_width < 1)
+            throw new ArrayIndexOutOfBoundsException("Input batch has incorrect size");
+        if (!batch.is_contiguous()) return convolve_transpose2D(batch.contiguous(), kernels, stride, padding, mode);
+
+        int samples = batch_size[0];
+        int pixels = batch_size[1] * batch_size[2];
+        int channels = kernel_size[2];
+        int positions = kernel_size[0] * kernel_size[1];
+        int window = positions * channels;
+        int windows = samples * pixels;
+        int output_size = output_height * output_width * channels;
+        // the windows of the output are those of a convolution of the output back to the input
+        int[] table = window_table(output_height, output_width, channels, kernel_size[0], kernel_size[1], stride, padding);
+        var output_array = new NDArray(new int[] { samples, output_height, output_width, channels },
+                MultiDimObject.InitValues.ZEROS);
+        output_array.mode = mode;
+
+        double[] data = batch.get_storage().get_data();
+        double[] output_data = output_array.get_storage().get_data();
+        var precision = kernels[0].precision;
+        double[] columns = StorageArena.allocate_array(windows * window);
+        double[] kernel_matrix = StorageArena.allocate_array(kernels.length * window);
+        var inputs = new MultiDimObject[kernels.length + 1];
+        inputs[0] = batch;
+        for (int k = 0; k < kernels.length; ++k) inputs[k + 1] = kernels[k].contiguous();
+
+        var vector_kernels = Kernels.get();
+        output_array.compute("conv_transpose2d", () -> {
+            for (int k = 0; k < kernels.length; ++k)
+                System.arraycopy(inputs[k + 1].get_storage().get_data(), 0, kernel_matrix, k * window, window);
+            // [windows x input channels] * [input channels x window]: one window of the output per input pixel
+            Gemm.multiply(windows, window, kernels.length, data, 0, false, kernel_matrix, 0, false,
+                    columns, 0, false, mode, precision);
+            Arrays.fill(output_data, 0);
+            col2im(columns, output_data, samples, output_size, pixels, positions, channels, table, mode);
+        }, () -> {
+            double[] output_gradient = output_array.get_storage().get_gradient();
+            // the gradient of the windows gathers the gradient of the output pixels they cover (im2col)
+            double[] column_gradient = StorageArena.allocate_array(windows * window);
+            im2col(output_gradient, column_gradient, null, samples, output_size, batch_size[1], batch_size[2],
+                    positions, channels, table, mode);
+            boolean kernels_require_grad = false;
+            for (int k = 1; k < inputs.length; ++k) kernels_require_grad |= inputs[k].requires_grad();
+            if (kernels_require_grad) {
+                // dK = X^T * dColumns
+                double[] kernel_gradient = StorageArena.allocate_array(kernel_matrix.length);
+                Gemm.multiply(kernels.length, window, windows, data, 0, true, column_gradient, 0, false,
+                        kernel_gradient, 0, false, mode, precision);
+                for (int k = 0; k < kernels.length; ++k) {
+                    if (inputs[k + 1].requires_grad())
+                        vector_kernels.axpy(1, kernel_gradient, k * window, inputs[k + 1].get_storage().get_gradient(), 0, window);
+                }
+                StorageArena.release_array(kernel_gradient);
+            }
+            if (batch.requires_grad()) {
+                // dX += dColumns * K^T
+                Gemm.multiply(windows, kernels.length, window, column_gradient, 0, false, kernel_matrix, 0, true,
+                        batch.get_storage().get_gradient(), 0, true, mode, precision);
+            }
+            StorageArena.release_array(column_gradient);
+        }, inputs);
+        // without a graph the backward pass never reads the kernel matrix, and the windows are only an intermediate
+        if (output_array.get_grad_fn() == null) {
+            StorageArena.release_array(columns);
+            StorageArena.release_array(kernel_matrix);
+        }
+        return output_array;
+    }
 
-                Tensor sliced_tensor = padded_tensor.slice(
-                        new int[]{i * stride, i * stride + kernel_size[0]},
-                        new int[]{j * stride, j * stride + kernel_size[1]}
-                );
+    /**
+     * Unrolls the windows of a batch of images into the rows of a matrix (im2col). The padded border is never
+     * materialized: window positions falling outside an image are zero.
+     *
+     * @param data The contiguous images.
+     * @param columns The matrix receiving the windows, one row per output pixel, or null if single_columns is given.
+     * @param single_columns The matrix receiving the windows in single precision, or null.
+     * @param samples The number of images.
+     * @param image_size The number of elements of an image.
+     * @param output_height The number of windows along the height of an image.
+     * @param output_width The number of windows along the width of an image.
+     * @param positions The number of positions of a kernel.
+     * @param channels The number of channels of the images.
+     * @param table The window positions (see {@link #window_table}).
+     * @param mode The execution mode; rows of windows are unrolled in parallel in the parallel mode.
+     */
+    private static void im2col(double[] data, double[] columns, float[] single_columns, int samples, int image_size,
+                               int output_height, int output_width, int positions, int channels, int[] table,
+                               ModelSettings.executionMode mode) {
+        int pixels = output_height * output_width;
+        int window = positions * channels;
+        for_each_index(samples * output_height, mode, row -> {
+            int n = row / output_height;
+            int image_index = n * image_size;
+            int first_pixel = (row % output_height) * output_width;
+            for (int pixel = first_pixel; pixel < first_pixel + output_width; ++pixel) {
+                int column_index = (n * pixels + pixel) * window;
+                for (int q = 0; q < positions; ++q) {
+                    int source = table[pixel * positions + q];
+                    int offset = column_index + q * channels;
+                    if (single_columns != null) {
+                        for (int c = 0; c < channels; ++c)
+                            single_columns[offset + c] = source < 0 ? 0 : (float) data[image_index + source + c];
+                    } else if (source < 0) {
+                        Arrays.fill(columns, offset, offset + channels, 0);
+                    } else {
+                        System.arraycopy(data, image_index + source, columns, offset, channels);
+                    }
+                }
+            }
+        });
+    }
 
-                output_matrix_array[i][j] = kernel.pw_multiply(sliced_tensor).sum();
-            });
+    /**
+     * Adds the rows of a matrix of windows to the pixels of a batch of images they belong to (col2im), i.e. the
+     * transposition of {@link #im2col}. Window positions falling outside an image are dropped.
+     *
+     * @param columns The matrix of windows, one row per output pixel.
+     * @param data The contiguous images the windows are added to.
+     * @param samples The number of images.
+     * @param image_size The number of elements of an image.
+     * @param pixels The number of windows of an image.
+     * @param positions The number of positions of a kernel.
+     * @param channels The number of channels of the images.
+     * @param table The window positions (see {@link #window_table}).
+     * @param mode The execution mode; images are processed in parallel in the parallel mode.
+     */
+    private static void col2im(double[] columns, double[] data, int samples, int image_size, int pixels,
+                               int positions, int channels, int[] table, ModelSettings.executionMode mode) {
+        var vector_kernels = Kernels.get();
+        int window = positions * channels;
+        // windows of different images never overlap, so the images are processed independently
+        for_each_index(samples, mode, n -> {
+            int image_index = n * image_size;
+            for (int pixel = 0; pixel < pixels; ++pixel) {
+                int column_index = (n * pixels + pixel) * window;
+                for (int q = 0; q < positions; ++q) {
+                    int source = table[pixel * positions + q];
+                    if (source < 0) continue;
+                    vector_kernels.axpy(1, columns, column_index + q * channels, data, image_index + source, channels);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the table of the window positions of a convolution, which lists for every output pixel and every
+     * position of the kernel the index of the first channel of the corresponding input pixel relative to the start of
+     * the image, or -1 if the position falls into the padding. The table depends only on the geometry of the
+     * convolution, so it is computed once per input shape and shared by all later calls.
+     *
+     * @param height The height of the input images.
+     * @param width The width of the input images.
+     * @param channels The number of channels of the input images.
+     * @param kernel_height The height of the kernels.
+     * @param kernel_width The width of the kernels.
+     * @param stride The stride of the convolution.
+     * @param padding The padding size applied to every image.
+     * @return The table, of the size [output height * output width, kernel height * kernel width].
+     */
+    private static int[] window_table(int height, int width, int channels, int kernel_height, int kernel_width,
+                                      int stride, int padding) {
+        var geometry = new WindowGeometry(height, width, channels, kernel_height, kernel_width, stride, padding);
+        return window_tables_.computeIfAbsent(geometry, key -> {
+            int output_height = (height + 2 * padding - kernel_height) / stride + 1;
+            int output_width = (width + 2 * padding - kernel_width) / stride + 1;
+            int[] table = new int[output_height * output_width * kernel_height * kernel_width];
+            int index = 0;
+            for (int i = 0; i < output_height; ++i) {
+                for (int j = 0; j < output_width; ++j) {
+                    for (int a = 0; a < kernel_height; ++a) {
+                        int row = i * stride + a - padding;
+                        for (int b = 0; b < kernel_width; ++b) {
+                            int column = j * stride + b - padding;
+                            boolean outside = row < 0 || row >= height || column < 0 || column >= width;
+                            table[index++] = outside ? -1 : (row * width + column) * channels;
+                        }
+                    }
+                }
+            }
+            return table;
         });
+    }
 
-        return new Matrix(output_matrix_array);
+    /**
+     * Runs the body for every index in [0, count), in parallel in the parallel execution mode.
+     *
+     * @param count The number of indices.
+     * @param mode The execution mode.
+     * @param body The function executed for each index.
+     */
+    static void for_each_index(int count, ModelSettings.executionMode mode, IntConsumer body) {
+        if (mode == ModelSettings.executionMode.PARALLEL) IntStream.range(0, count).parallel().forEach(body);
+        else for (int i = 0; i < count; ++i) body.accept(i);
     }
 
     /**
@@ -83,19 +461,31 @@ public class LayerFunctions {
         if (tensor == null) throw new RuntimeException("Input tensor is null");
         if (padding < 0) throw new RuntimeException("Padding must be at least 0");
         if (padding == 0) return tensor;
+        if (!tensor.is_contiguous()) return padding2D(tensor.contiguous(), padding);
 
         int[] tensor_size = tensor.get_size();
-        var padded_tensor_array = new Value[tensor_size[0] + 2 * padding][tensor_size[1] + 2 * padding][tensor_size[2]];
-
-        for (int i = 0; i < tensor_size[0]; ++i) {
-            for (int j = 0; j < tensor_size[1]; ++j) {
-                for (int k = 0; k < tensor_size[3]; ++k) {
-                    padded_tensor_array[i + padding][j + padding][k] = tensor.get(i, j, k);
-                }
+        int padded_width = tensor_size[1] + 2 * padding;
+        int row_length = tensor_size[1] * tensor_size[2];
+        var padded_tensor = new Tensor(tensor_size[0] + 2 * padding, padded_width, tensor_size[2],
+                MultiDimObject.InitValues.ZEROS);
+
+        double[] data = tensor.get_storage().get_data();
+        double[] padded_data = padded_tensor.get_storage().get_data();
+
+        padded_tensor.compute("padding2D", () -> {
+            for (int i = 0; i < tensor_size[0]; ++i) {
+                System.arraycopy(data, i * row_length, padded_data,
+                        ((i + padding) * padded_width + padding) * tensor_size[2], row_length);
             }
-        }
-
-        return new Tensor(padded_tensor_array);
+        }, () -> {
+            double[] gradient = tensor.get_storage().get_gradient();
+            double[] padded_gradient = padded_tensor.get_storage().get_gradient();
+            for (int i = 0; i < tensor_size[0]; ++i) {
+                int padded_index = ((i + padding) * padded_width + padding) * tensor_size[2];
+                for (int j = 0; j < row_length; ++j) gradient[i * row_length + j] += padded_gradient[padded_index + j];
+            }
+        }, tensor);
+        return padded_tensor;
     }
 
     /**
@@ -110,17 +500,28 @@ public class LayerFunctions {
         if (matrix == null) throw new RuntimeException("Input matrix is null");
         if (padding < 0) throw new RuntimeException("Padding must be at least 0");
         if (padding == 0) return matrix;
+        if (!matrix.is_contiguous()) return padding2D(matrix.contiguous(), padding);
 
         int[] matrix_size = matrix.get_size();
-        var padded_matrix_array = new Value[matrix_size[0] + 2 * padding][matrix_size[1] + 2 * padding];
+        int padded_width = matrix_size[1] + 2 * padding;
+        var padded_matrix = new Matrix(matrix_size[0] + 2 * padding, padded_width, MultiDimObject.InitValues.ZEROS);
 
-        for (int i = 0; i < matrix_size[0]; ++i) {
-            for (int j = 0; j < matrix_size[1]; ++j) {
-                padded_matrix_array[i + padding][j + padding] = matrix.get(i, j);
-            }
-        }
+        double[] data = matrix.get_storage().get_data();
+        double[] padded_data = padded_matrix.get_storage().get_data();
 
-        return new Matrix(padded_matrix_array);
+        padded_matrix.compute("padding2D", () -> {
+            for (int i = 0; i < matrix_size[0]; ++i) {
+                System.arraycopy(data, i * matrix_size[1], padded_data, (i + padding) * padded_width + padding, matrix_size[1]);
+            }
+        }, () -> {
+            double[] gradient = matrix.get_storage().get_gradient();
+            double[] padded_gradient = padded_matrix.get_storage().get_gradient();
+            for (int i = 0; i < matrix_size[0]; ++i) {
+                int padded_index = (i + padding) * padded_width + padding;
+                for (int j = 0; j < matrix_size[1]; ++j) gradient[i * matrix_size[1] + j] += padded_gradient[padded_index + j];
+            }
+        }, matrix);
+        return padded_matrix;
     }
 
     /**
@@ -132,20 +533,37 @@ public class LayerFunctions {
      */
     public static Matrix flatten(Tensor tensor) {
         if (tensor == null) throw new NullPointerException("Attempt to flat a null tensor");
+        if (!tensor.is_contiguous()) return flatten(tensor.contiguous());
         int[] tensor_size = tensor.get_size();
 
         int flatten_size = tensor_size[0] * tensor_size[1] * tensor_size[2];
-        var values_array = new Value[flatten_size][1];
+        var flatten_matrix = new Matrix(flatten_size, 1, MultiDimObject.InitValues.ZEROS);
+
+        // the tensor storage is already laid out as [height, width, depth], i.e. in the flattened order
+        double[] data = tensor.get_storage().get_data();
+        double[] flatten_data = flatten_matrix.get_storage().get_data();
+
+        flatten_matrix.compute("flatten", () -> System.arraycopy(data, 0, flatten_data, 0, flatten_size), () -> {
+            double[] gradient = tensor.get_storage().get_gradient();
+            double[] flatten_gradient = flatten_matrix.get_storage().get_gradient();
+            for (int i = 0; i < flatten_size; ++i) gradient[i] += flatten_gradient[i];
+        }, tensor);
+        return flatten_matrix;
+    }
 
-        int current_index = 0;
-        for (int i = 0; i < tensor_size[0]; ++i) {
-            for (int j = 0; j < tensor_size[1]; ++j) {
-                for (int k = 0; k < tensor_size[2]; ++k) {
-                    values_array[current_index++][0] = tensor.get(i, j, k);
-                }
-            }
-        }
-        return new Matrix(values_array);
+    /**
+     * Flattens every image of a batch into a column of a matrix. The matrix is a view of the batch, so nothing is
+     * copied; it is laid out as the transposition of the [batch, features] array, which the matrix multiplication of
+     * the next linear layer consumes directly.
+     *
+     * @param batch The batch to flatten, an array whose first dimension indexes the samples.
+     * @return A [features x batch] matrix whose i-th column holds the elements of the i-th sample.
+     * @throws NullPointerException if the batch is null.
+     */
+    public static Matrix flatten(NDArray batch) {
+        if (batch == null) throw new NullPointerException("Attempt to flat a null batch");
+        int samples = batch.get_size()[0];
+        return batch.reshape(samples, batch.get_elements_num() / samples).to_matrix().transpose();
     }
 
     /**
@@ -159,6 +577,7 @@ public class LayerFunctions {
      */
     public static Tensor maxPool2D(Tensor tensor, int size) {
         if (tensor == null) throw new NullPointerException("Attempt to max pool a null tensor");
+        if (!tensor.is_contiguous()) return maxPool2D(tensor.contiguous(), size);
 
         int[] tensor_size = tensor.get_size();
         if (tensor_size[0] % size != 0 || tensor_size[1] % size != 0)
@@ -166,21 +585,93 @@ public class LayerFunctions {
 
         int output_height = tensor_size[0] / size;
         int output_width = tensor_size[1] / size;
-        var output_tensor = new Tensor(output_height, output_width, tensor_size[2], MultiDimObject.InitValues.ZEROS);
+        int channels = tensor_size[2];
+        var output_tensor = new Tensor(output_height, output_width, channels, MultiDimObject.InitValues.ZEROS);
+
+        double[] data = tensor.get_storage().get_data();
+        double[] output_data = output_tensor.get_storage().get_data();
+        int[] max_indices = new int[output_data.length];
+
+        output_tensor.compute("maxPool2D", () -> {
+            for (int i = 0; i < output_height; ++i) {
+                for (int j = 0; j < output_width; ++j) {
+                    for (int k = 0; k < channels; ++k) {
+                        int max_index = ((i * size) * tensor_size[1] + j * size) * channels + k;
+                        for (int a = i * size; a < (i + 1) * size; ++a) {
+                            for (int b = j * size; b < (j + 1) * size; ++b) {
+                                int index = (a * tensor_size[1] + b) * channels + k;
+                                if (data[max_index] < data[index]) max_index = index;
+                            }
+                        }
+                        int output_index = (i * output_width + j) * channels + k;
+                        max_indices[output_index] = max_index;
+                        output_data[output_index] = data[max_index];
+                    }
+                }
+            }
+        }, () -> {
+            double[] gradient = tensor.get_storage().get_gradient();
+            double[] output_gradient = output_tensor.get_storage().get_gradient();
+            for (int i = 0; i < output_gradient.length; ++i) gradient[max_indices[i]] += output_gradient[i];
+        }, tensor);
+        return output_tensor;
+    }
 
-        for (int i = 0; i < output_height; ++i) {
+    /**
+     * Applies a max pooling operation to every image of a batch.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @param size The size of the window to use for max pooling.
+     * @return An array of the size [batch, height / size, width / size, channels].
+     * @throws NullPointerException if the batch is null.
+     * @throws RuntimeException if the images' dimensions are not divisible by the pooling size.
+     */
+    public static NDArray maxPool2D(NDArray batch, int size) {
+        if (batch == null) throw new NullPointerException("Attempt to max pool a null batch");
+        if (!batch.is_contiguous()) return maxPool2D(batch.contiguous(), size);
+
+        int[] batch_size = batch.get_size();
+        if (batch_size.length != 4) throw new RuntimeException("Batch must have the size [batch, height, width, channels]");
+        if (batch_size[1] % size != 0 || batch_size[2] % size != 0)
+            throw new RuntimeException("Batch size is invalid to be max pooled");
+
+        int height = batch_size[1];
+        int width = batch_size[2];
+        int channels = batch_size[3];
+        int output_height = height / size;
+        int output_width = width / size;
+        var output_array = new NDArray(new int[] { batch_size[0], output_height, output_width, channels },
+                MultiDimObject.InitValues.ZEROS);
+        output_array.mode = batch.mode;
+
+        double[] data = batch.get_storage().get_data();
+        double[] output_data = output_array.get_storage().get_data();
+        int[] max_indices = new int[output_data.length];
+
+        output_array.compute("maxPool2D", () -> for_each_index(batch_size[0] * output_height, batch.mode, row -> {
+            int n = row / output_height;
+            int i = row % output_height;
             for (int j = 0; j < output_width; ++j) {
-                Tensor sliced_tensor = tensor.slice(
-                        new int[] {i * size, size + i * size},
-                        new int[] {j * size, size + j * size}
-                );
-                Value[] max_values = LayerFunctions.maxTensor(sliced_tensor);
-                for (int k = 0; k < tensor_size[2]; ++k)
-                    output_tensor.set(max_values[k], i, j, k);
+                for (int k = 0; k < channels; ++k) {
+                    int max_index = ((n * height + i * size) * width + j * size) * channels + k;
+                    for (int a = i * size; a < (i + 1) * size; ++a) {
+                        for (int b = j * size; b < (j + 1) * size; ++b) {
+                            int index = ((n * height + a) * width + b) * channels + k;
+                            if (data[max_index] < data[index]) max_index = index;
+                        }
+                    }
+                    int output_index = (row * output_width + j) * channels + k;
+                    max_indices[output_index] = max_index;
+                    output_data[output_index] = data[max_index];
+                }
             }
-        }
-
-        return output_tensor;
+        }), () -> {
+            double[] gradient = batch.get_storage().get_gradient();
+            double[] output_gradient = output_array.get_storage().get_gradient();
+            // the windows do not overlap, so every output element routes its gradient to a different input element
+            for_each_index(output_gradient.length, batch.mode, i -> gradient[max_indices[i]] += output_gradient[i]);
+        }, batch);
+        return output_array;
     }
 
     /**
@@ -192,10 +683,10 @@ public class LayerFunctions {
      */
     public static Value[] maxTensor(Tensor tensor) {
         if (tensor == null) throw new RuntimeException("Attempt to take a max of a null tensor");
-        int[] tensor_size = tensor.get_size();
-        Value[] max_values = new Value[tensor_size[2]];
-        for (int channel_i = 0; channel_i < tensor_size[2]; ++channel_i)
-            max_values[channel_i] = maxMatrix(tensor.get_dim(channel_i));
+        var max_tensor = tensor.max(0, 1);
+        Value[] max_values = new Value[tensor.get_size()[2]];
+        for (int channel_i = 0; channel_i < max_values.length; ++channel_i)
+            max_values[channel_i] = max_tensor.get(0, 0, channel_i);
         return max_values;
     }
 
@@ -208,15 +699,7 @@ public class LayerFunctions {
      */
     public static Value maxMatrix(Matrix matrix) {
         if (matrix == null) throw new RuntimeException("Attempt to take a max of a null matrix");
-        Value current_value = matrix.get(0, 0);
-        int[] matrix_size = matrix.get_size();
-        for (int i = 0; i < matrix_size[0]; ++i) {
-            for (int j = 0; j < matrix_size[1]; ++j) {
-                if (current_value.value < matrix.get(i, j).value)
-                    current_value = matrix.get(i, j);
-            }
-        }
-        return current_value;
+        return matrix.max().get(0, 0);
     }
 
     /**
@@ -227,28 +710,67 @@ public class LayerFunctions {
      * @return A Value representing the computed binary cross-entropy loss.
      */
     public static Value bce_loss(Matrix matrix1, Matrix matrix2) {
-        int[] matrix_shape = matrix1.get_size();
-        var values_array = new ArrayList<Value>();
-        for (int i = 0; i < matrix_shape[0]; ++i) {
-            for (int j = 0; j < matrix_shape[1]; ++j) {
-                Value temp = bce_value(matrix1.get(i, j), matrix2.get(i, j));
-                values_array.add(temp);
+        if (!matrix1.is_contiguous() || !matrix2.is_contiguous())
+            return bce_loss(matrix1.contiguous(), matrix2.contiguous());
+        double[] pred = matrix1.get_storage().get_data();
+        double[] target = matrix2.get_storage().get_data();
+        double loss = 0;
+        for (int i = 0; i < pred.length; ++i)
+            loss -= target[i] * log(pred[i]) + (1 - target[i]) * log(1 - pred[i]);
+        int pred_version = matrix1.get_storage().get_version();
+        int target_version = matrix2.get_storage().get_version();
+
+        var loss_value = new Value(loss, matrix1.requires_grad() || matrix2.requires_grad(), gradient -> {
+            check_version("bce_loss", matrix1, pred_version);
+            check_version("bce_loss", matrix2, target_version);
+            if (matrix1.requires_grad()) {
+                double[] pred_gradient = matrix1.get_storage().get_gradient();
+                for (int i = 0; i < pred.length; ++i)
+                    pred_gradient[i] -= gradient * (target[i] * log_derivative(pred[i]) - (1 - target[i]) * log_derivative(1 - pred[i]));
             }
-        }
-        return Value.add(values_array);
+            if (matrix2.requires_grad()) {
+                double[] target_gradient = matrix2.get_storage().get_gradient();
+                for (int i = 0; i < pred.length; ++i)
+                    target_gradient[i] -= gradient * (log(pred[i]) - log(1 - pred[i]));
+            }
+        }, matrix1.get_grad_fn(), matrix2.get_grad_fn());
+        loss_value.set_gradient_targets(matrix1.get_storage(), matrix2.get_storage());
+        return loss_value;
     }
 
     /**
-     * Computes the binary cross-entropy loss value for individual prediction-target pairs.
+     * Checks that an input of a loss has not been modified in place since the loss was computed, the same way the
+     * backward functions of the operations over multi-dimensional objects do.
      *
-     * @param pred The predicted value.
-     * @param target The target value.
-     * @return The computed loss Value for the given prediction and target.
+     * @param name The name of the loss.
+     * @param matrix The input of the loss.
+     * @param version The version of the storage of the input when the loss was computed.
+     * @throws RuntimeException If the storage of the input has been modified since.
      */
-    private static Value bce_value(Value pred, Value target) {
-        var left_part = target.multiply(pred.log());
-        var right_part = target.multiply(-1).add(1).multiply(pred.multiply(-1).add(1).log());
-        return left_part.add(right_part).multiply(-1);
+    private static void check_version(String name, Matrix matrix, int version) {
+        if (matrix.get_storage().get_version() != version)
+            throw new RuntimeException("An object needed to compute the gradient of \"" + name
+                    + "\" has been modified by an in-place operation");
+    }
+
+    /**
+     * Computes the natural logarithm the same way {@link Value#log()} does, i.e. log(0) is replaced with log(1e-15).
+     *
+     * @param value The argument of the logarithm.
+     * @return The natural logarithm of the value.
+     */
+    private static double log(double value) {
+        return value == 0 ? Math.log(1e-15) : Math.log(value);
+    }
+
+    /**
+     * Computes the derivative of the natural logarithm the same way {@link Value#log()} does.
+     *
+     * @param value The argument of the logarithm.
+     * @return The derivative of the natural logarithm at the value.
+     */
+    private static double log_derivative(double value) {
+        return value == 0 ? 1 / 1e-15 : 1 / value;
     }
 
     /**
@@ -271,14 +793,28 @@ public class LayerFunctions {
      * @throws IllegalArgumentException if the sizes of matrix1 and matrix2 do not match.
      */
     public static Value cross_entropy_loss(Matrix matrix1, Matrix matrix2) {
-        int[] matrix_shape = matrix1.get_size();
-        var values_array = new ArrayList<Value>();
-        for (int i = 0; i < matrix_shape[0]; ++i) {
-            for (int j = 0; j < matrix_shape[1]; ++j) {
-                Value temp = matrix1.get(i, j).log().multiply(matrix2.get(i, j));
-                values_array.add(temp);
+        if (!matrix1.is_contiguous() || !matrix2.is_contiguous())
+            return cross_entropy_loss(matrix1.contiguous(), matrix2.contiguous());
+        double[] pred = matrix1.get_storage().get_data();
+        double[] target = matrix2.get_storage().get_data();
+        double loss = 0;
+        for (int i = 0; i < pred.length; ++i) loss -= log(pred[i]) * target[i];
+        int pred_version = matrix1.get_storage().get_version();
+        int target_version = matrix2.get_storage().get_version();
+
+        var loss_value = new Value(loss, matrix1.requires_grad() || matrix2.requires_grad(), gradient -> {
+            check_version("cross_entropy_loss", matrix1, pred_version);
+            check_version("cross_entropy_loss", matrix2, target_version);
+            if (matrix1.requires_grad()) {
+                double[] pred_gradient = matrix1.get_storage().get_gradient();
+                for (int i = 0; i < pred.length; ++i) pred_gradient[i] -= gradient * log_derivative(pred[i]) * target[i];
             }
-        }
-        return Value.add(values_array).multiply(-1);
+            if (matrix2.requires_grad()) {
+                double[] target_gradient = matrix2.get_storage().get_gradient();
+                for (int i = 0; i < pred.length; ++i) target_gradient[i] -= gradient * log(pred[i]);
+            }
+        }, matrix1.get_grad_fn(), matrix2.get_grad_fn());
+        loss_value.set_gradient_targets(matrix1.get_storage(), matrix2.get_storage());
+        return loss_value;
     }
 }
\ No newline at end of file
@@ -33,14 +33,20 @@ public class LinearLayer extends Layer {
      * Applies a linear transformation to the input data, adds bias if configured, and passes the result
      * through the specified activation function.
      *
-     * @param input The input {@link MultiDimObject} expected to be a {@link Matrix} representing a vector.
+     * A batch is a matrix with one column of features per sample; it is transformed by a single matrix
+     * multiplication, and the bias is broadcasted over the columns.
+     *
+     * @param input The input {@link MultiDimObject} expected to be a {@link Matrix} representing a vector or a batch
+     *              of column vectors.
      * @return A {@link Matrix} that is the result of the linear transformation, bias addition, and activation.
-     * @throws RuntimeException If the input is null or not a vector as required.
+     * @throws RuntimeException If the input is null or does not have one row per input feature.
      */
     @Override
     public Matrix forward(MultiDimObject input) {
         if (input == null) throw new RuntimeException("Input is null");
-        if (!input.is_vector()) throw new RuntimeException("Input of the linear layer must be a vector");
+        int[] input_size = input.get_size();
+        if (input_size.length != 2 || input_size[0] != weights_.get_size()[1])
+            throw new RuntimeException("Input of the linear layer must be a vector or a batch of vectors");
 
         var output_matrix = weights_.multiply(input);
         if (bias_ != null) output_matrix = output_matrix.add(bias_);
@@ -68,6 +74,17 @@ public class LinearLayer extends Layer {
         weights_.mode = mode;
     }
 
+    /**
+     * Sets the precision of the multiplication of the inputs by the weights. The weights, outputs and gradients stay
+     * in FP64.
+     *
+     * @param precision The precision as defined in {@link ModelSettings.numericPrecision}.
+     */
+    @Override
+    public void set_precision(ModelSettings.numericPrecision precision) {
+        weights_.precision = precision;
+    }
+
     /**
      * Retrieves all trainable parameters of this layer, typically the weights and possibly the biases.
      *
@@ -1,6 +1,7 @@
 package nn.layers;
 
 import mathematics.MultiDimObject;
+import mathematics.NDArray;
 import mathematics.Tensor;
 import nn.models.ModelSettings;
 
@@ -29,13 +30,14 @@ public class MaxPool2D extends Layer {
     /**
      * Applies the max pooling operation to the input tensor.
      *
-     * @param inputs The input {@link MultiDimObject} expected to be a {@link Tensor}
-     *               representing the data to which max pooling will be applied.
-     * @return A new {@link Tensor} representing the result of the max pooling operation,
-     *         with reduced dimensions based on the pool size.
-     * @throws ClassCastException if the inputs are not an instance of {@link Tensor}.
+     * @param inputs The input {@link MultiDimObject} expected to be a {@link Tensor}, or an {@link NDArray} of the size
+     *               [batch, height, width, channels], representing the data to which max pooling will be applied.
+     * @return A new {@link Tensor} (or {@link NDArray} for a batch) representing the result of the max pooling
+     *         operation, with reduced dimensions based on the pool size.
+     * @throws ClassCastException if the inputs are neither a {@link Tensor} nor an {@link NDArray}.
      */
-    public Tensor forward(MultiDimObject inputs) {
+    public MultiDimObject forward(MultiDimObject inputs) {
+        if (inputs instanceof NDArray batch) return LayerFunctions.maxPool2D(batch, pool_size_);
         return LayerFunctions.maxPool2D((Tensor)inputs, pool_size_);
     }
 
@@ -0,0 +1,56 @@
+package nn.layers;
+
+import mathematics.MultiDimObject;
+import mathematics.Storage;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Cache of the kernels of a layer transformed for a convolution algorithm, e.g. into the Winograd or the frequency
+ * domain. The transformation is repeated only when the storage of a kernel has been replaced or modified since the
+ * last call (every optimizer step increments the versions of the parameters), or when the transformation depends on
+ * a different key, e.g. the size of the input. A new array is created then, so an operation computed with the
+ * previous kernels keeps its own transformed kernels for its backward pass.
+ */
+final class TransformedKernels {
+    private Storage[] storages_ = new Storage[0];
+    private int[] versions_ = new int[0];
+    private Object key_;
+    private double[] transformed_;
+
+    /**
+     * Returns the transformed kernels, transforming them if the cached ones are out of date.
+     * @param kernels The contiguous kernels.
+     * @param key The parameters of the transformation other than the kernels, or null.
+     * @param transform The transformation.
+     * @return The transformed kernels.
+     */
+    synchronized double[] get(MultiDimObject[] kernels, Object key, Function<MultiDimObject[], double[]> transform) {
+        if (!is_current(kernels, key)) {
+            transformed_ = transform.apply(kernels);
+            key_ = key;
+            storages_ = new Storage[kernels.length];
+            versions_ = new int[kernels.length];
+            for (int k = 0; k < kernels.length; ++k) {
+                storages_[k] = kernels[k].get_storage();
+                versions_[k] = storages_[k].get_version();
+            }
+        }
+        return transformed_;
+    }
+
+    /**
+     * Checks whether the cached kernels were transformed from the current values of the kernels.
+     * @param kernels The kernels.
+     * @param key The parameters of the transformation other than the kernels.
+     * @return true if the cache can be used; false otherwise.
+     */
+    private boolean is_current(MultiDimObject[] kernels, Object key) {
+        if (transformed_ == null || storages_.length != kernels.length || !Objects.equals(key_, key)) return false;
+        for (int k = 0; k < kernels.length; ++k) {
+            if (storages_[k] != kernels[k].get_storage() || versions_[k] != storages_[k].get_version()) return false;
+        }
+        return true;
+    }
+}
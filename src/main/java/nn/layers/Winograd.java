@@ -0,0 +1,331 @@
+package nn.layers;
+
+import mathematics.Gemm;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.StorageArena;
+import mathematics.Tensor;
+import mathematics.kernels.Kernels;
+import nn.models.ModelSettings;
+
+import java.util.Arrays;
+
+/**
+ * Convolution with 3x3 kernels and the stride 1 by Winograd's minimal filtering algorithm F(2x2, 3x3). The output
+ * is computed in tiles of 2x2 pixels, each from a tile of 4x4 input pixels:
+ * <pre>
+ *     Y = A^T [(G g G^T) * (B^T d B)] A
+ * </pre>
+ * where g is a kernel, d an input tile and * the element-wise product. A tile then takes 16 multiplications per
+ * channel and kernel instead of the 36 of the direct convolution. Summed over the channels, the element-wise
+ * products at each of the 16 positions of a tile form a matrix multiplication of the transformed input tiles with
+ * the transformed kernels, so the work is done by 16 matrix multiplications.
+ *
+ * The transformed kernels depend only on the values of the kernels and are cached by {@link TransformedKernels} until
+ * the kernels are modified, e.g. by an optimizer step.
+ */
+final class Winograd {
+    private static final int TILE = 2;
+    private static final int INPUT_TILE = 4;
+    private static final int POSITIONS = INPUT_TILE * INPUT_TILE;
+
+    /**
+     * A one-dimensional transformation applied along the rows and the columns of a tile. Every element of a tile is
+     * a vector, e.g. of the channels of a pixel, and the vectors are transformed element by element.
+     */
+    private interface Transform {
+        void apply(double[] in, int in_offset, int in_stride, double[] out, int out_offset, int out_stride, int length);
+    }
+
+    private static final Transform INPUT = (in, i, is, out, o, os, length) -> {
+        for (int c = 0; c < length; ++c) {
+            double d0 = in[i + c], d1 = in[i + is + c], d2 = in[i + 2 * is + c], d3 = in[i + 3 * is + c];
+            out[o + c] = d0 - d2;
+            out[o + os + c] = d1 + d2;
+            out[o + 2 * os + c] = d2 - d1;
+            out[o + 3 * os + c] = d1 - d3;
+        }
+    };
+    private static final Transform INPUT_TRANSPOSED = (in, i, is, out, o, os, length) -> {
+        for (int c = 0; c < length; ++c) {
+            double d0 = in[i + c], d1 = in[i + is + c], d2 = in[i + 2 * is + c], d3 = in[i + 3 * is + c];
+            out[o + c] = d0;
+            out[o + os + c] = d1 - d2 + d3;
+            out[o + 2 * os + c] = d1 + d2 - d0;
+            out[o + 3 * os + c] = -d3;
+        }
+    };
+    private static final Transform FILTER = (in, i, is, out, o, os, length) -> {
+        for (int c = 0; c < length; ++c) {
+            double g0 = in[i + c], g1 = in[i + is + c], g2 = in[i + 2 * is + c];
+            out[o + c] = g0;
+            out[o + os + c] = 0.5 * (g0 + g1 + g2);
+            out[o + 2 * os + c] = 0.5 * (g0 - g1 + g2);
+            out[o + 3 * os + c] = g2;
+        }
+    };
+    private static final Transform FILTER_TRANSPOSED = (in, i, is, out, o, os, length) -> {
+        for (int c = 0; c < length; ++c) {
+            double u0 = in[i + c], u1 = in[i + is + c], u2 = in[i + 2 * is + c], u3 = in[i + 3 * is + c];
+            out[o + c] = u0 + 0.5 * (u1 + u2);
+            out[o + os + c] = 0.5 * (u1 - u2);
+            out[o + 2 * os + c] = 0.5 * (u1 + u2) + u3;
+        }
+    };
+    private static final Transform OUTPUT = (in, i, is, out, o, os, length) -> {
+        for (int c = 0; c < length; ++c) {
+            double m0 = in[i + c], m1 = in[i + is + c], m2 = in[i + 2 * is + c], m3 = in[i + 3 * is + c];
+            out[o + c] = m0 + m1 + m2;
+            out[o + os + c] = m1 - m2 - m3;
+        }
+    };
+    private static final Transform OUTPUT_TRANSPOSED = (in, i, is, out, o, os, length) -> {
+        for (int c = 0; c < length; ++c) {
+            double y0 = in[i + c], y1 = in[i + is + c];
+            out[o + c] = y0;
+            out[o + os + c] = y0 + y1;
+            out[o + 2 * os + c] = y0 - y1;
+            out[o + 3 * os + c] = -y1;
+        }
+    };
+
+    private static final ThreadLocal<double[][]> buffers_ = ThreadLocal.withInitial(() -> new double[3][0]);
+
+    private Winograd() {}
+
+    /**
+     * Convolves a batch of images with 3x3 kernels and the stride 1.
+     *
+     * @param batch The images, an array of the size [batch, height, width, channels].
+     * @param kernels The kernels, one per output channel, each of the size [3, 3, channels].
+     * @param padding The padding size applied to every image.
+     * @param mode The execution mode of the matrix multiplications and the transformations.
+     * @param cache The cache of the transformed kernels.
+     * @return An array of the size [batch, output height, output width, kernels].
+     * @throws ArrayIndexOutOfBoundsException if the images' dimensions do not match the kernels' requirements.
+     */
+    static NDArray convolve2D(NDArray batch, Tensor[] kernels, int padding, ModelSettings.executionMode mode,
+                              TransformedKernels cache) {
+        int[] batch_size = batch.get_size();
+        if (batch_size.length != 4) throw new ArrayIndexOutOfBoundsException("Batch must have the size [batch, height, width, channels]");
+        if (batch_size[3] != kernels[0].get_size()[2] || batch_size[1] + 2 * padding < 3 || batch_size[2] + 2 * padding < 3)
+            throw new ArrayIndexOutOfBoundsException("Input batch has incorrect size");
+        if (!batch.is_contiguous()) return convolve2D(batch.contiguous(), kernels, padding, mode, cache);
+
+        int samples = batch_size[0];
+        int height = batch_size[1];
+        int width = batch_size[2];
+        int channels = batch_size[3];
+        int output_height = height + 2 * padding - 2;
+        int output_width = width + 2 * padding - 2;
+        int tile_rows = (output_height + TILE - 1) / TILE;
+        int tile_columns = (output_width + TILE - 1) / TILE;
+        int tiles = samples * tile_rows * tile_columns;
+        int count = kernels.length;
+        var output_array = new NDArray(new int[] { samples, output_height, output_width, count },
+                MultiDimObject.InitValues.ZEROS);
+        output_array.mode = mode;
+
+        double[] data = batch.get_storage().get_data();
+        double[] output_data = output_array.get_storage().get_data();
+        var precision = kernels[0].precision;
+        // the transformed input tiles, of the layout [16][tiles][channels], are kept for the backward pass
+        double[] transformed_input = StorageArena.allocate_array(POSITIONS * tiles * channels);
+        double[][] transformed_filters = new double[1][];
+        var inputs = new MultiDimObject[count + 1];
+        inputs[0] = batch;
+        for (int k = 0; k < count; ++k) inputs[k + 1] = kernels[k].contiguous();
+        var kernel_inputs = Arrays.copyOfRange(inputs, 1, inputs.length);
+
+        output_array.compute("winograd_conv2d", () -> {
+            transformed_filters[0] = cache.get(kernel_inputs, null, Winograd::transform_filters);
+            LayerFunctions.for_each_index(tiles, mode, t -> {
+                double[][] buffers = buffers(POSITIONS * channels);
+                int[] origin = tile_origin(t, tile_rows, tile_columns, padding);
+                int image_index = origin[0] * height * width * channels;
+                for (int r = 0; r < INPUT_TILE; ++r) {
+                    int row = origin[1] + r;
+                    for (int s = 0; s < INPUT_TILE; ++s) {
+                        int column = origin[2] + s;
+                        int offset = (r * INPUT_TILE + s) * channels;
+                        if (row < 0 || row >= height || column < 0 || column >= width)
+                            Arrays.fill(buffers[0], offset, offset + channels, 0);
+                        else
+                            System.arraycopy(data, image_index + (row * width + column) * channels, buffers[0], offset, channels);
+                    }
+                }
+                transform_2d(INPUT, buffers[0], INPUT_TILE, buffers[1], INPUT_TILE, channels, buffers[2]);
+                for (int p = 0; p < POSITIONS; ++p)
+                    System.arraycopy(buffers[1], p * channels, transformed_input, (p * tiles + t) * channels, channels);
+            });
+
+            // the element-wise products summed over the channels, of the layout [16][tiles][kernels]
+            double[] products = StorageArena.allocate_array(POSITIONS * tiles * count);
+            for (int p = 0; p < POSITIONS; ++p) {
+                Gemm.multiply(tiles, count, channels, transformed_input, p * tiles * channels, false,
+                        transformed_filters[0], p * count * channels, true, products, p * tiles * count, false,
+                        mode, precision);
+            }
+            LayerFunctions.for_each_index(tiles, mode, t -> {
+                double[][] buffers = buffers(POSITIONS * count);
+                int[] origin = tile_origin(t, tile_rows, tile_columns, 0);
+                for (int p = 0; p < POSITIONS; ++p)
+                    System.arraycopy(products, (p * tiles + t) * count, buffers[0], p * count, count);
+                transform_2d(OUTPUT, buffers[0], INPUT_TILE, buffers[1], TILE, count, buffers[2]);
+                for (int r = 0; r < TILE && origin[1] + r < output_height; ++r) {
+                    for (int s = 0; s < TILE && origin[2] + s < output_width; ++s) {
+                        int index = ((origin[0] * output_height + origin[1] + r) * output_width + origin[2] + s) * count;
+                        System.arraycopy(buffers[1], (r * TILE + s) * count, output_data, index, count);
+                    }
+                }
+            });
+            StorageArena.release_array(products);
+        }, () -> {
+            double[] output_gradient = output_array.get_storage().get_gradient();
+            var vector_kernels = Kernels.get();
+            // the gradient of the products: the transposed output transformation of every output tile
+            double[] product_gradient = StorageArena.allocate_array(POSITIONS * tiles * count);
+            LayerFunctions.for_each_index(tiles, mode, t -> {
+                double[][] buffers = buffers(POSITIONS * count);
+                int[] origin = tile_origin(t, tile_rows, tile_columns, 0);
+                for (int r = 0; r < TILE; ++r) {
+                    for (int s = 0; s < TILE; ++s) {
+                        int offset = (r * TILE + s) * count;
+                        int index = ((origin[0] * output_height + origin[1] + r) * output_width + origin[2] + s) * count;
+                        if (origin[1] + r >= output_height || origin[2] + s >= output_width)
+                            Arrays.fill(buffers[0], offset, offset + count, 0);
+                        else
+                            System.arraycopy(output_gradient, index, buffers[0], offset, count);
+                    }
+                }
+                transform_2d(OUTPUT_TRANSPOSED, buffers[0], TILE, buffers[1], INPUT_TILE, count, buffers[2]);
+                for (int p = 0; p < POSITIONS; ++p)
+                    System.arraycopy(buffers[1], p * count, product_gradient, (p * tiles + t) * count, count);
+            });
+
+            boolean kernels_require_grad = false;
+            for (int k = 1; k < inputs.length; ++k) kernels_require_grad |= inputs[k].requires_grad();
+            if (kernels_require_grad) {
+                // dU = dM^T * V at every position, transformed back to the 3x3 kernels
+                double[] filter_gradient = StorageArena.allocate_array(POSITIONS * count * channels);
+                for (int p = 0; p < POSITIONS; ++p) {
+                    Gemm.multiply(count, channels, tiles, product_gradient, p * tiles * count, true,
+                            transformed_input, p * tiles * channels, false, filter_gradient, p * count * channels,
+                            false, mode, precision);
+                }
+                LayerFunctions.for_each_index(count, mode, k -> {
+                    if (!inputs[k + 1].requires_grad()) return;
+                    double[][] buffers = buffers(POSITIONS * channels);
+                    for (int p = 0; p < POSITIONS; ++p)
+                        System.arraycopy(filter_gradient, (p * count + k) * channels, buffers[0], p * channels, channels);
+                    transform_2d(FILTER_TRANSPOSED, buffers[0], INPUT_TILE, buffers[1], 3, channels, buffers[2]);
+                    vector_kernels.axpy(1, buffers[1], 0, inputs[k + 1].get_storage().get_gradient(), 0, 9 * channels);
+                });
+                StorageArena.release_array(filter_gradient);
+            }
+            if (!batch.requires_grad()) {
+                StorageArena.release_array(product_gradient);
+                return;
+            }
+
+            // dV = dM * U at every position, transformed back to the input tiles, which overlap within an image
+            double[] input_gradient = StorageArena.allocate_array(POSITIONS * tiles * channels);
+            for (int p = 0; p < POSITIONS; ++p) {
+                Gemm.multiply(tiles, channels, count, product_gradient, p * tiles * count, false,
+                        transformed_filters[0], p * count * channels, false, input_gradient, p * tiles * channels,
+                        false, mode, precision);
+            }
+            double[] gradient = batch.get_storage().get_gradient();
+            int image_tiles = tile_rows * tile_columns;
+            // tiles of different images never overlap, so the images are processed independently
+            LayerFunctions.for_each_index(samples, mode, n -> {
+                double[][] buffers = buffers(POSITIONS * channels);
+                int image_index = n * height * width * channels;
+                for (int t = n * image_tiles; t < (n + 1) * image_tiles; ++t) {
+                    int[] origin = tile_origin(t, tile_rows, tile_columns, padding);
+                    for (int p = 0; p < POSITIONS; ++p)
+                        System.arraycopy(input_gradient, (p * tiles + t) * channels, buffers[0], p * channels, channels);
+                    transform_2d(INPUT_TRANSPOSED, buffers[0], INPUT_TILE, buffers[1], INPUT_TILE, channels, buffers[2]);
+                    for (int r = 0; r < INPUT_TILE; ++r) {
+                        int row = origin[1] + r;
+                        if (row < 0 || row >= height) continue;
+                        for (int s = 0; s < INPUT_TILE; ++s) {
+                            int column = origin[2] + s;
+                            if (column < 0 || column >= width) continue;
+                            vector_kernels.axpy(1, buffers[1], (r * INPUT_TILE + s) * channels, gradient,
+                                    image_index + (row * width + column) * channels, channels);
+                        }
+                    }
+                }
+            });
+            StorageArena.release_array(input_gradient);
+            StorageArena.release_array(product_gradient);
+        }, inputs);
+        // without a graph the transformed input tiles are not needed by a backward pass
+        if (output_array.get_grad_fn() == null) StorageArena.release_array(transformed_input);
+        return output_array;
+    }
+
+    /**
+     * Transforms the kernels into the layout [16][kernels][channels].
+     * @param kernels The contiguous kernels, each of the size [3, 3, channels].
+     * @return The transformed kernels.
+     */
+    private static double[] transform_filters(MultiDimObject[] kernels) {
+        int channels = kernels[0].get_size()[2];
+        double[] filters = new double[POSITIONS * kernels.length * channels];
+        double[] tile = new double[POSITIONS * channels];
+        double[] columns = new double[POSITIONS * channels];
+        for (int k = 0; k < kernels.length; ++k) {
+            transform_2d(FILTER, kernels[k].get_storage().get_data(), 3, tile, INPUT_TILE, channels, columns);
+            for (int p = 0; p < POSITIONS; ++p)
+                System.arraycopy(tile, p * channels, filters, (p * kernels.length + k) * channels, channels);
+        }
+        return filters;
+    }
+
+    /**
+     * Applies a one-dimensional transformation to every column and then to every row of a square tile of vectors.
+     * @param transform The transformation.
+     * @param in The input tile, of the size [in_size, in_size, length].
+     * @param in_size The size of the input tile.
+     * @param out The output tile, of the size [out_size, out_size, length].
+     * @param out_size The size of the output tile.
+     * @param length The length of the vectors.
+     * @param columns A buffer of at least out_size * in_size * length elements for the transformed columns.
+     */
+    private static void transform_2d(Transform transform, double[] in, int in_size, double[] out, int out_size,
+                                     int length, double[] columns) {
+        for (int j = 0; j < in_size; ++j)
+            transform.apply(in, j * length, in_size * length, columns, j * length, in_size * length, length);
+        for (int i = 0; i < out_size; ++i)
+            transform.apply(columns, i * in_size * length, length, out, i * out_size * length, length, length);
+    }
+
+    /**
+     * Returns the three buffers of the current thread, each of at least the given size.
+     * @param size The number of elements.
+     * @return The buffers.
+     */
+    private static double[][] buffers(int size) {
+        double[][] buffers = buffers_.get();
+        if (buffers[0].length < size) {
+            for (int i = 0; i < buffers.length; ++i) buffers[i] = new double[size];
+        }
+        return buffers;
+    }
+
+    /**
+     * Finds the image and the position of the first pixel of a tile.
+     * @param t The index of the tile.
+     * @param tile_rows The number of tiles along the height of an image.
+     * @param tile_columns The number of tiles along the width of an image.
+     * @param padding The padding size, by which the input tile is shifted against the output tile.
+     * @return The index of the image, the row and the column.
+     */
+    private static int[] tile_origin(int t, int tile_rows, int tile_columns, int padding) {
+        int image_tiles = tile_rows * tile_columns;
+        int rest = t % image_tiles;
+        return new int[] { t / image_tiles, rest / tile_columns * TILE - padding, rest % tile_columns * TILE - padding };
+    }
+}
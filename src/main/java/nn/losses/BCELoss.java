@@ -14,6 +14,8 @@ public class BCELoss extends CrossEntropyLoss {
     /**
      * Calculates the binary cross-entropy loss between the predicted outputs and actual targets.
      *
+     * For a batch, the matrices hold one column per sample and the loss is summed over the batch.
+     *
      * @param input The predicted outputs from the model as a {@link Matrix}, typically representing probabilities.
      * @param target The actual target outputs as a {@link Matrix}, typically representing binary labels.
      * @return A {@link Value} representing the computed binary cross-entropy loss.
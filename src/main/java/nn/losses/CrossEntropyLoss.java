@@ -20,6 +20,8 @@ public class CrossEntropyLoss extends Loss {
     /**
      * Calculates the cross-entropy loss between the predicted outputs and actual targets.
      *
+     * For a batch, the matrices hold one column per sample and the loss is summed over the batch.
+     *
      * @param input The predicted outputs from the model as a {@link Matrix}, typically representing probabilities.
      * @param target The actual target outputs as a {@link Matrix}, typically representing gold distribution.
      * @return A {@link Value} representing the computed cross-entropy loss.
@@ -76,9 +78,11 @@ public class CrossEntropyLoss extends Loss {
     /**
      * Executes the backward pass of the cross-entropy loss, computing gradients with respect to the model's parameters.
      * This method is critical for training models using backpropagation.
+     *
+     * @param retain_graph Whether the computational graph should be kept for another backward pass.
      */
     @Override
-    public void backward() {
-        loss_value_.backward();
+    public void backward(boolean retain_graph) {
+        loss_value_.backward(mode_, retain_graph);
     }
 }
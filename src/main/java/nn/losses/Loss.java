@@ -2,6 +2,7 @@ package nn.losses;
 
 import autograd.Value;
 import mathematics.MultiDimObject;
+import nn.models.ModelSettings;
 
 /**
  * Abstract base class for loss functions in neural networks. This class provides the structure and necessary methods
@@ -10,6 +11,16 @@ import mathematics.MultiDimObject;
  */
 public abstract class Loss {
     protected Value loss_value_;
+    protected ModelSettings.executionMode mode_ = ModelSettings.executionMode.SERIAL;
+
+    /**
+     * Sets the execution mode of the backward pass of this loss.
+     *
+     * @param mode The execution mode as defined in {@link ModelSettings.executionMode}.
+     */
+    public void set_execution_mode(ModelSettings.executionMode mode) {
+        mode_ = mode;
+    }
 
     /**
      * Returns the current loss value calculated by the loss function.
@@ -69,5 +80,15 @@ public abstract class Loss {
      * Performs backpropagation to calculate the gradient of the loss function with respect to the model's parameters.
      * This method is crucial for the training process, allowing the optimizer to adjust the parameters appropriately.
      */
-    public abstract void backward();
+    public void backward() {
+        backward(false);
+    }
+
+    /**
+     * Performs backpropagation to calculate the gradient of the loss function with respect to the model's parameters.
+     *
+     * @param retain_graph Whether the computational graph should be kept for another backward pass. If it is false,
+     *                     the graph is released while the gradients are propagated.
+     */
+    public abstract void backward(boolean retain_graph);
 }
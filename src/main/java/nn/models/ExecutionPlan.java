@@ -0,0 +1,120 @@
+package nn.models;
+
+import mathematics.MultiDimObject;
+import mathematics.Storage;
+
+import java.util.ArrayList;
+
+/**
+ * Static execution plan of a {@link Model}. Since the shapes of the objects flowing through a model do not depend
+ * on the values of the input, the graph built by every forward pass is the same. The plan traces the model once on
+ * an example input, keeping the forward function of every operation together with the buffer it writes into, and
+ * afterwards replays these functions for new inputs instead of building a new graph.
+ *
+ * The output of the plan is always the same object. Its gradient function is a single operation running the backward
+ * functions of the traced operations in reverse order, so a loss computed from the output is differentiated as
+ * usual. Steady-state training and inference reuse the traced buffers instead of allocating new ones.
+ *
+ * Only operations recorded through {@link MultiDimObject#compute} can be replayed; building objects from
+ * {@link autograd.Value}s or setting their elements while tracing is not supported. Tracing records the operations
+ * of the tracing thread only, so other threads keep running, checkpointing and using storage arenas as usual.
+ */
+public class ExecutionPlan {
+    private static final ThreadLocal<ExecutionPlan> tracing_ = new ThreadLocal<>();
+
+    private final MultiDimObject input_;
+    private final MultiDimObject output_;
+    private final ArrayList<Storage> buffers_ = new ArrayList<>();
+    private final ArrayList<Runnable> forward_steps_ = new ArrayList<>();
+    private final ArrayList<Runnable> backward_steps_ = new ArrayList<>();
+
+    /**
+     * Traces the model on the example input. The example input is copied, so it is left untouched by later replays.
+     *
+     * @param model The model to trace.
+     * @param example_input An input of the size all future inputs will have.
+     * @throws RuntimeException If another plan is being traced by the current thread.
+     */
+    public ExecutionPlan(Model model, MultiDimObject example_input) {
+        if (example_input == null) throw new NullPointerException("Attempt to trace the model on the null input");
+        input_ = example_input.copy();
+
+        if (tracing_.get() != null) throw new RuntimeException("Another execution plan is being traced");
+        tracing_.set(this);
+        try {
+            output_ = model.forward(input_);
+        } finally {
+            tracing_.remove();
+        }
+        if (output_ == input_) throw new RuntimeException("Model does not contain any operation to trace");
+
+        var inputs = new ArrayList<MultiDimObject>();
+        inputs.add(input_);
+        inputs.addAll(model.get_parameters());
+        output_.set_grad_fn("plan", this::backward, inputs.toArray(new MultiDimObject[0]));
+        if (output_.get_grad_fn() != null) output_.get_grad_fn().set_persistent(true);
+    }
+
+    /**
+     * Returns the plan being traced by the current thread.
+     *
+     * @return The plan being traced, or null if the current thread is not tracing a plan.
+     */
+    public static ExecutionPlan tracing() {
+        return tracing_.get();
+    }
+
+    /**
+     * Records a traced operation.
+     *
+     * @param buffer The storage the operation writes into.
+     * @param forward_func The function computing the elements of the buffer.
+     * @param backward_func The function propagating the gradient of the buffer, or null if the operation does not
+     *                      take part in the backward pass.
+     */
+    public synchronized void record(Storage buffer, Runnable forward_func, Runnable backward_func) {
+        buffers_.add(buffer);
+        forward_steps_.add(forward_func);
+        if (backward_func != null) backward_steps_.add(backward_func);
+    }
+
+    /**
+     * Replays the traced forward pass for a new input. The gradients accumulated in the buffers of the plan by the
+     * previous backward pass are reset. The buffers are rewritten in place, so their versions are incremented, and a
+     * graph built on the output of the previous replay throws instead of propagating the gradient of the new values.
+     *
+     * @param input The input of the model; it must have the same size as the example input.
+     * @return The output of the model, which is the same object for every replay.
+     * @throws RuntimeException If the input has a different size than the example input.
+     */
+    public MultiDimObject forward(MultiDimObject input) {
+        if (input == null) throw new NullPointerException("Input is null");
+        if (!input_.has_same_size(input)) throw new RuntimeException("Input has a different size than the traced one");
+
+        System.arraycopy(input.contiguous().get_storage().get_data(), 0, input_.get_storage().get_data(), 0, input.get_elements_num());
+        input_.get_storage().zero_gradient();
+        input_.get_storage().increment_version();
+        for (int i = 0; i < buffers_.size(); ++i) {
+            buffers_.get(i).zero_gradient();
+            buffers_.get(i).increment_version();
+        }
+        for (int i = 0; i < forward_steps_.size(); ++i) forward_steps_.get(i).run();
+        return output_;
+    }
+
+    /**
+     * Runs the traced backward functions in reverse order.
+     */
+    private void backward() {
+        for (int i = backward_steps_.size() - 1; i >= 0; --i) backward_steps_.get(i).run();
+    }
+
+    /**
+     * Returns the output object of the plan.
+     *
+     * @return The object every replay writes the output of the model into.
+     */
+    public MultiDimObject get_output() {
+        return output_;
+    }
+}
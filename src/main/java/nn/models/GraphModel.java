@@ -0,0 +1,229 @@
+package nn.models;
+
+import autograd.NoGrad;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.Storage;
+import mathematics.StorageArena;
+import mathematics.Tensor;
+import nn.layers.Layer;
+
+import java.util.ArrayList;
+
+/**
+ * Represents a neural network model structured as a directed acyclic graph of layers, e.g. a U-Net whose encoder
+ * features skip the bottleneck and are concatenated into the decoder. Every node of the graph is either the input of
+ * the model, a layer applied to the output of another node, or a merge of the outputs of several nodes, which are
+ * concatenated along their last dimension (the channels) or added. Nodes are identified by the indices returned when
+ * they are added; a node can only consume nodes added before it, so the nodes are run in the order of their indices,
+ * and the output of the model is the output of the last node.
+ * <pre>{@code
+ * var model = new GraphModel(mode);
+ * int encoder = model.add_layer(new Convolution2D(1, 8, 3, 1, 1, true, Layer.Activation.ReLU, mode), GraphModel.INPUT);
+ * int bottleneck = model.add_layer(new Convolution2D(8, 16, 3, 2, 1, true, Layer.Activation.ReLU, mode), encoder);
+ * int decoder = model.add_layer(new ConvTranspose2D(16, 8, 2, 2, 0, true, Layer.Activation.ReLU, mode), bottleneck);
+ * int skip = model.concatenate(decoder, encoder);
+ * model.add_layer(new Convolution2D(16, 1, 1, 1, 0, true, Layer.Activation.Sigmoid, mode), skip);
+ * }</pre>
+ * A liveness analysis of the graph determines the last consumer of every node. The model holds the output of a node
+ * only until its last consumer has run, so at any time the only activations it keeps besides the current one are
+ * those of the skip connections still waiting for their consumer. Without gradients (in a {@link NoGrad} scope)
+ * nothing else needs the activation either, so its storage is released right away to the innermost
+ * {@link StorageArena}, whose next storages of the same size reuse its array; the peak memory of an inference is
+ * then close to the largest set of simultaneously live activations instead of the sum of all of them. With gradients
+ * the computational graph keeps the activations needed by the backward pass.
+ */
+public class GraphModel extends Model {
+    /**
+     * Enumerates the ways a merge node combines the outputs of its inputs.
+     * Possible merges: [CONCATENATE, ADD].
+     */
+    public static enum Merge { CONCATENATE, ADD }
+
+    /**
+     * The index of the node representing the input of the model.
+     */
+    public static final int INPUT = 0;
+
+    private record Node(Layer layer, Merge merge, int[] inputs) { }
+
+    private final ArrayList<Node> nodes_ = new ArrayList<>();
+    private final ArrayList<Layer> layers_ = new ArrayList<>();
+    private ArrayList<ArrayList<Integer>> releases_;
+
+    /**
+     * Constructs an empty graph whose only node is the input of the model.
+     *
+     * @param mode The execution mode, either SERIAL or PARALLEL, that specifies how the model should be executed.
+     */
+    public GraphModel(ModelSettings.executionMode mode) {
+        mode_ = mode;
+        nodes_.add(new Node(null, null, new int[0]));
+    }
+
+    /**
+     * Adds a node applying a layer to the output of another node. A layer may be added more than once, in which
+     * case its parameters are shared by the nodes.
+     *
+     * @param layer The layer to apply.
+     * @param input The index of the node whose output is the input of the layer.
+     * @return The index of the new node.
+     * @throws NullPointerException If the layer is null.
+     * @throws RuntimeException If the input node does not exist.
+     */
+    public int add_layer(Layer layer, int input) {
+        if (layer == null) throw new NullPointerException("Attempt to add the null layer");
+        if (!layers_.contains(layer)) {
+            layers_.add(layer);
+            if (mode_ == ModelSettings.executionMode.PARALLEL) layer.set_execution_mode(mode_);
+        }
+        return add_node(new Node(layer, null, new int[] { input }));
+    }
+
+    /**
+     * Adds a node concatenating the outputs of other nodes along their last dimension, e.g. the channels of the
+     * upsampled decoder features and of the encoder features skipping to them.
+     *
+     * @param inputs The indices of the nodes to concatenate, in the order of their channels in the result.
+     * @return The index of the new node.
+     * @throws RuntimeException If fewer than two nodes are given or one of them does not exist.
+     */
+    public int concatenate(int... inputs) {
+        return add_node(new Node(null, Merge.CONCATENATE, inputs.clone()));
+    }
+
+    /**
+     * Adds a node summing the outputs of other nodes element-wise, e.g. a residual connection.
+     *
+     * @param inputs The indices of the nodes to add.
+     * @return The index of the new node.
+     * @throws RuntimeException If fewer than two nodes are given or one of them does not exist.
+     */
+    public int add(int... inputs) {
+        return add_node(new Node(null, Merge.ADD, inputs.clone()));
+    }
+
+    /**
+     * Appends a node to the graph and invalidates the liveness analysis.
+     *
+     * @param node The node.
+     * @return The index of the node.
+     * @throws RuntimeException If a merge has fewer than two inputs or an input node does not exist.
+     */
+    private int add_node(Node node) {
+        if (node.layer() == null && node.inputs().length < 2) throw new RuntimeException("Merge needs at least two nodes");
+        for (int input: node.inputs()) {
+            if (input < 0 || input >= nodes_.size()) throw new RuntimeException("Node " + input + " does not exist");
+        }
+        nodes_.add(node);
+        releases_ = null;
+        return nodes_.size() - 1;
+    }
+
+    /**
+     * Executes a forward pass through the graph using the given input. The output of every node is dropped, and
+     * without gradients released, as soon as its last consumer has run.
+     *
+     * @param input The input {@link MultiDimObject} to be processed by the model.
+     * @return A {@link MultiDimObject} representing the output of the last node.
+     * @throws RuntimeException If the graph does not contain any node besides the input.
+     */
+    @Override
+    public MultiDimObject forward(MultiDimObject input) {
+        if (nodes_.size() == 1) throw new RuntimeException("Graph does not contain any layer");
+        var releases = liveness();
+        var outputs = new MultiDimObject[nodes_.size()];
+        outputs[INPUT] = input;
+        for (int i = 1; i < nodes_.size(); ++i) {
+            outputs[i] = apply(nodes_.get(i), outputs);
+            for (int node: releases.get(i)) release(node, outputs, input.get_storage());
+        }
+        return outputs[nodes_.size() - 1];
+    }
+
+    /**
+     * Computes the output of a node.
+     *
+     * @param node The node.
+     * @param outputs The outputs of the nodes computed so far.
+     * @return The output of the node.
+     */
+    private MultiDimObject apply(Node node, MultiDimObject[] outputs) {
+        if (node.layer() != null) return node.layer().forward(outputs[node.inputs()[0]]);
+
+        var inputs = new MultiDimObject[node.inputs().length];
+        for (int i = 0; i < inputs.length; ++i) inputs[i] = outputs[node.inputs()[i]];
+        if (node.merge() == Merge.CONCATENATE) {
+            var result = NDArray.concatenate(inputs);
+            return inputs[0] instanceof Tensor ? result.to_tensor() : result;
+        }
+        var result = inputs[0];
+        for (int i = 1; i < inputs.length; ++i) result = result.add(inputs[i]);
+        return result;
+    }
+
+    /**
+     * Drops the output of a node whose last consumer has run. Without gradients its storage is released to the
+     * innermost {@link StorageArena}, unless it is shared with the input of the model or with the output of a node
+     * that is still live, e.g. through a view or an in-place activation.
+     *
+     * @param node The index of the node.
+     * @param outputs The outputs of the nodes computed so far.
+     * @param input_storage The storage of the input of the model, which belongs to the caller.
+     */
+    private static void release(int node, MultiDimObject[] outputs, Storage input_storage) {
+        var storage = outputs[node].get_storage();
+        outputs[node] = null;
+        if (NoGrad.is_grad_enabled() || storage == input_storage) return;
+        for (var output: outputs) {
+            if (output != null && output.get_storage() == storage) return;
+        }
+        StorageArena.release(storage);
+    }
+
+    /**
+     * Returns the liveness analysis of the graph, computing it after the graph has changed. The i-th list holds the
+     * nodes whose last consumer is the i-th node; a node without consumers is released right after it is computed,
+     * and the output of the model is never released.
+     *
+     * @return The nodes to release after each node.
+     */
+    private ArrayList<ArrayList<Integer>> liveness() {
+        if (releases_ != null) return releases_;
+        int count = nodes_.size();
+        int[] last_uses = new int[count];
+        for (int i = 0; i < count; ++i) {
+            last_uses[i] = i;
+            for (int input: nodes_.get(i).inputs()) last_uses[input] = i;
+        }
+
+        var releases = new ArrayList<ArrayList<Integer>>();
+        for (int i = 0; i < count; ++i) releases.add(new ArrayList<>());
+        for (int i = 0; i < count - 1; ++i) releases.get(Math.max(last_uses[i], 1)).add(i);
+        releases_ = releases;
+        return releases;
+    }
+
+    /**
+     * Sets the precision of the matrix multiplications of all layers, see {@link ModelSettings.numericPrecision}.
+     * The parameters, activations and gradients stay in double precision; FLOAT32 only affects the products.
+     *
+     * @param precision The precision of the layers.
+     */
+    public void set_precision(ModelSettings.numericPrecision precision) {
+        for (var layer: layers_) layer.set_precision(precision);
+    }
+
+    /**
+     * Retrieves all trainable parameters of the layers of the graph, each shared layer once.
+     *
+     * @return An {@link ArrayList} of {@link MultiDimObject} containing all trainable parameters of all layers in the model.
+     */
+    @Override
+    public ArrayList<MultiDimObject> get_parameters() {
+        var parameters = new ArrayList<MultiDimObject>();
+        for (var layer: layers_)
+            parameters.addAll(layer.get_parameters());
+        return parameters;
+    }
+}
@@ -37,4 +37,15 @@ public abstract class Model {
      * @return An {@link ArrayList} of {@link MultiDimObject} containing the trainable parameters of the model.
      */
     public abstract ArrayList<MultiDimObject> get_parameters();
+
+    /**
+     * Traces the model once into a static {@link ExecutionPlan}, which replays the same operations for new inputs
+     * of the same size without building a new computational graph.
+     *
+     * @param example_input An input of the size all future inputs will have.
+     * @return The traced {@link ExecutionPlan}.
+     */
+    public ExecutionPlan trace(MultiDimObject example_input) {
+        return new ExecutionPlan(this, example_input);
+    }
 }
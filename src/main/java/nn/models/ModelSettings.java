@@ -12,4 +12,15 @@ public class ModelSettings {
      * Possible modes: [SERIAL, PARALLEL].
      */
     public static enum executionMode { SERIAL, PARALLEL };
+
+    /**
+     * Enumerates the precisions the matrix multiplications (and through them the linear and convolution layers) can
+     * be computed in. FLOAT32 multiplies single-precision copies of the operands, which fit twice as many elements
+     * into a vector register and into the cache, at the cost of about 7 significant digits instead of 16. The
+     * precision is a compute precision of the GEMM and im2col kernels only: parameters, activations and gradients are
+     * always stored in FP64, the single-precision copies only live for the duration of a multiplication, and the
+     * partial products are summed into a double-precision result. It does not halve the memory of a model.
+     * Possible precisions: [FLOAT64, FLOAT32].
+     */
+    public static enum numericPrecision { FLOAT64, FLOAT32 };
 }
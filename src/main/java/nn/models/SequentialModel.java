@@ -1,9 +1,11 @@
 package nn.models;
 
+import autograd.NoGrad;
 import mathematics.MultiDimObject;
 import nn.layers.Layer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Represents a neural network model structured as a sequence of layers. Each layer's output is fed sequentially
@@ -11,6 +13,7 @@ import java.util.ArrayList;
  */
 public class SequentialModel extends Model {
     private ArrayList<Layer> layers_;
+    private int[] segment_ends_ = new int[0];
 
     /**
      * Constructs a sequential neural network model with the specified layers and execution mode.
@@ -38,13 +41,102 @@ public class SequentialModel extends Model {
      */
     @Override
     public MultiDimObject forward(MultiDimObject input) {
+        if (segment_ends_.length == 0 || !NoGrad.is_grad_enabled() || ExecutionPlan.tracing() != null)
+            return forward(input, 0, layers_.size());
+
+        MultiDimObject current_output = input;
+        int start = 0;
+        for (int end: segment_ends_) {
+            current_output = checkpoint(current_output, start, end);
+            start = end;
+        }
+        return checkpoint(current_output, start, layers_.size());
+    }
+
+    /**
+     * Sets the precision of the matrix multiplications of all layers, see {@link ModelSettings.numericPrecision}.
+     * The parameters, activations and gradients stay in double precision; FLOAT32 only affects the products.
+     *
+     * @param precision The precision of the layers.
+     */
+    public void set_precision(ModelSettings.numericPrecision precision) {
+        for (var layer: layers_) layer.set_precision(precision);
+    }
+
+    /**
+     * Enables gradient checkpointing. Only the outputs of the given layers (and the input of the model) are kept
+     * for the backward pass; the layers between two checkpoints form a segment, which is run without building the
+     * computational graph and is recomputed from its input when the backward pass reaches it. This trades one more
+     * forward pass for a peak memory of roughly one segment instead of the whole model.
+     *
+     * @param layer_indices The indices of the layers whose outputs are kept; no indices disable checkpointing.
+     * @throws RuntimeException If an index is out of the range of the layers.
+     */
+    public void set_checkpoints(int... layer_indices) {
+        for (int index: layer_indices) {
+            if (index < 0 || index >= layers_.size()) throw new RuntimeException("Checkpoint index is out of range");
+        }
+        segment_ends_ = Arrays.stream(layer_indices).map(index -> index + 1).filter(end -> end < layers_.size())
+                .distinct().sorted().toArray();
+    }
+
+    /**
+     * Runs a range of layers on the given input.
+     *
+     * @param input The input of the first layer of the range.
+     * @param start The index of the first layer.
+     * @param end The index after the last layer.
+     * @return The output of the last layer of the range.
+     */
+    private MultiDimObject forward(MultiDimObject input, int start, int end) {
         MultiDimObject current_output = input;
-        for (var layer: layers_) {
-            current_output = layer.forward(current_output);
+        for (int i = start; i < end; ++i) {
+            current_output = layers_.get(i).forward(current_output);
         }
         return current_output;
     }
 
+    /**
+     * Runs a segment of layers without building the computational graph. The output is recorded as a single
+     * operation whose backward function runs the segment again on a detached copy of its input, propagates the
+     * gradient through the recomputed graph, and passes the gradient of the copy on to the input.
+     *
+     * @param input The input of the segment, kept until the backward pass.
+     * @param start The index of the first layer of the segment.
+     * @param end The index after the last layer of the segment.
+     * @return The output of the segment.
+     */
+    private MultiDimObject checkpoint(MultiDimObject input, int start, int end) {
+        if (!input.is_contiguous()) return checkpoint(input.contiguous(), start, end);
+        var output = NoGrad.call(() -> {
+            var result = forward(input, start, end);
+            return result != input ? result.contiguous() : result;
+        });
+        if (output == input) return output;
+
+        var inputs = new ArrayList<MultiDimObject>();
+        inputs.add(input);
+        for (int i = start; i < end; ++i) inputs.addAll(layers_.get(i).get_parameters());
+
+        final var segment_output = output;
+        segment_output.set_grad_fn("checkpoint", () -> {
+            var detached_input = input.copy();
+            var recomputed_output = forward(detached_input, start, end).contiguous();
+            if (recomputed_output.get_grad_fn() == null) return;
+
+            double[] gradient = segment_output.get_storage().get_gradient();
+            double[] recomputed_gradient = recomputed_output.get_storage().get_gradient();
+            for (int i = 0; i < gradient.length; ++i) recomputed_gradient[i] += gradient[i];
+            recomputed_output.get_grad_fn().backward(mode_);
+
+            if (!input.requires_grad()) return;
+            double[] input_gradient = input.get_storage().get_gradient();
+            double[] detached_gradient = detached_input.get_storage().get_gradient();
+            for (int i = 0; i < input_gradient.length; ++i) input_gradient[i] += detached_gradient[i];
+        }, inputs.toArray(new MultiDimObject[0]));
+        return segment_output;
+    }
+
     /**
      * Retrieves all trainable parameters from each layer in the model. This is typically used for gradient
      * calculation and model updating during training.
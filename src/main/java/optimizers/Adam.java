@@ -1,6 +1,5 @@
 package optimizers;
 
-import autograd.Value;
 import mathematics.MultiDimObject;
 import nn.models.ModelSettings;
 
@@ -38,12 +37,7 @@ public class Adam extends Optimizer {
         timestep = 1;
 
         int param_nums = 0;
-        for (var param: parameters_) {
-            int[] current_size = param.get_size();
-            int elements_num = 1;
-            for (var dim: current_size) elements_num *= dim;
-            param_nums += elements_num;
-        }
+        for (var param: parameters_) param_nums += param.get_elements_num();
         previous_moment1_ = new double[param_nums];
         previous_moment2_ = new double[param_nums];
     }
@@ -57,17 +51,20 @@ public class Adam extends Optimizer {
     public void step() {
         int i = 0;
         for (MultiDimObject param: parameters_) {
-            for (Value val: param) {
-                double clipped_gradient = clip_gradient(val.gradient);
+            double[] values = param.get_storage().get_data();
+            double[] gradients = param.get_storage().get_gradient();
+            for (int j = 0; j < values.length; ++j) {
+                double clipped_gradient = clip_gradient(gradients[j]);
                 double current_moment1 = momentum_rate1_ * previous_moment1_[i] + (1 - momentum_rate1_) * clipped_gradient;
                 double current_moment2 = momentum_rate2_ * previous_moment2_[i] + (1 - momentum_rate2_) * clipped_gradient * clipped_gradient;
                 previous_moment1_[i] = current_moment1;
                 previous_moment2_[i] = current_moment2;
                 double corrected_moment1 = current_moment1 / (1 - Math.pow(momentum_rate1_, timestep));
                 double corrected_moment2 = current_moment2 / (1 - Math.pow(momentum_rate2_, timestep));
-                val.value = val.value - alpha_ * (corrected_moment1 / (Math.sqrt(corrected_moment2) + epsilon_));
+                values[j] = values[j] - alpha_ * (corrected_moment1 / (Math.sqrt(corrected_moment2) + epsilon_));
                 i++;
             }
+            param.get_storage().increment_version();
         }
         timestep++;
     }
@@ -1,11 +1,9 @@
 package optimizers;
 
-import autograd.Value;
 import mathematics.MultiDimObject;
 import nn.models.ModelSettings;
 
 import java.util.ArrayList;
-import java.util.stream.StreamSupport;
 
 /**
  * Implements the Momentum optimization algorithm, which helps accelerate SGD in the relevant direction and dampens oscillations.
@@ -30,12 +28,7 @@ public class Momentum extends Optimizer {
         momentum_rate_ = momentum_rate;
 
         int param_nums = 0;
-        for (var param: parameters_) {
-            int[] current_size = param.get_size();
-            int elements_num = 1;
-            for (var dim: current_size) elements_num *= dim;
-            param_nums += elements_num;
-        }
+        for (var param: parameters_) param_nums += param.get_elements_num();
         previous_momentum_ = new double[param_nums];
     }
 
@@ -48,13 +41,16 @@ public class Momentum extends Optimizer {
 
         int i = 0;
         for (MultiDimObject param: parameters_) {
-            for (Value val: param) {
-                double clipped_gradient = clip_gradient(val.gradient);
+            double[] values = param.get_storage().get_data();
+            double[] gradients = param.get_storage().get_gradient();
+            for (int j = 0; j < values.length; ++j) {
+                double clipped_gradient = clip_gradient(gradients[j]);
                 double current_momentum = momentum_rate_ * previous_momentum_[i] + alpha_ * clipped_gradient;
                 previous_momentum_[i] = current_momentum;
-                val.value = val.value - current_momentum;
+                values[j] = values[j] - current_momentum;
                 i++;
             }
+            param.get_storage().increment_version();
         }
     }
 }
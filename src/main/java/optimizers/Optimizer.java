@@ -1,10 +1,8 @@
 package optimizers;
 
-import autograd.Value;
 import mathematics.MultiDimObject;
 import nn.models.ModelSettings;
 import java.util.ArrayList;
-import java.util.stream.StreamSupport;
 
 /**
  * Abstract class representing an optimizer for neural network training. Optimizers are used to update the model's
@@ -46,16 +44,10 @@ public abstract class Optimizer {
      */
     public void set_zero_gradients() {
         if (mode_ == ModelSettings.executionMode.PARALLEL) {
-            parameters_.parallelStream()
-                    .flatMap(param -> StreamSupport.stream(param.spliterator(), false))
-                    .forEach(val -> {
-                        val.gradient = 0;
-                    });
+            parameters_.parallelStream().forEach(param -> param.get_storage().zero_gradient());
         } else {
             for (MultiDimObject param: parameters_) {
-                for (Value val: param) {
-                    val.gradient = 0;
-                }
+                param.get_storage().zero_gradient();
             }
         }
     }
@@ -1,11 +1,10 @@
 package optimizers;
 
-import autograd.Value;
 import mathematics.MultiDimObject;
+import mathematics.Storage;
 import nn.models.ModelSettings;
 
 import java.util.ArrayList;
-import java.util.stream.StreamSupport;
 
 /**
  * Implements the Stochastic Gradient Descent (SGD) optimization algorithm.
@@ -34,15 +33,22 @@ public class SGD extends Optimizer {
     @Override
     public void step() {
         if (mode_ == ModelSettings.executionMode.PARALLEL) {
-            parameters_.parallelStream()
-                    .flatMap(param -> StreamSupport.stream(param.spliterator(), false))
-                    .forEach(val -> val.value = val.value - alpha_ * clip_gradient(val.gradient));
+            parameters_.parallelStream().forEach(param -> step(param.get_storage()));
         } else {
-            for (MultiDimObject param: parameters_) {
-                for (Value val: param) {
-                    val.value = val.value - alpha_ * clip_gradient(val.gradient);
-                }
-            }
+            for (MultiDimObject param: parameters_) step(param.get_storage());
         }
     }
+
+    /**
+     * Updates all values of a single parameter storage.
+     *
+     * @param storage The {@link Storage} of the parameter to be updated.
+     */
+    private void step(Storage storage) {
+        double[] values = storage.get_data();
+        double[] gradients = storage.get_gradient();
+        for (int i = 0; i < values.length; ++i)
+            values[i] = values[i] - alpha_ * clip_gradient(gradients[i]);
+        storage.increment_version();
+    }
 }
@@ -0,0 +1,72 @@
+package autograd;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackwardTest {
+
+    private static Value graph(Value x, Value y) {
+        var shared = x.multiply(y).sigmoid();
+        var values = new ArrayList<Value>();
+        values.add(shared.multiply(x));
+        values.add(shared.pow(2));
+        values.add(y.exp().log());
+        return Value.add(values);
+    }
+
+    @Test
+    void leaves_survive_the_release_of_a_graph() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var x = new Value(0.5);
+            var y = new Value(2);
+            graph(x, y).backward(mode);
+            x.gradient = 0;
+            y.gradient = 0;
+            assertDoesNotThrow(() -> graph(x, y).backward(ModelSettings.executionMode.PARALLEL));
+            assertDoesNotThrow(() -> graph(x, y).backward(ModelSettings.executionMode.SERIAL));
+            assertTrue(x.gradient != 0 && y.gradient != 0);
+        }
+    }
+
+    @Test
+    void released_graph_cannot_be_differentiated_again() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var x = new Value(0.5);
+            var result = x.multiply(x).exp();
+            result.backward(mode);
+            assertTrue(result.get_parents().isEmpty());
+            assertThrows(RuntimeException.class, () -> result.backward(mode));
+        }
+    }
+
+    @Test
+    void retained_graph_accumulates_gradients_of_every_pass() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var x = new Value(0.5);
+            var y = new Value(2);
+            var result = graph(x, y);
+            result.backward(mode, true);
+            double x_gradient = x.gradient;
+            result.backward(mode, false);
+            assertEquals(2 * x_gradient, x.gradient, 1e-12);
+            assertThrows(RuntimeException.class, () -> result.backward(mode));
+        }
+    }
+
+    @Test
+    void persistent_nodes_are_not_released() {
+        var x = new Value(3);
+        var result = x.multiply(x);
+        result.set_persistent(true);
+        result.backward();
+        assertEquals(6, x.gradient, 0);
+        result.backward();
+        assertEquals(12, x.gradient, 0);
+    }
+}
@@ -0,0 +1,67 @@
+package autograd;
+
+import mathematics.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoGradTest {
+
+    @Test
+    void no_graph_is_built_inside_the_scope() {
+        var x = new Value(3);
+        var m = new Matrix(new double[][] {{1, -2}, {3, 4}});
+        var result = NoGrad.call(() -> x.multiply(x).exp());
+        var product = NoGrad.call(() -> m.multiply(m).relu());
+
+        assertFalse(result.requires_grad);
+        assertTrue(result.get_parents().isEmpty());
+        assertEquals(Math.exp(9), result.value, 1e-9);
+        assertFalse(product.requires_grad());
+        assertNull(product.get_grad_fn());
+        assertTrue(NoGrad.is_grad_enabled());
+        assertTrue(x.multiply(x).requires_grad);
+    }
+
+    @Test
+    void nested_scopes_enable_the_graph_after_the_outermost_one() {
+        var outer = new NoGrad();
+        NoGrad.run(() -> assertFalse(NoGrad.is_grad_enabled()));
+        assertFalse(NoGrad.is_grad_enabled());
+        outer.close();
+        outer.close();
+        assertTrue(NoGrad.is_grad_enabled());
+    }
+
+    @Test
+    void scope_does_not_affect_other_threads() throws InterruptedException {
+        var opened = new CountDownLatch(1);
+        var checked = new CountDownLatch(1);
+        var other_enabled = new AtomicBoolean();
+        var thread = new Thread(() -> {
+            try {
+                opened.await();
+                var x = new Value(2);
+                other_enabled.set(NoGrad.is_grad_enabled() && x.multiply(x).requires_grad);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                checked.countDown();
+            }
+        });
+        thread.start();
+        NoGrad.run(() -> {
+            opened.countDown();
+            try {
+                checked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.join();
+        assertTrue(other_enabled.get());
+    }
+}
@@ -0,0 +1,75 @@
+package autograd;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelBackwardTest {
+
+    private static Value graph(Value x, Value y) {
+        var shared = x.multiply(y).sigmoid();
+        var values = new ArrayList<Value>();
+        values.add(shared.multiply(x));
+        values.add(shared.pow(2));
+        values.add(y.exp().log());
+        return Value.add(values);
+    }
+
+    private static Value total(Matrix matrix) {
+        var elements = new ArrayList<Value>();
+        for (var element: matrix) elements.add(element);
+        return Value.add(elements);
+    }
+
+    @Test
+    void parallel_backward_matches_serial_backward() {
+        var x = new Value(0.7);
+        var y = new Value(-1.3);
+        graph(x, y).backward(ModelSettings.executionMode.SERIAL);
+        double x_gradient = x.gradient, y_gradient = y.gradient;
+        x.gradient = 0;
+        y.gradient = 0;
+        graph(x, y).backward(ModelSettings.executionMode.PARALLEL);
+        assertEquals(x_gradient, x.gradient, 1e-12);
+        assertEquals(y_gradient, y.gradient, 1e-12);
+    }
+
+    @Test
+    void parallel_backward_of_operations_matches_serial_backward() {
+        var a = new Matrix(6, 5, MultiDimObject.InitValues.HE);
+        var b = new Matrix(5, 4, MultiDimObject.InitValues.HE);
+        total(a.multiply(b).sigmoid().multiply(b.transpose())).backward(ModelSettings.executionMode.SERIAL);
+        double[] a_gradient = a.get_storage().get_gradient().clone();
+        double[] b_gradient = b.get_storage().get_gradient().clone();
+        a.get_storage().zero_gradient();
+        b.get_storage().zero_gradient();
+        total(a.multiply(b).sigmoid().multiply(b.transpose())).backward(ModelSettings.executionMode.PARALLEL);
+        assertArrayEquals(a_gradient, a.get_storage().get_gradient(), 1e-12);
+        assertArrayEquals(b_gradient, b.get_storage().get_gradient(), 1e-12);
+    }
+
+    @Test
+    void parallel_backward_inside_pool_workers_completes() throws Exception {
+        int tasks = 2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+        var gradients = ForkJoinPool.commonPool().submit(() -> IntStream.range(0, tasks).parallel().mapToDouble(i -> {
+            var x = new Value(0.1 * i);
+            var y = new Value(1);
+            graph(x, y).backward(ModelSettings.executionMode.PARALLEL);
+            return x.gradient;
+        }).toArray()).get(30, TimeUnit.SECONDS);
+
+        for (int i = 0; i < tasks; ++i) {
+            var x = new Value(0.1 * i);
+            graph(x, new Value(1)).backward();
+            assertEquals(x.gradient, gradients[i], 1e-12);
+        }
+    }
+}
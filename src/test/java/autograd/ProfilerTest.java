@@ -0,0 +1,74 @@
+package autograd;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilerTest {
+
+    private static Value total(Matrix matrix) {
+        var elements = new ArrayList<Value>();
+        for (var element: matrix) elements.add(element);
+        return Value.add(elements);
+    }
+
+    @Test
+    void counts_the_nodes_of_every_backward_pass() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var profiler = new Profiler().start();
+            try {
+                var x = new Value(0.5);
+                var y = new Value(2);
+                var result = x.multiply(y).exp();
+                assertEquals(4, profiler.get_created_nodes());
+                result.backward(mode);
+                assertEquals(Long.valueOf(4), profiler.get_node_counts().get("value"));
+
+                var a = new Matrix(3, 4, MultiDimObject.InitValues.HE);
+                var b = new Matrix(4, 2, MultiDimObject.InitValues.HE);
+                total(a.multiply(b)).backward(mode);
+                assertEquals(Long.valueOf(1), profiler.get_node_counts().get("matmul"));
+                assertTrue(profiler.get_backward_nanos().containsKey("matmul"));
+                // the values and gradients of the product are retained until the backward pass
+                assertTrue(profiler.get_retained_bytes() >= 2L * Double.BYTES * 3 * 2);
+                assertTrue(profiler.report().contains("matmul"));
+            } finally {
+                profiler.stop();
+            }
+        }
+    }
+
+    @Test
+    void stopped_profiler_keeps_its_statistics_and_collects_no_more() {
+        var profiler = new Profiler().start();
+        new Value(1).multiply(new Value(2)).backward();
+        profiler.stop();
+        assertNull(Profiler.active());
+        long created = profiler.get_created_nodes();
+        var counts = profiler.get_node_counts();
+
+        new Value(1).multiply(new Value(2)).backward();
+        assertEquals(created, profiler.get_created_nodes());
+        assertEquals(counts, profiler.get_node_counts());
+        profiler.reset();
+        assertEquals(0, profiler.get_created_nodes());
+        assertTrue(profiler.get_node_counts().isEmpty());
+    }
+
+    @Test
+    void only_one_profiler_is_active() {
+        var profiler = new Profiler().start();
+        try {
+            assertSame(profiler, Profiler.active());
+            assertThrows(RuntimeException.class, () -> new Profiler().start());
+            assertSame(profiler, profiler.start());
+        } finally {
+            profiler.stop();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package autograd;
+
+import mathematics.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TapeTest {
+
+    @Test
+    void tape_gradients_match_the_graph() {
+        var x = new Value(1.5);
+        var y = new Value(-0.5);
+        var expected = x.multiply(y).add(x.sigmoid()).pow(2).exp();
+        expected.backward();
+        double x_gradient = x.gradient, y_gradient = y.gradient;
+        x.gradient = 0;
+        y.gradient = 0;
+
+        var tape = new Tape();
+        try (var recording = tape.start()) {
+            var result = x.multiply(y).add(x.sigmoid()).pow(2).exp();
+            assertSame(recording, Tape.recording());
+            assertEquals(expected.value, result.value, 1e-12);
+            result.backward();
+        }
+        assertNull(Tape.recording());
+        assertEquals(x_gradient, x.gradient, 1e-12);
+        assertEquals(y_gradient, y.gradient, 1e-12);
+    }
+
+    @Test
+    void backward_only_runs_the_entries_reached_from_the_root() {
+        var x = new Value(2);
+        var y = new Value(3);
+        var tape = new Tape();
+        Value product, sum;
+        tape.start();
+        try {
+            product = x.multiply(y);
+            sum = x.add(y);
+        } finally {
+            tape.stop();
+        }
+        sum.backward();
+        assertEquals(1, x.gradient, 0);
+        assertEquals(1, y.gradient, 0);
+
+        x.gradient = 0;
+        y.gradient = 0;
+        product.backward();
+        assertEquals(3, x.gradient, 0);
+        assertEquals(2, y.gradient, 0);
+    }
+
+    @Test
+    void operations_of_another_graph_on_the_tape_are_neither_run_nor_released() {
+        var m = new Matrix(new double[][] {{1, 2}, {3, 4}});
+        var tape = new Tape();
+        Value first, second;
+        tape.start();
+        try {
+            first = m.multiply(m).get(0, 0);
+            second = m.relu().get(1, 1);
+        } finally {
+            tape.stop();
+        }
+        second.backward();
+        assertArrayEquals(new double[] {0, 0, 0, 1}, m.get_storage().get_gradient(), 0);
+
+        m.get_storage().zero_gradient();
+        assertDoesNotThrow(() -> first.backward());
+        // d(m00 * m00 + m01 * m10) / dm
+        assertArrayEquals(new double[] {2, 3, 2, 0}, m.get_storage().get_gradient(), 1e-12);
+        assertThrows(RuntimeException.class, () -> first.backward());
+    }
+
+    @Test
+    void retained_tape_graph_can_be_differentiated_again() {
+        var x = new Value(2);
+        var m = new Matrix(new double[][] {{1, 2}, {3, 4}});
+        var tape = new Tape();
+        Value result, element;
+        tape.start();
+        try {
+            result = x.multiply(x).log();
+            element = m.relu().get(1, 1);
+        } finally {
+            tape.stop();
+        }
+        result.backward(true);
+        result.backward();
+        assertEquals(2, x.gradient, 1e-12);
+        element.backward(true);
+        assertDoesNotThrow(() -> element.backward());
+        assertThrows(RuntimeException.class, () -> element.backward());
+    }
+
+    @Test
+    void gradients_cross_the_boundary_to_graphs_built_before_the_tape() {
+        var x = new Value(2);
+        var w = new Value(3);
+        var shared = x.add(w);
+        var hidden = shared.multiply(x);
+        var expected = hidden.log().add(shared.exp());
+        expected.backward(true);
+        double x_gradient = x.gradient, w_gradient = w.gradient;
+        x.gradient = 0;
+        w.gradient = 0;
+
+        var tape = new Tape();
+        try (var recording = tape.start()) {
+            // the tape reaches the shared value both directly and through the hidden value
+            var result = hidden.log().add(shared.exp());
+            assertEquals(expected.value, result.value, 1e-12);
+            result.backward();
+        }
+        assertEquals(x_gradient, x.gradient, 1e-12);
+        assertEquals(w_gradient, w.gradient, 1e-12);
+        // the graph behind the boundary has been released by the pass
+        assertThrows(RuntimeException.class, () -> hidden.backward());
+    }
+
+    @Test
+    void operations_computed_before_the_tape_are_differentiated() {
+        var m = new Matrix(new double[][] {{1, -2}, {3, 4}});
+        var activations = m.multiply(m).relu();
+        var tape = new Tape();
+        try (var recording = tape.start()) {
+            var y = new Value(0.5);
+            activations.get(1, 1).multiply(y).add(activations.get(0, 1)).backward();
+            assertEquals(activations.get(1, 1).value, y.gradient, 0);
+        }
+        // d(0.5 * (m10 m01 + m11 m11) + relu(m00 m01 + m01 m11)) / dm with m00 m01 + m01 m11 = -10
+        assertArrayEquals(new double[] {0, 1.5, -1, 4}, m.get_storage().get_gradient(), 1e-12);
+    }
+
+    @Test
+    void recording_is_confined_to_the_starting_thread() throws InterruptedException {
+        var tape = new Tape();
+        var other_recording = new AtomicReference<Tape>();
+        try (var recording = tape.start()) {
+            var thread = new Thread(() -> {
+                other_recording.set(Tape.recording());
+                var x = new Value(1);
+                x.multiply(x).exp();
+            });
+            thread.start();
+            thread.join();
+            assertSame(recording, Tape.recording());
+        }
+        assertNull(other_recording.get());
+        assertEquals(0, tape.size());
+    }
+}
@@ -0,0 +1,76 @@
+package autograd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueTest {
+
+    private static Value[] values(double... values) {
+        var nodes = new Value[values.length];
+        for (int i = 0; i < values.length; ++i) nodes[i] = new Value(values[i]);
+        return nodes;
+    }
+
+    private static double[] gradients(Value... values) {
+        var gradients = new double[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            gradients[i] = values[i].gradient;
+            values[i].gradient = 0;
+        }
+        return gradients;
+    }
+
+    @Test
+    void weighted_sum_matches_the_graph_of_products_and_sums() {
+        var weights = values(0.5, -1.5, 2, 0.25);
+        var inputs = values(3, 0.1, -0.7, 4);
+        var bias = new Value(-0.3);
+
+        var terms = new ArrayList<Value>();
+        for (int i = 0; i < weights.length; ++i) terms.add(weights[i].multiply(inputs[i]));
+        terms.add(bias);
+        var expected = Value.add(terms).sigmoid();
+        expected.backward();
+        double[] expected_weights = gradients(weights), expected_inputs = gradients(inputs);
+        double[] expected_bias = gradients(bias);
+
+        var fused = Value.weighted_sum(weights, inputs, bias).sigmoid();
+        assertEquals(expected.value, fused.value, 1e-15);
+        fused.backward();
+        assertArrayEquals(expected_weights, gradients(weights), 1e-15);
+        assertArrayEquals(expected_inputs, gradients(inputs), 1e-15);
+        assertArrayEquals(expected_bias, gradients(bias), 1e-15);
+    }
+
+    @Test
+    void dot_product_accumulates_the_gradient_of_shared_operands() {
+        var x = values(1, -2, 3);
+        var square = Value.dot(x, x);
+        assertEquals(14, square.value, 0);
+        square.backward();
+        assertArrayEquals(new double[] {2, -4, 6}, gradients(x), 0);
+
+        var constants = new Value[] {new Value(2, false), new Value(5, false)};
+        var y = values(1, 1);
+        Value.dot(constants, y).backward();
+        assertArrayEquals(new double[] {2, 5}, gradients(y), 0);
+        assertFalse(Value.dot(constants, constants).requires_grad);
+    }
+
+    @Test
+    void fused_sums_respect_no_grad_and_check_their_operands() {
+        var x = values(1, 2);
+        try (var no_grad = new NoGrad()) {
+            var result = Value.weighted_sum(x, x, new Value(1));
+            assertEquals(6, result.value, 0);
+            assertFalse(result.requires_grad);
+            assertTrue(result.get_parents().isEmpty());
+        }
+
+        assertThrows(RuntimeException.class, () -> Value.dot(x, values(1)));
+        assertThrows(NullPointerException.class, () -> Value.dot(null, x));
+    }
+}
@@ -0,0 +1,97 @@
+package mathematics;
+
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GemmTest {
+
+    private static double[] random(int size, Random random) {
+        var values = new double[size];
+        for (int i = 0; i < size; ++i) values[i] = random.nextDouble() * 2 - 1;
+        return values;
+    }
+
+    private static double[] reference(int rows, int columns, int depth,
+                                      double[] a, int a_offset, boolean transpose_a,
+                                      double[] b, int b_offset, boolean transpose_b,
+                                      double[] c, int c_offset, boolean accumulate) {
+        var result = c.clone();
+        for (int i = 0; i < rows; ++i) {
+            for (int j = 0; j < columns; ++j) {
+                double sum = accumulate ? result[c_offset + i * columns + j] : 0;
+                for (int k = 0; k < depth; ++k) {
+                    double x = transpose_a ? a[a_offset + k * rows + i] : a[a_offset + i * depth + k];
+                    double y = transpose_b ? b[b_offset + j * depth + k] : b[b_offset + k * columns + j];
+                    sum += x * y;
+                }
+                result[c_offset + i * columns + j] = sum;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void products_match_the_naive_product_for_every_transposition() {
+        var random = new Random(11);
+        // the larger shapes span several blocks and are split over the pool in the parallel mode
+        for (int[] shape: new int[][] {{1, 1, 1}, {3, 5, 7}, {70, 33, 300}, {130, 270, 40}}) {
+            int rows = shape[0], columns = shape[1], depth = shape[2];
+            int a_offset = 3, b_offset = 5, c_offset = 2;
+            var a = random(a_offset + rows * depth + 4, random);
+            var b = random(b_offset + depth * columns + 4, random);
+            var c = random(c_offset + rows * columns + 4, random);
+            for (var mode: ModelSettings.executionMode.values()) {
+                for (int transpositions = 0; transpositions < 4; ++transpositions) {
+                    boolean transpose_a = (transpositions & 1) != 0, transpose_b = (transpositions & 2) != 0;
+                    for (boolean accumulate: new boolean[] {false, true}) {
+                        var expected = reference(rows, columns, depth, a, a_offset, transpose_a,
+                                b, b_offset, transpose_b, c, c_offset, accumulate);
+                        var actual = c.clone();
+                        Gemm.multiply(rows, columns, depth, a, a_offset, transpose_a, b, b_offset, transpose_b,
+                                actual, c_offset, accumulate, mode);
+                        assertArrayEquals(expected, actual, 1e-10,
+                                mode + " " + transpose_a + " " + transpose_b + " " + accumulate);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void single_precision_stays_within_its_rounding_error() {
+        var random = new Random(12);
+        int rows = 40, columns = 60, depth = 300;
+        var a = random(rows * depth, random);
+        var b = random(depth * columns, random);
+        var c = new double[rows * columns];
+        var expected = reference(rows, columns, depth, a, 0, false, b, 0, true, c, 0, false);
+        var single_a = new float[a.length];
+        for (int i = 0; i < a.length; ++i) single_a[i] = (float) a[i];
+
+        for (var mode: ModelSettings.executionMode.values()) {
+            var actual = new double[c.length];
+            Gemm.multiply(rows, columns, depth, a, 0, false, b, 0, true, actual, 0, false, mode,
+                    ModelSettings.numericPrecision.FLOAT32);
+            assertArrayEquals(expected, actual, 1e-3);
+            var mixed = new double[c.length];
+            Gemm.multiply(rows, columns, depth, single_a, 0, false, b, 0, true, mixed, 0, false, mode);
+            assertArrayEquals(expected, mixed, 1e-3);
+            assertArrayEquals(actual, mixed, 1e-4);
+        }
+    }
+
+    @Test
+    void empty_depth_clears_or_keeps_the_result() {
+        var c = new double[] {1, 2, 3, 4};
+        Gemm.multiply(2, 2, 0, new double[0], 0, false, new double[0], 0, false, c, 0, true,
+                ModelSettings.executionMode.SERIAL);
+        assertArrayEquals(new double[] {1, 2, 3, 4}, c, 0);
+        Gemm.multiply(2, 2, 0, new double[0], 0, false, new double[0], 0, false, c, 0, false,
+                ModelSettings.executionMode.SERIAL);
+        assertArrayEquals(new double[4], c, 0);
+    }
+}
@@ -0,0 +1,84 @@
+package mathematics;
+
+import autograd.NoGrad;
+import autograd.Value;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InPlaceTest {
+
+    private static Value total(Matrix matrix) {
+        var elements = new ArrayList<Value>();
+        for (var element: matrix) elements.add(element);
+        return Value.add(elements);
+    }
+
+    private static Matrix matrix() {
+        return new Matrix(new double[][] {{0.5, -1, 2}, {-0.3, 1.5, -2}});
+    }
+
+    @Test
+    void in_place_operations_have_the_gradients_of_their_copies() {
+        List<UnaryOperator<Matrix>> activations = List.of(Matrix::relu, Matrix::sigmoid);
+        List<UnaryOperator<Matrix>> in_place = List.of(Matrix::relu_, Matrix::sigmoid_);
+        for (var mode: ModelSettings.executionMode.values()) {
+            for (int a = 0; a < activations.size(); ++a) {
+                var x = matrix();
+                var bias = new Matrix(new double[][] {{0.1, 0.2, -0.4}, {1, -1, 0.5}});
+                x.mode = mode;
+                total(activations.get(a).apply(x.add(bias).add(bias))).backward(mode);
+                double[] x_gradient = x.get_storage().get_gradient().clone();
+                double[] bias_gradient = bias.get_storage().get_gradient().clone();
+                x.get_storage().zero_gradient();
+                bias.get_storage().zero_gradient();
+
+                var result = x.add(bias);
+                var storage = result.get_storage();
+                in_place.get(a).apply(result.add_(bias));
+                assertSame(storage, result.get_storage());
+                total(result).backward(mode);
+                assertArrayEquals(x_gradient, x.get_storage().get_gradient(), 1e-15);
+                assertArrayEquals(bias_gradient, bias.get_storage().get_gradient(), 1e-15);
+            }
+        }
+    }
+
+    @Test
+    void modified_inputs_of_the_backward_pass_are_detected() {
+        var a = matrix();
+        var b = matrix().transpose().contiguous();
+        var hidden = a.add(a);
+        var product = hidden.multiply(b);
+        hidden.relu_();
+        assertThrows(RuntimeException.class, () -> total(product).backward());
+
+        var output = matrix().add(matrix()).sigmoid_();
+        output.add_(matrix());
+        assertThrows(RuntimeException.class, () -> total(output).backward());
+
+        // the activations save their outputs, so they cannot be chained in place
+        var chained = matrix().add(matrix()).relu_().sigmoid_();
+        assertThrows(RuntimeException.class, () -> total(chained).backward());
+    }
+
+    @Test
+    void leaves_and_views_requiring_gradients_cannot_be_modified() {
+        var leaf = matrix();
+        assertThrows(RuntimeException.class, leaf::relu_);
+        var view = leaf.add(leaf).transpose();
+        assertThrows(RuntimeException.class, view::relu_);
+        var transposed = matrix().transpose();
+        try (var no_grad = new NoGrad()) {
+            var error = assertThrows(RuntimeException.class, transposed::relu_);
+            assertTrue(error.getMessage().contains("contiguous"));
+            leaf.relu_();
+        }
+        assertArrayEquals(new double[] {0.5, 0, 2, 0, 1.5, 0}, leaf.get_storage().get_data(), 0);
+    }
+}
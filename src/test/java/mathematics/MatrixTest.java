@@ -0,0 +1,91 @@
+package mathematics;
+
+import autograd.Value;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixTest {
+    private static final double EPSILON = 1e-6;
+
+    private static Matrix random(Random random, int height, int width) {
+        var values = new double[height][width];
+        for (int i = 0; i < height; ++i)
+            for (int j = 0; j < width; ++j) values[i][j] = random.nextDouble() * 2 - 1;
+        return new Matrix(values);
+    }
+
+    /**
+     * Reduces an object to a scalar with fixed weights, so that every element receives a different gradient.
+     */
+    private static Value weighted_sum(MultiDimObject object) {
+        var terms = new ArrayList<Value>();
+        int index = 0;
+        for (var element: object) terms.add(element.multiply(new Value(Math.sin(++index), false)));
+        return Value.add(terms);
+    }
+
+    /**
+     * Compares the gradients of the inputs computed by the backward pass with central finite differences.
+     */
+    private static void check_gradients(Supplier<Value> loss, MultiDimObject... inputs) {
+        for (var input: inputs) input.get_storage().zero_gradient();
+        loss.get().backward();
+        for (var input: inputs) {
+            double[] data = input.get_storage().get_data();
+            double[] gradient = input.get_storage().get_gradient().clone();
+            for (int i = 0; i < data.length; ++i) {
+                double value = data[i];
+                data[i] = value + EPSILON;
+                double plus = loss.get().value;
+                data[i] = value - EPSILON;
+                double minus = loss.get().value;
+                data[i] = value;
+                assertEquals((plus - minus) / (2 * EPSILON), gradient[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void products_have_the_gradients_of_their_definition() {
+        var random = new Random(2);
+        for (var mode: ModelSettings.executionMode.values()) {
+            var a = random(random, 3, 4);
+            var b = random(random, 4, 5);
+            var a_t = random(random, 4, 3);
+            var b_t = random(random, 5, 4);
+            a.mode = mode;
+            a_t.mode = mode;
+
+            var product = a.multiply(b);
+            for (int i = 0; i < 3; ++i)
+                for (int j = 0; j < 5; ++j) {
+                    double expected = 0;
+                    for (int k = 0; k < 4; ++k) expected += a.get(i, k).value * b.get(k, j).value;
+                    assertEquals(expected, product.get(i, j).value, 1e-12);
+                }
+            check_gradients(() -> weighted_sum(a.multiply(b)), a, b);
+            check_gradients(() -> weighted_sum(a_t.transpose().multiply(b)), a_t, b);
+            check_gradients(() -> weighted_sum(a.multiply(b_t.transpose())), a, b_t);
+            check_gradients(() -> weighted_sum(a_t.transpose().multiply(b_t.transpose())), a_t, b_t);
+        }
+    }
+
+    @Test
+    void softmax_normalizes_the_columns_and_has_the_gradient_of_its_definition() {
+        var random = new Random(3);
+        var matrix = random(random, 4, 3);
+        var softmax = matrix.softmax();
+        for (int j = 0; j < 3; ++j) {
+            double sum = 0;
+            for (int i = 0; i < 4; ++i) sum += softmax.get(i, j).value;
+            assertEquals(1, sum, 1e-12);
+        }
+        check_gradients(() -> weighted_sum(matrix.softmax()), matrix);
+    }
+}
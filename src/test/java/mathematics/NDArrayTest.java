@@ -0,0 +1,95 @@
+package mathematics;
+
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NDArrayTest {
+
+    private static NDArray random(Random random, double low, int... size) {
+        var array = new NDArray(size, MultiDimObject.InitValues.ZEROS);
+        double[] data = array.get_storage().get_data();
+        for (int i = 0; i < data.length; ++i) data[i] = low + random.nextDouble();
+        return array;
+    }
+
+    private static double loss(BinaryOperator<NDArray> op, NDArray first, NDArray second, NDArray weights) {
+        return op.apply(first, second).multiply(weights).sum().value;
+    }
+
+    private static void check_gradient(BinaryOperator<NDArray> op, NDArray first, NDArray second, NDArray weights,
+                                       NDArray target, String message) {
+        double[] data = target.get_storage().get_data();
+        double[] gradient = target.get_storage().get_gradient();
+        double epsilon = 1e-6;
+        for (int i = 0; i < data.length; ++i) {
+            double value = data[i];
+            data[i] = value + epsilon;
+            double plus = loss(op, first, second, weights);
+            data[i] = value - epsilon;
+            double minus = loss(op, first, second, weights);
+            data[i] = value;
+            assertEquals((plus - minus) / (2 * epsilon), gradient[i], 1e-6, message);
+        }
+    }
+
+    @Test
+    void broadcasted_operations_match_the_loops_and_reduce_their_gradients() {
+        var random = new Random(14);
+        List<BinaryOperator<NDArray>> ops = List.of(NDArray::add, NDArray::sub, NDArray::multiply, NDArray::divide);
+        List<DoubleBinaryOperator> scalar_ops = List.of(Double::sum, (x, y) -> x - y, (x, y) -> x * y, (x, y) -> x / y);
+
+        for (var mode: ModelSettings.executionMode.values()) {
+            for (int o = 0; o < ops.size(); ++o) {
+                var first = random(random, -0.5, 2, 1, 4);
+                var second = random(random, 0.5, 3, 1);
+                first.mode = mode;
+                var weights = random(random, -0.5, 2, 3, 4);
+                weights.set_requires_grad(false);
+
+                var result = ops.get(o).apply(first, second);
+                assertArrayEquals(new int[] {2, 3, 4}, result.get_size());
+                for (int i = 0; i < 2; ++i)
+                    for (int j = 0; j < 3; ++j)
+                        for (int k = 0; k < 4; ++k)
+                            assertEquals(scalar_ops.get(o).applyAsDouble(first.get(i, 0, k).value, second.get(j, 0).value),
+                                    result.get(i, j, k).value, 1e-15);
+
+                result.multiply(weights).sum().backward(mode);
+                check_gradient(ops.get(o), first, second, weights, first, mode + " op " + o + " first");
+                check_gradient(ops.get(o), first, second, weights, second, mode + " op " + o + " second");
+            }
+        }
+    }
+
+    @Test
+    void broadcast_to_is_a_view_summing_its_gradient() {
+        var vector = new NDArray(new double[] {1, 2, 3}, 3);
+        var stretched = vector.broadcast_to(4, 3);
+        assertSame(vector.get_storage(), stretched.get_storage());
+        assertArrayEquals(new int[] {0, 1}, stretched.get_strides());
+        stretched.multiply(new NDArray(new double[] {1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4, 4}, 4, 3)).sum().backward();
+        assertArrayEquals(new double[] {10, 10, 10}, vector.get_storage().get_gradient(), 0);
+
+        assertThrows(RuntimeException.class, () -> vector.broadcast_to(3, 2));
+        assertThrows(RuntimeException.class, () -> vector.add(new NDArray(new int[] {2}, MultiDimObject.InitValues.ONES)));
+    }
+
+    @Test
+    void reshape_and_permute_keep_the_elements() {
+        var array = new NDArray(new double[] {0, 1, 2, 3, 4, 5}, 2, 3);
+        var permuted = array.permute(1, 0);
+        assertSame(array.get_storage(), permuted.get_storage());
+        assertEquals(4, permuted.get(1, 1).value, 0);
+        assertArrayEquals(new double[] {0, 3, 1, 4, 2, 5}, permuted.reshape(6).get_storage().get_data(), 0);
+        assertSame(array.get_storage(), array.reshape(3, 2).get_storage());
+        assertThrows(RuntimeException.class, () -> array.reshape(4));
+        assertThrows(RuntimeException.class, () -> array.permute(0, 0));
+    }
+}
@@ -0,0 +1,82 @@
+package mathematics;
+
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReductionTest {
+    private static final int[] SIZE = {3, 4, 5};
+
+    private static NDArray random(Random random, int... size) {
+        var array = new NDArray(size, MultiDimObject.InitValues.ZEROS);
+        double[] data = array.get_storage().get_data();
+        for (int i = 0; i < data.length; ++i) data[i] = random.nextDouble() * 2 - 1;
+        return array;
+    }
+
+    private static double loss(BiFunction<NDArray, int[], NDArray> reduction, NDArray input, int[] axes,
+                               NDArray weights) {
+        return reduction.apply(input, axes).multiply(weights).sum().value;
+    }
+
+    private static void check_gradient(BiFunction<NDArray, int[], NDArray> reduction, int[] axes) {
+        var random = new Random(19);
+        for (var mode: ModelSettings.executionMode.values()) {
+            var input = random(random, SIZE);
+            input.mode = mode;
+            var weights = random(random, Reduction.shape(SIZE, Reduction.axes(SIZE, axes)));
+            weights.set_requires_grad(false);
+            reduction.apply(input, axes).multiply(weights).sum().backward(mode);
+
+            double[] data = input.get_storage().get_data();
+            double[] expected = new double[data.length];
+            double epsilon = 1e-6;
+            for (int i = 0; i < data.length; ++i) {
+                double value = data[i];
+                data[i] = value + epsilon;
+                double plus = loss(reduction, input, axes, weights);
+                data[i] = value - epsilon;
+                double minus = loss(reduction, input, axes, weights);
+                data[i] = value;
+                expected[i] = (plus - minus) / (2 * epsilon);
+            }
+            assertArrayEquals(expected, input.get_storage().get_gradient(), 1e-6);
+        }
+    }
+
+    @Test
+    void gradients_match_finite_differences() {
+        for (int[] axes: new int[][] {{}, {0}, {1}, {2}, {0, 2}}) {
+            check_gradient(NDArray::sum, axes);
+            check_gradient(NDArray::mean, axes);
+            check_gradient(NDArray::max, axes);
+            check_gradient(NDArray::logsumexp, axes);
+        }
+    }
+
+    @Test
+    void argmax_is_created_outside_of_the_graph() {
+        var input = new NDArray(new double[] {1, 5, 2, 7, 3, 3}, 2, 3);
+        var product = input.multiply(2);
+        assertNotNull(product.get_grad_fn());
+
+        for (var object: new NDArray[] {input, product}) {
+            var indices = object.argmax(1);
+            assertFalse(indices.requires_grad());
+            assertNull(indices.get_grad_fn());
+            assertArrayEquals(new int[] {2, 1}, indices.get_size());
+            assertArrayEquals(new double[] {1, 0}, indices.get_storage().get_data(), 0);
+            assertArrayEquals(new double[] {1, 0, 1}, object.argmax(0).get_storage().get_data(), 0);
+        }
+
+        // indices combined with differentiable objects do not route gradients back into the input
+        var weights = new NDArray(new double[] {1, 1}, 2, 1);
+        weights.multiply(product.argmax(1)).sum().backward();
+        assertArrayEquals(new double[] {1, 0}, weights.get_storage().get_gradient(), 0);
+        assertArrayEquals(new double[6], input.get_storage().get_gradient(), 0);
+    }
+}
@@ -0,0 +1,106 @@
+package mathematics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageArenaTest {
+
+    @AfterEach
+    void trim() {
+        StorageArena.trim();
+    }
+
+    @Test
+    void closed_scope_hands_its_arrays_to_the_next_one() {
+        double[] data;
+        var arena = new StorageArena();
+        try {
+            var storage = new Storage(1237);
+            data = storage.get_data();
+            data[3] = 5;
+            var nested = new StorageArena();
+            assertThrows(RuntimeException.class, arena::close);
+            nested.close();
+        } finally {
+            arena.close();
+        }
+
+        var next = new StorageArena();
+        try {
+            var storage = new Storage(1237);
+            assertSame(data, storage.get_data());
+            assertEquals(0, storage.get_data()[3], 0);
+        } finally {
+            next.close();
+        }
+    }
+
+    @Test
+    void released_storage_cannot_be_used() {
+        var arena = new StorageArena();
+        Storage storage;
+        try {
+            storage = new Storage(16);
+            StorageArena.release(storage);
+            assertThrows(RuntimeException.class, storage::get_data);
+        } finally {
+            arena.close();
+        }
+        var outside = new Storage(16);
+        StorageArena.release(outside);
+        assertDoesNotThrow(outside::get_data);
+    }
+
+    @Test
+    void released_array_is_reused_before_the_scope_is_closed() {
+        var arena = new StorageArena();
+        try {
+            double[] first = StorageArena.allocate_array(1000);
+            assertEquals(8000, arena.get_live_bytes());
+            first[0] = 1;
+            StorageArena.release_array(first);
+            assertEquals(0, arena.get_live_bytes());
+            // arrays returned twice, or not taken from the scope, are ignored
+            StorageArena.release_array(first);
+            StorageArena.release_array(new double[1000]);
+            assertEquals(0, arena.get_live_bytes());
+
+            double[] second = StorageArena.allocate_array(1000);
+            assertSame(first, second);
+            assertEquals(0, second[0], 0);
+            assertEquals(8000, arena.get_peak_bytes());
+        } finally {
+            arena.close();
+        }
+        assertEquals(0, arena.get_live_bytes());
+    }
+
+    @Test
+    void peak_bytes_count_data_gradients_and_scratch_arrays() {
+        var arena = new StorageArena();
+        try {
+            var storage = new Storage(100);
+            storage.get_gradient();
+            double[] scratch = StorageArena.allocate_array(50);
+            assertEquals(250 * Double.BYTES, arena.get_live_bytes());
+            StorageArena.release(storage);
+            StorageArena.release_array(scratch);
+            assertEquals(0, arena.get_live_bytes());
+            new Storage(10);
+            assertEquals(10 * Double.BYTES, arena.get_live_bytes());
+            assertEquals(250 * Double.BYTES, arena.get_peak_bytes());
+        } finally {
+            arena.close();
+        }
+        assertEquals(0, arena.get_live_bytes());
+    }
+
+    @Test
+    void arrays_outside_of_a_scope_are_not_pooled() {
+        double[] array = StorageArena.allocate_array(64);
+        StorageArena.release_array(array);
+        assertNotSame(array, StorageArena.allocate_array(64));
+    }
+}
@@ -0,0 +1,132 @@
+package mathematics;
+
+import autograd.Value;
+import nn.models.ModelSettings;
+import optimizers.Adam;
+import optimizers.Momentum;
+import optimizers.Optimizer;
+import optimizers.SGD;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageTest {
+
+    @Test
+    void matrices_are_stored_row_major() {
+        double[][] values = {{1, 2, 3}, {4, 5, 6}};
+        var matrix = new Matrix(values);
+        assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6}, matrix.get_storage().get_data(), 0);
+        for (int i = 0; i < 2; ++i)
+            for (int j = 0; j < 3; ++j) assertEquals(values[i][j], matrix.get(i, j).value, 0);
+
+        matrix.set(new Value(-7), 1, 2);
+        assertEquals(-7, matrix.get_storage().get_data()[5], 0);
+        assertEquals(-7, matrix.get(1, 2).value, 0);
+    }
+
+    @Test
+    void tensors_are_stored_channel_last() {
+        var values = new double[2][3][4];
+        for (int i = 0; i < 2; ++i)
+            for (int j = 0; j < 3; ++j)
+                for (int k = 0; k < 4; ++k) values[i][j][k] = 100 * i + 10 * j + k;
+        var tensor = new Tensor(values);
+        double[] data = tensor.get_storage().get_data();
+        for (int i = 0; i < 2; ++i)
+            for (int j = 0; j < 3; ++j)
+                for (int k = 0; k < 4; ++k) {
+                    assertEquals(values[i][j][k], data[(i * 3 + j) * 4 + k], 0);
+                    assertEquals(values[i][j][k], tensor.get(i, j, k).value, 0);
+                }
+
+        tensor.set(new Value(-1), 1, 0, 3);
+        assertEquals(-1, data[(1 * 3 + 0) * 4 + 3], 0);
+    }
+
+    @Test
+    void gradients_are_allocated_lazily_and_written_back_by_the_elements() {
+        var storage = new Storage(new double[] {1, 2, 3});
+        assertFalse(storage.has_gradient());
+        storage.zero_gradient();
+        assertFalse(storage.has_gradient());
+        assertArrayEquals(new double[3], storage.get_gradient(), 0);
+        assertTrue(storage.has_gradient());
+        assertSame(storage.get_gradient(), storage.get_gradient());
+
+        var matrix = new Matrix(new double[][] {{1, 2}, {3, 4}});
+        assertFalse(matrix.get_storage().has_gradient());
+        matrix.get(1, 0).multiply(matrix.get(0, 1)).backward();
+        assertArrayEquals(new double[] {0, 3, 2, 0}, matrix.get_storage().get_gradient(), 0);
+        matrix.get_storage().zero_gradient();
+        assertArrayEquals(new double[4], matrix.get_storage().get_gradient(), 0);
+    }
+
+    /**
+     * The update of every element by the optimizers before the elements moved to storages.
+     */
+    private interface ElementUpdate {
+        double apply(int index, double value, double gradient);
+    }
+
+    private static void check_steps(Optimizer optimizer, List<MultiDimObject> parameters, ElementUpdate update) {
+        for (int step = 0; step < 3; ++step) {
+            var expected = new ArrayList<double[]>();
+            int index = 0;
+            for (var parameter: parameters) {
+                double[] values = parameter.get_storage().get_data();
+                double[] gradients = parameter.get_storage().get_gradient();
+                var expected_values = new double[values.length];
+                for (int i = 0; i < values.length; ++i) {
+                    // some of the gradients are clipped
+                    gradients[i] = 3 * Math.sin(index + 7 * step + 1);
+                    expected_values[i] = update.apply(index++, values[i], Math.max(-2, Math.min(gradients[i], 2)));
+                }
+                expected.add(expected_values);
+            }
+            optimizer.step();
+            for (int p = 0; p < parameters.size(); ++p)
+                assertArrayEquals(expected.get(p), parameters.get(p).get_storage().get_data(), 1e-12);
+        }
+        optimizer.set_zero_gradients();
+        for (var parameter: parameters) assertArrayEquals(new double[parameter.get_elements_num()],
+                parameter.get_storage().get_gradient(), 0);
+    }
+
+    private static ArrayList<MultiDimObject> parameters() {
+        var parameters = new ArrayList<MultiDimObject>();
+        parameters.add(new Matrix(3, 4, MultiDimObject.InitValues.HE));
+        parameters.add(new Tensor(2, 3, 2, MultiDimObject.InitValues.RANDOM));
+        return parameters;
+    }
+
+    @Test
+    void optimizer_steps_update_the_storages_like_the_elements() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var sgd_parameters = parameters();
+            check_steps(new SGD(sgd_parameters, 0.1, mode), sgd_parameters, (i, value, gradient) -> value - 0.1 * gradient);
+
+            var momentum_parameters = parameters();
+            var momentum = new double[24];
+            check_steps(new Momentum(momentum_parameters, 0.1, 0.9, mode), momentum_parameters, (i, value, gradient) -> {
+                momentum[i] = 0.9 * momentum[i] + 0.1 * gradient;
+                return value - momentum[i];
+            });
+
+            var adam_parameters = parameters();
+            var moments = new double[2][24];
+            var timestep = new int[] {0};
+            check_steps(new Adam(adam_parameters, 0.01, 0.9, 0.999, mode), adam_parameters, (i, value, gradient) -> {
+                if (i == 0) ++timestep[0];
+                moments[0][i] = 0.9 * moments[0][i] + (1 - 0.9) * gradient;
+                moments[1][i] = 0.999 * moments[1][i] + (1 - 0.999) * gradient * gradient;
+                double corrected1 = moments[0][i] / (1 - Math.pow(0.9, timestep[0]));
+                double corrected2 = moments[1][i] / (1 - Math.pow(0.999, timestep[0]));
+                return value - 0.01 * corrected1 / (Math.sqrt(corrected2) + 1e-7);
+            });
+        }
+    }
+}
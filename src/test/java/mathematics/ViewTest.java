@@ -0,0 +1,91 @@
+package mathematics;
+
+import autograd.Value;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewTest {
+
+    private static Value total(Matrix matrix) {
+        var elements = new ArrayList<Value>();
+        for (var element: matrix) elements.add(element);
+        return Value.add(elements);
+    }
+
+    private static Tensor tensor() {
+        var values = new double[4][5][3];
+        for (int i = 0; i < 4; ++i)
+            for (int j = 0; j < 5; ++j)
+                for (int k = 0; k < 3; ++k) values[i][j][k] = 100 * i + 10 * j + k;
+        return new Tensor(values);
+    }
+
+    @Test
+    void views_share_the_storage_of_their_base() {
+        var tensor = tensor();
+        var slice = tensor.slice(new int[] {1, 3}, new int[] {2, 5});
+        var channel = tensor.get_dim(2);
+        var matrix = new Matrix(new double[][] {{1, 2, 3}, {4, 5, 6}});
+        var transposed = matrix.transpose();
+
+        assertSame(tensor.get_storage(), slice.get_storage());
+        assertSame(tensor.get_storage(), channel.get_storage());
+        assertSame(matrix.get_storage(), transposed.get_storage());
+        assertArrayEquals(new int[] {2, 3, 3}, slice.get_size());
+        assertEquals(242, slice.get(1, 2, 2).value, 0);
+        assertEquals(312, channel.get(3, 1).value, 0);
+        assertArrayEquals(new int[] {3, 2}, transposed.get_size());
+        assertEquals(6, transposed.get(2, 1).value, 0);
+        assertFalse(transposed.is_contiguous());
+        assertArrayEquals(new double[] {1, 4, 2, 5, 3, 6}, transposed.contiguous().get_storage().get_data(), 0);
+
+        tensor.get_storage().get_data()[2] = -1;
+        assertEquals(-1, channel.get(0, 0).value, 0);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> tensor.slice(new int[] {3, 5}, new int[] {0, 1}));
+        assertThrows(RuntimeException.class, () -> tensor.get_dim(3));
+    }
+
+    @Test
+    void gradients_of_views_reach_their_base() {
+        var tensor = tensor();
+        tensor.slice(new int[] {1, 3}, new int[] {2, 5}).multiply(2).sum().backward();
+        double[] gradient = tensor.get_storage().get_gradient();
+        for (int i = 0; i < 4; ++i)
+            for (int j = 0; j < 5; ++j)
+                for (int k = 0; k < 3; ++k) {
+                    boolean inside = i >= 1 && i < 3 && j >= 2;
+                    assertEquals(inside ? 2 : 0, gradient[(i * 5 + j) * 3 + k], 0);
+                }
+
+        var other = tensor();
+        total(other.get_dim(1)).backward();
+        double[] other_gradient = other.get_storage().get_gradient();
+        for (int i = 0; i < other_gradient.length; ++i) assertEquals(i % 3 == 1 ? 1 : 0, other_gradient[i], 0);
+    }
+
+    @Test
+    void products_of_transposed_views_match_products_of_copies() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var a = new Matrix(7, 5, MultiDimObject.InitValues.HE);
+            var b = new Matrix(7, 3, MultiDimObject.InitValues.HE);
+            a.mode = mode;
+            total(a.transpose().multiply(b)).backward(mode);
+            double[] a_gradient = a.get_storage().get_gradient().clone();
+            double[] b_gradient = b.get_storage().get_gradient().clone();
+            a.get_storage().zero_gradient();
+            b.get_storage().zero_gradient();
+
+            var a_copy = a.transpose().contiguous();
+            var expected = a_copy.multiply(b);
+            assertArrayEquals(expected.get_storage().get_data(),
+                    a.transpose().multiply(b).get_storage().get_data(), 1e-12);
+            total(expected).backward(mode);
+            assertArrayEquals(a_gradient, a.get_storage().get_gradient(), 1e-12);
+            assertArrayEquals(b_gradient, b.get_storage().get_gradient(), 1e-12);
+        }
+    }
+}
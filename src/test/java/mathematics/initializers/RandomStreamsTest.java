@@ -0,0 +1,75 @@
+package mathematics.initializers;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamsTest {
+    // several chunks and a partial one
+    private static final int SIZE = 3 * 4096 + 123;
+
+    private static double[] fill_in(ForkJoinPool pool, IInitializer initializer) {
+        var buffer = new double[SIZE];
+        try {
+            pool.submit(() -> initializer.fill(buffer)).get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+        return buffer;
+    }
+
+    @Test
+    void seeded_values_do_not_depend_on_the_number_of_threads() {
+        RandomStreams.set_seed(20);
+        double[] single = fill_in(new ForkJoinPool(1), new HeGaussianInitializer(50));
+        RandomStreams.set_seed(20);
+        double[] several = fill_in(new ForkJoinPool(8), new HeGaussianInitializer(50));
+        assertArrayEquals(single, several, 0);
+
+        RandomStreams.set_seed(20);
+        double[] uniform = fill_in(new ForkJoinPool(3), new RandomInitializer(-0.25, 0.25));
+        for (double value: uniform) assertTrue(value >= -0.25 && value < 0.25);
+        RandomStreams.set_seed(20);
+        assertArrayEquals(uniform, fill_in(new ForkJoinPool(1), new RandomInitializer(-0.25, 0.25)), 0);
+    }
+
+    @Test
+    void initializers_created_in_order_are_reproducible_and_independent() {
+        RandomStreams.set_seed(7);
+        var first = new Matrix(40, 30, MultiDimObject.InitValues.HE);
+        var second = new Matrix(40, 30, MultiDimObject.InitValues.HE);
+        RandomStreams.set_seed(7);
+        var first_again = new Matrix(40, 30, MultiDimObject.InitValues.HE);
+        var second_again = new Matrix(40, 30, MultiDimObject.InitValues.HE);
+
+        assertArrayEquals(first.get_storage().get_data(), first_again.get_storage().get_data(), 0);
+        assertArrayEquals(second.get_storage().get_data(), second_again.get_storage().get_data(), 0);
+        assertFalse(Arrays.equals(first.get_storage().get_data(), second.get_storage().get_data()));
+
+        RandomStreams.set_seed(8);
+        var other_seed = new Matrix(40, 30, MultiDimObject.InitValues.HE);
+        assertFalse(Arrays.equals(first.get_storage().get_data(), other_seed.get_storage().get_data()));
+    }
+
+    @Test
+    void he_values_have_the_expected_deviation() {
+        RandomStreams.set_seed(1);
+        double[] values = fill_in(new ForkJoinPool(4), new HeGaussianInitializer(8));
+        double mean = 0, square = 0;
+        for (double value: values) {
+            mean += value;
+            square += value * value;
+        }
+        mean /= values.length;
+        assertEquals(0, mean, 0.02);
+        assertEquals(0.5, Math.sqrt(square / values.length - mean * mean), 0.02);
+        assertThrows(RuntimeException.class, () -> new HeGaussianInitializer(0));
+    }
+}
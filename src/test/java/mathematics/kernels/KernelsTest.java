@@ -0,0 +1,119 @@
+package mathematics.kernels;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KernelsTest {
+    private static final int OFFSET = 3;
+    private static final int[] LENGTHS = {0, 1, 2, 3, 7, 8, 9, 15, 16, 17, 31, 33, 64, 100};
+
+    private final Random random_ = new Random(12);
+
+    private double[] random(int size) {
+        var values = new double[size];
+        for (int i = 0; i < size; ++i) values[i] = random_.nextDouble() * 8 - 4;
+        return values;
+    }
+
+    private float[] random_single(int size) {
+        var values = new float[size];
+        for (int i = 0; i < size; ++i) values[i] = random_.nextFloat() * 8 - 4;
+        return values;
+    }
+
+    /**
+     * Runs a kernel of both implementations on copies of the same buffers and compares all outputs, so that the
+     * elements outside of the processed range are checked as well.
+     */
+    private interface Case {
+        void run(IKernels kernels, double[] first, double[] second, double[] output);
+    }
+
+    private void assert_same(Case kernel, String name) {
+        var vector = Kernels.get();
+        var scalar = new ScalarKernels();
+        for (int length: LENGTHS) {
+            int size = OFFSET + length + 5;
+            double[] first = random(size), second = random(size), output = random(size);
+            double[] vector_output = output.clone(), scalar_output = output.clone();
+            kernel.run(vector, first.clone(), second.clone(), vector_output);
+            kernel.run(scalar, first.clone(), second.clone(), scalar_output);
+            assertArrayEquals(scalar_output, vector_output, 1e-12, name + " of length " + length);
+        }
+    }
+
+    @Test
+    void vector_api_is_enabled_for_the_tests() {
+        assertTrue(Kernels.is_vectorized());
+    }
+
+    @Test
+    void element_wise_kernels_match_the_scalar_kernels() {
+        assert_same((k, a, b, out) -> k.add(a, OFFSET, b, OFFSET + 1, out, OFFSET, out.length - OFFSET - 5), "add");
+        assert_same((k, a, b, out) -> k.scale(a, OFFSET, -1.5, out, 1, out.length - OFFSET - 5), "scale");
+        assert_same((k, a, b, out) -> k.axpy(0.75, a, OFFSET, out, 2, out.length - OFFSET - 5), "axpy");
+        assert_same((k, a, b, out) -> k.relu(a, out, OFFSET, out.length - OFFSET - 5), "relu");
+        assert_same((k, a, b, out) -> k.leaky_relu(a, out, OFFSET, out.length - OFFSET - 5), "leaky_relu");
+        assert_same((k, a, b, out) -> k.sigmoid(a, out, OFFSET, out.length - OFFSET - 5), "sigmoid");
+        assert_same((k, a, b, out) -> k.relu_backward(a, b, out, OFFSET, out.length - OFFSET - 5), "relu_backward");
+        assert_same((k, a, b, out) -> k.leaky_relu_backward(a, b, out, OFFSET, out.length - OFFSET - 5),
+                "leaky_relu_backward");
+        assert_same((k, a, b, out) -> k.sigmoid_backward(a, b, out, OFFSET, out.length - OFFSET - 5),
+                "sigmoid_backward");
+        assert_same((k, a, b, out) -> k.relu_backward_in_place(a, out, OFFSET, out.length - OFFSET - 5),
+                "relu_backward_in_place");
+        assert_same((k, a, b, out) -> k.leaky_relu_backward_in_place(a, out, OFFSET, out.length - OFFSET - 5),
+                "leaky_relu_backward_in_place");
+        assert_same((k, a, b, out) -> k.sigmoid_backward_in_place(a, out, OFFSET, out.length - OFFSET - 5),
+                "sigmoid_backward_in_place");
+    }
+
+    @Test
+    void in_place_backward_kernels_match_the_accumulating_kernels() {
+        var kernels = Kernels.get();
+        for (int length: LENGTHS) {
+            double[] output = random(length), gradient = random(length);
+            double[] expected = new double[length];
+            kernels.sigmoid_backward(output, gradient, expected, 0, length);
+            kernels.sigmoid_backward_in_place(output, gradient, 0, length);
+            assertArrayEquals(expected, gradient, 1e-12);
+        }
+    }
+
+    @Test
+    void axpy4_matches_four_single_rows() {
+        assert_same((k, a, b, out) -> {
+            int length = (out.length - OFFSET - 5) / 4;
+            k.axpy4(1, -2, 0.5, 3, a, OFFSET, out, 0, length, 2 * length, 3 * length, length);
+        }, "axpy4");
+        for (int length: LENGTHS) {
+            float[] input = random_single(OFFSET + length);
+            float[] output = random_single(4 * length + 1);
+            float[] expected = output.clone();
+            var scalar = new ScalarKernels();
+            for (int row = 0; row < 4; ++row)
+                scalar.axpy(row - 1.5f, input, OFFSET, expected, 1 + row * length, length);
+            Kernels.get().axpy4(-1.5f, -0.5f, 0.5f, 1.5f, input, OFFSET, output, 1, 1 + length, 1 + 2 * length,
+                    1 + 3 * length, length);
+            for (int i = 0; i < output.length; ++i) assertEquals(expected[i], output[i], 1e-5);
+        }
+    }
+
+    @Test
+    void reductions_match_the_scalar_kernels() {
+        var scalar = new ScalarKernels();
+        for (int length: LENGTHS) {
+            double[] input = random(OFFSET + length + 2);
+            assertEquals(scalar.sum(input, OFFSET, length), Kernels.get().sum(input, OFFSET, length), 1e-12);
+            if (length == 0) continue;
+            assertEquals(scalar.argmax(input, OFFSET, length), Kernels.get().argmax(input, OFFSET, length));
+            // ties are resolved to the first maximum
+            input[OFFSET + length - 1] = 10;
+            input[OFFSET + length / 2] = 10;
+            assertEquals(OFFSET + length / 2, Kernels.get().argmax(input, OFFSET, length));
+        }
+    }
+}
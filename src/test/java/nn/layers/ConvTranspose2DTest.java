@@ -0,0 +1,106 @@
+package nn.layers;
+
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.Tensor;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvTranspose2DTest {
+    private static final int CHANNELS = 3;
+    private static final int OUTPUT_CHANNELS = 2;
+    private static final int BATCH = 2;
+
+    private static double[] random(Random random, int size) {
+        var values = new double[size];
+        for (int i = 0; i < size; ++i) values[i] = random.nextDouble() * 2 - 1;
+        return values;
+    }
+
+    private static int output_size(int size, int kernel_size, int stride, int padding) {
+        return (size - 1) * stride - 2 * padding + kernel_size;
+    }
+
+    @Test
+    void matches_the_scatter_of_every_input_element() {
+        var random = new Random(24);
+        int height = 4, width = 5;
+        // kernel size, stride, padding
+        for (int[] config: new int[][] {{3, 2, 0}, {4, 2, 1}, {3, 1, 1}, {2, 3, 0}, {2, 2, 0}, {1, 1, 0}}) {
+            int kernel_size = config[0], stride = config[1], padding = config[2];
+            int output_height = output_size(height, kernel_size, stride, padding);
+            int output_width = output_size(width, kernel_size, stride, padding);
+            double[] input = random(random, BATCH * height * width * CHANNELS);
+            double[] weights = random(random, BATCH * output_height * output_width * OUTPUT_CHANNELS);
+
+            for (var mode: ModelSettings.executionMode.values()) {
+                var layer = new ConvTranspose2D(CHANNELS, OUTPUT_CHANNELS, kernel_size, stride, padding, true,
+                        Layer.Activation.Identity, mode);
+                List<MultiDimObject> parameters = layer.get_parameters();
+                for (var parameter: parameters) {
+                    double[] data = parameter.get_storage().get_data();
+                    System.arraycopy(random(random, data.length), 0, data, 0, data.length);
+                }
+
+                // every input element adds the kernel of its channel, scaled by its value, to its output window
+                var expected = new double[weights.length];
+                var expected_input_gradient = new double[input.length];
+                var expected_gradients = new double[CHANNELS + 1][];
+                for (int c = 0; c <= CHANNELS; ++c)
+                    expected_gradients[c] = new double[parameters.get(c).get_elements_num()];
+                double[] bias = parameters.get(CHANNELS).get_storage().get_data();
+                for (int o = 0; o < expected.length; ++o) {
+                    expected[o] = bias[o % OUTPUT_CHANNELS];
+                    expected_gradients[CHANNELS][o % OUTPUT_CHANNELS] += weights[o];
+                }
+                for (int n = 0; n < BATCH; ++n) for (int y = 0; y < height; ++y) for (int x = 0; x < width; ++x) {
+                    for (int c = 0; c < CHANNELS; ++c) {
+                        int i = ((n * height + y) * width + x) * CHANNELS + c;
+                        double[] kernel = parameters.get(c).get_storage().get_data();
+                        for (int dy = 0; dy < kernel_size; ++dy) for (int dx = 0; dx < kernel_size; ++dx) {
+                            int row = y * stride + dy - padding, column = x * stride + dx - padding;
+                            if (row < 0 || row >= output_height || column < 0 || column >= output_width) continue;
+                            for (int k = 0; k < OUTPUT_CHANNELS; ++k) {
+                                int o = ((n * output_height + row) * output_width + column) * OUTPUT_CHANNELS + k;
+                                int w = (dy * kernel_size + dx) * OUTPUT_CHANNELS + k;
+                                expected[o] += input[i] * kernel[w];
+                                expected_input_gradient[i] += weights[o] * kernel[w];
+                                expected_gradients[c][w] += weights[o] * input[i];
+                            }
+                        }
+                    }
+                }
+
+                var batch = new NDArray(input.clone(), BATCH, height, width, CHANNELS);
+                var output = (NDArray) layer.forward(batch);
+                String message = mode + " " + Arrays.toString(config);
+                assertArrayEquals(new int[] {BATCH, output_height, output_width, OUTPUT_CHANNELS}, output.get_size());
+                assertArrayEquals(expected, output.contiguous().get_storage().get_data(), 1e-12, message);
+                var output_weights = new NDArray(weights, output.get_size());
+                output_weights.set_requires_grad(false);
+                output.multiply(output_weights).sum().backward();
+                assertArrayEquals(expected_input_gradient, batch.get_storage().get_gradient(), 1e-12, message);
+                for (int c = 0; c <= CHANNELS; ++c)
+                    assertArrayEquals(expected_gradients[c], parameters.get(c).get_storage().get_gradient(), 1e-12,
+                            message + " gradient of parameter " + c);
+            }
+        }
+    }
+
+    @Test
+    void single_tensor_is_upsampled_like_a_batch_of_one() {
+        var layer = new ConvTranspose2D(CHANNELS, OUTPUT_CHANNELS, 4, 2, 1, true, Layer.Activation.Sigmoid,
+                ModelSettings.executionMode.SERIAL);
+        var tensor = new Tensor(3, 5, CHANNELS, MultiDimObject.InitValues.HE);
+        var output = (Tensor) layer.forward(tensor);
+        var batch = (NDArray) layer.forward(new NDArray(tensor.get_storage().get_data().clone(), 1, 3, 5, CHANNELS));
+        assertArrayEquals(new int[] {6, 10, OUTPUT_CHANNELS}, output.get_size());
+        assertArrayEquals(batch.get_storage().get_data(), output.contiguous().get_storage().get_data(), 0);
+    }
+}
@@ -0,0 +1,242 @@
+package nn.layers;
+
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.Tensor;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Convolution2DTest {
+    private static final int CHANNELS = 3;
+    private static final int KERNELS = 4;
+    private static final int BATCH = 2;
+
+    /**
+     * The result of a forward and backward pass: the output, the gradient of the input and the gradients of the
+     * kernels and the bias.
+     */
+    private record Pass(double[] output, double[] input_gradient, double[][] parameter_gradients) {}
+
+    private static double[] random(Random random, int size) {
+        var values = new double[size];
+        for (int i = 0; i < size; ++i) values[i] = random.nextDouble() * 2 - 1;
+        return values;
+    }
+
+    private static Convolution2D layer(int kernel_size, int stride, int padding, ModelSettings.executionMode mode,
+                                       Convolution2D.Algorithm algorithm, long seed) {
+        var layer = new Convolution2D(CHANNELS, KERNELS, kernel_size, stride, padding, true,
+                Layer.Activation.Identity, mode);
+        layer.set_algorithm(algorithm);
+        var random = new Random(seed);
+        for (var parameter: layer.get_parameters()) {
+            double[] data = parameter.get_storage().get_data();
+            System.arraycopy(random(random, data.length), 0, data, 0, data.length);
+        }
+        return layer;
+    }
+
+    private static int output_size(int size, int kernel_size, int stride, int padding) {
+        return (size + 2 * padding - kernel_size) / stride + 1;
+    }
+
+    /**
+     * Runs a batch through the layer and back, with the loss being the sum of the outputs weighted by the given
+     * weights, and clears the gradients of the parameters.
+     */
+    private static Pass pass(Convolution2D layer, double[] input_data, int height, int width, double[] weights) {
+        var input = new NDArray(input_data.clone(), BATCH, height, width, CHANNELS);
+        var output = (NDArray) layer.forward(input);
+        var output_weights = new NDArray(weights, output.get_size());
+        output_weights.set_requires_grad(false);
+        output.multiply(output_weights).sum().backward();
+
+        List<MultiDimObject> parameters = layer.get_parameters();
+        var gradients = new double[parameters.size()][];
+        for (int i = 0; i < gradients.length; ++i) {
+            gradients[i] = parameters.get(i).get_storage().get_gradient().clone();
+            parameters.get(i).get_storage().zero_gradient();
+        }
+        return new Pass(output.contiguous().get_storage().get_data(), input.get_storage().get_gradient().clone(),
+                gradients);
+    }
+
+    /**
+     * Convolves the batch by the definition and differentiates the weighted sum of the outputs by hand.
+     */
+    private static Pass reference(Convolution2D layer, double[] input, int height, int width, int kernel_size,
+                                  int stride, int padding, double[] weights) {
+        List<MultiDimObject> parameters = layer.get_parameters();
+        int output_height = output_size(height, kernel_size, stride, padding);
+        int output_width = output_size(width, kernel_size, stride, padding);
+        var output = new double[BATCH * output_height * output_width * KERNELS];
+        var input_gradient = new double[input.length];
+        var gradients = new double[KERNELS + 1][];
+        for (int k = 0; k <= KERNELS; ++k) gradients[k] = new double[parameters.get(k).get_elements_num()];
+        double[] bias = parameters.get(KERNELS).get_storage().get_data();
+
+        for (int n = 0; n < BATCH; ++n) for (int y = 0; y < output_height; ++y) for (int x = 0; x < output_width; ++x) {
+            for (int k = 0; k < KERNELS; ++k) {
+                double[] kernel = parameters.get(k).get_storage().get_data();
+                int o = ((n * output_height + y) * output_width + x) * KERNELS + k;
+                double sum = bias[k];
+                for (int dy = 0; dy < kernel_size; ++dy) for (int dx = 0; dx < kernel_size; ++dx) {
+                    int row = y * stride + dy - padding, column = x * stride + dx - padding;
+                    if (row < 0 || row >= height || column < 0 || column >= width) continue;
+                    for (int c = 0; c < CHANNELS; ++c) {
+                        int i = ((n * height + row) * width + column) * CHANNELS + c;
+                        int w = (dy * kernel_size + dx) * CHANNELS + c;
+                        sum += input[i] * kernel[w];
+                        input_gradient[i] += weights[o] * kernel[w];
+                        gradients[k][w] += weights[o] * input[i];
+                    }
+                }
+                output[o] = sum;
+                gradients[KERNELS][k] += weights[o];
+            }
+        }
+        return new Pass(output, input_gradient, gradients);
+    }
+
+    private static void assert_passes_equal(Pass expected, Pass actual, double delta, String message) {
+        assertArrayEquals(expected.output(), actual.output(), delta, message + " output");
+        assertArrayEquals(expected.input_gradient(), actual.input_gradient(), delta, message + " input gradient");
+        assertEquals(expected.parameter_gradients().length, actual.parameter_gradients().length);
+        for (int i = 0; i < expected.parameter_gradients().length; ++i)
+            assertArrayEquals(expected.parameter_gradients()[i], actual.parameter_gradients()[i], delta,
+                    message + " gradient of parameter " + i);
+    }
+
+    @Test
+    void im2col_matches_the_convolution_by_definition() {
+        var random = new Random(21);
+        // height, width, kernel size, stride, padding
+        for (int[] config: new int[][] {{5, 5, 3, 1, 0}, {7, 6, 3, 2, 1}, {6, 9, 5, 1, 2}, {4, 4, 1, 1, 0}, {9, 7, 4, 3, 2}}) {
+            int height = config[0], width = config[1], kernel_size = config[2], stride = config[3], padding = config[4];
+            double[] input = random(random, BATCH * height * width * CHANNELS);
+            double[] weights = random(random, BATCH * output_size(height, kernel_size, stride, padding)
+                    * output_size(width, kernel_size, stride, padding) * KERNELS);
+            for (var mode: ModelSettings.executionMode.values()) {
+                var layer = layer(kernel_size, stride, padding, mode, Convolution2D.Algorithm.IM2COL, 1);
+                var expected = reference(layer, input, height, width, kernel_size, stride, padding, weights);
+                assert_passes_equal(expected, pass(layer, input, height, width, weights), 1e-12,
+                        mode + " " + Arrays.toString(config));
+
+                layer.set_precision(ModelSettings.numericPrecision.FLOAT32);
+                assert_passes_equal(expected, pass(layer, input, height, width, weights), 1e-4, mode + " FLOAT32");
+            }
+        }
+    }
+
+    /**
+     * Compares two training steps of a layer computed by the given algorithm with the same layer computed by im2col,
+     * so that a cache of transformed kernels that is not invalidated by the update of the kernels is noticed.
+     */
+    private static void assert_matches_im2col(Convolution2D.Algorithm algorithm, int[][] configs, double delta) {
+        var random = new Random(algorithm.ordinal());
+        // height, width, kernel size, stride, padding
+        for (int[] config: configs) {
+            int height = config[0], width = config[1], kernel_size = config[2], stride = config[3], padding = config[4];
+            int outputs = BATCH * output_size(height, kernel_size, stride, padding)
+                    * output_size(width, kernel_size, stride, padding) * KERNELS;
+            for (var mode: ModelSettings.executionMode.values()) {
+                var expected_layer = layer(kernel_size, stride, padding, mode, Convolution2D.Algorithm.IM2COL, 3);
+                var layer = layer(kernel_size, stride, padding, mode, algorithm, 3);
+                for (int step = 0; step < 2; ++step) {
+                    double[] input = random(random, BATCH * height * width * CHANNELS);
+                    double[] weights = random(random, outputs);
+                    var expected = pass(expected_layer, input, height, width, weights);
+                    assert_passes_equal(expected, pass(layer, input, height, width, weights), delta,
+                            algorithm + " " + mode + " " + Arrays.toString(config) + " step " + step);
+
+                    for (var pair: List.of(expected_layer.get_parameters(), layer.get_parameters())) {
+                        for (int i = 0; i < pair.size(); ++i) {
+                            pair.get(i).get_storage().get_data()[0] += 0.5 * (i + 1);
+                            pair.get(i).get_storage().increment_version();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void winograd_matches_im2col() {
+        assert_matches_im2col(Convolution2D.Algorithm.WINOGRAD,
+                new int[][] {{4, 4, 3, 1, 0}, {5, 7, 3, 1, 1}, {8, 6, 3, 1, 0}, {3, 3, 3, 1, 2}, {9, 9, 3, 1, 1}}, 1e-10);
+    }
+
+    @Test
+    void winograd_requires_3x3_kernels_and_the_stride_1() {
+        var mode = ModelSettings.executionMode.SERIAL;
+        assertThrows(RuntimeException.class, () -> layer(5, 1, 0, mode, Convolution2D.Algorithm.WINOGRAD, 0));
+        assertThrows(RuntimeException.class, () -> layer(3, 2, 0, mode, Convolution2D.Algorithm.WINOGRAD, 0));
+    }
+
+    @Test
+    void fft_matches_im2col() {
+        assert_matches_im2col(Convolution2D.Algorithm.FFT,
+                new int[][] {{7, 6, 3, 1, 1}, {8, 8, 5, 1, 0}, {5, 9, 3, 2, 2}, {9, 7, 7, 3, 3}, {6, 6, 1, 1, 0}}, 1e-10);
+    }
+
+    @Test
+    void im2col_is_the_default_and_auto_is_opt_in() {
+        int size = 24, kernel_size = 9, padding = 4;
+        assertTrue(FFTConvolution.is_cheaper(size, size, CHANNELS, kernel_size, kernel_size, KERNELS, 1, padding));
+        var random = new Random(23);
+        double[] input = random(random, BATCH * size * size * CHANNELS);
+        double[] weights = random(random, BATCH * size * size * KERNELS);
+        var mode = ModelSettings.executionMode.SERIAL;
+
+        var im2col = pass(layer(kernel_size, 1, padding, mode, Convolution2D.Algorithm.IM2COL, 4),
+                input, size, size, weights);
+        var fft = pass(layer(kernel_size, 1, padding, mode, Convolution2D.Algorithm.FFT, 4),
+                input, size, size, weights);
+        var auto = pass(layer(kernel_size, 1, padding, mode, Convolution2D.Algorithm.AUTO, 4),
+                input, size, size, weights);
+        var default_layer = new Convolution2D(CHANNELS, KERNELS, kernel_size, 1, padding, true,
+                Layer.Activation.Identity, mode);
+        var parameters = default_layer.get_parameters();
+        var reference_parameters = layer(kernel_size, 1, padding, mode, Convolution2D.Algorithm.IM2COL, 4)
+                .get_parameters();
+        for (int i = 0; i < parameters.size(); ++i) {
+            double[] data = reference_parameters.get(i).get_storage().get_data();
+            System.arraycopy(data, 0, parameters.get(i).get_storage().get_data(), 0, data.length);
+        }
+        // the same algorithm gives the same rounding errors
+        assert_passes_equal(im2col, pass(default_layer, input, size, size, weights), 0, "default");
+        assert_passes_equal(fft, auto, 0, "AUTO");
+    }
+
+    @Test
+    void auto_keeps_im2col_in_single_precision() {
+        int size = 24, kernel_size = 9, padding = 4;
+        var random = new Random(24);
+        double[] input = random(random, BATCH * size * size * CHANNELS);
+        double[] weights = random(random, BATCH * size * size * KERNELS);
+        var mode = ModelSettings.executionMode.SERIAL;
+
+        var im2col_layer = layer(kernel_size, 1, padding, mode, Convolution2D.Algorithm.IM2COL, 5);
+        im2col_layer.set_precision(ModelSettings.numericPrecision.FLOAT32);
+        var auto_layer = layer(kernel_size, 1, padding, mode, Convolution2D.Algorithm.AUTO, 5);
+        auto_layer.set_precision(ModelSettings.numericPrecision.FLOAT32);
+        assert_passes_equal(pass(im2col_layer, input, size, size, weights),
+                pass(auto_layer, input, size, size, weights), 0, "AUTO FLOAT32");
+    }
+
+    @Test
+    void single_tensor_is_convolved_like_a_batch_of_one() {
+        var layer = layer(3, 2, 1, ModelSettings.executionMode.SERIAL, Convolution2D.Algorithm.IM2COL, 2);
+        var tensor = new Tensor(7, 5, CHANNELS, MultiDimObject.InitValues.HE);
+        var output = (Tensor) layer.forward(tensor);
+        var batch = (NDArray) layer.forward(new NDArray(tensor.get_storage().get_data().clone(), 1, 7, 5, CHANNELS));
+        assertArrayEquals(new int[] {4, 3, KERNELS}, output.get_size());
+        assertArrayEquals(batch.get_storage().get_data(), output.contiguous().get_storage().get_data(), 0);
+    }
+}
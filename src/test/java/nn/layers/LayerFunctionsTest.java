@@ -0,0 +1,137 @@
+package nn.layers;
+
+import autograd.Value;
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.Tensor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayerFunctionsTest {
+    private static final double EPSILON = 1e-6;
+
+    private static double[][] random(Random random, int height, int width, double low, double high) {
+        var values = new double[height][width];
+        for (int i = 0; i < height; ++i)
+            for (int j = 0; j < width; ++j) values[i][j] = low + random.nextDouble() * (high - low);
+        return values;
+    }
+
+    private static Value weighted_sum(MultiDimObject object) {
+        var terms = new ArrayList<Value>();
+        int index = 0;
+        for (var element: object) terms.add(element.multiply(new Value(Math.sin(++index), false)));
+        return Value.add(terms);
+    }
+
+    private static void check_gradients(Supplier<Value> loss, MultiDimObject... inputs) {
+        for (var input: inputs) input.get_storage().zero_gradient();
+        loss.get().backward();
+        for (var input: inputs) {
+            double[] data = input.get_storage().get_data();
+            double[] gradient = input.get_storage().get_gradient().clone();
+            for (int i = 0; i < data.length; ++i) {
+                double value = data[i];
+                data[i] = value + EPSILON;
+                double plus = loss.get().value;
+                data[i] = value - EPSILON;
+                double minus = loss.get().value;
+                data[i] = value;
+                assertEquals((plus - minus) / (2 * EPSILON), gradient[i], 1e-5 * Math.max(1, Math.abs(gradient[i])));
+            }
+        }
+    }
+
+    @Test
+    void max_pooling_passes_the_gradient_to_the_maxima() {
+        var random = new Random(4);
+        var values = new double[4][6][2];
+        for (int i = 0; i < 4; ++i)
+            for (int j = 0; j < 6; ++j)
+                for (int k = 0; k < 2; ++k) values[i][j][k] = random.nextDouble();
+        var tensor = new Tensor(values);
+
+        var pooled = LayerFunctions.maxPool2D(tensor, 2);
+        assertArrayEquals(new int[] {2, 3, 2}, pooled.get_size());
+        for (int i = 0; i < 2; ++i)
+            for (int j = 0; j < 3; ++j)
+                for (int k = 0; k < 2; ++k) {
+                    double expected = Math.max(Math.max(values[2 * i][2 * j][k], values[2 * i][2 * j + 1][k]),
+                            Math.max(values[2 * i + 1][2 * j][k], values[2 * i + 1][2 * j + 1][k]));
+                    assertEquals(expected, pooled.get(i, j, k).value, 0);
+                }
+        check_gradients(() -> weighted_sum(LayerFunctions.maxPool2D(tensor, 2)), tensor);
+    }
+
+    @Test
+    void batched_max_pooling_matches_the_pooling_of_single_images() {
+        var random = new Random(6);
+        double[] data = new double[3 * 4 * 6 * 2];
+        for (int i = 0; i < data.length; ++i) data[i] = random.nextDouble();
+        var batch = new NDArray(data, 3, 4, 6, 2);
+
+        var pooled = LayerFunctions.maxPool2D(batch, 2);
+        assertArrayEquals(new int[] {3, 2, 3, 2}, pooled.get_size());
+        for (int b = 0; b < 3; ++b) {
+            var image = new double[4][6][2];
+            for (int i = 0; i < 4; ++i)
+                for (int j = 0; j < 6; ++j)
+                    for (int k = 0; k < 2; ++k) image[i][j][k] = batch.get(b, i, j, k).value;
+            var expected = LayerFunctions.maxPool2D(new Tensor(image), 2);
+            for (int i = 0; i < 2; ++i)
+                for (int j = 0; j < 3; ++j)
+                    for (int k = 0; k < 2; ++k)
+                        assertEquals(expected.get(i, j, k).value, pooled.get(b, i, j, k).value, 0);
+        }
+        check_gradients(() -> weighted_sum(LayerFunctions.maxPool2D(batch, 2)), batch);
+    }
+
+    @Test
+    void losses_have_the_gradients_of_their_definition() {
+        var random = new Random(5);
+        var prediction = new Matrix(random(random, 3, 4, 0.05, 0.95));
+        var target = new Matrix(random(random, 3, 4, 0, 1));
+
+        double bce = 0, cross_entropy = 0;
+        for (int i = 0; i < 3; ++i)
+            for (int j = 0; j < 4; ++j) {
+                double p = prediction.get(i, j).value, t = target.get(i, j).value;
+                bce -= t * Math.log(p) + (1 - t) * Math.log(1 - p);
+                cross_entropy -= t * Math.log(p);
+            }
+        assertEquals(bce, LayerFunctions.bce_loss(prediction, target).value, 1e-12);
+        assertEquals(cross_entropy, LayerFunctions.cross_entropy_loss(prediction, target).value, 1e-12);
+
+        check_gradients(() -> LayerFunctions.bce_loss(prediction, target), prediction, target);
+        check_gradients(() -> LayerFunctions.cross_entropy_loss(prediction, target), prediction, target);
+        // the losses of transposed views are the losses of their copies
+        check_gradients(() -> LayerFunctions.bce_loss(prediction.transpose(), target.transpose()), prediction, target);
+    }
+
+    @Test
+    void losses_detect_inputs_modified_in_place() {
+        var random = new Random(7);
+        var prediction = new Matrix(random(random, 3, 4, 0.05, 0.45));
+        var target = new Matrix(random(random, 3, 4, 0, 1));
+        var offset = new Matrix(random(random, 3, 4, 0, 0.5));
+        offset.set_requires_grad(false);
+        target.set_requires_grad(false);
+
+        var shifted = prediction.add(offset);
+        var bce = LayerFunctions.bce_loss(shifted, target);
+        shifted.mul_(offset);
+        assertThrows(RuntimeException.class, bce::backward);
+
+        var cross_entropy = LayerFunctions.cross_entropy_loss(prediction.add(offset), target);
+        target.add_(offset);
+        assertThrows(RuntimeException.class, cross_entropy::backward);
+
+        assertDoesNotThrow(() -> LayerFunctions.cross_entropy_loss(prediction.add(offset), target).backward());
+    }
+}
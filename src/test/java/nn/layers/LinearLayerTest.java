@@ -0,0 +1,39 @@
+package nn.layers;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import nn.models.ModelSettings;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearLayerTest {
+
+    private static boolean all_single(double[] values) {
+        for (double value: values) if (value != (float) value) return false;
+        return true;
+    }
+
+    @Test
+    void single_precision_only_changes_the_products() {
+        var layer = new LinearLayer(300, 20, true, Layer.Activation.Sigmoid);
+        var weights = layer.get_parameters().get(0);
+        var initial_weights = weights.get_storage().get_data().clone();
+        var input = new Matrix(300, 8, MultiDimObject.InitValues.HE);
+
+        var expected = layer.forward(input);
+        expected.sum().get(0, 0).backward();
+        var expected_gradient = weights.get_storage().get_gradient().clone();
+        weights.get_storage().zero_gradient();
+
+        layer.set_precision(ModelSettings.numericPrecision.FLOAT32);
+        var output = layer.forward(input);
+        output.sum().get(0, 0).backward();
+
+        // the weights keep their double-precision values and the activations are computed on the double-precision sums
+        assertArrayEquals(initial_weights, weights.get_storage().get_data(), 0);
+        assertFalse(all_single(output.get_storage().get_data()));
+        assertArrayEquals(expected.get_storage().get_data(), output.get_storage().get_data(), 1e-4);
+        assertArrayEquals(expected_gradient, weights.get_storage().get_gradient(), 1e-4);
+    }
+}
@@ -0,0 +1,121 @@
+package nn.models;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import nn.layers.Layer;
+import nn.layers.LayerFunctions;
+import nn.layers.LinearLayer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionPlanTest {
+
+    private static SequentialModel model(Layer... layers) {
+        return new SequentialModel(new ArrayList<>(List.of(layers)), ModelSettings.executionMode.SERIAL);
+    }
+
+    private static double[][] gradients(Model model) {
+        var parameters = model.get_parameters();
+        var gradients = new double[parameters.size()][];
+        for (int i = 0; i < gradients.length; ++i) {
+            gradients[i] = parameters.get(i).get_storage().get_gradient().clone();
+            parameters.get(i).get_storage().zero_gradient();
+        }
+        return gradients;
+    }
+
+    @Test
+    void replay_matches_the_eager_forward_and_backward_pass() {
+        var model = model(new LinearLayer(4, 3, true, Layer.Activation.Sigmoid),
+                new LinearLayer(3, 2, true, Layer.Activation.Sigmoid));
+        var plan = model.trace(new Matrix(4, 5, MultiDimObject.InitValues.HE));
+
+        for (int step = 0; step < 2; ++step) {
+            var input = new Matrix(4, 5, MultiDimObject.InitValues.HE);
+            input.set_requires_grad(false);
+            var expected = (Matrix) model.forward(input);
+            expected.sum().get(0, 0).backward();
+            var expected_gradients = gradients(model);
+
+            var output = (Matrix) plan.forward(input);
+            assertSame(plan.get_output(), output);
+            assertArrayEquals(expected.get_storage().get_data(), output.get_storage().get_data(), 1e-12);
+            output.sum().get(0, 0).backward();
+            var plan_gradients = gradients(model);
+            for (int i = 0; i < plan_gradients.length; ++i)
+                assertArrayEquals(expected_gradients[i], plan_gradients[i], 1e-12);
+        }
+    }
+
+    @Test
+    void losses_of_a_previous_replay_cannot_be_differentiated() {
+        var plan = model(new LinearLayer(4, 2, true, Layer.Activation.Sigmoid))
+                .trace(new Matrix(4, 3, MultiDimObject.InitValues.HE));
+        var target = new Matrix(2, 3, MultiDimObject.InitValues.ZEROS);
+        target.set_requires_grad(false);
+
+        var output = (Matrix) plan.forward(new Matrix(4, 3, MultiDimObject.InitValues.HE));
+        var stale_sum = output.sum().get(0, 0);
+        var stale_loss = LayerFunctions.bce_loss(output, target);
+        plan.forward(new Matrix(4, 3, MultiDimObject.InitValues.HE));
+        assertThrows(RuntimeException.class, stale_sum::backward);
+        assertThrows(RuntimeException.class, stale_loss::backward);
+        assertDoesNotThrow(() -> LayerFunctions.bce_loss(output, target).backward());
+    }
+
+    @Test
+    void replay_rejects_inputs_of_another_size() {
+        var plan = model(new LinearLayer(4, 2, true, Layer.Activation.ReLU))
+                .trace(new Matrix(4, 3, MultiDimObject.InitValues.HE));
+        assertThrows(RuntimeException.class, () -> plan.forward(new Matrix(4, 2, MultiDimObject.InitValues.HE)));
+    }
+
+    @Test
+    void tracing_is_confined_to_the_tracing_thread() throws InterruptedException {
+        var traced = new CountDownLatch(1);
+        var checked = new CountDownLatch(1);
+        var seen_by_tracer = new AtomicReference<ExecutionPlan>();
+        var seen_by_other = new AtomicReference<ExecutionPlan>();
+        var linear = new LinearLayer(2, 2, true, Layer.Activation.Identity);
+        var blocking = new Layer() {
+            @Override
+            public MultiDimObject forward(MultiDimObject inputs) {
+                seen_by_tracer.set(ExecutionPlan.tracing());
+                traced.countDown();
+                try {
+                    checked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return linear.forward(inputs);
+            }
+
+            @Override
+            public ArrayList<MultiDimObject> get_parameters() {
+                return linear.get_parameters();
+            }
+
+            @Override
+            public void set_execution_mode(ModelSettings.executionMode mode) {
+                linear.set_execution_mode(mode);
+            }
+        };
+
+        var tracer = new Thread(() -> model(blocking).trace(new Matrix(2, 1, MultiDimObject.InitValues.ONES)));
+        tracer.start();
+        traced.await();
+        seen_by_other.set(ExecutionPlan.tracing());
+        checked.countDown();
+        tracer.join();
+
+        assertNotNull(seen_by_tracer.get());
+        assertNull(seen_by_other.get());
+        assertNull(ExecutionPlan.tracing());
+    }
+}
@@ -0,0 +1,179 @@
+package nn.models;
+
+import autograd.NoGrad;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.StorageArena;
+import nn.layers.ConvTranspose2D;
+import nn.layers.Convolution2D;
+import nn.layers.Layer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphModelTest {
+    private static final int SAMPLES = 3;
+    private static final int SIZE = 16;
+
+    /**
+     * A small U-Net: an encoder convolution, a downsampling convolution and an upsampling transposed convolution,
+     * whose output is concatenated with the encoder features, followed by a residual connection from the encoder.
+     */
+    private static final class UNet {
+        final Convolution2D encoder, down, decoder, head;
+        final ConvTranspose2D up;
+        final GraphModel model;
+
+        UNet(ModelSettings.executionMode mode) {
+            encoder = new Convolution2D(2, 4, 3, 1, 1, true, Layer.Activation.Sigmoid, mode);
+            down = new Convolution2D(4, 6, 3, 2, 1, true, Layer.Activation.Sigmoid, mode);
+            up = new ConvTranspose2D(6, 4, 2, 2, 0, true, Layer.Activation.Sigmoid, mode);
+            decoder = new Convolution2D(8, 4, 3, 1, 1, true, Layer.Activation.Identity, mode);
+            head = new Convolution2D(4, 1, 1, 1, 0, true, Layer.Activation.Sigmoid, mode);
+            model = new GraphModel(mode);
+            int features = model.add_layer(encoder, GraphModel.INPUT);
+            int upsampled = model.add_layer(up, model.add_layer(down, features));
+            int decoded = model.add_layer(decoder, model.concatenate(upsampled, features));
+            model.add_layer(head, model.add(decoded, features));
+        }
+
+        NDArray forward_by_hand(NDArray input) {
+            var features = encoder.forward(input);
+            var upsampled = (NDArray) up.forward(down.forward(features));
+            var decoded = decoder.forward(NDArray.concatenate(upsampled, (NDArray) features));
+            return (NDArray) head.forward(decoded.add(features));
+        }
+    }
+
+    private static double[][] take_gradients(ArrayList<MultiDimObject> parameters) {
+        var gradients = new double[parameters.size()][];
+        for (int i = 0; i < gradients.length; ++i) {
+            gradients[i] = parameters.get(i).get_storage().get_gradient().clone();
+            parameters.get(i).get_storage().zero_gradient();
+        }
+        return gradients;
+    }
+
+    private static long bytes(int... size) {
+        long elements = 1;
+        for (int dimension: size) elements *= dimension;
+        return elements * Double.BYTES;
+    }
+
+    /**
+     * Returns the bytes of the outputs of all nodes of the U-Net.
+     */
+    private static long all_activations() {
+        long bytes = 0;
+        for (int[] size: new int[][] {{SIZE, SIZE, 4}, {SIZE / 2, SIZE / 2, 6}, {SIZE, SIZE, 4}, {SIZE, SIZE, 8},
+                {SIZE, SIZE, 4}, {SIZE, SIZE, 4}, {SIZE, SIZE, 1}})
+            bytes += bytes(SAMPLES, size[0], size[1], size[2]);
+        return bytes;
+    }
+
+    @AfterEach
+    void trim() {
+        StorageArena.trim();
+    }
+
+    @Test
+    void graph_matches_the_layers_applied_by_hand() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var net = new UNet(mode);
+            var input = new NDArray(new int[] {SAMPLES, SIZE, SIZE, 2}, MultiDimObject.InitValues.HE);
+            var parameters = net.model.get_parameters();
+
+            var expected = net.forward_by_hand(input);
+            expected.sum().backward(mode);
+            var expected_input_gradient = input.get_storage().get_gradient().clone();
+            input.get_storage().zero_gradient();
+            var expected_gradients = take_gradients(parameters);
+
+            var output = (NDArray) net.model.forward(input);
+            assertArrayEquals(new int[] {SAMPLES, SIZE, SIZE, 1}, output.get_size());
+            assertArrayEquals(expected.get_storage().get_data(), output.get_storage().get_data(), 1e-12);
+            output.sum().backward(mode);
+            assertArrayEquals(expected_input_gradient, input.get_storage().get_gradient(), 1e-12);
+            var gradients = take_gradients(parameters);
+            for (int i = 0; i < gradients.length; ++i) assertArrayEquals(expected_gradients[i], gradients[i], 1e-12);
+        }
+    }
+
+    @Test
+    void inference_keeps_only_live_activations_and_the_current_scratch() {
+        var net = new UNet(ModelSettings.executionMode.SERIAL);
+        var input = new NDArray(new int[] {SAMPLES, SIZE, SIZE, 2}, MultiDimObject.InitValues.HE);
+        input.set_requires_grad(false);
+        var expected = NoGrad.call(() -> net.forward_by_hand(input));
+
+        long output_bytes = bytes(SAMPLES, SIZE, SIZE, 1);
+        // the largest step is the decoder: its input (the concatenation), the encoder features kept for the residual
+        // connection and its output are alive while it unrolls the windows of its input and copies its kernels
+        long decoder_window = 3 * 3 * 8;
+        long bound = bytes(SAMPLES, SIZE, SIZE, 8) + bytes(SAMPLES, SIZE, SIZE, 4) + bytes(SAMPLES, SIZE, SIZE, 4)
+                + bytes(SAMPLES * SIZE * SIZE, (int) decoder_window) + bytes(4, (int) decoder_window);
+
+        for (int run = 0; run < 2; ++run) {
+            var arena = new StorageArena();
+            try {
+                var output = NoGrad.call(() -> (NDArray) net.model.forward(input));
+                assertArrayEquals(expected.get_storage().get_data(), output.get_storage().get_data(), 0);
+                // every intermediate activation and scratch array has been returned to the pool
+                assertEquals(output_bytes, arena.get_live_bytes());
+                assertTrue(arena.get_peak_bytes() <= bound, "peak " + arena.get_peak_bytes() + " > " + bound);
+            } finally {
+                arena.close();
+            }
+        }
+
+        // with the graph built nothing can be released before the backward pass
+        var arena = new StorageArena();
+        try {
+            net.model.forward(input);
+            assertTrue(arena.get_live_bytes() > all_activations() + bound);
+        } finally {
+            arena.close();
+        }
+    }
+
+    @Test
+    void scratch_of_every_convolution_algorithm_is_returned_without_a_graph() {
+        for (var algorithm: new Convolution2D.Algorithm[] {Convolution2D.Algorithm.WINOGRAD, Convolution2D.Algorithm.FFT}) {
+            var net = new UNet(ModelSettings.executionMode.SERIAL);
+            net.encoder.set_algorithm(algorithm);
+            net.decoder.set_algorithm(algorithm);
+            var input = new NDArray(new int[] {SAMPLES, SIZE, SIZE, 2}, MultiDimObject.InitValues.HE);
+            input.set_requires_grad(false);
+            var expected = NoGrad.call(() -> net.forward_by_hand(input));
+
+            var arena = new StorageArena();
+            try {
+                var output = NoGrad.call(() -> (NDArray) net.model.forward(input));
+                assertArrayEquals(expected.get_storage().get_data(), output.get_storage().get_data(), 0);
+                assertEquals(bytes(SAMPLES, SIZE, SIZE, 1), arena.get_live_bytes());
+            } finally {
+                arena.close();
+            }
+        }
+    }
+
+    @Test
+    void backward_scratch_is_returned_after_the_pass() {
+        var net = new UNet(ModelSettings.executionMode.SERIAL);
+        var input = new NDArray(new int[] {SAMPLES, SIZE, SIZE, 2}, MultiDimObject.InitValues.HE);
+        input.set_requires_grad(false);
+        var arena = new StorageArena();
+        try {
+            var loss = ((NDArray) net.model.forward(input)).sum();
+            long after_forward = arena.get_live_bytes();
+            loss.backward();
+            // the backward pass only keeps the gradients of the activations; its scratch went back to the pool
+            assertEquals(after_forward + all_activations(), arena.get_live_bytes());
+        } finally {
+            arena.close();
+        }
+    }
+}
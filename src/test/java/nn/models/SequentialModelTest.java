@@ -0,0 +1,143 @@
+package nn.models;
+
+import mathematics.Matrix;
+import mathematics.MultiDimObject;
+import mathematics.NDArray;
+import mathematics.Tensor;
+import nn.layers.Convolution2D;
+import nn.layers.Flatten2D;
+import nn.layers.Layer;
+import nn.layers.LinearLayer;
+import nn.layers.MaxPool2D;
+import nn.losses.BCELoss;
+import nn.losses.CrossEntropyLoss;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequentialModelTest {
+
+    private static SequentialModel model(ModelSettings.executionMode mode, Layer.Activation output_activation,
+                                         int outputs) {
+        return new SequentialModel(new ArrayList<>(List.of(
+                new Convolution2D(2, 3, 3, 1, 1, true, Layer.Activation.ReLU, mode),
+                new Convolution2D(3, 3, 3, 1, 1, true, Layer.Activation.LeakyReLU, mode),
+                new MaxPool2D(2),
+                new Flatten2D(),
+                new LinearLayer(27, outputs, true, output_activation))), mode);
+    }
+
+    private static ArrayList<double[]> take_gradients(List<MultiDimObject> objects) {
+        var gradients = new ArrayList<double[]>();
+        for (var object: objects) {
+            gradients.add(object.get_storage().get_gradient().clone());
+            object.get_storage().zero_gradient();
+        }
+        return gradients;
+    }
+
+    private static void assert_gradients_equal(List<double[]> expected, List<double[]> actual, double delta) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) assertArrayEquals(expected.get(i), actual.get(i), delta);
+    }
+
+    @Test
+    void checkpointing_keeps_the_gradients() {
+        for (var mode: ModelSettings.executionMode.values()) {
+            var model = model(mode, Layer.Activation.Softmax, 4);
+            var input = new Tensor(6, 6, 2, MultiDimObject.InitValues.HE);
+            var target = new Matrix(new double[][] {{0}, {1}, {0}, {0}});
+            target.set_requires_grad(false);
+            var parameters = new ArrayList<MultiDimObject>(model.get_parameters());
+            parameters.add(input);
+
+            var loss = new CrossEntropyLoss();
+            loss.calculate_loss(model.forward(input), target).backward(mode);
+            var expected = take_gradients(parameters);
+
+            for (int[] checkpoints: new int[][] {{0}, {1, 3}, {0, 1, 2, 3, 4}, {4}}) {
+                model.set_checkpoints(checkpoints);
+                loss.calculate_loss(model.forward(input), target).backward(mode);
+                assert_gradients_equal(expected, take_gradients(parameters), 1e-12);
+            }
+            model.set_checkpoints();
+        }
+    }
+
+    @Test
+    void checkpointed_segments_are_differentiated_in_the_mode_of_the_model() {
+        var backward_thread = new AtomicReference<Thread>();
+        var recording = new Layer() {
+            @Override
+            public MultiDimObject forward(MultiDimObject inputs) {
+                var output = inputs.copy();
+                output.set_grad_fn("record", () -> {
+                    backward_thread.set(Thread.currentThread());
+                    double[] gradient = inputs.get_storage().get_gradient();
+                    double[] output_gradient = output.get_storage().get_gradient();
+                    for (int i = 0; i < gradient.length; ++i) gradient[i] += output_gradient[i];
+                }, inputs);
+                return output;
+            }
+
+            @Override
+            public ArrayList<MultiDimObject> get_parameters() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public void set_execution_mode(ModelSettings.executionMode mode) {}
+        };
+        var model = new SequentialModel(new ArrayList<>(List.of(
+                new LinearLayer(3, 4, true, Layer.Activation.ReLU), recording,
+                new LinearLayer(4, 1, true, Layer.Activation.Sigmoid))), ModelSettings.executionMode.PARALLEL);
+        model.set_checkpoints(0);
+
+        // the outer pass is serial, so only the recomputed segment can run on the pool
+        ((Matrix) model.forward(new Matrix(3, 2, MultiDimObject.InitValues.HE))).sum().get(0, 0).backward();
+        assertTrue(backward_thread.get() instanceof ForkJoinWorkerThread);
+    }
+
+    @Test
+    void checkpoint_indices_must_be_in_range() {
+        var model = model(ModelSettings.executionMode.SERIAL, Layer.Activation.Sigmoid, 1);
+        assertThrows(RuntimeException.class, () -> model.set_checkpoints(5));
+        assertThrows(RuntimeException.class, () -> model.set_checkpoints(-1));
+    }
+
+    @Test
+    void batch_matches_the_samples_processed_one_by_one() {
+        var mode = ModelSettings.executionMode.SERIAL;
+        var model = model(mode, Layer.Activation.Sigmoid, 1);
+        int samples = 4;
+        var inputs = new Tensor[samples];
+        var target_values = new double[1][samples];
+        var loss = new BCELoss();
+        var outputs = new double[samples];
+        for (int i = 0; i < samples; ++i) {
+            inputs[i] = new Tensor(6, 6, 2, MultiDimObject.InitValues.HE);
+            target_values[0][i] = i % 2;
+            var target = new Matrix(new double[][] {{i % 2}});
+            target.set_requires_grad(false);
+            var output = (Matrix) model.forward(inputs[i]);
+            outputs[i] = output.get(0, 0).value;
+            loss.calculate_loss(output, target).backward();
+        }
+        var parameters = new ArrayList<MultiDimObject>(model.get_parameters());
+        parameters.addAll(List.of(inputs));
+        var expected = take_gradients(parameters);
+
+        var targets = new Matrix(target_values);
+        targets.set_requires_grad(false);
+        var output = (Matrix) model.forward(NDArray.stack(inputs));
+        assertArrayEquals(new int[] {1, samples}, output.get_size());
+        assertArrayEquals(outputs, output.get_storage().get_data(), 1e-12);
+        loss.calculate_loss(output, targets).backward();
+        assert_gradients_equal(expected, take_gradients(parameters), 1e-12);
+    }
+}